@@ -1,8 +1,15 @@
+import java.security.MessageDigest
+
 plugins {
     id("com.android.application")
     id("org.jetbrains.kotlin.android")
 }
 
+// Контрольная сумма БД из assets: DatabaseProvisioner сверяет с ней скопированный файл
+val assetDatabaseSha256: String = MessageDigest.getInstance("SHA-256")
+    .digest(file("src/main/assets/databases/narek.db").readBytes())
+    .joinToString("") { "%02x".format(it) }
+
 android {
     namespace = "com.example.clothes"
     compileSdk = 34
@@ -15,10 +22,27 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        buildConfigField("String", "ASSET_DB_SHA256", "\"$assetDatabaseSha256\"")
+    }
+
+    buildFeatures {
+        buildConfig = true
+    }
+
+    // БД в APK хранится без сжатия: размер известен заранее для прогресса копирования
+    androidResources {
+        noCompress += "db"
     }
 
+    // Отладочный журнал DatabaseHelper: в release его вызовы выбрасываются при компиляции.
+    // Для замеров без него в debug-сборке: ./gradlew installDebug -PdebugLogs=false
     buildTypes {
+        debug {
+            buildConfigField("boolean", "DEBUG_LOGS", (findProperty("debugLogs") as String?) ?: "true")
+        }
         release {
+            buildConfigField("boolean", "DEBUG_LOGS", "false")
             isMinifyEnabled = false
             proguardFiles(
                 getDefaultProguardFile("proguard-android-optimize.txt"),
@@ -49,6 +73,7 @@ dependencies {
     implementation("androidx.sqlite:sqlite-ktx:2.4.0")
 
     testImplementation("junit:junit:4.13.2")
+    testImplementation("org.xerial:sqlite-jdbc:3.45.1.0")
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.5.1")
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import com.example.clothes.DatabaseHelper.MasterSnapshot;
+import com.example.clothes.DatabaseHelper.WorkerSnapshot;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Сравнивает полную загрузку данных экранов работника и мастера:
+ * прежняя цепочка отдельных запросов против {@link DatabaseHelper#getWorkerSnapshot}
+ * и {@link DatabaseHelper#getMasterSnapshot}. Читает рабочую БД приложения,
+ * ничего не меняя. Результат в мкс/загрузку пишется в logcat с тегом DashboardSnapshotBenchmark.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DashboardSnapshotBenchmark {
+
+    private static final String TAG = "DashboardSnapshotBenchmark";
+    private static final int WARMUP_RUNS = 50;
+    private static final int MEASURED_RUNS = 500;
+
+    // Запросы прежней цепочки, которые заменила шапка снимка
+    private static final String LEGACY_WORKER_TOTALS = "SELECT " +
+            "COALESCE(SUM(total_quantity), 0), COALESCE(SUM(total_defects), 0) " +
+            "FROM worker_stats WHERE user_id = ?";
+    private static final String LEGACY_OPEN_SHIFT = "SELECT start_time FROM shifts " +
+            "WHERE user_id = ? AND end_time IS NULL ORDER BY start_time DESC LIMIT 1";
+    private static final String LEGACY_SHIFT_WINDOW = "SELECT " +
+            "COALESCE(SUM(quantity), 0), COALESCE(SUM(defects), 0) FROM worker_hourly_stats " +
+            "WHERE user_id = ?1 AND hour >= strftime('%Y-%m-%d %H:00', ?2)";
+    private static final String LEGACY_BRIGADE_TOTALS = "SELECT " +
+            "COALESCE(SUM(workers_count), 0), COALESCE(SUM(total_quantity), 0), COALESCE(SUM(total_defects), 0) " +
+            "FROM brigade_stats WHERE brigade = ?";
+
+    private DatabaseHelper databaseHelper;
+    private int workerId;
+    private int masterId;
+    private String brigade;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        databaseHelper = DatabaseHelper.getInstance(context);
+
+        SQLiteDatabase db = databaseHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT id FROM users WHERE role = 'worker' ORDER BY id LIMIT 1", null);
+        workerId = cursor.moveToFirst() ? cursor.getInt(0) : -1;
+        cursor.close();
+
+        cursor = db.rawQuery("SELECT id, brigade FROM users WHERE role = 'master' AND brigade IS NOT NULL " +
+                "ORDER BY id LIMIT 1", null);
+        if (cursor.moveToFirst()) {
+            masterId = cursor.getInt(0);
+            brigade = cursor.getString(1);
+        }
+        cursor.close();
+    }
+
+    @Test
+    public void workerDashboard() {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            loadWorkerLegacy();
+            databaseHelper.getWorkerSnapshot(workerId);
+        }
+
+        long legacyNanos = 0;
+        long snapshotNanos = 0;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            int legacyCompleted = loadWorkerLegacy();
+            legacyNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            WorkerSnapshot snapshot = databaseHelper.getWorkerSnapshot(workerId);
+            snapshotNanos += System.nanoTime() - start;
+
+            assertEquals(legacyCompleted, snapshot.stats.completed);
+        }
+
+        report("Экран работника", legacyNanos, snapshotNanos);
+    }
+
+    @Test
+    public void masterDashboard() {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            loadMasterLegacy();
+            databaseHelper.getMasterSnapshot(masterId, brigade);
+        }
+
+        long legacyNanos = 0;
+        long snapshotNanos = 0;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            int legacyCompleted = loadMasterLegacy();
+            legacyNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            MasterSnapshot snapshot = databaseHelper.getMasterSnapshot(masterId, brigade);
+            snapshotNanos += System.nanoTime() - start;
+
+            assertEquals(legacyCompleted, snapshot.stats.totalCompleted);
+        }
+
+        report("Экран мастера", legacyNanos, snapshotNanos);
+    }
+
+    private static void report(String screen, long legacyNanos, long snapshotNanos) {
+        double legacyMicros = legacyNanos / 1000.0 / MEASURED_RUNS;
+        double snapshotMicros = snapshotNanos / 1000.0 / MEASURED_RUNS;
+        Log.i(TAG, String.format(Locale.US, "%s: цепочка запросов %.0f мкс, снимок %.0f мкс (x%.1f)",
+                screen, legacyMicros, snapshotMicros, legacyMicros / snapshotMicros));
+    }
+
+    // Прежний loadWorkerData: getWorkerStats и getWorkerDetailedStats, каждый запрос сам по себе
+    private int loadWorkerLegacy() {
+        String user = String.valueOf(workerId);
+
+        int completed = readInt(LEGACY_WORKER_TOTALS, user);
+        drain(DatabaseContract.SQL_WORKER_TODAY_ASSIGNMENTS, user);
+
+        SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+        Calendar calendar = Calendar.getInstance();
+        String today = dayFormat.format(calendar.getTime());
+        calendar.add(Calendar.DAY_OF_YEAR, -6);
+        String weekStart = dayFormat.format(calendar.getTime());
+        calendar.add(Calendar.DAY_OF_YEAR, -23);
+        String monthStart = dayFormat.format(calendar.getTime());
+        drain(DatabaseContract.SQL_WORKER_DAY_WINDOWS, user, today, weekStart, monthStart);
+
+        Cursor cursor = databaseHelper.getReadableDatabase().rawQuery(LEGACY_OPEN_SHIFT, new String[]{user});
+        String shiftStart = cursor.moveToFirst() ? cursor.getString(0) : null;
+        cursor.close();
+        if (shiftStart != null) {
+            drain(LEGACY_SHIFT_WINDOW, user, shiftStart);
+        }
+
+        drain(DatabaseContract.SQL_WORKER_ACTIVE_ASSIGNMENTS, user);
+        drain(DatabaseContract.SQL_WORKER_RECENT_COMPLETED, user);
+        return completed;
+    }
+
+    // Прежний showBrigadeStatistics: getMasterStats и getBrigadeActiveAssignments
+    private int loadMasterLegacy() {
+        Cursor cursor = databaseHelper.getReadableDatabase().rawQuery(LEGACY_BRIGADE_TOTALS, new String[]{brigade});
+        int completed = cursor.moveToFirst() ? cursor.getInt(1) : 0;
+        cursor.close();
+
+        drain(DatabaseContract.SQL_BRIGADE_TOP_WORKERS, brigade);
+        drain(DatabaseContract.SQL_BRIGADE_ACTIVE_ASSIGNMENTS, brigade);
+        return completed;
+    }
+
+    private int readInt(String sql, String... args) {
+        Cursor cursor = databaseHelper.getReadableDatabase().rawQuery(sql, args);
+        int value = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        cursor.close();
+        return value;
+    }
+
+    private void drain(String sql, String... args) {
+        Cursor cursor = databaseHelper.getReadableDatabase().rawQuery(sql, args);
+        while (cursor.moveToNext()) {
+            cursor.getString(0);
+        }
+        cursor.close();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.example.clothes.DatabaseHelper.QualityControlItem;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Сравнивает стоимость разбора строки {@link QualityControlItem} (15 столбцов):
+ * поиск индекса столбца на каждой строке против {@link RowMappers.QualityControlItemMapper}.
+ * Результат в нс/строку (медиана проходов после прогрева) пишется в logcat с тегом
+ * RowMapperBenchmark. Запускается на устройстве через connectedAndroidTest: MatrixCursor -
+ * класс фреймворка, и на JVM без устройства этот замер не воспроизводится.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RowMapperBenchmark {
+
+    private static final String TAG = "RowMapperBenchmark";
+    // Прогрев считается в строках, а не в проходах: иначе на 10 тысячах строк JIT
+    // не успевает скомпилировать оба способа и малый курсор выходит дороже большого
+    private static final int WARMUP_ROWS = 1_000_000;
+    private static final int MEASURED_RUNS = 9;
+
+    private static final String[] COLUMNS = {
+            "id", "worker_name", "operation_name", "product_name", "planned_quantity",
+            "actual_quantity", "defects", "status", "created_at", "start_time", "end_time",
+            "quality_result", "quality_checker_id", "quality_check_date", "quality_notes"
+    };
+
+    @Test
+    public void qualityControlItems10k() {
+        measure(10_000);
+    }
+
+    @Test
+    public void qualityControlItems100k() {
+        measure(100_000);
+    }
+
+    private void measure(int rows) {
+        MatrixCursor cursor = buildCursor(rows);
+        try {
+            int warmupRuns = Math.max(3, WARMUP_ROWS / rows);
+            for (int i = 0; i < warmupRuns; i++) {
+                readPerRowLookup(cursor);
+                readWithMapper(cursor);
+            }
+
+            // Порядок способов чередуется, чтобы сборка мусора после одного не доставалась
+            // всегда другому; берется медиана проходов, а не среднее
+            long[] lookupNanos = new long[MEASURED_RUNS];
+            long[] mapperNanos = new long[MEASURED_RUNS];
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                if (i % 2 == 0) {
+                    lookupNanos[i] = timeLookup(cursor, rows);
+                    mapperNanos[i] = timeMapper(cursor, rows);
+                } else {
+                    mapperNanos[i] = timeMapper(cursor, rows);
+                    lookupNanos[i] = timeLookup(cursor, rows);
+                }
+            }
+
+            double lookupPerRow = (double) median(lookupNanos) / rows;
+            double mapperPerRow = (double) median(mapperNanos) / rows;
+            Log.i(TAG, String.format("%d строк: getColumnIndexOrThrow на строку %.0f нс, маппер %.0f нс (x%.1f)",
+                    rows, lookupPerRow, mapperPerRow, lookupPerRow / mapperPerRow));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static long timeLookup(Cursor cursor, int rows) {
+        long start = System.nanoTime();
+        assertEquals(rows, readPerRowLookup(cursor).size());
+        return System.nanoTime() - start;
+    }
+
+    private static long timeMapper(Cursor cursor, int rows) {
+        long start = System.nanoTime();
+        assertEquals(rows, readWithMapper(cursor).size());
+        return System.nanoTime() - start;
+    }
+
+    private static long median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static MatrixCursor buildCursor(int rows) {
+        MatrixCursor cursor = new MatrixCursor(COLUMNS, rows);
+        for (int i = 0; i < rows; i++) {
+            boolean checked = i % 3 == 0;
+            cursor.addRow(new Object[]{
+                    i, "Работник " + (i % 50), "Операция " + (i % 20), "Изделие " + (i % 10),
+                    100, 90, i % 5, "completed", "2024-01-01 08:00:00", "2024-01-01 09:00:00",
+                    "2024-01-01 17:00:00", checked ? "approved" : null, checked ? 7 : null,
+                    checked ? "2024-01-02 10:00:00" : null, checked ? "ok" : null
+            });
+        }
+        return cursor;
+    }
+
+    // Прежний способ из DatabaseHelper: поиск индекса по имени для каждого поля каждой строки
+    private static List<QualityControlItem> readPerRowLookup(Cursor cursor) {
+        List<QualityControlItem> tasks = new ArrayList<>();
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            QualityControlItem task = new QualityControlItem();
+            task.id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
+            task.workerName = cursor.getString(cursor.getColumnIndexOrThrow("worker_name"));
+            task.operationName = cursor.getString(cursor.getColumnIndexOrThrow("operation_name"));
+            task.productName = cursor.getString(cursor.getColumnIndexOrThrow("product_name"));
+            task.plannedQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("planned_quantity"));
+            task.actualQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("actual_quantity"));
+            task.defects = cursor.getInt(cursor.getColumnIndexOrThrow("defects"));
+            task.status = cursor.getString(cursor.getColumnIndexOrThrow("status"));
+            task.createdAt = cursor.getString(cursor.getColumnIndexOrThrow("created_at"));
+            task.startTime = cursor.getString(cursor.getColumnIndexOrThrow("start_time"));
+            task.endTime = cursor.getString(cursor.getColumnIndexOrThrow("end_time"));
+            task.qualityChecked = cursor.getString(cursor.getColumnIndexOrThrow("quality_result")) != null;
+            task.qualityCheckerId = cursor.getInt(cursor.getColumnIndexOrThrow("quality_checker_id"));
+            task.qualityCheckDate = cursor.getString(cursor.getColumnIndexOrThrow("quality_check_date"));
+            task.qualityNotes = cursor.getString(cursor.getColumnIndexOrThrow("quality_notes"));
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private static List<QualityControlItem> readWithMapper(Cursor cursor) {
+        List<QualityControlItem> tasks = new ArrayList<>();
+        cursor.moveToPosition(-1);
+        RowMappers.QualityControlItemMapper mapper = new RowMappers.QualityControlItemMapper(cursor);
+        while (cursor.moveToNext()) {
+            tasks.add(mapper.map(cursor));
+        }
+        return tasks;
+    }
+}
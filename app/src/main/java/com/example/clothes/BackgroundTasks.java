@@ -0,0 +1,258 @@
+package com.example.clothes;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Общий для всего приложения исполнитель фоновой работы с БД.
+// Две очереди: чтения для экрана (несколько потоков, WAL позволяет читать параллельно)
+// и записи (один поток с пониженным приоритетом - SQLite все равно пишет по одному).
+// Задачи экрана собираются в Scope: при закрытии экрана ждущие чтения снимаются
+// с очереди, а результаты уже идущих задач не доставляются в уничтоженную activity.
+// Начатые пользователем записи не отменяются - отбрасывается только их ответ на экран.
+// Класс не зависит от Android: главный поток передается как Executor.
+final class BackgroundTasks {
+
+    private static final int READ_THREADS = 2;
+    private static final long IDLE_THREAD_SECONDS = 30;
+
+    private static volatile BackgroundTasks instance;
+
+    private final TaskQueue reads;
+    private final TaskQueue writes;
+
+    static BackgroundTasks get() {
+        if (instance == null) {
+            synchronized (BackgroundTasks.class) {
+                if (instance == null) {
+                    instance = new BackgroundTasks(READ_THREADS);
+                }
+            }
+        }
+        return instance;
+    }
+
+    BackgroundTasks(int readThreads) {
+        reads = new TaskQueue("db-read", readThreads, Thread.NORM_PRIORITY);
+        writes = new TaskQueue("db-write", 1, Thread.NORM_PRIORITY - 1);
+    }
+
+    // uiExecutor доставляет результаты в главный поток, например activity::runOnUiThread
+    Scope newScope(Executor uiExecutor) {
+        return new Scope(this, uiExecutor);
+    }
+
+    // Чтения, не привязанные к экрану: например, перезапуск LiveQuery после записи
+    Executor readExecutor() {
+        return work -> reads.execute(new ScopedTask(null, reads, work, false));
+    }
+
+    Stats stats() {
+        Stats stats = new Stats();
+        stats.reads = reads.stats();
+        stats.writes = writes.stats();
+        return stats;
+    }
+
+    // Задачи одного экрана
+    static final class Scope {
+        private final BackgroundTasks tasks;
+        private final Executor uiExecutor;
+        private final Set<ScopedTask> pending = Collections.synchronizedSet(new HashSet<>());
+        private volatile boolean cancelled;
+
+        private Scope(BackgroundTasks tasks, Executor uiExecutor) {
+            this.tasks = tasks;
+            this.uiExecutor = uiExecutor;
+        }
+
+        // Чтение для экрана; после закрытия экрана не запускается
+        void read(Runnable work) {
+            if (cancelled) {
+                return;
+            }
+            submit(tasks.reads, work, true);
+        }
+
+        // Запись; выполняется, даже если экран закроют раньше
+        void write(Runnable work) {
+            submit(tasks.writes, work, false);
+        }
+
+        // Замена runOnUiThread: после закрытия экрана действие молча отбрасывается
+        void postToUi(Runnable action) {
+            if (cancelled) {
+                return;
+            }
+            uiExecutor.execute(() -> {
+                if (!cancelled) {
+                    action.run();
+                }
+            });
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        // Вызывается из onDestroy
+        void cancel() {
+            cancelled = true;
+            ScopedTask[] tasksToCancel;
+            synchronized (pending) {
+                tasksToCancel = pending.toArray(new ScopedTask[0]);
+                pending.clear();
+            }
+            for (ScopedTask task : tasksToCancel) {
+                if (task.cancellable) {
+                    task.queue.cancel(task);
+                }
+            }
+        }
+
+        private void submit(TaskQueue queue, Runnable work, boolean cancellable) {
+            ScopedTask task = new ScopedTask(this, queue, work, cancellable);
+            pending.add(task);
+            queue.execute(task);
+        }
+    }
+
+    private static final class ScopedTask implements Runnable {
+        final Scope scope;
+        final TaskQueue queue;
+        final Runnable work;
+        final boolean cancellable;
+        final long enqueuedAt = System.nanoTime();
+        volatile boolean cancelled;
+
+        ScopedTask(Scope scope, TaskQueue queue, Runnable work, boolean cancellable) {
+            this.scope = scope;
+            this.queue = queue;
+            this.work = work;
+            this.cancellable = cancellable;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            long startedAt = System.nanoTime();
+            try {
+                work.run();
+            } finally {
+                if (scope != null) {
+                    scope.pending.remove(this);
+                }
+                queue.record(startedAt - enqueuedAt, System.nanoTime() - startedAt);
+            }
+        }
+    }
+
+    private static final class TaskQueue {
+        private final String name;
+        private final ThreadPoolExecutor executor;
+
+        private long submitted;
+        private long completed;
+        private long cancelled;
+        private int maxQueued;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+        private long totalRunNanos;
+        private long maxRunNanos;
+
+        TaskQueue(String name, int threads, int priority) {
+            this.name = name;
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor = new ThreadPoolExecutor(threads, threads, IDLE_THREAD_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(priority);
+                return thread;
+            });
+            // Без работы потоки не держим
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        void execute(ScopedTask task) {
+            executor.execute(task);
+            synchronized (this) {
+                submitted++;
+                maxQueued = Math.max(maxQueued, executor.getQueue().size());
+            }
+        }
+
+        void cancel(ScopedTask task) {
+            task.cancelled = true;
+            // Успели снять с очереди - задача не запускалась; иначе она уже выполняется
+            if (executor.remove(task)) {
+                synchronized (this) {
+                    cancelled++;
+                }
+            }
+        }
+
+        synchronized void record(long waitNanos, long runNanos) {
+            completed++;
+            totalWaitNanos += waitNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+            totalRunNanos += runNanos;
+            maxRunNanos = Math.max(maxRunNanos, runNanos);
+        }
+
+        synchronized QueueStats stats() {
+            QueueStats stats = new QueueStats();
+            stats.name = name;
+            stats.queued = executor.getQueue().size();
+            stats.maxQueued = maxQueued;
+            stats.running = executor.getActiveCount();
+            stats.submitted = submitted;
+            stats.completed = completed;
+            stats.cancelled = cancelled;
+            stats.avgWaitMs = completed == 0 ? 0.0 : totalWaitNanos / 1e6 / completed;
+            stats.maxWaitMs = maxWaitNanos / 1e6;
+            stats.avgRunMs = completed == 0 ? 0.0 : totalRunNanos / 1e6 / completed;
+            stats.maxRunMs = maxRunNanos / 1e6;
+            return stats;
+        }
+    }
+
+    public static class QueueStats {
+        public String name;
+        public int queued;
+        public int maxQueued;
+        public int running;
+        public long submitted;
+        public long completed;
+        public long cancelled;
+        public double avgWaitMs;
+        public double maxWaitMs;
+        public double avgRunMs;
+        public double maxRunMs;
+
+        @Override
+        public String toString() {
+            return String.format("%s: в очереди %d (макс. %d), выполняется %d, " +
+                            "принято %d, выполнено %d, отменено %d, ожидание ср. %.1f / макс. %.1f мс, работа ср. %.1f / макс. %.1f мс",
+                    name, queued, maxQueued, running, submitted, completed, cancelled,
+                    avgWaitMs, maxWaitMs, avgRunMs, maxRunMs);
+        }
+    }
+
+    public static class Stats {
+        public QueueStats reads;
+        public QueueStats writes;
+
+        @Override
+        public String toString() {
+            return reads + "\n" + writes;
+        }
+    }
+}
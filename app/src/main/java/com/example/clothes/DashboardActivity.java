@@ -1,16 +1,25 @@
 package com.example.clothes;
 
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.InputType;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.View;
+import android.widget.AbsListView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.ListView;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.app.AlertDialog;
-import android.os.Handler;
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -20,20 +29,35 @@ import java.util.Locale;
 // Импорты внутренних классов DatabaseHelper
 import com.example.clothes.DatabaseHelper.WorkerStats;
 import com.example.clothes.DatabaseHelper.WorkerDetailedStats;
+import com.example.clothes.DatabaseHelper.WorkerSnapshot;
 import com.example.clothes.DatabaseHelper.Assignment;
 import com.example.clothes.DatabaseHelper.MasterStats;
+import com.example.clothes.DatabaseHelper.MasterSnapshot;
 import com.example.clothes.DatabaseHelper.Worker;
 import com.example.clothes.DatabaseHelper.StorekeeperStats;
 import com.example.clothes.DatabaseHelper.Material;
 import com.example.clothes.DatabaseHelper.ManagerStats;
 import com.example.clothes.DatabaseHelper.Order;
+import com.example.clothes.DatabaseHelper.OrderProgress;
+import com.example.clothes.DatabaseHelper.OrderQueuePage;
 import com.example.clothes.DatabaseHelper.Product;
 import com.example.clothes.DatabaseHelper.QualityControlItem;
+import com.example.clothes.DatabaseHelper.QualityControlPage;
 import com.example.clothes.DatabaseHelper.QualityStats;
+import com.example.clothes.DatabaseHelper.SearchResult;
+import com.example.clothes.DatabaseHelper.StageProgress;
 import com.example.clothes.DatabaseHelper.WorkerQualityStats;
 
 public class DashboardActivity extends AppCompatActivity {
 
+    // Очередь контроля качества: размер страницы и за сколько строк до конца грузить следующую
+    private static final int QUALITY_CONTROL_PAGE_SIZE = 50;
+    private static final int QUALITY_CONTROL_PREFETCH = 10;
+    // Сколько результатов поиска показывать в списке выбора
+    private static final int SEARCH_RESULTS_LIMIT = 50;
+    // Сколько заказов очереди показывать на одной странице диалога
+    private static final int ORDER_QUEUE_PAGE_SIZE = 15;
+
     private DatabaseHelper databaseHelper;
     private int userId;
     private String userRole;
@@ -72,6 +96,9 @@ public class DashboardActivity extends AppCompatActivity {
     private TextView tvMaterial2;
     private TextView tvMaterial3;
     private TextView tvRecentUsage;
+    private Button btnInventory;
+    private Button btnReceiveMaterials;
+    private Button btnIssueMaterials;
 
     // Элементы для manager dashboard
     private TextView tvTotalOrders;
@@ -79,12 +106,21 @@ public class DashboardActivity extends AppCompatActivity {
     private TextView tvInProgressOrders;
     private TextView tvCompletionPercent;
     private TextView tvBrigadePerformance;
+    private Button btnOrders;
+    private Button btnProductionPlan;
 
     // Форматтер для времени
     private SimpleDateFormat timeFormat;
 
-    // Слушатель изменений данных
-    private DatabaseHelper.OnDataChangedListener onDataChangedListener;
+    // Фоновая работа экрана; отменяется в onDestroy
+    private BackgroundTasks.Scope backgroundTasks;
+
+    // Снимок дашборда работника или мастера: сам перечитывается после записей в его таблицы
+    private LiveQuery<?> dashboardQuery;
+    private LiveQuery.Subscription dashboardSubscription;
+
+    // Время кадров блока отрисовки дашборда с привязкой к загрузке данных
+    private FrameMonitor frameMonitor;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -92,6 +128,7 @@ public class DashboardActivity extends AppCompatActivity {
 
         // Инициализируем форматтер времени
         timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
+        backgroundTasks = BackgroundTasks.get().newScope(this::runOnUiThread);
 
         // Получаем данные пользователя
         Intent intent = getIntent();
@@ -111,10 +148,7 @@ public class DashboardActivity extends AppCompatActivity {
             return;
         }
 
-        databaseHelper = new DatabaseHelper(this);
-
-        // Устанавливаем слушатель изменений данных
-        databaseHelper.setOnDataChangedListener(onDataChangedListener);
+        databaseHelper = DatabaseHelper.getInstance(this);
 
         // В зависимости от роли показываем разный интерфейс
         switch (userRole) {
@@ -144,68 +178,18 @@ public class DashboardActivity extends AppCompatActivity {
         Log.d("Dashboard", "🎯 Открыт дашборд для роли: " + userRole);
     }
 
-    // Инициализация слушателя изменений данных
-    {
-        onDataChangedListener = new DatabaseHelper.OnDataChangedListener() {
-            @Override
-            public void onWorkerStatsUpdated(int userId, DatabaseHelper.WorkerStats stats) {
-                runOnUiThread(() -> {
-                    if (DashboardActivity.this.userId == userId && "worker".equals(userRole)) {
-                        loadWorkerData();
-                        Log.d("DashboardActivity", "📊 Автообновление статистики работника");
-                    }
-                });
-            }
-
-            @Override
-            public void onAssignmentsUpdated(int userId, List<DatabaseHelper.Assignment> assignments) {
-                runOnUiThread(() -> {
-                    if (DashboardActivity.this.userId == userId && "worker".equals(userRole)) {
-                        loadWorkerData();
-                        Log.d("DashboardActivity", "📝 Автообновление заданий работника");
-                    }
-                });
-            }
-
-            @Override
-            public void onQualityCheckPerformed(int assignmentId) {
-                runOnUiThread(() -> {
-                    if ("master".equals(userRole)) {
-                        loadMasterData();
-                        Log.d("DashboardActivity", "✅ Автообновление после проверки качества");
-                    } else if ("worker".equals(userRole)) {
-                        loadWorkerData();
-                    }
-                });
-            }
-
-            @Override
-            public void onAssignmentStatusChanged(int assignmentId, String newStatus) {
-                runOnUiThread(() -> {
-                    if ("worker".equals(userRole)) {
-                        loadWorkerData();
-                        Log.d("DashboardActivity", "🔄 Автообновление после изменения статуса задания");
-                    } else if ("master".equals(userRole)) {
-                        loadMasterData();
-                    }
-                });
-            }
-        };
-    }
-
     // === ОБНОВЛЕННЫЙ КОНТРОЛЬ КАЧЕСТВА ===
 
     private void showQualityControlDialog() {
-        new Thread(() -> {
+        backgroundTasks.read(() -> {
             try {
-                List<QualityControlItem> qualityTasks = databaseHelper.getQualityControlTasks();
+                QualityControlPage firstPage = databaseHelper.getQualityControlPage(null, QUALITY_CONTROL_PAGE_SIZE);
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     try {
-                        AlertDialog.Builder builder = new AlertDialog.Builder(this);
-                        builder.setTitle("🔍 Контроль качества (" + qualityTasks.size() + " заданий)");
-
-                        if (qualityTasks.isEmpty()) {
+                        if (firstPage.items.isEmpty()) {
+                            AlertDialog.Builder builder = new AlertDialog.Builder(this);
+                            builder.setTitle("🔍 Контроль качества");
                             builder.setMessage("Нет заданий для проверки качества.\n\n" +
                                     "Задания появятся здесь когда:\n" +
                                     "✅ Статус задания = 'Выполнено'\n" +
@@ -221,29 +205,19 @@ public class DashboardActivity extends AppCompatActivity {
                             return;
                         }
 
-                        // Создаем список заданий с возможностью выбора
-                        String[] taskItems = new String[qualityTasks.size()];
-                        for (int i = 0; i < qualityTasks.size(); i++) {
-                            QualityControlItem task = qualityTasks.get(i);
-                            String statusIcon = task.qualityChecked ? "✅" : "⏳";
-                            String qualityStatus = task.qualityChecked ? "Проверено" : "Ожидает";
-                            String workerInfo = task.workerName != null ? task.workerName : "Неизвестный работник";
-                            String operationInfo = task.operationName != null ? task.operationName : "Неизвестная операция";
-                            String statusInfo = "completed".equals(task.status) ? "Завершено" : "В работе";
-
-                            taskItems[i] = String.format("%s %s - %s (%d/%d шт) - %s - %s",
-                                    statusIcon, workerInfo, operationInfo,
-                                    task.actualQuantity, task.plannedQuantity,
-                                    statusInfo, qualityStatus);
-                        }
+                        // Список заданий подгружается страницами по мере прокрутки
+                        List<QualityControlItem> loadedTasks = new ArrayList<>();
+                        List<String> taskItems = new ArrayList<>();
+                        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, taskItems);
+                        ListView listView = new ListView(this);
+                        listView.setAdapter(adapter);
 
-                        builder.setItems(taskItems, (dialog, which) -> {
-                            QualityControlItem selectedTask = qualityTasks.get(which);
-                            showIndividualQualityCheckDialog(selectedTask);
-                        });
+                        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+                        builder.setTitle("🔍 Контроль качества");
+                        builder.setView(listView);
 
                         builder.setPositiveButton("Проверить все", (dialog, which) -> {
-                            showBulkQualityCheckDialog(qualityTasks);
+                            showBulkQualityCheckDialog();
                         });
 
                         builder.setNeutralButton("Отладка", (dialog, which) -> {
@@ -251,7 +225,41 @@ public class DashboardActivity extends AppCompatActivity {
                         });
 
                         builder.setNegativeButton("Закрыть", null);
-                        builder.show();
+                        AlertDialog dialog = builder.show();
+
+                        QualityControlPage[] lastPage = {firstPage};
+                        boolean[] loading = {false};
+                        appendQualityControlPage(firstPage, loadedTasks, taskItems, adapter);
+
+                        listView.setOnItemClickListener((parent, view, position, id) -> {
+                            dialog.dismiss();
+                            showIndividualQualityCheckDialog(loadedTasks.get(position));
+                        });
+
+                        listView.setOnScrollListener(new AbsListView.OnScrollListener() {
+                            @Override
+                            public void onScrollStateChanged(AbsListView view, int scrollState) {
+                            }
+
+                            @Override
+                            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                                boolean nearEnd = firstVisibleItem + visibleItemCount >= totalItemCount - QUALITY_CONTROL_PREFETCH;
+                                if (!nearEnd || loading[0] || !lastPage[0].hasMore) {
+                                    return;
+                                }
+
+                                loading[0] = true;
+                                QualityControlPage after = lastPage[0];
+                                backgroundTasks.read(() -> {
+                                    QualityControlPage nextPage = databaseHelper.getQualityControlPage(after, QUALITY_CONTROL_PAGE_SIZE);
+                                    backgroundTasks.postToUi(() -> {
+                                        lastPage[0] = nextPage;
+                                        loading[0] = false;
+                                        appendQualityControlPage(nextPage, loadedTasks, taskItems, adapter);
+                                    });
+                                });
+                            }
+                        });
 
                     } catch (Exception e) {
                         Log.e("DashboardActivity", "Ошибка показа контроля качества: " + e.getMessage());
@@ -260,9 +268,27 @@ public class DashboardActivity extends AppCompatActivity {
                 });
             } catch (Exception e) {
                 Log.e("DashboardActivity", "Ошибка получения данных качества: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Ошибка загрузки данных", Toast.LENGTH_SHORT).show());
+                backgroundTasks.postToUi(() -> Toast.makeText(this, "Ошибка загрузки данных", Toast.LENGTH_SHORT).show());
             }
-        }).start();
+        });
+    }
+
+    private void appendQualityControlPage(QualityControlPage page, List<QualityControlItem> loadedTasks,
+                                          List<String> taskItems, ArrayAdapter<String> adapter) {
+        for (QualityControlItem task : page.items) {
+            String statusIcon = task.qualityChecked ? "✅" : "⏳";
+            String qualityStatus = task.qualityChecked ? "Проверено" : "Ожидает";
+            String workerInfo = task.workerName != null ? task.workerName : "Неизвестный работник";
+            String operationInfo = task.operationName != null ? task.operationName : "Неизвестная операция";
+            String statusInfo = "completed".equals(task.status) ? "Завершено" : "В работе";
+
+            loadedTasks.add(task);
+            taskItems.add(String.format("%s %s - %s (%d/%d шт) - %s - %s",
+                    statusIcon, workerInfo, operationInfo,
+                    task.actualQuantity, task.plannedQuantity,
+                    statusInfo, qualityStatus));
+        }
+        adapter.notifyDataSetChanged();
     }
 
     // Диалог индивидуальной проверки качества
@@ -358,28 +384,38 @@ public class DashboardActivity extends AppCompatActivity {
     }
 
     // Массовая проверка качества всех заданий
-    private void performBulkQualityCheck(List<QualityControlItem> tasks) {
-        new Thread(() -> {
+    private void performBulkQualityCheck(List<DatabaseHelper.QualityCheck> checks) {
+        ProgressBar progressBar = new ProgressBar(this, null, android.R.attr.progressBarStyleHorizontal);
+        progressBar.setMax(100);
+        int padding = (int) (24 * getResources().getDisplayMetrics().density);
+        progressBar.setPadding(padding, padding / 2, padding, 0);
+
+        AlertDialog progressDialog = new AlertDialog.Builder(this)
+                .setTitle("Массовая проверка")
+                .setView(progressBar)
+                .setCancelable(false)
+                .show();
+
+        backgroundTasks.write(() -> {
             try {
-                int successCount = 0;
-                int totalTasks = tasks.size();
-
-                for (QualityControlItem task : tasks) {
-                    if (!task.qualityChecked) {
-                        boolean success = databaseHelper.checkAssignmentQuality(
-                                task.id, userId, task.actualQuantity, task.defects, "Массовая проверка"
-                        );
-                        if (success) successCount++;
-
-                        // Небольшая задержка для визуального эффекта
-                        Thread.sleep(100);
+                final int totalTasks = checks.size();
+                final int[] lastPercent = {-1};
+
+                // Все задания проверяются одной транзакцией; на UI уходит только смена процента
+                int successCount = databaseHelper.checkAssignmentsQualityBatch(checks, userId, (done, total) -> {
+                    int percent = done * 100 / total;
+                    if (percent != lastPercent[0]) {
+                        lastPercent[0] = percent;
+                        backgroundTasks.postToUi(() -> progressBar.setProgress(percent));
                     }
-                }
+                });
 
                 final int finalSuccessCount = successCount;
                 final int finalTotalTasks = totalTasks;
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
+                    progressDialog.dismiss();
+
                     String message;
                     if (finalSuccessCount == finalTotalTasks) {
                         message = String.format("✅ Успешно проверено %d/%d заданий", finalSuccessCount, finalTotalTasks);
@@ -389,53 +425,56 @@ public class DashboardActivity extends AppCompatActivity {
 
                     Toast.makeText(this, message, Toast.LENGTH_LONG).show();
 
-                    // Обновляем данные на экране
-                    if ("master".equals(userRole)) {
-                        loadMasterData();
-                    }
-
                     Log.d("DashboardActivity", "📊 Массовая проверка завершена: " + finalSuccessCount + "/" + finalTotalTasks);
                 });
             } catch (Exception e) {
                 Log.e("DashboardActivity", "❌ Ошибка массовой проверки: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Ошибка массовой проверки", Toast.LENGTH_SHORT).show());
+                backgroundTasks.postToUi(() -> {
+                    progressDialog.dismiss();
+                    Toast.makeText(this, "Ошибка массовой проверки", Toast.LENGTH_SHORT).show();
+                });
             }
-        }).start();
+        });
     }
 
     // Массовая проверка качества всех заданий конкретного работника
     private void performBulkWorkerQualityCheck(int workerId, String workerName) {
-        new Thread(() -> {
+        backgroundTasks.write(() -> {
             try {
                 boolean success = databaseHelper.bulkCheckWorkerQuality(workerId, userId, "Массовая проверка работника " + workerName);
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     if (success) {
                         Toast.makeText(this, "✅ Все задания работника " + workerName + " проверены!", Toast.LENGTH_SHORT).show();
-                        // Обновляем данные на экране
-                        if ("master".equals(userRole)) {
-                            loadMasterData();
-                        }
                     } else {
                         Toast.makeText(this, "❌ Ошибка проверки заданий работника", Toast.LENGTH_SHORT).show();
                     }
                 });
             } catch (Exception e) {
                 Log.e("DashboardActivity", "❌ Ошибка массовой проверки работника: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Ошибка проверки работника", Toast.LENGTH_SHORT).show());
+                backgroundTasks.postToUi(() -> Toast.makeText(this, "Ошибка проверки работника", Toast.LENGTH_SHORT).show());
             }
-        }).start();
+        });
     }
     // Метод для отладки - показывает информацию о заданиях
     private void debugQualityControlTasks() {
-        new Thread(() -> {
+        backgroundTasks.read(() -> {
             try {
-                List<QualityControlItem> tasks = databaseHelper.getQualityControlTasks();
+                List<QualityControlItem> tasks = databaseHelper.getQualityControlPage(null, QUALITY_CONTROL_PAGE_SIZE).items;
+                QueryCache.Stats cacheStats = databaseHelper.getQueryCacheStats();
+                SingleFlight.Stats snapshotStats = databaseHelper.getSnapshotLoadStats();
+                BackgroundTasks.Stats taskStats = BackgroundTasks.get().stats();
+                boolean diagnosticsEnabled = DatabaseDiagnostics.isEnabled(this);
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     StringBuilder debugInfo = new StringBuilder();
                     debugInfo.append("🔍 ОТЛАДКА КОНТРОЛЯ КАЧЕСТВА:\n\n");
-                    debugInfo.append("Всего заданий: ").append(tasks.size()).append("\n\n");
+                    debugInfo.append("Кэш запросов: ").append(cacheStats).append("\n\n");
+                    debugInfo.append("Снимки дашбордов: ").append(snapshotStats).append("\n\n");
+                    debugInfo.append("Фоновые задачи:\n").append(taskStats).append("\n\n");
+                    debugInfo.append("Диагностика БД: ").append(diagnosticsEnabled ? "включена" : "выключена")
+                            .append("\n\n");
+                    debugInfo.append("Последних заданий: ").append(tasks.size()).append("\n\n");
 
                     if (tasks.isEmpty()) {
                         debugInfo.append("Нет заданий для контроля качества.\n");
@@ -458,17 +497,79 @@ public class DashboardActivity extends AppCompatActivity {
                     new AlertDialog.Builder(this)
                             .setTitle("Отладка контроля качества")
                             .setMessage(debugInfo.toString())
-                            .setPositiveButton("OK", null)
+                            .setPositiveButton(diagnosticsEnabled ? "Выкл. диагностику" : "Вкл. диагностику",
+                                    (dialog, which) -> setDatabaseDiagnosticsEnabled(!diagnosticsEnabled))
+                            .setNeutralButton("Пересчитать сводки", (dialog, which) -> rebuildSummaries())
+                            .setNegativeButton("Запросы", (dialog, which) -> showQueryTraceDialog())
                             .show();
                 });
             } catch (Exception e) {
                 Log.e("DashboardActivity", "❌ Ошибка отладки: " + e.getMessage());
             }
-        }).start();
+        });
+    }
+
+    // Включенная диагностика пишет сводку БД в лог сразу, если последняя была больше
+    // часа назад, и дальше при открытии БД, не чаще раза в час
+    private void setDatabaseDiagnosticsEnabled(boolean enabled) {
+        DatabaseDiagnostics.setEnabled(this, enabled);
+        if (enabled) {
+            DatabaseDiagnostics.maybeRun(getApplicationContext(), databaseHelper);
+        }
+        Toast.makeText(this, enabled ? "✅ Диагностика БД включена, сводка в логе"
+                : "Диагностика БД выключена", Toast.LENGTH_SHORT).show();
+    }
+
+    // Диагностика запросов: перцентили задержки по методам DatabaseHelper и по SQL,
+    // сколько вызовов пришлось на главный поток, журнал медленных запросов;
+    // ниже - время кадров дашбордов и медленные обновления с их загрузками
+    private void showQueryTraceDialog() {
+        QueryTracer.Report report = databaseHelper.getQueryTrace();
+        new AlertDialog.Builder(this)
+                .setTitle("Диагностика запросов")
+                .setMessage(report.toString() + "\n" + FrameMonitor.report().toString())
+                .setPositiveButton("OK", null)
+                .setNeutralButton("В файл", (dialog, which) -> dumpQueryTrace())
+                .setNegativeButton("Сбросить", (dialog, which) -> {
+                    databaseHelper.resetQueryTrace();
+                    FrameMonitor.reset();
+                    Toast.makeText(this, "Трассировка запросов сброшена", Toast.LENGTH_SHORT).show();
+                })
+                .show();
+    }
+
+    private void dumpQueryTrace() {
+        backgroundTasks.read(() -> {
+            File file = databaseHelper.dumpQueryTrace();
+            File frames = FrameMonitor.export(this);
+            backgroundTasks.postToUi(() -> {
+                if (file != null && frames != null) {
+                    Toast.makeText(this, "✅ Сохранено: " + file.getPath() + ", " + frames.getName(),
+                            Toast.LENGTH_LONG).show();
+                } else {
+                    Toast.makeText(this, "❌ Ошибка сохранения трассировки", Toast.LENGTH_SHORT).show();
+                }
+            });
+        });
+    }
+    // Полный пересчет сводных таблиц статистики из истории заданий
+    private void rebuildSummaries() {
+        backgroundTasks.write(() -> {
+            boolean success = databaseHelper.rebuildSummaries();
+            backgroundTasks.postToUi(() -> {
+                // Экран обновит слушатель изменений данных
+                if (success) {
+                    Toast.makeText(this, "✅ Сводки пересчитаны", Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(this, "❌ Ошибка пересчета сводок", Toast.LENGTH_SHORT).show();
+                }
+            });
+        });
     }
+
     // Диалог выбора работника для массовой проверки
     private void showWorkersQualityCheckDialog() {
-        new Thread(() -> {
+        backgroundTasks.read(() -> {
             try {
                 List<Worker> workers = getBrigadeWorkers();
                 List<String> workerNames = new ArrayList<>();
@@ -496,7 +597,7 @@ public class DashboardActivity extends AppCompatActivity {
                     finalWorkerNames.add(worker.name);
                 }
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     if (workerNames.isEmpty()) {
                         Toast.makeText(this, "У всех работников все задания уже проверены", Toast.LENGTH_SHORT).show();
                         return;
@@ -523,22 +624,18 @@ public class DashboardActivity extends AppCompatActivity {
                 });
             } catch (Exception e) {
                 Log.e("DashboardActivity", "Ошибка показа диалога работников: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Ошибка загрузки данных работников", Toast.LENGTH_SHORT).show());
+                backgroundTasks.postToUi(() -> Toast.makeText(this, "Ошибка загрузки данных работников", Toast.LENGTH_SHORT).show());
             }
-        }).start();
+        });
     }
     // Массовая проверка качества
-    private void showBulkQualityCheckDialog(List<QualityControlItem> tasks) {
-        new Thread(() -> {
+    private void showBulkQualityCheckDialog() {
+        backgroundTasks.read(() -> {
             try {
-                List<QualityControlItem> uncheckedTasks = new ArrayList<>();
-                for (QualityControlItem task : tasks) {
-                    if (!task.qualityChecked) {
-                        uncheckedTasks.add(task);
-                    }
-                }
+                // Проверяются все непроверенные задания, а не только загруженные в список страницы
+                List<DatabaseHelper.QualityCheck> uncheckedTasks = databaseHelper.getUncheckedQualityChecks("Массовая проверка");
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     if (uncheckedTasks.isEmpty()) {
                         Toast.makeText(this, "Все задания уже проверены", Toast.LENGTH_SHORT).show();
                         return;
@@ -558,31 +655,27 @@ public class DashboardActivity extends AppCompatActivity {
             } catch (Exception e) {
                 Log.e("DashboardActivity", "Ошибка массовой проверки: " + e.getMessage());
             }
-        }).start();
+        });
     }
 
     // Массовая проверка качества
     // Обновите метод performQualityCheck для лучшего логирования
     private void performQualityCheck(int assignmentId, int checkerId, int approvedQuantity, int defectsFound, String notes, boolean isApproved) {
-        new Thread(() -> {
+        backgroundTasks.write(() -> {
             try {
                 Log.d("DashboardActivity", "🔍 Начало проверки качества для задания: " + assignmentId);
 
                 boolean success = databaseHelper.checkAssignmentQuality(assignmentId, checkerId, approvedQuantity, defectsFound, notes);
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     if (success) {
                         String status = isApproved ? "одобрено" : "отклонено";
                         String message = String.format("Качество %s в %s!", status, getCurrentTime());
                         Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
 
-                        // Обновляем данные на экране
+                        // Принудительно обновляем данные контроля качества
                         if ("master".equals(userRole)) {
-                            loadMasterData();
-                            // Принудительно обновляем данные контроля качества
                             refreshQualityControlData();
-                        } else if ("worker".equals(userRole)) {
-                            loadWorkerData();
                         }
 
                         Log.d("DashboardActivity", "✅ Проверка качества завершена для задания: " + assignmentId);
@@ -593,18 +686,18 @@ public class DashboardActivity extends AppCompatActivity {
                 });
             } catch (Exception e) {
                 Log.e("DashboardActivity", "❌ Ошибка проверки качества: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Ошибка проверки качества", Toast.LENGTH_SHORT).show());
+                backgroundTasks.postToUi(() -> Toast.makeText(this, "Ошибка проверки качества", Toast.LENGTH_SHORT).show());
             }
-        }).start();
+        });
     }
 
     // Статистика качества
     private void showQualityStatistics() {
-        new Thread(() -> {
+        backgroundTasks.read(() -> {
             try {
                 QualityStats stats = databaseHelper.getQualityStats();
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     try {
                         AlertDialog.Builder builder = new AlertDialog.Builder(this);
                         builder.setTitle("📊 Статистика качества");
@@ -648,9 +741,9 @@ public class DashboardActivity extends AppCompatActivity {
                 });
             } catch (Exception e) {
                 Log.e("DashboardActivity", "Ошибка получения статистики: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Ошибка загрузки статистики", Toast.LENGTH_SHORT).show());
+                backgroundTasks.postToUi(() -> Toast.makeText(this, "Ошибка загрузки статистики", Toast.LENGTH_SHORT).show());
             }
-        }).start();
+        });
     }
 
     private void setupGeneralDashboard() {
@@ -680,7 +773,7 @@ public class DashboardActivity extends AppCompatActivity {
             initWorkerViews();
             displayWorkerInfo();
             setupWorkerClickListeners();
-            loadWorkerData();
+            observeWorkerData();
         } catch (Exception e) {
             Log.e("DashboardActivity", "Ошибка инициализации worker: " + e.getMessage());
             Toast.makeText(this, "Ошибка загрузки интерфейса работника", Toast.LENGTH_SHORT).show();
@@ -718,24 +811,23 @@ public class DashboardActivity extends AppCompatActivity {
         }
     }
 
-    private void loadWorkerData() {
+    // Подписка один раз на весь экран: после записей данные перечитываются сами
+    private void observeWorkerData() {
         if (userId != -1) {
-            new Thread(() -> {
-                try {
-                    WorkerStats stats = databaseHelper.getWorkerStats(userId);
-                    WorkerDetailedStats detailedStats = databaseHelper.getWorkerDetailedStats(userId);
-
-                    runOnUiThread(() -> {
-                        try {
-                            updateWorkerUI(stats, detailedStats);
-                        } catch (Exception e) {
-                            Log.e("DashboardActivity", "Ошибка обновления UI: " + e.getMessage());
-                        }
-                    });
-                } catch (Exception e) {
-                    Log.e("DashboardActivity", "Ошибка загрузки данных: " + e.getMessage());
-                }
-            }).start();
+            LiveQuery<WorkerSnapshot> query = databaseHelper.observeWorkerSnapshot(userId);
+            dashboardQuery = query;
+            frameMonitor = new FrameMonitor(this, "updateWorkerUI");
+            dashboardSubscription = query.observe(snapshot -> {
+                LiveQuery.Load load = query.lastLoad();
+                long delivered = System.nanoTime();
+                backgroundTasks.postToUi(() -> frameMonitor.render(load, delivered, () -> {
+                    try {
+                        updateWorkerUI(snapshot.stats, snapshot.details);
+                    } catch (Exception e) {
+                        Log.e("DashboardActivity", "Ошибка обновления UI: " + e.getMessage());
+                    }
+                }));
+            });
         }
     }
 
@@ -838,11 +930,11 @@ public class DashboardActivity extends AppCompatActivity {
 
     // Диалог учета выполнения
     private void showRecordCompletionDialog() {
-        new Thread(() -> {
+        backgroundTasks.read(() -> {
             try {
                 List<Assignment> availableAssignments = databaseHelper.getAvailableAssignments(userId);
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     if (availableAssignments == null || availableAssignments.isEmpty()) {
                         Toast.makeText(this, "Нет доступных заданий для выполнения", Toast.LENGTH_SHORT).show();
                         return;
@@ -871,9 +963,9 @@ public class DashboardActivity extends AppCompatActivity {
                 });
             } catch (Exception e) {
                 Log.e("DashboardActivity", "Ошибка в showRecordCompletionDialog: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Ошибка загрузки заданий", Toast.LENGTH_SHORT).show());
+                backgroundTasks.postToUi(() -> Toast.makeText(this, "Ошибка загрузки заданий", Toast.LENGTH_SHORT).show());
             }
-        }).start();
+        });
     }
 
     // Диалог ввода количества
@@ -921,24 +1013,22 @@ public class DashboardActivity extends AppCompatActivity {
                     }
 
                     // Сохраняем в БД
-                    new Thread(() -> {
+                    backgroundTasks.write(() -> {
                         try {
                             boolean success = databaseHelper.recordOperationCompletion(assignment.id, quantity, defects);
 
-                            runOnUiThread(() -> {
+                            backgroundTasks.postToUi(() -> {
                                 if (success) {
                                     Toast.makeText(this, "Выполнение учтено в " + getCurrentTime() + "!", Toast.LENGTH_SHORT).show();
-                                    // Автоматически обновляем все данные
-                                    loadWorkerData();
                                 } else {
                                     Toast.makeText(this, "Ошибка учета выполнения", Toast.LENGTH_SHORT).show();
                                 }
                             });
                         } catch (Exception e) {
                             Log.e("DashboardActivity", "Ошибка recordOperationCompletion: " + e.getMessage());
-                            runOnUiThread(() -> Toast.makeText(this, "Ошибка сохранения", Toast.LENGTH_SHORT).show());
+                            backgroundTasks.postToUi(() -> Toast.makeText(this, "Ошибка сохранения", Toast.LENGTH_SHORT).show());
                         }
-                    }).start();
+                    });
                 } catch (NumberFormatException e) {
                     Toast.makeText(this, "Введите корректные числа", Toast.LENGTH_SHORT).show();
                 } catch (Exception e) {
@@ -957,11 +1047,11 @@ public class DashboardActivity extends AppCompatActivity {
 
     // Показать статистику работника
     private void showWorkerStatistics() {
-        new Thread(() -> {
+        backgroundTasks.read(() -> {
             try {
                 WorkerDetailedStats stats = databaseHelper.getWorkerDetailedStats(userId);
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     try {
                         AlertDialog.Builder builder = new AlertDialog.Builder(this);
                         builder.setTitle("Моя статистика");
@@ -972,11 +1062,23 @@ public class DashboardActivity extends AppCompatActivity {
                         message.append("• Брак: ").append(stats.todayDefects).append(" шт\n");
                         message.append("• Качество: ").append(String.format("%.1f", 100 - stats.getTodayDefectPercent())).append("%\n\n");
 
-                        message.append("📅 ЗА НЕДЕЛЮ:\n");
+                        if (stats.shiftStartTime != null) {
+                            message.append("⏱ ТЕКУЩАЯ СМЕНА (с ").append(stats.shiftStartTime).append("):\n");
+                            message.append("• Выполнено: ").append(stats.shiftCompleted).append(" шт\n");
+                            message.append("• Брак: ").append(stats.shiftDefects).append(" шт\n");
+                            message.append("• Качество: ").append(String.format("%.1f", 100 - stats.getShiftDefectPercent())).append("%\n\n");
+                        }
+
+                        message.append("📅 ЗА 7 ДНЕЙ:\n");
                         message.append("• Выполнено: ").append(stats.weekCompleted).append(" шт\n");
                         message.append("• Брак: ").append(stats.weekDefects).append(" шт\n");
                         message.append("• Качество: ").append(String.format("%.1f", 100 - stats.getWeekDefectPercent())).append("%\n\n");
 
+                        message.append("🗓 ЗА 30 ДНЕЙ:\n");
+                        message.append("• Выполнено: ").append(stats.monthCompleted).append(" шт\n");
+                        message.append("• Брак: ").append(stats.monthDefects).append(" шт\n");
+                        message.append("• Качество: ").append(String.format("%.1f", 100 - stats.getMonthDefectPercent())).append("%\n\n");
+
                         int activeCount = (stats.activeAssignments != null) ? stats.activeAssignments.size() : 0;
                         message.append("🎯 АКТИВНЫЕ ЗАДАНИЯ: ").append(activeCount).append(" шт");
 
@@ -990,18 +1092,18 @@ public class DashboardActivity extends AppCompatActivity {
                 });
             } catch (Exception e) {
                 Log.e("DashboardActivity", "Ошибка получения статистики: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Ошибка загрузки статистики", Toast.LENGTH_SHORT).show());
+                backgroundTasks.postToUi(() -> Toast.makeText(this, "Ошибка загрузки статистики", Toast.LENGTH_SHORT).show());
             }
-        }).start();
+        });
     }
 
     // Показать задания на сегодня с возможностью управления статусом
     private void showTodayTasksWithStatusControl() {
-        new Thread(() -> {
+        backgroundTasks.read(() -> {
             try {
                 WorkerDetailedStats stats = databaseHelper.getWorkerDetailedStats(userId);
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     try {
                         AlertDialog.Builder builder = new AlertDialog.Builder(this);
                         builder.setTitle("Задания на сегодня (" + getCurrentTime() + ")");
@@ -1025,7 +1127,7 @@ public class DashboardActivity extends AppCompatActivity {
                         // Добавляем кнопки для управления статусом
                         builder.setPositiveButton("Обновить", (dialog, which) -> {
                             // Просто обновляем данные
-                            loadWorkerData();
+                            refreshDashboard();
                         });
 
                         builder.setNeutralButton("Изменить статус", (dialog, which) -> {
@@ -1041,9 +1143,9 @@ public class DashboardActivity extends AppCompatActivity {
                 });
             } catch (Exception e) {
                 Log.e("DashboardActivity", "Ошибка получения заданий: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Ошибка загрузки заданий", Toast.LENGTH_SHORT).show());
+                backgroundTasks.postToUi(() -> Toast.makeText(this, "Ошибка загрузки заданий", Toast.LENGTH_SHORT).show());
             }
-        }).start();
+        });
     }
 
     // Диалог изменения статуса задания
@@ -1103,39 +1205,28 @@ public class DashboardActivity extends AppCompatActivity {
     // Обновление статуса задания
     // Обновление статуса задания
     private void updateAssignmentStatus(int assignmentId, String newStatus) {
-        new Thread(() -> {
+        backgroundTasks.write(() -> {
             try {
                 Log.d("DashboardActivity", "🔄 Попытка изменить статус задания " + assignmentId + " на: " + newStatus);
 
                 boolean success = databaseHelper.updateAssignmentStatus(assignmentId, newStatus);
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     if (success) {
                         String message = "Статус обновлен в " + getCurrentTime() + "!";
                         if ("completed".equals(newStatus)) {
                             message += "\nЗадание теперь в контроле качества!";
                         }
                         Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
-
-                        // Автоматически обновляем все данные
-                        loadWorkerData();
-
-                        // Если статус изменен на "выполнено", обновляем контроль качества
-                        if ("completed".equals(newStatus) && "master".equals(userRole)) {
-                            // Небольшая задержка для обновления БД
-                            new Handler().postDelayed(() -> {
-                                loadMasterData();
-                            }, 500);
-                        }
                     } else {
                         Toast.makeText(this, "Ошибка обновления статуса", Toast.LENGTH_SHORT).show();
                     }
                 });
             } catch (Exception e) {
                 Log.e("DashboardActivity", "❌ Ошибка обновления статуса: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Ошибка обновления статуса", Toast.LENGTH_SHORT).show());
+                backgroundTasks.postToUi(() -> Toast.makeText(this, "Ошибка обновления статуса", Toast.LENGTH_SHORT).show());
             }
-        }).start();
+        });
     }
 
     // === MASTER DASHBOARD ===
@@ -1144,7 +1235,7 @@ public class DashboardActivity extends AppCompatActivity {
             initMasterViews();
             displayMasterInfo();
             setupMasterClickListeners();
-            loadMasterData();
+            observeMasterData();
         } catch (Exception e) {
             Log.e("DashboardActivity", "Ошибка инициализации мастера: " + e.getMessage());
             Toast.makeText(this, "Ошибка загрузки интерфейса мастера", Toast.LENGTH_SHORT).show();
@@ -1219,29 +1310,35 @@ public class DashboardActivity extends AppCompatActivity {
         }
     }
 
-    private void loadMasterData() {
+    private void observeMasterData() {
         if (userId == -1 || userBrigade == null) {
             Log.e("DashboardActivity", "Неверные данные пользователя");
             showDefaultMasterData();
             return;
         }
 
-        new Thread(() -> {
-            try {
-                MasterStats stats = databaseHelper.getMasterStats(userId, userBrigade);
-                runOnUiThread(() -> {
-                    try {
-                        updateMasterUI(stats);
-                    } catch (Exception e) {
-                        Log.e("DashboardActivity", "Ошибка обновления UI мастера: " + e.getMessage());
-                        showDefaultMasterData();
-                    }
-                });
-            } catch (Exception e) {
-                Log.e("DashboardActivity", "Ошибка загрузки данных мастера: " + e.getMessage());
-                runOnUiThread(this::showDefaultMasterData);
-            }
-        }).start();
+        LiveQuery<MasterSnapshot> query = databaseHelper.observeMasterSnapshot(userId, userBrigade);
+        dashboardQuery = query;
+        frameMonitor = new FrameMonitor(this, "updateMasterUI");
+        dashboardSubscription = query.observe(snapshot -> {
+            LiveQuery.Load load = query.lastLoad();
+            long delivered = System.nanoTime();
+            backgroundTasks.postToUi(() -> frameMonitor.render(load, delivered, () -> {
+                try {
+                    updateMasterUI(snapshot.stats);
+                } catch (Exception e) {
+                    Log.e("DashboardActivity", "Ошибка обновления UI мастера: " + e.getMessage());
+                    showDefaultMasterData();
+                }
+            }));
+        });
+    }
+
+    // Кнопка "Обновить": перечитать снимок без записи в БД
+    private void refreshDashboard() {
+        if (dashboardQuery != null) {
+            dashboardQuery.refresh();
+        }
     }
 
     private void updateMasterUI(MasterStats stats) {
@@ -1300,12 +1397,13 @@ public class DashboardActivity extends AppCompatActivity {
 
     // Статистика бригады
     private void showBrigadeStatistics() {
-        new Thread(() -> {
+        backgroundTasks.read(() -> {
             try {
-                MasterStats stats = databaseHelper.getMasterStats(userId, userBrigade);
-                List<Assignment> activeAssignments = getBrigadeActiveAssignments();
+                MasterSnapshot snapshot = databaseHelper.getMasterSnapshot(userId, userBrigade);
+                MasterStats stats = snapshot.stats;
+                List<Assignment> activeAssignments = snapshot.activeAssignments;
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     try {
                         AlertDialog.Builder builder = new AlertDialog.Builder(this);
                         builder.setTitle("📊 Статистика бригады " + userBrigade);
@@ -1342,7 +1440,7 @@ public class DashboardActivity extends AppCompatActivity {
                         builder.setMessage(message.toString());
                         builder.setPositiveButton("Обновить", (dialog, which) -> {
                             // Перезагружаем данные
-                            loadMasterData();
+                            refreshDashboard();
                         });
                         builder.setNegativeButton("Закрыть", null);
                         builder.show();
@@ -1353,19 +1451,19 @@ public class DashboardActivity extends AppCompatActivity {
                 });
             } catch (Exception e) {
                 Log.e("DashboardActivity", "Ошибка получения статистики бригады: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Ошибка загрузки статистики", Toast.LENGTH_SHORT).show());
+                backgroundTasks.postToUi(() -> Toast.makeText(this, "Ошибка загрузки статистики", Toast.LENGTH_SHORT).show());
             }
-        }).start();
+        });
     }
 
     // Назначение заданий
     private void showAssignTasksDialog() {
-        new Thread(() -> {
+        backgroundTasks.read(() -> {
             try {
                 List<Worker> workers = getBrigadeWorkers();
                 List<Assignment> availableOperations = getAvailableOperations();
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     try {
                         if (workers.isEmpty() || availableOperations.isEmpty()) {
                             Toast.makeText(this, "Нет доступных работников или операций", Toast.LENGTH_SHORT).show();
@@ -1382,17 +1480,17 @@ public class DashboardActivity extends AppCompatActivity {
             } catch (Exception e) {
                 Log.e("DashboardActivity", "Ошибка получения данных для назначения: " + e.getMessage());
             }
-        }).start();
+        });
     }
 
     // График работы
     private void showWorkSchedule() {
-        new Thread(() -> {
+        backgroundTasks.read(() -> {
             try {
-                List<Worker> workers = getBrigadeWorkers();
-                MasterStats stats = databaseHelper.getMasterStats(userId, userBrigade);
+                MasterStats stats = databaseHelper.getMasterSnapshot(userId, userBrigade).stats;
+                List<Worker> workers = stats.workers;
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     try {
                         AlertDialog.Builder builder = new AlertDialog.Builder(this);
                         builder.setTitle("📅 График работы бригады");
@@ -1434,16 +1532,35 @@ public class DashboardActivity extends AppCompatActivity {
             } catch (Exception e) {
                 Log.e("DashboardActivity", "Ошибка получения графика работы: " + e.getMessage());
             }
-        }).start();
+        });
     }
 
     // Диалог назначения задания
     private void showTaskAssignmentDialog(List<Worker> workers, List<Assignment> operations) {
-        new Thread(() -> {
+        backgroundTasks.read(() -> {
             try {
-                List<Order> activeOrders = databaseHelper.getActiveOrders();
+                // Список до начала ввода; названия изделий берутся из кэша запросов
+                List<SearchResult> activeOrders = new ArrayList<>();
+                for (Order order : databaseHelper.getActiveOrders()) {
+                    Product product = databaseHelper.getProductById(order.productId);
+                    SearchResult result = new SearchResult();
+                    result.id = order.id;
+                    result.title = order.orderNumber;
+                    result.subtitle = (product != null) ? product.name : "Неизвестный продукт";
+                    result.quantity = order.quantity;
+                    activeOrders.add(result);
+                }
 
-                runOnUiThread(() -> {
+                List<SearchResult> allOperations = new ArrayList<>();
+                for (Assignment operation : operations) {
+                    SearchResult result = new SearchResult();
+                    result.id = operation.id;
+                    result.title = operation.operationName;
+                    result.subtitle = operation.standardTime + " мин/шт";
+                    allOperations.add(result);
+                }
+
+                backgroundTasks.postToUi(() -> {
                     try {
                         AlertDialog.Builder builder = new AlertDialog.Builder(this);
                         builder.setTitle("📋 Назначение задания");
@@ -1462,8 +1579,8 @@ public class DashboardActivity extends AppCompatActivity {
 
                         // Переменные для хранения выбора
                         final Worker[] selectedWorker = {null};
-                        final Assignment[] selectedOperation = {null};
-                        final Order[] selectedOrder = {null};
+                        final SearchResult[] selectedOperation = {null};
+                        final SearchResult[] selectedOrder = {null};
 
                         // Выбор работника
                         btnSelectWorker.setOnClickListener(v -> {
@@ -1483,22 +1600,12 @@ public class DashboardActivity extends AppCompatActivity {
                         });
 
                         // Выбор операции
-                        btnSelectOperation.setOnClickListener(v -> {
-                            String[] operationNames = new String[operations.size()];
-                            for (int i = 0; i < operations.size(); i++) {
-                                operationNames[i] = operations.get(i).operationName +
-                                        " (" + operations.get(i).standardTime + " мин/шт)";
-                            }
-
-                            new AlertDialog.Builder(this)
-                                    .setTitle("Выберите операцию")
-                                    .setItems(operationNames, (dialog, which) -> {
-                                        selectedOperation[0] = operations.get(which);
-                                        tvSelectedOperation.setText(selectedOperation[0].operationName);
-                                    })
-                                    .setNegativeButton("Отмена", null)
-                                    .show();
-                        });
+                        btnSelectOperation.setOnClickListener(v -> showSearchPicker("Выберите операцию", allOperations,
+                                query -> databaseHelper.search(query, DatabaseContract.SEARCH_OPERATION, SEARCH_RESULTS_LIMIT),
+                                operation -> {
+                                    selectedOperation[0] = operation;
+                                    tvSelectedOperation.setText(operation.title);
+                                }));
 
                         // Выбор заказа
                         btnSelectOrder.setOnClickListener(v -> {
@@ -1507,25 +1614,12 @@ public class DashboardActivity extends AppCompatActivity {
                                 return;
                             }
 
-                            String[] orderInfo = new String[activeOrders.size()];
-                            for (int i = 0; i < activeOrders.size(); i++) {
-                                Order order = activeOrders.get(i);
-                                Product product = databaseHelper.getProductById(order.productId);
-                                String productName = (product != null) ? product.name : "Неизвестный продукт";
-                                orderInfo[i] = order.orderNumber + " - " + productName +
-                                        " (" + order.quantity + " шт)";
-                            }
-
-                            new AlertDialog.Builder(this)
-                                    .setTitle("Выберите заказ")
-                                    .setItems(orderInfo, (dialog, which) -> {
-                                        selectedOrder[0] = activeOrders.get(which);
-                                        Product product = databaseHelper.getProductById(selectedOrder[0].productId);
-                                        String productName = (product != null) ? product.name : "Неизвестный продукт";
-                                        tvSelectedOrder.setText(selectedOrder[0].orderNumber + " - " + productName);
-                                    })
-                                    .setNegativeButton("Отмена", null)
-                                    .show();
+                            showSearchPicker("Выберите заказ", activeOrders,
+                                    query -> databaseHelper.searchActiveOrders(query, SEARCH_RESULTS_LIMIT),
+                                    order -> {
+                                        selectedOrder[0] = order;
+                                        tvSelectedOrder.setText(order.title + " - " + order.subtitle);
+                                    });
                         });
 
                         builder.setPositiveButton("Назначить", (dialog, which) -> {
@@ -1570,45 +1664,126 @@ public class DashboardActivity extends AppCompatActivity {
                 });
             } catch (Exception e) {
                 Log.e("DashboardActivity", "Ошибка получения заказов: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Ошибка загрузки данных", Toast.LENGTH_SHORT).show());
+                backgroundTasks.postToUi(() -> Toast.makeText(this, "Ошибка загрузки данных", Toast.LENGTH_SHORT).show());
+            }
+        });
+    }
+
+    private interface SearchQuery {
+        List<SearchResult> run(String query);
+    }
+
+    private interface SearchSelection {
+        void onSelected(SearchResult result);
+    }
+
+    // Список выбора с поиском по мере ввода. Пустая строка показывает initial,
+    // иначе каждый ввод ищется в фоне; ответ на устаревший ввод отбрасывается
+    private void showSearchPicker(String title, List<SearchResult> initial, SearchQuery search,
+                                  SearchSelection selection) {
+        int padding = (int) (16 * getResources().getDisplayMetrics().density);
+        LinearLayout layout = new LinearLayout(this);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        layout.setPadding(padding, padding / 2, padding, 0);
+
+        EditText etSearch = new EditText(this);
+        etSearch.setHint("Поиск...");
+        etSearch.setSingleLine(true);
+        layout.addView(etSearch);
+
+        ListView listView = new ListView(this);
+        layout.addView(listView, new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT, (int) (320 * getResources().getDisplayMetrics().density)));
+
+        List<SearchResult> shown = new ArrayList<>(initial);
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1,
+                searchLabels(shown));
+        listView.setAdapter(adapter);
+
+        AlertDialog dialog = new AlertDialog.Builder(this)
+                .setTitle(title)
+                .setView(layout)
+                .setNegativeButton("Отмена", null)
+                .show();
+
+        listView.setOnItemClickListener((parent, view, position, id) -> {
+            selection.onSelected(shown.get(position));
+            dialog.dismiss();
+        });
+
+        final int[] inputVersion = {0};
+        etSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence text, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence text, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable text) {
+                String query = text.toString().trim();
+                int version = ++inputVersion[0];
+                if (query.isEmpty()) {
+                    showSearchResults(shown, adapter, initial);
+                    return;
+                }
+                backgroundTasks.read(() -> {
+                    List<SearchResult> results = search.run(query);
+                    backgroundTasks.postToUi(() -> {
+                        if (version == inputVersion[0]) {
+                            showSearchResults(shown, adapter, results);
+                        }
+                    });
+                });
             }
-        }).start();
+        });
+    }
+
+    private void showSearchResults(List<SearchResult> shown, ArrayAdapter<String> adapter, List<SearchResult> results) {
+        shown.clear();
+        shown.addAll(results);
+        adapter.clear();
+        adapter.addAll(searchLabels(results));
+    }
+
+    private List<String> searchLabels(List<SearchResult> results) {
+        List<String> labels = new ArrayList<>();
+        for (SearchResult result : results) {
+            StringBuilder label = new StringBuilder(result.title);
+            if (result.subtitle != null) {
+                label.append(" - ").append(result.subtitle);
+            }
+            if (result.quantity > 0) {
+                label.append(" (").append(result.quantity).append(" шт)");
+            }
+            labels.add(label.toString());
+        }
+        return labels;
     }
 
     // Метод для назначения задания
     private void assignTaskToWorker(int workerId, int operationId, int orderId, int plannedQuantity) {
-        new Thread(() -> {
+        backgroundTasks.write(() -> {
             try {
                 boolean success = databaseHelper.assignTaskToWorker(workerId, operationId, orderId, plannedQuantity);
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     if (success) {
                         Toast.makeText(this, "✅ Задание успешно назначено!", Toast.LENGTH_SHORT).show();
-                        // Обновляем данные на экране
-                        loadMasterData();
                     } else {
                         Toast.makeText(this, "❌ Ошибка назначения задания", Toast.LENGTH_SHORT).show();
                     }
                 });
             } catch (Exception e) {
                 Log.e("DashboardActivity", "Ошибка назначения задания: " + e.getMessage());
-                runOnUiThread(() -> Toast.makeText(this, "Ошибка назначения задания", Toast.LENGTH_SHORT).show());
+                backgroundTasks.postToUi(() -> Toast.makeText(this, "Ошибка назначения задания", Toast.LENGTH_SHORT).show());
             }
-        }).start();
+        });
     }
 
 
     // === ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ДЛЯ МАСТЕРА ===
 
-    private List<Assignment> getBrigadeActiveAssignments() {
-        try {
-            return databaseHelper.getBrigadeActiveAssignments(userBrigade);
-        } catch (Exception e) {
-            Log.e("DashboardActivity", "Ошибка получения активных заданий: " + e.getMessage());
-            return new ArrayList<>();
-        }
-    }
-
     private List<Worker> getBrigadeWorkers() {
         try {
             return databaseHelper.getBrigadeWorkers(userBrigade);
@@ -1657,19 +1832,19 @@ public class DashboardActivity extends AppCompatActivity {
     // В классе DashboardActivity добавьте этот метод
     private void refreshQualityControlData() {
         if ("master".equals(userRole)) {
-            new Thread(() -> {
+            backgroundTasks.read(() -> {
                 try {
                     // Принудительно обновляем данные контроля качества
-                    List<QualityControlItem> qualityTasks = databaseHelper.getQualityControlTasks();
+                    QualityControlPage firstPage = databaseHelper.getQualityControlPage(null, QUALITY_CONTROL_PAGE_SIZE);
 
-                    runOnUiThread(() -> {
+                    backgroundTasks.postToUi(() -> {
                         Log.d("DashboardActivity", "🔄 Данные контроля качества обновлены: " +
-                                qualityTasks.size() + " заданий");
+                                firstPage.items.size() + " заданий на первой странице");
                     });
                 } catch (Exception e) {
                     Log.e("DashboardActivity", "❌ Ошибка обновления данных контроля качества: " + e.getMessage());
                 }
-            }).start();
+            });
         }
     }
 
@@ -1681,6 +1856,9 @@ public class DashboardActivity extends AppCompatActivity {
             tvMaterial2 = findViewById(R.id.tvMaterial2);
             tvMaterial3 = findViewById(R.id.tvMaterial3);
             tvRecentUsage = findViewById(R.id.tvRecentUsage);
+            btnInventory = findViewById(R.id.btnInventory);
+            btnReceiveMaterials = findViewById(R.id.btnReceiveMaterials);
+            btnIssueMaterials = findViewById(R.id.btnIssueMaterials);
             btnLogout = findViewById(R.id.btnLogout);
 
             Intent intent = getIntent();
@@ -1690,40 +1868,31 @@ public class DashboardActivity extends AppCompatActivity {
                 tvWelcome.setText(userName);
             }
 
-            // Загружаем данные из БД
-            new Thread(() -> {
-                try {
-                    StorekeeperStats stats = databaseHelper.getStorekeeperStats();
-                    runOnUiThread(() -> {
-                        try {
-                            // Материалы с низким запасом
-                            if (stats.lowStockMaterials != null) {
-                                if (tvMaterial1 != null && stats.lowStockMaterials.size() > 0) {
-                                    Material m = stats.lowStockMaterials.get(0);
-                                    tvMaterial1.setText(m.name + ": " + m.currentStock + " " + m.unit + " (мин: " + m.minStock + ")");
-                                }
-                                if (tvMaterial2 != null && stats.lowStockMaterials.size() > 1) {
-                                    Material m = stats.lowStockMaterials.get(1);
-                                    tvMaterial2.setText(m.name + ": " + m.currentStock + " " + m.unit + " (мин: " + m.minStock + ")");
-                                }
-                                if (tvMaterial3 != null && stats.lowStockMaterials.size() > 2) {
-                                    Material m = stats.lowStockMaterials.get(2);
-                                    tvMaterial3.setText(m.name + ": " + m.currentStock + " " + m.unit + " (мин: " + m.minStock + ")");
-                                }
-                            }
-
-                            if (tvRecentUsage != null) {
-                                tvRecentUsage.setText(stats.recentUsage);
-                            }
-                        } catch (Exception e) {
-                            Log.e("DashboardActivity", "Ошибка обновления UI кладовщика: " + e.getMessage());
-                        }
-                    });
-                } catch (Exception e) {
-                    Log.e("DashboardActivity", "Ошибка загрузки данных кладовщика: " + e.getMessage());
-                }
-            }).start();
+            // Данные перечитываются сами после каждого движения по складу
+            LiveQuery<StorekeeperStats> query = databaseHelper.observeStorekeeperStats();
+            dashboardQuery = query;
+            frameMonitor = new FrameMonitor(this, "updateStorekeeperUI");
+            dashboardSubscription = query.observe(stats -> {
+                LiveQuery.Load load = query.lastLoad();
+                long delivered = System.nanoTime();
+                backgroundTasks.postToUi(() -> frameMonitor.render(load, delivered, () -> {
+                    try {
+                        updateStorekeeperUI(stats);
+                    } catch (Exception e) {
+                        Log.e("DashboardActivity", "Ошибка обновления UI кладовщика: " + e.getMessage());
+                    }
+                }));
+            });
 
+            if (btnReceiveMaterials != null) {
+                btnReceiveMaterials.setOnClickListener(v -> showStockMovementDialog(DatabaseContract.STOCK_RECEIPT));
+            }
+            if (btnIssueMaterials != null) {
+                btnIssueMaterials.setOnClickListener(v -> showStockMovementDialog(DatabaseContract.STOCK_CONSUMPTION));
+            }
+            if (btnInventory != null) {
+                btnInventory.setOnClickListener(v -> showStockMovementDialog(DatabaseContract.STOCK_ADJUSTMENT));
+            }
             if (btnLogout != null) {
                 btnLogout.setOnClickListener(v -> logout());
             }
@@ -1733,6 +1902,99 @@ public class DashboardActivity extends AppCompatActivity {
         }
     }
 
+    private void updateStorekeeperUI(StorekeeperStats stats) {
+        // Материалы с низким запасом; пустые строки, если материал вернулся выше минимума
+        TextView[] materialViews = {tvMaterial1, tvMaterial2, tvMaterial3};
+        for (int i = 0; i < materialViews.length; i++) {
+            if (materialViews[i] == null) {
+                continue;
+            }
+            if (i < stats.lowStockMaterials.size()) {
+                Material m = stats.lowStockMaterials.get(i);
+                materialViews[i].setText(m.name + ": " + m.currentStock + " " + m.unit + " (мин: " + m.minStock + ")");
+            } else {
+                materialViews[i].setText(i == 0 ? "Все материалы выше минимума" : "");
+            }
+        }
+
+        if (tvRecentUsage != null) {
+            tvRecentUsage.setText(stats.recentUsage);
+        }
+    }
+
+    // Приход, выдача или инвентаризация: выбор материала, затем количество
+    private void showStockMovementDialog(String kind) {
+        backgroundTasks.read(() -> {
+            List<Material> materials = databaseHelper.getMaterials();
+            backgroundTasks.postToUi(() -> {
+                if (materials.isEmpty()) {
+                    Toast.makeText(this, "Нет материалов на складе", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+
+                String[] materialNames = new String[materials.size()];
+                for (int i = 0; i < materials.size(); i++) {
+                    Material m = materials.get(i);
+                    materialNames[i] = m.name + ": " + m.currentStock + " " + m.unit;
+                }
+
+                new AlertDialog.Builder(this)
+                        .setTitle(stockMovementTitle(kind))
+                        .setItems(materialNames, (dialog, which) -> showStockQuantityDialog(kind, materials.get(which)))
+                        .setNegativeButton("Отмена", null)
+                        .show();
+            });
+        });
+    }
+
+    private void showStockQuantityDialog(String kind, Material material) {
+        boolean inventory = DatabaseContract.STOCK_ADJUSTMENT.equals(kind);
+
+        EditText etQuantity = new EditText(this);
+        etQuantity.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
+        etQuantity.setHint(inventory ? "Фактический остаток, " + material.unit : "Количество, " + material.unit);
+
+        new AlertDialog.Builder(this)
+                .setTitle(stockMovementTitle(kind) + ": " + material.name)
+                .setMessage("На складе: " + material.currentStock + " " + material.unit)
+                .setView(etQuantity)
+                .setPositiveButton("Провести", (dialog, which) -> {
+                    double quantity;
+                    try {
+                        quantity = Double.parseDouble(etQuantity.getText().toString().replace(',', '.'));
+                    } catch (NumberFormatException e) {
+                        Toast.makeText(this, "Введите количество", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+
+                    backgroundTasks.write(() -> {
+                        boolean success;
+                        if (DatabaseContract.STOCK_RECEIPT.equals(kind)) {
+                            success = databaseHelper.receiveMaterial(material.id, quantity, userId, null);
+                        } else if (DatabaseContract.STOCK_CONSUMPTION.equals(kind)) {
+                            success = databaseHelper.issueMaterial(material.id, quantity, null, userId);
+                        } else {
+                            success = databaseHelper.adjustStockTo(material.id, quantity, userId, "Инвентаризация");
+                        }
+                        // Экран обновит подписка на изменения склада
+                        backgroundTasks.postToUi(() -> Toast.makeText(this,
+                                success ? "✅ Проведено" : "❌ Не проведено: проверьте количество",
+                                Toast.LENGTH_SHORT).show());
+                    });
+                })
+                .setNegativeButton("Отмена", null)
+                .show();
+    }
+
+    private String stockMovementTitle(String kind) {
+        if (DatabaseContract.STOCK_RECEIPT.equals(kind)) {
+            return "Прием материалов";
+        } else if (DatabaseContract.STOCK_CONSUMPTION.equals(kind)) {
+            return "Выдача материалов";
+        }
+        return "Инвентаризация";
+    }
+
     // === MANAGER DASHBOARD ===
     private void setupManagerDashboard() {
         try {
@@ -1742,6 +2004,8 @@ public class DashboardActivity extends AppCompatActivity {
             tvInProgressOrders = findViewById(R.id.tvInProgressOrders);
             tvCompletionPercent = findViewById(R.id.tvCompletionPercent);
             tvBrigadePerformance = findViewById(R.id.tvBrigadePerformance);
+            btnOrders = findViewById(R.id.btnOrders);
+            btnProductionPlan = findViewById(R.id.btnProductionPlan);
             btnLogout = findViewById(R.id.btnLogout);
 
             Intent intent = getIntent();
@@ -1751,36 +2015,28 @@ public class DashboardActivity extends AppCompatActivity {
                 tvWelcome.setText(userName);
             }
 
-            // Загружаем данные из БД
-            new Thread(() -> {
-                try {
-                    ManagerStats stats = databaseHelper.getManagerStats();
-                    runOnUiThread(() -> {
-                        try {
-                            if (tvTotalOrders != null) {
-                                tvTotalOrders.setText("Всего заказов: " + stats.totalOrders);
-                            }
-                            if (tvCompletedOrders != null) {
-                                tvCompletedOrders.setText("Выполнено: " + stats.completedOrders);
-                            }
-                            if (tvInProgressOrders != null) {
-                                tvInProgressOrders.setText("В работе: " + stats.inProgressOrders);
-                            }
-                            if (tvCompletionPercent != null) {
-                                tvCompletionPercent.setText("Выполнение: " + stats.getCompletionPercent() + "%");
-                            }
-                            if (tvBrigadePerformance != null) {
-                                tvBrigadePerformance.setText(stats.brigadePerformance);
-                            }
-                        } catch (Exception e) {
-                            Log.e("DashboardActivity", "Ошибка обновления UI менеджера: " + e.getMessage());
-                        }
-                    });
-                } catch (Exception e) {
-                    Log.e("DashboardActivity", "Ошибка загрузки данных менеджера: " + e.getMessage());
-                }
-            }).start();
+            // Готовность заказов перечитывается сама после каждой отметки выполнения
+            LiveQuery<ManagerStats> query = databaseHelper.observeManagerStats();
+            dashboardQuery = query;
+            frameMonitor = new FrameMonitor(this, "updateManagerUI");
+            dashboardSubscription = query.observe(stats -> {
+                LiveQuery.Load load = query.lastLoad();
+                long delivered = System.nanoTime();
+                backgroundTasks.postToUi(() -> frameMonitor.render(load, delivered, () -> {
+                    try {
+                        updateManagerUI(stats);
+                    } catch (Exception e) {
+                        Log.e("DashboardActivity", "Ошибка обновления UI менеджера: " + e.getMessage());
+                    }
+                }));
+            });
 
+            if (btnOrders != null) {
+                btnOrders.setOnClickListener(v -> showOrderProgressDialog());
+            }
+            if (btnProductionPlan != null) {
+                btnProductionPlan.setOnClickListener(v -> showStageProgressDialog());
+            }
             if (btnLogout != null) {
                 btnLogout.setOnClickListener(v -> logout());
             }
@@ -1790,6 +2046,120 @@ public class DashboardActivity extends AppCompatActivity {
         }
     }
 
+    private void updateManagerUI(ManagerStats stats) {
+        if (tvTotalOrders != null) {
+            tvTotalOrders.setText("Всего заказов: " + stats.totalOrders);
+        }
+        if (tvCompletedOrders != null) {
+            tvCompletedOrders.setText("Выполнено: " + stats.completedOrders);
+        }
+        if (tvInProgressOrders != null) {
+            tvInProgressOrders.setText("В работе: " + stats.inProgressOrders);
+        }
+        if (tvCompletionPercent != null) {
+            tvCompletionPercent.setText("Выполнение: " + stats.getCompletionPercent() + "%, " +
+                    "готовность заказов в работе: " + stats.getActiveProgressPercent() + "%");
+        }
+        if (tvBrigadePerformance != null) {
+            tvBrigadePerformance.setText(stats.brigadePerformance);
+        }
+    }
+
+    // Готовность каждого активного заказа по операциям маршрута
+    private void showOrderProgressDialog() {
+        backgroundTasks.read(() -> {
+            List<OrderProgress> orders = databaseHelper.getOrderProgress();
+            StringBuilder message = new StringBuilder();
+            for (OrderProgress order : orders) {
+                message.append(order.orderNumber).append(": ").append(order.getPercent()).append("%, ")
+                        .append("готово ").append(order.finished).append(" из ").append(order.quantity)
+                        .append(" шт (операций: ").append(order.stages).append(")\n");
+            }
+            if (orders.isEmpty()) {
+                message.append("Нет заказов в работе");
+            }
+
+            backgroundTasks.postToUi(() -> new AlertDialog.Builder(this)
+                    .setTitle("Ход выполнения заказов")
+                    .setMessage(message.toString())
+                    .setPositiveButton("OK", null)
+                    .setNeutralButton("Очередь", (dialog, which) ->
+                            showOrderQueueDialog(DatabaseContract.QUEUE_BY_SLACK, null))
+                    .show());
+        });
+    }
+
+    // Очередь активных заказов постранично: по запасу времени до срока или по приоритету
+    private void showOrderQueueDialog(String mode, OrderQueuePage after) {
+        backgroundTasks.read(() -> {
+            OrderQueuePage page = databaseHelper.getOrderQueuePage(mode, after, ORDER_QUEUE_PAGE_SIZE);
+            boolean bySlack = DatabaseContract.QUEUE_BY_SLACK.equals(mode);
+            StringBuilder message = new StringBuilder();
+            for (Order order : page.items) {
+                message.append(order.orderNumber).append(" - ").append(order.quantity).append(" шт, ");
+                if (bySlack) {
+                    message.append("работы ").append(order.remainingMinutes / 60).append(" ч, ")
+                            .append(order.deadline == null ? "без срока"
+                                    : "запас " + order.slackMinutes / 60 + " ч");
+                } else {
+                    message.append(getPriorityText(order.priority)).append(", срок ")
+                            .append(order.deadline != null ? order.deadline : "не задан");
+                }
+                message.append("\n");
+            }
+            if (page.items.isEmpty()) {
+                message.append("Нет заказов в работе");
+            }
+
+            backgroundTasks.postToUi(() -> {
+                AlertDialog.Builder builder = new AlertDialog.Builder(this)
+                        .setTitle(bySlack ? "Очередь по запасу времени" : "Очередь по приоритету")
+                        .setMessage(message.toString())
+                        .setPositiveButton("OK", null)
+                        .setNeutralButton(bySlack ? "По приоритету" : "По запасу времени", (dialog, which) ->
+                                showOrderQueueDialog(bySlack ? DatabaseContract.QUEUE_BY_PRIORITY
+                                        : DatabaseContract.QUEUE_BY_SLACK, null));
+                if (page.hasMore) {
+                    builder.setNegativeButton("Дальше", (dialog, which) -> showOrderQueueDialog(mode, page));
+                }
+                builder.show();
+            });
+        });
+    }
+
+    private String getPriorityText(String priority) {
+        if (priority == null) return "средний";
+
+        switch (priority) {
+            case "high": return "высокий";
+            case "low": return "низкий";
+            default: return "средний";
+        }
+    }
+
+    // Незавершенное производство по этапам маршрута всех активных заказов
+    private void showStageProgressDialog() {
+        backgroundTasks.read(() -> {
+            List<StageProgress> stages = databaseHelper.getStageProgress();
+            StringBuilder message = new StringBuilder();
+            for (StageProgress stage : stages) {
+                message.append(stage.sequenceOrder).append(". ")
+                        .append(stage.name != null ? stage.name : "Этап " + stage.sequenceOrder).append(": ")
+                        .append("пройдено ").append(stage.completed).append(" шт, ")
+                        .append("ожидает ").append(stage.waiting).append(" шт\n");
+            }
+            if (stages.isEmpty()) {
+                message.append("Нет заказов в работе");
+            }
+
+            backgroundTasks.postToUi(() -> new AlertDialog.Builder(this)
+                    .setTitle("Загрузка этапов производства")
+                    .setMessage(message.toString())
+                    .setPositiveButton("OK", null)
+                    .show());
+        });
+    }
+
     // === ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ===
 
     private String getCurrentTime() {
@@ -1816,11 +2186,30 @@ public class DashboardActivity extends AppCompatActivity {
         finish();
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Свежая статистика кадров лежит в файле, даже если приложение потом выгрузят
+        if (frameMonitor != null) {
+            Context context = getApplicationContext();
+            backgroundTasks.read(() -> FrameMonitor.export(context));
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (databaseHelper != null) {
-            databaseHelper.close();
+        // Ждущие чтения снимаются с очереди, результаты идущих задач на экран не попадут
+        if (backgroundTasks != null) {
+            backgroundTasks.cancel();
+        }
+        // Соединение общее для всего приложения, поэтому не закрываем его,
+        // а только отписываем этот экран от изменений данных
+        if (dashboardSubscription != null) {
+            dashboardSubscription.close();
+        }
+        if (frameMonitor != null) {
+            frameMonitor.close();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,176 @@
+package com.example.clothes;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Шина уведомлений об изменении данных для любого числа подписчиков.
+// Запись только отмечает, какие таблицы и строки изменились; события за окно
+// windowMs от первого из них склеиваются в один ChangeSet, и каждый подписчик
+// получает его один раз, если изменилась хотя бы одна из его таблиц.
+// Что перечитать, решает сам подписчик - пишущий поток ничего для него не готовит.
+// Подписчики вызываются в фоновом потоке шины. Класс не зависит от Android.
+final class DataChangeBus {
+
+    interface Subscriber {
+        void onDataChanged(ChangeSet changes);
+    }
+
+    interface ErrorHandler {
+        void onSubscriberFailed(Subscriber subscriber, RuntimeException error);
+    }
+
+    private static final class Subscription {
+        final Subscriber subscriber;
+        final Set<String> tables;
+
+        Subscription(Subscriber subscriber, Set<String> tables) {
+            this.subscriber = subscriber;
+            this.tables = tables;
+        }
+    }
+
+    private final long windowMs;
+    private final ErrorHandler errorHandler;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "db-change-bus");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object pendingLock = new Object();
+    private ChangeSet pending;
+
+    DataChangeBus(long windowMs, ErrorHandler errorHandler) {
+        this.windowMs = windowMs;
+        this.errorHandler = errorHandler;
+    }
+
+    // Без списка таблиц подписчик получает все изменения
+    void subscribe(Subscriber subscriber, String... tables) {
+        subscriptions.add(new Subscription(subscriber, new HashSet<>(Arrays.asList(tables))));
+    }
+
+    void unsubscribe(Subscriber subscriber) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.subscriber == subscriber) {
+                subscriptions.remove(subscription);
+            }
+        }
+    }
+
+    // Изменены конкретные строки таблицы
+    void publish(String table, long rowId) {
+        synchronized (pendingLock) {
+            pendingChangeSet().addRow(table, rowId);
+        }
+    }
+
+    // Изменены неизвестные строки таблиц: массовая запись или пересчет
+    void publish(String... tables) {
+        synchronized (pendingLock) {
+            ChangeSet changes = pendingChangeSet();
+            for (String table : tables) {
+                changes.addTable(table);
+            }
+        }
+    }
+
+    // Первое событие окна планирует доставку; остальные до нее только дописываются
+    private ChangeSet pendingChangeSet() {
+        if (pending == null) {
+            pending = new ChangeSet();
+            scheduler.schedule(this::deliver, windowMs, TimeUnit.MILLISECONDS);
+        }
+        return pending;
+    }
+
+    private void deliver() {
+        ChangeSet changes;
+        synchronized (pendingLock) {
+            changes = pending;
+            pending = null;
+        }
+        if (changes == null) {
+            return;
+        }
+
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.tables.isEmpty() && Collections.disjoint(subscription.tables, changes.tables())) {
+                continue;
+            }
+            try {
+                subscription.subscriber.onDataChanged(changes);
+            } catch (RuntimeException e) {
+                // Ошибка одного подписчика не должна лишать уведомления остальных
+                errorHandler.onSubscriberFailed(subscription.subscriber, e);
+            }
+        }
+    }
+
+    public static class ChangeSet {
+        // Пустое множество строк - изменилась таблица целиком или строки неизвестны
+        private final Map<String, Set<Long>> rows = new HashMap<>();
+        private final Set<String> wholeTables = new HashSet<>();
+        private int events;
+
+        void addRow(String table, long rowId) {
+            Set<Long> tableRows = rows.get(table);
+            if (tableRows == null) {
+                tableRows = new HashSet<>();
+                rows.put(table, tableRows);
+            }
+            tableRows.add(rowId);
+            events++;
+        }
+
+        void addTable(String table) {
+            if (!rows.containsKey(table)) {
+                rows.put(table, new HashSet<>());
+            }
+            wholeTables.add(table);
+            events++;
+        }
+
+        public Set<String> tables() {
+            return Collections.unmodifiableSet(rows.keySet());
+        }
+
+        public boolean contains(String table) {
+            return rows.containsKey(table);
+        }
+
+        public boolean containsRow(String table, long rowId) {
+            if (wholeTables.contains(table)) {
+                return true;
+            }
+            Set<Long> tableRows = rows.get(table);
+            return tableRows != null && tableRows.contains(rowId);
+        }
+
+        // Известные id измененных строк; если изменилась вся таблица, смотрите containsRow
+        public Set<Long> rowIds(String table) {
+            Set<Long> tableRows = rows.get(table);
+            return tableRows != null ? Collections.unmodifiableSet(tableRows) : Collections.<Long>emptySet();
+        }
+
+        // Сколько событий склеено в этот набор
+        public int getEventCount() {
+            return events;
+        }
+
+        @Override
+        public String toString() {
+            return "ChangeSet" + rows.keySet() + ", событий " + events;
+        }
+    }
+}
@@ -0,0 +1,1214 @@
+package com.example.clothes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Схема и SQL-запросы, которые использует DatabaseHelper.
+// Класс не зависит от Android, поэтому запросы можно проверять в JVM-тестах.
+public final class DatabaseContract {
+
+    private DatabaseContract() {}
+
+    // === ИНДЕКСЫ (версия БД 3) ===
+
+    public static final String[] INDEXES_V3 = {
+            "CREATE INDEX IF NOT EXISTS idx_assignments_user_status ON assignments(user_id, status)",
+            "CREATE INDEX IF NOT EXISTS idx_assignments_status_end_time ON assignments(status, end_time)",
+            "CREATE INDEX IF NOT EXISTS idx_users_brigade_role ON users(brigade, role)",
+            "CREATE INDEX IF NOT EXISTS idx_users_role ON users(role)",
+            "CREATE INDEX IF NOT EXISTS idx_quality_checks_assignment ON quality_checks(assignment_id)",
+            "CREATE INDEX IF NOT EXISTS idx_material_usage_date ON material_usage(usage_date)",
+            "CREATE INDEX IF NOT EXISTS idx_materials_low_stock ON materials(current_stock) " +
+                    "WHERE current_stock <= min_stock",
+            "CREATE INDEX IF NOT EXISTS idx_orders_status ON orders(status)",
+            "CREATE INDEX IF NOT EXISTS idx_operations_sequence ON operations(sequence_order, name)"
+    };
+
+    // === ИНДЕКСЫ (версия БД 6) ===
+
+    // Открытая смена работника ищется для окна "текущая смена"
+    public static final String[] INDEXES_V6 = {
+            "CREATE INDEX IF NOT EXISTS idx_shifts_user_open ON shifts(user_id, start_time) " +
+                    "WHERE end_time IS NULL"
+    };
+
+    // === СВОДНЫЕ ТАБЛИЦЫ (версии БД 5-6, журнал выработки - 12) ===
+    // Итоги по работникам, бригадам, дням и часам поддерживаются триггерами на assignments,
+    // quality_checks и users: каждая запись задания вычитает свой старый вклад
+    // и прибавляет новый. Дашборды читают готовые итоги вместо SUM по всей истории.
+    // Выполненное задание считается в дне своего end_time. Сделанные и забракованные
+    // штуки идут в корзины по дням и часам из журнала выработки assignment_progress
+    // (версия БД 12): каждое изменение actual_quantity и defects - строка журнала со
+    // временем записи, поэтому штуки, отмеченные сегодня по заданию, начатому вчера,
+    // попадают в "сегодня" и в текущую смену сразу, а не после выполнения задания.
+    // Для заданий, появившихся уже со штуками (перенос истории), время записи - время
+    // самого задания. UPSERT появился только в SQLite 3.24, поэтому строки корзин
+    // заводятся через INSERT OR IGNORE и затем обновляются
+
+    private static final String ROW_TIME = "COALESCE(%1$s.end_time, %1$s.start_time, %1$s.created_at, 'now')";
+    private static final String ROW_DAY = "date(" + ROW_TIME + ")";
+    private static final String RECORDED_DAY = "date(%1$s.recorded_at)";
+    private static final String RECORDED_HOUR = "strftime('%%Y-%%m-%%d %%H:00', %1$s.recorded_at)";
+    private static final String ROW_RECORDED_AT =
+            "COALESCE(%1$s.end_time, %1$s.start_time, %1$s.created_at, datetime('now', 'localtime'))";
+
+    public static final String[] INDEXES_V12 = {
+            "CREATE INDEX IF NOT EXISTS idx_assignment_progress_assignment ON assignment_progress(assignment_id)"
+    };
+
+    // Таблицы создаются, если их нет, а триггеры пересоздаются: так повторная установка
+    // сводок в шаге миграции, который меняет их определение, приводит их к текущему
+    public static final String[] SUMMARY_SCHEMA;
+    static {
+        List<String> schema = new ArrayList<>();
+        schema.add("CREATE TABLE IF NOT EXISTS worker_stats (" +
+                "user_id INTEGER PRIMARY KEY, " +
+                "assignments_count INTEGER NOT NULL DEFAULT 0, " +
+                "total_quantity INTEGER NOT NULL DEFAULT 0, " +
+                "total_defects INTEGER NOT NULL DEFAULT 0, " +
+                "completed_count INTEGER NOT NULL DEFAULT 0, " +
+                "completed_quantity INTEGER NOT NULL DEFAULT 0, " +
+                "completed_defects INTEGER NOT NULL DEFAULT 0, " +
+                "checked_count INTEGER NOT NULL DEFAULT 0)");
+        schema.add("CREATE TABLE IF NOT EXISTS brigade_stats (" +
+                "brigade TEXT NOT NULL PRIMARY KEY, " +
+                "workers_count INTEGER NOT NULL DEFAULT 0, " +
+                "total_quantity INTEGER NOT NULL DEFAULT 0, " +
+                "total_defects INTEGER NOT NULL DEFAULT 0)");
+        schema.add("CREATE TABLE IF NOT EXISTS worker_daily_stats (" +
+                "user_id INTEGER NOT NULL, " +
+                "day TEXT NOT NULL, " +
+                "quantity INTEGER NOT NULL DEFAULT 0, " +
+                "defects INTEGER NOT NULL DEFAULT 0, " +
+                "completed_count INTEGER NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (user_id, day))");
+        // Часовые корзины нужны только окну текущей смены
+        schema.add("CREATE TABLE IF NOT EXISTS worker_hourly_stats (" +
+                "user_id INTEGER NOT NULL, " +
+                "hour TEXT NOT NULL, " +
+                "quantity INTEGER NOT NULL DEFAULT 0, " +
+                "defects INTEGER NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (user_id, hour))");
+        // Журнал выработки: quantity и defects со знаком - на сколько изменилось задание
+        schema.add("CREATE TABLE IF NOT EXISTS assignment_progress (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "assignment_id INTEGER NOT NULL, " +
+                "user_id INTEGER, " +
+                "quantity INTEGER NOT NULL, " +
+                "defects INTEGER NOT NULL, " +
+                "recorded_at TEXT NOT NULL)");
+
+        addTrigger(schema, "trg_assignments_summary_insert", "AFTER INSERT ON assignments",
+                addAssignment("NEW"));
+        addTrigger(schema, "trg_assignments_summary_delete", "AFTER DELETE ON assignments",
+                removeAssignment("OLD"));
+        addTrigger(schema, "trg_assignments_summary_update", "AFTER UPDATE OF " +
+                        "user_id, actual_quantity, defects, status, start_time, end_time, created_at ON assignments",
+                removeAssignment("OLD") + addAssignment("NEW"));
+
+        // Журнал выработки ведется по изменениям задания: новое задание со штуками - одна
+        // строка на его время, отметка или поправка - разница со временем записи,
+        // удаление уносит строки задания, переназначение переносит их на нового работника
+        String quantityDelta = "COALESCE(NEW.actual_quantity, 0) - COALESCE(OLD.actual_quantity, 0)";
+        String defectsDelta = "COALESCE(NEW.defects, 0) - COALESCE(OLD.defects, 0)";
+        addTrigger(schema, "trg_assignments_progress_insert", "AFTER INSERT ON assignments " +
+                        "WHEN COALESCE(NEW.actual_quantity, 0) != 0 OR COALESCE(NEW.defects, 0) != 0",
+                "INSERT INTO assignment_progress (assignment_id, user_id, quantity, defects, recorded_at) " +
+                        "VALUES (NEW.id, NEW.user_id, COALESCE(NEW.actual_quantity, 0), COALESCE(NEW.defects, 0), " +
+                        String.format(ROW_RECORDED_AT, "NEW") + "); ");
+        addTrigger(schema, "trg_assignments_progress_delete", "AFTER DELETE ON assignments",
+                "DELETE FROM assignment_progress WHERE assignment_id = OLD.id; ");
+        addTrigger(schema, "trg_assignments_progress_update", "AFTER UPDATE OF id, user_id, actual_quantity, defects " +
+                        "ON assignments",
+                "UPDATE assignment_progress SET assignment_id = NEW.id, user_id = NEW.user_id " +
+                        "WHERE assignment_id = OLD.id AND (OLD.id != NEW.id OR user_id IS NOT NEW.user_id); " +
+                        "INSERT INTO assignment_progress (assignment_id, user_id, quantity, defects, recorded_at) " +
+                        "SELECT NEW.id, NEW.user_id, " + quantityDelta + ", " + defectsDelta + ", " +
+                        "datetime('now', 'localtime') " +
+                        "WHERE " + quantityDelta + " != 0 OR " + defectsDelta + " != 0; ");
+
+        // Строка журнала - вклад в корзины дня и часа своего времени записи
+        addTrigger(schema, "trg_assignment_progress_insert", "AFTER INSERT ON assignment_progress",
+                addProgress("NEW"));
+        addTrigger(schema, "trg_assignment_progress_delete", "AFTER DELETE ON assignment_progress",
+                changeProgressBuckets("OLD", "-"));
+        addTrigger(schema, "trg_assignment_progress_update", "AFTER UPDATE OF user_id, quantity, defects, " +
+                        "recorded_at ON assignment_progress",
+                changeProgressBuckets("OLD", "-") + addProgress("NEW"));
+
+        // Проверенным считается выполненное задание, у которого есть хотя бы одна проверка
+        addTrigger(schema, "trg_quality_checks_summary_insert", "AFTER INSERT ON quality_checks",
+                changeCheckedCount("NEW", "+", 1));
+        addTrigger(schema, "trg_quality_checks_summary_delete", "AFTER DELETE ON quality_checks",
+                changeCheckedCount("OLD", "-", 0));
+        addTrigger(schema, "trg_quality_checks_summary_update", "AFTER UPDATE OF assignment_id ON quality_checks " +
+                        "WHEN OLD.assignment_id IS NOT NEW.assignment_id",
+                changeCheckedCount("OLD", "-", 0) + changeCheckedCount("NEW", "+", 1));
+
+        // Перевод работника в другую бригаду переносит его итоги между бригадами
+        addTrigger(schema, "trg_users_summary_brigade", "AFTER UPDATE OF brigade ON users " +
+                        "WHEN OLD.brigade IS NOT NEW.brigade",
+                moveWorkerTotals("OLD", "-") +
+                        "INSERT OR IGNORE INTO brigade_stats (brigade) SELECT NEW.brigade " +
+                        "WHERE NEW.brigade IS NOT NULL AND EXISTS (SELECT 1 FROM worker_stats WHERE user_id = NEW.id); " +
+                        moveWorkerTotals("NEW", "+"));
+
+        SUMMARY_SCHEMA = schema.toArray(new String[0]);
+    }
+
+    // Полный пересчет сводок из исходных таблиц: при миграции и по команде пересчета.
+    // Время записи штук есть только в журнале выработки, поэтому журнал не пересчитывается,
+    // а сверяется с заданиями: строки удаленных заданий убираются, работник берется из задания,
+    // а расхождение с actual_quantity и defects (задания до журнала) дописывается строкой
+    // на время самого задания
+    public static final String[] SUMMARY_REBUILD = {
+            "DELETE FROM assignment_progress WHERE assignment_id NOT IN (SELECT id FROM assignments)",
+            "UPDATE assignment_progress SET user_id = " +
+                    "(SELECT user_id FROM assignments WHERE id = assignment_progress.assignment_id) " +
+                    "WHERE user_id IS NOT (SELECT user_id FROM assignments WHERE id = assignment_progress.assignment_id)",
+            "INSERT INTO assignment_progress (assignment_id, user_id, quantity, defects, recorded_at) " +
+                    "SELECT a.id, a.user_id, COALESCE(a.actual_quantity, 0) - COALESCE(p.quantity, 0), " +
+                    "COALESCE(a.defects, 0) - COALESCE(p.defects, 0), " + String.format(ROW_RECORDED_AT, "a") + " " +
+                    "FROM assignments a LEFT JOIN (SELECT assignment_id, SUM(quantity) as quantity, " +
+                    "SUM(defects) as defects FROM assignment_progress GROUP BY assignment_id) p " +
+                    "ON p.assignment_id = a.id " +
+                    "WHERE COALESCE(a.actual_quantity, 0) != COALESCE(p.quantity, 0) " +
+                    "OR COALESCE(a.defects, 0) != COALESCE(p.defects, 0)",
+            "DELETE FROM worker_stats",
+            "DELETE FROM brigade_stats",
+            "DELETE FROM worker_daily_stats",
+            "INSERT INTO worker_stats (user_id, assignments_count, total_quantity, total_defects, " +
+                    "completed_count, completed_quantity, completed_defects, checked_count) " +
+                    "SELECT a.user_id, COUNT(*), " +
+                    "SUM(COALESCE(a.actual_quantity, 0)), SUM(COALESCE(a.defects, 0)), " +
+                    "SUM(a.status = 'completed'), " +
+                    "SUM(CASE WHEN a.status = 'completed' THEN COALESCE(a.actual_quantity, 0) ELSE 0 END), " +
+                    "SUM(CASE WHEN a.status = 'completed' THEN COALESCE(a.defects, 0) ELSE 0 END), " +
+                    "SUM(a.status = 'completed' AND EXISTS " +
+                    "(SELECT 1 FROM quality_checks qc WHERE qc.assignment_id = a.id)) " +
+                    "FROM assignments a GROUP BY a.user_id",
+            "INSERT INTO brigade_stats (brigade, workers_count, total_quantity, total_defects) " +
+                    "SELECT u.brigade, COUNT(*), SUM(ws.total_quantity), SUM(ws.total_defects) " +
+                    "FROM worker_stats ws JOIN users u ON u.id = ws.user_id " +
+                    "WHERE u.brigade IS NOT NULL GROUP BY u.brigade",
+            "INSERT INTO worker_daily_stats (user_id, day, quantity, defects, completed_count) " +
+                    "SELECT user_id, day, SUM(quantity), SUM(defects), SUM(completed) FROM (" +
+                    "SELECT p.user_id, " + String.format(RECORDED_DAY, "p") + " as day, " +
+                    "p.quantity, p.defects, 0 as completed FROM assignment_progress p " +
+                    "UNION ALL " +
+                    "SELECT a.user_id, " + String.format(ROW_DAY, "a") + ", 0, 0, a.status = 'completed' " +
+                    "FROM assignments a) GROUP BY 1, 2",
+            "DELETE FROM worker_hourly_stats",
+            "INSERT INTO worker_hourly_stats (user_id, hour, quantity, defects) " +
+                    "SELECT p.user_id, " + String.format(RECORDED_HOUR, "p") + ", SUM(p.quantity), SUM(p.defects) " +
+                    "FROM assignment_progress p GROUP BY 1, 2"
+    };
+
+    // Сводки, которые триггеры меняют при записи в исходную таблицу.
+    // По ним QueryCache и SingleFlight сбрасывают и чтения из сводок
+    public static final Map<String, String[]> SUMMARY_TARGETS;
+    static {
+        Map<String, String[]> targets = new LinkedHashMap<>();
+        targets.put("assignments", new String[]{"worker_stats", "brigade_stats", "assignment_progress",
+                "worker_daily_stats", "worker_hourly_stats", "order_operation_progress"});
+        targets.put("quality_checks", new String[]{"worker_stats"});
+        targets.put("users", new String[]{"brigade_stats"});
+        targets.put("orders", new String[]{"order_operation_progress"});
+        targets.put("operations", new String[]{"order_operation_progress"});
+        targets.put("stock_movements", new String[]{"materials", "material_daily_usage", "stock_snapshots"});
+        SUMMARY_TARGETS = Collections.unmodifiableMap(targets);
+    }
+
+    // То же для одной таблицы, посчитанное заранее массивом: отметка выполнения
+    // сбрасывает чтения после каждого нажатия и не должна собирать множество заново
+    private static final Map<String, String[]> SUMMARY_CLOSURES;
+    static {
+        Map<String, String[]> closures = new HashMap<>();
+        for (String table : SUMMARY_TARGETS.keySet()) {
+            closures.put(table, withSummaries(new String[]{table}).toArray(new String[0]));
+        }
+        SUMMARY_CLOSURES = closures;
+    }
+
+    // Массив общий, менять его нельзя
+    public static String[] changedBy(String table) {
+        String[] changed = SUMMARY_CLOSURES.get(table);
+        return changed != null ? changed : new String[]{table};
+    }
+
+    // Прочитанное из tables задето записью, изменившей changed. Без итераторов:
+    // сброс чтений проверяет так записи кэша после каждой отметки выполнения
+    public static boolean touches(String[] tables, String[] changed) {
+        for (String table : tables) {
+            for (String other : changed) {
+                if (table.equals(other)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Таблицы, которые фактически меняет запись в tables, вместе со сводками из триггеров
+    public static Set<String> withSummaries(String... tables) {
+        Set<String> changed = new HashSet<>();
+        for (String table : tables) {
+            changed.add(table);
+            String[] summaries = SUMMARY_TARGETS.get(table);
+            if (summaries != null) {
+                changed.addAll(Arrays.asList(summaries));
+            }
+        }
+        return changed;
+    }
+
+    // Таблицы, запись в которые меняет tables: сами tables и источники их сводок
+    public static Set<String> withSources(String... tables) {
+        List<String> requested = Arrays.asList(tables);
+        Set<String> sources = new HashSet<>(requested);
+        for (Map.Entry<String, String[]> target : SUMMARY_TARGETS.entrySet()) {
+            if (!Collections.disjoint(requested, Arrays.asList(target.getValue()))) {
+                sources.add(target.getKey());
+            }
+        }
+        return sources;
+    }
+
+    private static void addTrigger(List<String> schema, String name, String event, String body) {
+        schema.add("DROP TRIGGER IF EXISTS " + name);
+        schema.add("CREATE TRIGGER IF NOT EXISTS " + name + " " + event + " BEGIN " + body + "END");
+    }
+
+    private static String addAssignment(String row) {
+        return "INSERT OR IGNORE INTO worker_stats (user_id) VALUES (" + row + ".user_id); " +
+                "INSERT OR IGNORE INTO brigade_stats (brigade) " +
+                "SELECT brigade FROM users WHERE id = " + row + ".user_id AND brigade IS NOT NULL; " +
+                // Бригада считает работника, когда у него появляется первое задание
+                changeBrigadeTotals(row, "+") +
+                changeWorkerTotals(row, "+") +
+                "INSERT OR IGNORE INTO worker_daily_stats (user_id, day) " +
+                "VALUES (" + row + ".user_id, " + String.format(ROW_DAY, row) + "); " +
+                changeDailyCompleted(row, "+");
+    }
+
+    private static String removeAssignment(String row) {
+        return changeWorkerTotals(row, "-") +
+                // ...и перестает считать, когда последнее задание ушло
+                changeBrigadeTotals(row, "-") +
+                changeDailyCompleted(row, "-");
+    }
+
+    private static String changeWorkerTotals(String row, String sign) {
+        String completed = row + ".status = 'completed'";
+        return "UPDATE worker_stats SET " +
+                "assignments_count = assignments_count " + sign + " 1, " +
+                "total_quantity = total_quantity " + sign + " COALESCE(" + row + ".actual_quantity, 0), " +
+                "total_defects = total_defects " + sign + " COALESCE(" + row + ".defects, 0), " +
+                "completed_count = completed_count " + sign + " (" + completed + "), " +
+                "completed_quantity = completed_quantity " + sign +
+                " (CASE WHEN " + completed + " THEN COALESCE(" + row + ".actual_quantity, 0) ELSE 0 END), " +
+                "completed_defects = completed_defects " + sign +
+                " (CASE WHEN " + completed + " THEN COALESCE(" + row + ".defects, 0) ELSE 0 END), " +
+                "checked_count = checked_count " + sign + " (" + completed + " AND EXISTS " +
+                "(SELECT 1 FROM quality_checks WHERE assignment_id = " + row + ".id)) " +
+                "WHERE user_id = " + row + ".user_id; ";
+    }
+
+    private static String changeBrigadeTotals(String row, String sign) {
+        return "UPDATE brigade_stats SET " +
+                "workers_count = workers_count " + sign +
+                " (SELECT assignments_count = 0 FROM worker_stats WHERE user_id = " + row + ".user_id), " +
+                "total_quantity = total_quantity " + sign + " COALESCE(" + row + ".actual_quantity, 0), " +
+                "total_defects = total_defects " + sign + " COALESCE(" + row + ".defects, 0) " +
+                "WHERE brigade = (SELECT brigade FROM users WHERE id = " + row + ".user_id); ";
+    }
+
+    private static String changeDailyCompleted(String row, String sign) {
+        return "UPDATE worker_daily_stats SET " +
+                "completed_count = completed_count " + sign + " (" + row + ".status = 'completed') " +
+                "WHERE user_id = " + row + ".user_id AND day = " + String.format(ROW_DAY, row) + "; ";
+    }
+
+    private static String addProgress(String row) {
+        return "INSERT OR IGNORE INTO worker_daily_stats (user_id, day) " +
+                "VALUES (" + row + ".user_id, " + String.format(RECORDED_DAY, row) + "); " +
+                "INSERT OR IGNORE INTO worker_hourly_stats (user_id, hour) " +
+                "VALUES (" + row + ".user_id, " + String.format(RECORDED_HOUR, row) + "); " +
+                changeProgressBuckets(row, "+");
+    }
+
+    private static String changeProgressBuckets(String row, String sign) {
+        return "UPDATE worker_daily_stats SET " +
+                "quantity = quantity " + sign + " " + row + ".quantity, " +
+                "defects = defects " + sign + " " + row + ".defects " +
+                "WHERE user_id = " + row + ".user_id AND day = " + String.format(RECORDED_DAY, row) + "; " +
+                "UPDATE worker_hourly_stats SET " +
+                "quantity = quantity " + sign + " " + row + ".quantity, " +
+                "defects = defects " + sign + " " + row + ".defects " +
+                "WHERE user_id = " + row + ".user_id AND hour = " + String.format(RECORDED_HOUR, row) + "; ";
+    }
+
+    // Счетчик меняется, только когда у выполненного задания появилась первая
+    // или исчезла последняя проверка (checksLeft - число проверок после изменения)
+    private static String changeCheckedCount(String row, String sign, int checksLeft) {
+        return "UPDATE worker_stats SET checked_count = checked_count " + sign + " 1 " +
+                "WHERE user_id = (SELECT user_id FROM assignments " +
+                "WHERE id = " + row + ".assignment_id AND status = 'completed') " +
+                "AND (SELECT COUNT(*) FROM quality_checks WHERE assignment_id = " + row + ".assignment_id) = " +
+                checksLeft + "; ";
+    }
+
+    private static String moveWorkerTotals(String row, String sign) {
+        String worker = "FROM worker_stats WHERE user_id = " + row + ".id";
+        return "UPDATE brigade_stats SET " +
+                "workers_count = workers_count " + sign + " COALESCE((SELECT assignments_count > 0 " + worker + "), 0), " +
+                "total_quantity = total_quantity " + sign + " COALESCE((SELECT total_quantity " + worker + "), 0), " +
+                "total_defects = total_defects " + sign + " COALESCE((SELECT total_defects " + worker + "), 0) " +
+                "WHERE brigade = " + row + ".brigade; ";
+    }
+
+    // === ПОЛНОТЕКСТОВЫЙ ПОИСК (версия БД 7) ===
+
+    // Виды записей в search_index. docid = id * SEARCH_KINDS + номер вида,
+    // поэтому триггер находит строку индекса по id без отдельного поиска
+    public static final String SEARCH_ORDER = "order";
+    public static final String SEARCH_PRODUCT = "product";
+    public static final String SEARCH_OPERATION = "operation";
+    public static final String SEARCH_USER = "user";
+    private static final int SEARCH_KINDS = 4;
+
+    // Сколько совпадений ранжируется: при коротком префиксе совпадают почти все строки,
+    // и сортировать их все при каждом нажатии клавиши дорого. Кандидаты берутся дважды -
+    // сначала те, чье название начинается с первого слова, затем любые совпадения
+    public static final int SEARCH_CANDIDATES = 500;
+
+    // FTS5 во встроенной SQLite Android не собран, поэтому FTS4. unicode61 приводит
+    // к нижнему регистру и кириллицу, prefix-индексы ускоряют поиск по началу слова
+    public static final String[] SEARCH_SCHEMA;
+    static {
+        List<String> schema = new ArrayList<>();
+        schema.add("CREATE VIRTUAL TABLE IF NOT EXISTS search_index USING fts4(" +
+                "kind, ref_id, title, subtitle, notindexed=kind, notindexed=ref_id, " +
+                "prefix=\"1,2,3\", tokenize=unicode61)");
+
+        addSearchTriggers(schema, "orders", SEARCH_ORDER, 0, "order_number, customer_name",
+                "%1$s.order_number", "%1$s.customer_name");
+        addSearchTriggers(schema, "products", SEARCH_PRODUCT, 1, "article, name",
+                "%1$s.name", "%1$s.article");
+        addSearchTriggers(schema, "operations", SEARCH_OPERATION, 2, "name",
+                "%1$s.name", "NULL");
+        addSearchTriggers(schema, "users", SEARCH_USER, 3, "name, position",
+                "%1$s.name", "%1$s.position");
+
+        SEARCH_SCHEMA = schema.toArray(new String[0]);
+    }
+
+    // Заполнение индекса из исходных таблиц: при миграции и по команде пересчета
+    public static final String[] SEARCH_REBUILD = {
+            "DELETE FROM search_index",
+            searchInsert("orders", SEARCH_ORDER, 0, "order_number", "customer_name"),
+            searchInsert("products", SEARCH_PRODUCT, 1, "name", "article"),
+            searchInsert("operations", SEARCH_OPERATION, 2, "name", "NULL"),
+            searchInsert("users", SEARCH_USER, 3, "name", "position")
+    };
+
+    // ?1 - выражение MATCH из searchMatchQuery, ?2 - вид записи, ?3 - начало названия
+    // из searchTitlePrefix, ?4 - сколько вернуть. Выше те, чье название начинается с первого
+    // слова (title:^ - первое слово названия), среди них - с введенного текста целиком,
+    // затем более короткие названия. Кандидаты по началу названия отбираются отдельно (pass 0),
+    // поэтому их не вытесняют из первых SEARCH_CANDIDATES совпадения в подписи или
+    // в середине названия; если таких кандидатов больше, показываются только они
+    public static final String SQL_SEARCH = "SELECT ref_id, title, subtitle FROM (" +
+            "SELECT * FROM (SELECT ref_id, title, subtitle, 0 as pass FROM search_index " +
+            "WHERE search_index MATCH 'title:^' || ?1 AND kind = ?2 LIMIT " + SEARCH_CANDIDATES + ") " +
+            "UNION ALL " +
+            "SELECT * FROM (SELECT ref_id, title, subtitle, 1 FROM search_index " +
+            "WHERE search_index MATCH ?1 AND kind = ?2 LIMIT " + SEARCH_CANDIDATES + ")) " +
+            "GROUP BY ref_id " +
+            "ORDER BY MIN(pass), title LIKE ?3 || '%' ESCAPE '\\' DESC, length(title), title LIMIT ?4";
+
+    // Поиск заказов для назначения задания: только новые и в работе, с названием изделия.
+    // Активных заказов немного, поэтому у них свой индекс и ранжируются все совпадения
+    public static final String SQL_SEARCH_ACTIVE_ORDERS = "SELECT o.id as ref_id, s.title, " +
+            "p.name as subtitle, o.quantity FROM active_order_search s " +
+            "JOIN orders o ON o.id = s.docid " +
+            "LEFT JOIN products p ON p.id = o.product_id " +
+            "WHERE active_order_search MATCH ?1 " +
+            "ORDER BY s.title LIKE ?2 || '%' ESCAPE '\\' DESC, length(s.title), s.title LIMIT ?3";
+
+    // Введенный текст в выражение MATCH: каждое слово ищется по началу, все слова
+    // должны встретиться. Служебные символы FTS отбрасываются, поэтому пользователь
+    // не может получить ошибку синтаксиса. null - искать нечего
+    public static String searchMatchQuery(String input) {
+        if (input == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= input.length(); i++) {
+            char c = i < input.length() ? input.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                // Слова в нижнем регистре: OR, AND и NEAR в верхнем FTS считает операторами
+                match.append(word.toString().toLowerCase(Locale.ROOT)).append('*');
+                word.setLength(0);
+            }
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    // Начало названия для ранжирования: символы шаблона LIKE экранируются (ESCAPE '\'),
+    // чтобы "10%" искал именно "10%"
+    public static String searchTitlePrefix(String input) {
+        if (input == null) {
+            return "";
+        }
+        String text = input.trim();
+        StringBuilder prefix = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                prefix.append('\\');
+            }
+            prefix.append(c);
+        }
+        return prefix.toString();
+    }
+
+    private static void addSearchTriggers(List<String> schema, String table, String kind, int kindNumber,
+                                          String columns, String title, String subtitle) {
+        String remove = "DELETE FROM search_index WHERE docid = OLD.id * " + SEARCH_KINDS + " + " + kindNumber + "; ";
+        String add = "INSERT INTO search_index (docid, kind, ref_id, title, subtitle) VALUES (" +
+                "NEW.id * " + SEARCH_KINDS + " + " + kindNumber + ", '" + kind + "', NEW.id, " +
+                String.format(title, "NEW") + ", " + String.format(subtitle, "NEW") + "); ";
+        addTrigger(schema, "trg_" + table + "_search_insert", "AFTER INSERT ON " + table, add);
+        addTrigger(schema, "trg_" + table + "_search_delete", "AFTER DELETE ON " + table, remove);
+        addTrigger(schema, "trg_" + table + "_search_update", "AFTER UPDATE OF id, " + columns + " ON " + table,
+                remove + add);
+    }
+
+    private static String searchInsert(String table, String kind, int kindNumber, String title, String subtitle) {
+        return "INSERT INTO search_index (docid, kind, ref_id, title, subtitle) " +
+                "SELECT id * " + SEARCH_KINDS + " + " + kindNumber + ", '" + kind + "', id, " +
+                title + ", " + subtitle + " FROM " + table;
+    }
+
+    // === ПОИСК АКТИВНЫХ ЗАКАЗОВ (версия БД 11) ===
+    // Новые и заказы в работе - в отдельном полнотекстовом индексе, docid = id заказа.
+    // В общем индексе их пришлось бы отбирать из всех совпадений по заказам, и при коротком
+    // префиксе активные терялись бы за первыми SEARCH_CANDIDATES старых закрытых заказов
+
+    public static final String[] ACTIVE_ORDER_SEARCH_SCHEMA;
+    static {
+        List<String> schema = new ArrayList<>();
+        schema.add("CREATE VIRTUAL TABLE IF NOT EXISTS active_order_search USING fts4(" +
+                "title, subtitle, prefix=\"1,2,3\", tokenize=unicode61)");
+
+        String remove = "DELETE FROM active_order_search WHERE docid = OLD.id; ";
+        String add = "INSERT INTO active_order_search (docid, title, subtitle) " +
+                "SELECT NEW.id, NEW.order_number, NEW.customer_name " +
+                "WHERE NEW.status IN ('new', 'in_progress'); ";
+        addTrigger(schema, "trg_orders_active_search_insert", "AFTER INSERT ON orders", add);
+        addTrigger(schema, "trg_orders_active_search_delete", "AFTER DELETE ON orders", remove);
+        addTrigger(schema, "trg_orders_active_search_update",
+                "AFTER UPDATE OF id, order_number, customer_name, status ON orders", remove + add);
+
+        ACTIVE_ORDER_SEARCH_SCHEMA = schema.toArray(new String[0]);
+    }
+
+    public static final String[] ACTIVE_ORDER_SEARCH_REBUILD = {
+            "DELETE FROM active_order_search",
+            "INSERT INTO active_order_search (docid, title, subtitle) " +
+                    "SELECT id, order_number, customer_name FROM orders WHERE status IN ('new', 'in_progress')"
+    };
+
+    // === СКЛАДСКОЙ УЧЕТ (версия БД 8) ===
+    // Любое изменение запаса - строка журнала stock_movements: приход, расход на заказ
+    // или поправка по инвентаризации. Журнал только дополняется, а триггер на каждую
+    // строку прибавляет ее к materials.current_stock (частичный индекс idx_materials_low_stock
+    // при этом сам включает и исключает материал из списка низкого запаса), к расходу
+    // за день в material_daily_usage и к снимкам остатка на начало дня в stock_snapshots.
+    // Остаток на момент времени - ближайший снимок не позже него плюс движения после снимка,
+    // то есть не больше чем движения одного дня, а не весь журнал.
+    // Время движений - "yyyy-MM-dd HH:mm:ss"; снимок дня D помечен просто "D"
+    // и при сравнении строк стоит раньше любого движения этого дня
+
+    public static final String STOCK_RECEIPT = "receipt";
+    public static final String STOCK_CONSUMPTION = "consumption";
+    public static final String STOCK_ADJUSTMENT = "adjustment";
+
+    public static final String[] INDEXES_V8 = {
+            "CREATE INDEX IF NOT EXISTS idx_stock_movements_material_time ON stock_movements(material_id, created_at)"
+    };
+
+    public static final String[] STOCK_SCHEMA;
+    static {
+        List<String> schema = new ArrayList<>();
+        // quantity со знаком: приход и излишек положительные, расход и недостача отрицательные
+        schema.add("CREATE TABLE IF NOT EXISTS stock_movements (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "material_id INTEGER NOT NULL, " +
+                "kind TEXT NOT NULL, " +
+                "quantity REAL NOT NULL, " +
+                "created_at TEXT NOT NULL, " +
+                "order_id INTEGER, " +
+                "user_id INTEGER, " +
+                "note TEXT, " +
+                "FOREIGN KEY (material_id) REFERENCES materials(id))");
+        schema.add("CREATE TABLE IF NOT EXISTS stock_snapshots (" +
+                "material_id INTEGER NOT NULL, " +
+                "taken_at TEXT NOT NULL, " +
+                "balance REAL NOT NULL, " +
+                "PRIMARY KEY (material_id, taken_at))");
+        // Ключ начинается с дня: окно "за неделю" читает диапазон ключа
+        schema.add("CREATE TABLE IF NOT EXISTS material_daily_usage (" +
+                "day TEXT NOT NULL, " +
+                "material_id INTEGER NOT NULL, " +
+                "quantity REAL NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (day, material_id))");
+
+        String day = "date(NEW.created_at)";
+        addTrigger(schema, "trg_stock_movements_apply", "AFTER INSERT ON stock_movements",
+                "UPDATE materials SET current_stock = COALESCE(current_stock, 0) + NEW.quantity " +
+                        "WHERE id = NEW.material_id; " +
+                        "INSERT OR IGNORE INTO material_daily_usage (day, material_id) " +
+                        "SELECT " + day + ", NEW.material_id WHERE NEW.kind = '" + STOCK_CONSUMPTION + "'; " +
+                        "UPDATE material_daily_usage SET quantity = quantity - NEW.quantity " +
+                        "WHERE NEW.kind = '" + STOCK_CONSUMPTION + "' " +
+                        "AND day = " + day + " AND material_id = NEW.material_id; " +
+                        // Движение задним числом входит во все более поздние снимки
+                        "UPDATE stock_snapshots SET balance = balance + NEW.quantity " +
+                        "WHERE material_id = NEW.material_id AND taken_at >= NEW.created_at; " +
+                        // Первое движение дня заводит снимок на его начало; само движение в снимок не входит
+                        "INSERT INTO stock_snapshots (material_id, taken_at, balance) " +
+                        "SELECT NEW.material_id, " + day + ", " + stockAt("NEW.material_id", day) + " " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM stock_snapshots " +
+                        "WHERE material_id = NEW.material_id AND taken_at = " + day + "); ");
+        // Сводки выше умеют только прибавлять, поэтому исправления - новыми движениями
+        addTrigger(schema, "trg_stock_movements_no_update", "BEFORE UPDATE ON stock_movements",
+                "SELECT RAISE(ABORT, 'stock_movements: журнал только дополняется'); ");
+        addTrigger(schema, "trg_stock_movements_no_delete", "BEFORE DELETE ON stock_movements",
+                "SELECT RAISE(ABORT, 'stock_movements: журнал только дополняется'); ");
+        // Начальный остаток нового материала тоже проводится через журнал
+        addTrigger(schema, "trg_materials_opening_stock", "AFTER INSERT ON materials " +
+                        "WHEN COALESCE(NEW.current_stock, 0) != 0",
+                "UPDATE materials SET current_stock = 0 WHERE id = NEW.id; " +
+                        "INSERT INTO stock_movements (material_id, kind, quantity, created_at, note) " +
+                        "VALUES (NEW.id, '" + STOCK_ADJUSTMENT + "', NEW.current_stock, " +
+                        "datetime(COALESCE(NEW.created_at, 'now')), 'Начальный остаток'); ");
+
+        STOCK_SCHEMA = schema.toArray(new String[0]);
+    }
+
+    // Перенос в журнал того, что было до него: прежние списания из material_usage
+    // и начальный остаток, при котором журнал сходится с current_stock.
+    // Выполняется один раз при миграции, после него нужен STOCK_REBUILD
+    public static final String[] STOCK_OPENING = {
+            "INSERT INTO stock_movements (material_id, kind, quantity, created_at, note) " +
+                    "SELECT m.id, '" + STOCK_ADJUSTMENT + "', " +
+                    "COALESCE(m.current_stock, 0) + COALESCE(SUM(mu.quantity_used), 0), " +
+                    "datetime(MIN(COALESCE(m.created_at, 'now'), COALESCE(MIN(mu.usage_date), 'now'))), " +
+                    "'Начальный остаток' " +
+                    "FROM materials m LEFT JOIN material_usage mu ON mu.material_id = m.id " +
+                    "GROUP BY m.id",
+            "INSERT INTO stock_movements (material_id, kind, quantity, created_at, order_id, user_id) " +
+                    "SELECT material_id, '" + STOCK_CONSUMPTION + "', -quantity_used, datetime(usage_date), " +
+                    "order_id, user_id FROM material_usage ORDER BY usage_date, id"
+    };
+
+    // Полный пересчет остатков, расхода по дням и снимков из журнала
+    public static final String[] STOCK_REBUILD = {
+            "UPDATE materials SET current_stock = " +
+                    "(SELECT COALESCE(SUM(quantity), 0) FROM stock_movements WHERE material_id = materials.id)",
+            "DELETE FROM material_daily_usage",
+            "INSERT INTO material_daily_usage (day, material_id, quantity) " +
+                    "SELECT date(created_at), material_id, -SUM(quantity) FROM stock_movements " +
+                    "WHERE kind = '" + STOCK_CONSUMPTION + "' GROUP BY 1, 2",
+            "DELETE FROM stock_snapshots",
+            "INSERT INTO stock_snapshots (material_id, taken_at, balance) " +
+                    "SELECT d.material_id, d.day, (SELECT COALESCE(SUM(quantity), 0) FROM stock_movements " +
+                    "WHERE material_id = d.material_id AND created_at <= d.day) " +
+                    "FROM (SELECT DISTINCT material_id, date(created_at) as day FROM stock_movements) d"
+    };
+
+    // ?1 - материал, ?2 - момент времени "yyyy-MM-dd HH:mm:ss"
+    public static final String SQL_STOCK_AT = "SELECT " + stockAt("?1", "?2") + " as balance";
+
+    // Остаток material на момент time: последний снимок не позже time плюс движения после него
+    private static String stockAt(String material, String time) {
+        String snapshot = "FROM stock_snapshots WHERE material_id = " + material + " AND taken_at <= " + time +
+                " ORDER BY taken_at DESC LIMIT 1";
+        return "(COALESCE((SELECT balance " + snapshot + "), 0) + " +
+                "(SELECT COALESCE(SUM(quantity), 0) FROM stock_movements " +
+                "WHERE material_id = " + material + " AND created_at <= " + time + " " +
+                "AND created_at > COALESCE((SELECT taken_at " + snapshot + "), '')))";
+    }
+
+    // === ХОД ВЫПОЛНЕНИЯ ЗАКАЗОВ (версия БД 9) ===
+    // На каждый заказ по строке на операцию его маршрута (operations изделия по sequence_order):
+    // сколько назначено, сделано и забраковано. Строки маршрута заводятся при создании заказа,
+    // а счетчики ведут триггеры на assignments тем же вычитанием старого вклада и прибавлением
+    // нового, что и сводки. Годные на операции - сделано минус брак, но не больше количества
+    // в заказе; готовность заказа - сумма годных по всем операциям к количеству на число операций.
+    // Менеджер читает строки только активных заказов, не проходя по assignments
+
+    public static final String[] INDEXES_V9 = {
+            "CREATE INDEX IF NOT EXISTS idx_order_progress_sequence ON order_operation_progress(order_id, sequence_order)"
+    };
+
+    public static final String[] PROGRESS_SCHEMA;
+    static {
+        List<String> schema = new ArrayList<>();
+        schema.add("CREATE TABLE IF NOT EXISTS order_operation_progress (" +
+                "order_id INTEGER NOT NULL, " +
+                "operation_id INTEGER NOT NULL, " +
+                "sequence_order INTEGER NOT NULL DEFAULT 0, " +
+                "planned_quantity INTEGER NOT NULL DEFAULT 0, " +
+                "completed_quantity INTEGER NOT NULL DEFAULT 0, " +
+                "defects INTEGER NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (order_id, operation_id))");
+
+        addTrigger(schema, "trg_assignments_progress_insert", "AFTER INSERT ON assignments",
+                addProgressRow("NEW") + changeOrderProgress("NEW", "+") + dropEmptyOffRouteRow("NEW"));
+        addTrigger(schema, "trg_assignments_progress_delete", "AFTER DELETE ON assignments",
+                changeOrderProgress("OLD", "-") + dropEmptyOffRouteRow("OLD"));
+        addTrigger(schema, "trg_assignments_progress_update", "AFTER UPDATE OF " +
+                        "order_id, operation_id, planned_quantity, actual_quantity, defects, status ON assignments",
+                changeOrderProgress("OLD", "-") + dropEmptyOffRouteRow("OLD") +
+                        addProgressRow("NEW") + changeOrderProgress("NEW", "+") + dropEmptyOffRouteRow("NEW"));
+
+        addTrigger(schema, "trg_orders_progress_insert", "AFTER INSERT ON orders",
+                addRoute("NEW"));
+        addTrigger(schema, "trg_orders_progress_delete", "AFTER DELETE ON orders",
+                "DELETE FROM order_operation_progress WHERE order_id = OLD.id; ");
+        // Смена изделия меняет маршрут; строки, в которые уже шла работа, остаются
+        addTrigger(schema, "trg_orders_progress_product", "AFTER UPDATE OF product_id ON orders " +
+                        "WHEN OLD.product_id IS NOT NEW.product_id",
+                "DELETE FROM order_operation_progress WHERE order_id = NEW.id " +
+                        "AND planned_quantity = 0 AND completed_quantity = 0 AND defects = 0; " +
+                        addRoute("NEW"));
+
+        addTrigger(schema, "trg_operations_progress_insert", "AFTER INSERT ON operations",
+                "INSERT OR IGNORE INTO order_operation_progress (order_id, operation_id, sequence_order) " +
+                        "SELECT id, NEW.id, NEW.sequence_order FROM orders WHERE product_id = NEW.product_id; ");
+        addTrigger(schema, "trg_operations_progress_delete", "AFTER DELETE ON operations",
+                "DELETE FROM order_operation_progress WHERE operation_id = OLD.id " +
+                        "AND planned_quantity = 0 AND completed_quantity = 0 AND defects = 0; ");
+        addTrigger(schema, "trg_operations_progress_sequence", "AFTER UPDATE OF sequence_order ON operations",
+                "UPDATE order_operation_progress SET sequence_order = NEW.sequence_order " +
+                        "WHERE operation_id = NEW.id; ");
+
+        PROGRESS_SCHEMA = schema.toArray(new String[0]);
+    }
+
+    // Полный пересчет из заданий и маршрутов: при миграции и по команде пересчета
+    public static final String[] PROGRESS_REBUILD = {
+            "DELETE FROM order_operation_progress",
+            "INSERT INTO order_operation_progress (order_id, operation_id, sequence_order, " +
+                    "planned_quantity, completed_quantity, defects) " +
+                    "SELECT a.order_id, a.operation_id, COALESCE(op.sequence_order, 0), " +
+                    "SUM(CASE WHEN a.status = 'cancelled' THEN 0 ELSE COALESCE(a.planned_quantity, 0) END), " +
+                    "SUM(COALESCE(a.actual_quantity, 0)), SUM(COALESCE(a.defects, 0)) " +
+                    "FROM assignments a LEFT JOIN operations op ON op.id = a.operation_id " +
+                    "WHERE a.order_id IS NOT NULL AND a.operation_id IS NOT NULL " +
+                    "GROUP BY a.order_id, a.operation_id " +
+                    "HAVING SUM(CASE WHEN a.status = 'cancelled' THEN 0 ELSE COALESCE(a.planned_quantity, 0) END) != 0 " +
+                    "OR SUM(COALESCE(a.actual_quantity, 0)) != 0 OR SUM(COALESCE(a.defects, 0)) != 0",
+            "INSERT OR IGNORE INTO order_operation_progress (order_id, operation_id, sequence_order) " +
+                    "SELECT o.id, op.id, op.sequence_order FROM orders o " +
+                    "JOIN operations op ON op.product_id = o.product_id"
+    };
+
+    // Годные на операции строки p заказа o, не больше количества в заказе
+    private static final String GOOD_UNITS = "MIN(MAX(%1$s.completed_quantity - %1$s.defects, 0), o.quantity)";
+
+    private static String addRoute(String order) {
+        return "INSERT OR IGNORE INTO order_operation_progress (order_id, operation_id, sequence_order) " +
+                "SELECT " + order + ".id, id, sequence_order FROM operations " +
+                "WHERE product_id = " + order + ".product_id; ";
+    }
+
+    // Задание на операцию вне маршрута заказа тоже учитывается отдельной строкой
+    private static String addProgressRow(String row) {
+        return "INSERT OR IGNORE INTO order_operation_progress (order_id, operation_id, sequence_order) " +
+                "SELECT " + row + ".order_id, " + row + ".operation_id, " +
+                "COALESCE((SELECT sequence_order FROM operations WHERE id = " + row + ".operation_id), 0) " +
+                "WHERE " + row + ".order_id IS NOT NULL AND " + row + ".operation_id IS NOT NULL; ";
+    }
+
+    // Строка есть у каждой операции маршрута и у операции вне маршрута, пока по ней что-то
+    // назначено или сделано: опустевшая строка иначе считалась бы лишним этапом заказа
+    private static String dropEmptyOffRouteRow(String row) {
+        return "DELETE FROM order_operation_progress WHERE order_id = " + row + ".order_id " +
+                "AND operation_id = " + row + ".operation_id " +
+                "AND planned_quantity = 0 AND completed_quantity = 0 AND defects = 0 " +
+                "AND NOT EXISTS (SELECT 1 FROM orders o JOIN operations op ON op.product_id = o.product_id " +
+                "WHERE o.id = " + row + ".order_id AND op.id = " + row + ".operation_id); ";
+    }
+
+    // Отмененное задание больше не числится назначенным, но сделанное по нему остается
+    private static String changeOrderProgress(String row, String sign) {
+        return "UPDATE order_operation_progress SET " +
+                "planned_quantity = planned_quantity " + sign + " (CASE WHEN " + row + ".status = 'cancelled' " +
+                "THEN 0 ELSE COALESCE(" + row + ".planned_quantity, 0) END), " +
+                "completed_quantity = completed_quantity " + sign + " COALESCE(" + row + ".actual_quantity, 0), " +
+                "defects = defects " + sign + " COALESCE(" + row + ".defects, 0) " +
+                "WHERE order_id = " + row + ".order_id AND operation_id = " + row + ".operation_id; ";
+    }
+
+    // === ОЧЕРЕДЬ ЗАКАЗОВ (версия БД 10) ===
+    // Текстовый priority сортируется по алфавиту (medium > low > high), поэтому рядом с ним
+    // хранится числовой priority_rank: 1 - высокий, 2 - средний, 3 - низкий. Его ведут
+    // триггеры на orders. Очередь - активные заказы по (priority_rank, срок, id); индекс
+    // idx_orders_queue отдает их уже упорядоченными отдельно для каждого статуса, а запрос
+    // сливает два упорядоченных потока, так что первые N строк читаются без сортировки.
+    // Заказ без срока стоит в конце своего приоритета
+
+    // Порядок очереди: по приоритету и сроку или по запасу времени до срока
+    public static final String QUEUE_BY_PRIORITY = "priority";
+    public static final String QUEUE_BY_SLACK = "slack";
+
+    private static final String PRIORITY_RANK = "CASE %1$s.priority WHEN 'high' THEN 1 WHEN 'low' THEN 3 ELSE 2 END";
+    private static final String QUEUE_DUE = "IFNULL(deadline, '9999-12-31')";
+
+    public static final String[] INDEXES_V10 = {
+            "CREATE INDEX IF NOT EXISTS idx_orders_queue ON orders(status, priority_rank, " + QUEUE_DUE + ")"
+    };
+
+    // Столбец priority_rank добавляется в миграции до установки триггеров
+    public static final String[] QUEUE_SCHEMA;
+    static {
+        List<String> schema = new ArrayList<>();
+        addTrigger(schema, "trg_orders_priority_rank", "AFTER INSERT ON orders",
+                "UPDATE orders SET priority_rank = " + String.format(PRIORITY_RANK, "NEW") + " " +
+                        "WHERE id = NEW.id; ");
+        addTrigger(schema, "trg_orders_priority_rank_update", "AFTER UPDATE OF priority ON orders",
+                "UPDATE orders SET priority_rank = " + String.format(PRIORITY_RANK, "NEW") + " " +
+                        "WHERE id = NEW.id; ");
+        QUEUE_SCHEMA = schema.toArray(new String[0]);
+    }
+
+    // Трогает только разошедшиеся строки: при миграции это все заказы, при пересчете - обычно ни одного
+    public static final String[] QUEUE_REBUILD = {
+            "UPDATE orders SET priority_rank = " + String.format(PRIORITY_RANK, "orders") + " " +
+                    "WHERE priority_rank IS NOT " + String.format(PRIORITY_RANK, "orders")
+    };
+
+    private static final String QUEUE_COLUMNS = "SELECT id, order_number, customer_name, product_id, quantity, " +
+            "status, priority, deadline, priority_rank, " + QUEUE_DUE + " as due FROM orders ";
+
+    // Ключ строки очереди после (?2 priority_rank, ?3 срок, ?4 id) последней строки страницы.
+    // Индекс ищет с приоритета последней строки, остаток ключа проверяется по индексу
+    private static final String QUEUE_AFTER = "AND priority_rank >= ?2 AND (priority_rank > ?2 " +
+            "OR " + QUEUE_DUE + " > ?3 OR (" + QUEUE_DUE + " = ?3 AND id > ?4)) ";
+
+    private static String queueArms(String after) {
+        return QUEUE_COLUMNS + "WHERE status = 'in_progress' " + after +
+                "UNION ALL " +
+                QUEUE_COLUMNS + "WHERE status = 'new' " + after +
+                "ORDER BY priority_rank, due, id ";
+    }
+
+    // === ОЖИДАЕМАЯ СХЕМА (для диагностики расхождений) ===
+
+    public static final Map<String, String[]> EXPECTED_COLUMNS;
+    static {
+        Map<String, String[]> columns = new LinkedHashMap<>();
+        columns.put("users", new String[]{"id", "email", "password_hash", "name", "role",
+                "brigade", "position", "avatar_url", "created_at", "updated_at"});
+        columns.put("categories", new String[]{"id", "name", "created_at"});
+        columns.put("products", new String[]{"id", "article", "name", "description", "category_id",
+                "complexity", "standard_time_minutes", "created_at"});
+        columns.put("operations", new String[]{"id", "product_id", "name", "sequence_order",
+                "standard_time_minutes"});
+        columns.put("orders", new String[]{"id", "order_number", "customer_name", "product_id",
+                "quantity", "deadline", "status", "priority", "created_at", "updated_at", "priority_rank"});
+        columns.put("assignments", new String[]{"id", "order_id", "user_id", "operation_id",
+                "planned_quantity", "actual_quantity", "defects", "status", "start_time", "end_time",
+                "created_at", "quality_checked", "quality_checker_id", "quality_check_date", "quality_notes"});
+        columns.put("shifts", new String[]{"id", "user_id", "shift_date", "shift_number", "start_time",
+                "end_time", "total_output", "defects_count"});
+        columns.put("quality_checks", new String[]{"id", "assignment_id", "inspector_id", "result",
+                "defects_found", "comments", "check_date"});
+        columns.put("materials", new String[]{"id", "name", "unit", "current_stock", "min_stock", "created_at"});
+        columns.put("material_usage", new String[]{"id", "order_id", "material_id", "quantity_used",
+                "usage_date", "user_id"});
+        columns.put("worker_stats", new String[]{"user_id", "assignments_count", "total_quantity",
+                "total_defects", "completed_count", "completed_quantity", "completed_defects", "checked_count"});
+        columns.put("brigade_stats", new String[]{"brigade", "workers_count", "total_quantity", "total_defects"});
+        columns.put("worker_daily_stats", new String[]{"user_id", "day", "quantity", "defects", "completed_count"});
+        columns.put("worker_hourly_stats", new String[]{"user_id", "hour", "quantity", "defects"});
+        columns.put("assignment_progress", new String[]{"id", "assignment_id", "user_id", "quantity",
+                "defects", "recorded_at"});
+        columns.put("search_index", new String[]{"kind", "ref_id", "title", "subtitle"});
+        columns.put("stock_movements", new String[]{"id", "material_id", "kind", "quantity", "created_at",
+                "order_id", "user_id", "note"});
+        columns.put("stock_snapshots", new String[]{"material_id", "taken_at", "balance"});
+        columns.put("material_daily_usage", new String[]{"day", "material_id", "quantity"});
+        columns.put("order_operation_progress", new String[]{"order_id", "operation_id", "sequence_order",
+                "planned_quantity", "completed_quantity", "defects"});
+        EXPECTED_COLUMNS = Collections.unmodifiableMap(columns);
+    }
+
+    // === АУТЕНТИФИКАЦИЯ И РЕГИСТРАЦИЯ ===
+
+    public static final String SQL_AUTHENTICATE_USER =
+            "SELECT * FROM users WHERE email = ? AND password_hash = ?";
+
+    public static final String SQL_EMAIL_EXISTS =
+            "SELECT COUNT(*) FROM users WHERE email = ?";
+
+    public static final String SQL_USER_BY_EMAIL =
+            "SELECT * FROM users WHERE email = ?";
+
+    // === WORKER ===
+
+    // Скользящие окна по дневным корзинам: не больше 30 строк на работника.
+    // ?1 - id работника, ?2 - сегодня, ?3 - начало 7 дней, ?4 - начало 30 дней (yyyy-MM-dd)
+    public static final String SQL_WORKER_DAY_WINDOWS = "SELECT " +
+            "COALESCE(SUM(CASE WHEN day >= ?2 THEN quantity ELSE 0 END), 0) as today_quantity, " +
+            "COALESCE(SUM(CASE WHEN day >= ?2 THEN defects ELSE 0 END), 0) as today_defects, " +
+            "COALESCE(SUM(CASE WHEN day >= ?3 THEN quantity ELSE 0 END), 0) as week_quantity, " +
+            "COALESCE(SUM(CASE WHEN day >= ?3 THEN defects ELSE 0 END), 0) as week_defects, " +
+            "COALESCE(SUM(quantity), 0) as month_quantity, " +
+            "COALESCE(SUM(defects), 0) as month_defects " +
+            "FROM worker_daily_stats " +
+            "WHERE user_id = ?1 AND day >= ?4";
+
+    // Шапка экрана работника одной строкой: итоги, окна по дням и текущая смена.
+    // Параметры как у SQL_WORKER_DAY_WINDOWS; shift_start = NULL, если смена не открыта.
+    // Окно смены с точностью до часа: первый час смены берется целиком
+    public static final String SQL_WORKER_SNAPSHOT = "SELECT " +
+            "COALESCE(ws.total_quantity, 0) as completed, " +
+            "COALESCE(ws.total_defects, 0) as defects, " +
+            "w.today_quantity, w.today_defects, w.week_quantity, w.week_defects, " +
+            "w.month_quantity, w.month_defects, " +
+            "s.start_time as shift_start, " +
+            "(SELECT COALESCE(SUM(quantity), 0) FROM worker_hourly_stats " +
+            "WHERE user_id = ?1 AND hour >= strftime('%Y-%m-%d %H:00', s.start_time)) as shift_quantity, " +
+            "(SELECT COALESCE(SUM(defects), 0) FROM worker_hourly_stats " +
+            "WHERE user_id = ?1 AND hour >= strftime('%Y-%m-%d %H:00', s.start_time)) as shift_defects " +
+            "FROM (" + SQL_WORKER_DAY_WINDOWS + ") w " +
+            "LEFT JOIN worker_stats ws ON ws.user_id = ?1 " +
+            "LEFT JOIN (SELECT start_time FROM shifts WHERE user_id = ?1 AND end_time IS NULL " +
+            "ORDER BY start_time DESC LIMIT 1) s";
+
+    public static final String SQL_WORKER_TODAY_ASSIGNMENTS = "SELECT o.name as operation_name, " +
+            "a.planned_quantity, a.actual_quantity, a.status " +
+            "FROM assignments a " +
+            "JOIN operations o ON a.operation_id = o.id " +
+            "WHERE a.user_id = ? AND a.status IN ('assigned', 'in_progress') " +
+            "ORDER BY a.status DESC, a.id LIMIT 3";
+
+    public static final String SQL_WORKER_ACTIVE_ASSIGNMENTS = "SELECT a.id, o.name as operation_name, " +
+            "a.planned_quantity, a.actual_quantity, a.status, " +
+            "p.name as product_name, a.start_time " +
+            "FROM assignments a " +
+            "JOIN operations o ON a.operation_id = o.id " +
+            "LEFT JOIN products p ON o.product_id = p.id " +
+            "WHERE a.user_id = ? AND a.status IN ('assigned', 'in_progress') " +
+            "ORDER BY a.created_at DESC LIMIT 5";
+
+    public static final String SQL_WORKER_RECENT_COMPLETED = "SELECT a.id, o.name as operation_name, " +
+            "a.planned_quantity, a.actual_quantity, a.defects, " +
+            "p.name as product_name, a.end_time " +
+            "FROM assignments a " +
+            "JOIN operations o ON a.operation_id = o.id " +
+            "LEFT JOIN products p ON o.product_id = p.id " +
+            "WHERE a.user_id = ? AND a.status = 'completed' " +
+            "ORDER BY a.end_time DESC LIMIT 5";
+
+    public static final String SQL_WORKER_AVAILABLE_ASSIGNMENTS = "SELECT a.id, o.name as operation_name, " +
+            "a.planned_quantity, a.actual_quantity, a.status, " +
+            "p.name as product_name, o.standard_time_minutes " +
+            "FROM assignments a " +
+            "JOIN operations o ON a.operation_id = o.id " +
+            "LEFT JOIN products p ON o.product_id = p.id " +
+            "WHERE a.user_id = ? AND a.status IN ('assigned', 'in_progress') " +
+            "ORDER BY a.created_at";
+
+    public static final String SQL_ASSIGNMENT_BY_ID = "SELECT a.id, o.name as operation_name, " +
+            "a.planned_quantity, a.actual_quantity, a.defects, a.status, " +
+            "p.name as product_name, a.start_time, a.end_time " +
+            "FROM assignments a " +
+            "JOIN operations o ON a.operation_id = o.id " +
+            "LEFT JOIN products p ON o.product_id = p.id " +
+            "WHERE a.id = ?";
+
+    // Одна атомарная запись на отметку выполнения: прирост считается от текущих
+    // значений строки, статус переходит в in_progress или completed.
+    // Время берет сама SQLite в том же формате, что getCurrentDateTime, чтобы
+    // нажатие не собирало форматтер и строку. ?1 - количество, ?2 - брак, ?3 - id задания
+    public static final String SQL_RECORD_COMPLETION = "UPDATE assignments SET " +
+            "actual_quantity = COALESCE(actual_quantity, 0) + ?1, " +
+            "defects = COALESCE(defects, 0) + ?2, " +
+            "status = CASE " +
+            "WHEN COALESCE(actual_quantity, 0) + ?1 >= planned_quantity THEN 'completed' " +
+            "WHEN status = 'assigned' THEN 'in_progress' " +
+            "ELSE status END, " +
+            "end_time = CASE WHEN COALESCE(actual_quantity, 0) + ?1 >= planned_quantity " +
+            "THEN datetime('now', 'localtime') ELSE end_time END, " +
+            "start_time = CASE WHEN COALESCE(actual_quantity, 0) + ?1 < planned_quantity " +
+            "AND status = 'assigned' THEN datetime('now', 'localtime') ELSE start_time END " +
+            "WHERE id = ?3";
+
+    // === КОНТРОЛЬ КАЧЕСТВА ===
+
+    // Очередь контроля качества листается по ключу (end_time, id) от новых к старым:
+    // каждая страница читает диапазон индекса idx_assignments_status_end_time
+    // и не зависит от того, сколько страниц уже пролистано. Из quality_checks
+    // берется последняя проверка задания, чтобы строки не дублировались
+    private static final String QUALITY_CONTROL_PAGE_SELECT = "SELECT a.id, u.name as worker_name, o.name as operation_name, " +
+            "p.name as product_name, a.planned_quantity, a.actual_quantity, " +
+            "a.defects, a.status, a.created_at, a.start_time, a.end_time, " +
+            "qc.result as quality_result, qc.defects_found, qc.comments as quality_notes, " +
+            "qc.check_date as quality_check_date, qc.inspector_id as quality_checker_id, " +
+            "CASE WHEN qc.id IS NOT NULL THEN 1 ELSE 0 END as quality_checked " +
+            "FROM assignments a " +
+            "JOIN users u ON a.user_id = u.id " +
+            "JOIN operations o ON a.operation_id = o.id " +
+            "LEFT JOIN products p ON o.product_id = p.id " +
+            "LEFT JOIN quality_checks qc ON qc.id = " +
+            "(SELECT MAX(id) FROM quality_checks WHERE assignment_id = a.id) ";
+
+    public static final String SQL_QUALITY_CONTROL_FIRST_PAGE = QUALITY_CONTROL_PAGE_SELECT +
+            "WHERE a.status = 'completed' " +
+            "ORDER BY a.end_time DESC, a.id DESC LIMIT ?1";
+
+    // ?1 end_time и ?2 id последней строки предыдущей страницы, ?3 размер страницы
+    public static final String SQL_QUALITY_CONTROL_NEXT_PAGE = QUALITY_CONTROL_PAGE_SELECT +
+            "WHERE a.status = 'completed' AND a.end_time <= ?1 " +
+            "AND (a.end_time < ?1 OR a.id < ?2) " +
+            "ORDER BY a.end_time DESC, a.id DESC LIMIT ?3";
+
+    public static final String SQL_UNCHECKED_COMPLETED = "SELECT a.id, a.actual_quantity, a.defects " +
+            "FROM assignments a " +
+            "LEFT JOIN quality_checks qc ON a.id = qc.assignment_id " +
+            "WHERE a.status = 'completed' AND qc.id IS NULL";
+
+    // Ключ страницы очереди не допускает NULL в end_time у выполненных заданий
+    public static final String SQL_BACKFILL_COMPLETED_END_TIME = "UPDATE assignments " +
+            "SET end_time = COALESCE(start_time, created_at, CURRENT_TIMESTAMP) " +
+            "WHERE status = 'completed' AND end_time IS NULL";
+
+    public static final String SQL_WORKER_QUALITY_CONTROL_TASKS = "SELECT a.id, u.name as worker_name, o.name as operation_name, " +
+            "p.name as product_name, a.planned_quantity, a.actual_quantity, " +
+            "a.defects, a.status, a.created_at, a.start_time, a.end_time, " +
+            "qc.result as quality_result, qc.defects_found, qc.comments as quality_notes, " +
+            "qc.check_date as quality_check_date, qc.inspector_id as quality_checker_id, " +
+            "CASE WHEN qc.id IS NOT NULL THEN 1 ELSE 0 END as quality_checked " +
+            "FROM assignments a " +
+            "JOIN users u ON a.user_id = u.id " +
+            "JOIN operations o ON a.operation_id = o.id " +
+            "LEFT JOIN products p ON o.product_id = p.id " +
+            "LEFT JOIN quality_checks qc ON a.id = qc.assignment_id " +
+            "WHERE a.user_id = ? AND a.status = 'completed' " +
+            "ORDER BY qc.check_date DESC, a.end_time DESC";
+
+    public static final String SQL_WORKER_UNCHECKED_COMPLETED = "SELECT a.id, a.actual_quantity, a.defects " +
+            "FROM assignments a " +
+            "LEFT JOIN quality_checks qc ON a.id = qc.assignment_id " +
+            "WHERE a.user_id = ? AND a.status = 'completed' AND qc.id IS NULL";
+
+    public static final String SQL_APPLY_QUALITY_CHECK =
+            "UPDATE assignments SET actual_quantity = ?, defects = ? WHERE id = ?";
+
+    public static final String SQL_INSERT_QUALITY_CHECK = "INSERT INTO quality_checks " +
+            "(assignment_id, inspector_id, result, defects_found, comments, check_date) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    // Массовая проверка только добавляет одобрение, если у задания еще нет проверки:
+    // повторный или одновременный запуск не создает вторую запись.
+    // ?1 - задание, ?2 - проверяющий, ?3 - брак, ?4 - комментарий, ?5 - дата
+    public static final String SQL_INSERT_BULK_QUALITY_CHECK = "INSERT INTO quality_checks " +
+            "(assignment_id, inspector_id, result, defects_found, comments, check_date) " +
+            "SELECT ?1, ?2, 'approved', ?3, ?4, ?5 " +
+            "WHERE NOT EXISTS (SELECT 1 FROM quality_checks WHERE assignment_id = ?1)";
+
+    public static final String SQL_QUALITY_TOTALS = "SELECT " +
+            "COALESCE(SUM(completed_count), 0) as total_assignments, " +
+            "COALESCE(SUM(checked_count), 0) as checked_assignments, " +
+            "COALESCE(SUM(completed_quantity), 0) as total_completed, " +
+            "COALESCE(SUM(completed_defects), 0) as total_defects, " +
+            "COALESCE(SUM(completed_count > 0), 0) as total_workers " +
+            "FROM worker_stats";
+
+    public static final String SQL_WORKERS_QUALITY = "SELECT u.id, u.name, u.position, " +
+            "ws.completed_count as total_assignments, " +
+            "ws.checked_count as checked_assignments, " +
+            "ws.completed_quantity as total_completed, " +
+            "ws.completed_defects as total_defects " +
+            "FROM users u " +
+            "JOIN worker_stats ws ON ws.user_id = u.id " +
+            "WHERE u.role = 'worker' AND ws.completed_count > 0 " +
+            "ORDER BY total_completed DESC";
+
+    // === MASTER ===
+
+    public static final String SQL_BRIGADE_ACTIVE_ASSIGNMENTS = "SELECT a.id, o.name as operation_name, u.name as worker_name, " +
+            "a.planned_quantity, a.actual_quantity, a.defects, a.status, " +
+            "p.name as product_name, a.start_time " +
+            "FROM assignments a " +
+            "JOIN users u ON a.user_id = u.id " +
+            "JOIN operations o ON a.operation_id = o.id " +
+            "LEFT JOIN products p ON o.product_id = p.id " +
+            "JOIN orders ord ON a.order_id = ord.id " +
+            "WHERE u.brigade = ? AND a.status IN ('assigned', 'in_progress') " +
+            "ORDER BY a.created_at DESC LIMIT 10";
+
+    public static final String SQL_BRIGADE_RECENT_COMPLETED = "SELECT a.id, o.name as operation_name, u.name as worker_name, " +
+            "a.planned_quantity, a.actual_quantity, a.defects, a.status, " +
+            "p.name as product_name, a.end_time " +
+            "FROM assignments a " +
+            "JOIN users u ON a.user_id = u.id " +
+            "JOIN operations o ON a.operation_id = o.id " +
+            "LEFT JOIN products p ON o.product_id = p.id " +
+            "JOIN orders ord ON a.order_id = ord.id " +
+            "WHERE u.brigade = ? AND a.status = 'completed' " +
+            "ORDER BY a.end_time DESC LIMIT 10";
+
+    public static final String SQL_OPERATIONS =
+            "SELECT id, name as operation_name, standard_time_minutes as standard_time " +
+            "FROM operations ORDER BY sequence_order, name";
+
+    public static final String SQL_BRIGADE_TOP_WORKERS = "SELECT u.id, u.name, u.position, " +
+            "COALESCE(ws.total_quantity, 0) as completed " +
+            "FROM users u " +
+            "LEFT JOIN worker_stats ws ON ws.user_id = u.id " +
+            "WHERE u.brigade = ? AND u.role = 'worker' " +
+            "ORDER BY completed DESC LIMIT 5";
+
+    // Шапка экрана мастера: бригада берется из ?1, а если она пустая - из профиля ?2
+    public static final String SQL_MASTER_SNAPSHOT = "SELECT b.brigade, " +
+            "COALESCE(bs.workers_count, 0) as workers_count, " +
+            "COALESCE(bs.total_quantity, 0) as total_completed, " +
+            "COALESCE(bs.total_defects, 0) as total_defects " +
+            "FROM (SELECT COALESCE(NULLIF(?1, ''), (SELECT brigade FROM users WHERE id = ?2)) as brigade) b " +
+            "LEFT JOIN brigade_stats bs ON bs.brigade = b.brigade";
+
+    // Все активные заказы в порядке очереди
+    public static final String SQL_ACTIVE_ORDERS = queueArms("");
+
+    // Страницы очереди по приоритету и сроку: ?1 - размер страницы,
+    // для следующей страницы ?2-?4 - ключ последней строки предыдущей
+    public static final String SQL_ORDER_QUEUE_FIRST_PAGE = queueArms("") + "LIMIT ?1";
+
+    public static final String SQL_ORDER_QUEUE_NEXT_PAGE = queueArms(QUEUE_AFTER) + "LIMIT ?1";
+
+    public static final String SQL_PRODUCT_BY_ID =
+            "SELECT id, article, name FROM products WHERE id = ?";
+
+    // === STOREKEEPER ===
+
+    // Читает только частичный индекс idx_materials_low_stock: в нем лишь материалы ниже минимума
+    public static final String SQL_LOW_STOCK_MATERIALS = "SELECT id, name, unit, current_stock, min_stock " +
+            "FROM materials WHERE current_stock <= min_stock " +
+            "ORDER BY current_stock ASC LIMIT 5";
+
+    // Расход по дням из material_daily_usage, сгруппированный по id материала.
+    // ?1 - первый день окна (yyyy-MM-dd)
+    public static final String SQL_RECENT_MATERIAL_USAGE = "SELECT m.name, u.total_used, m.unit " +
+            "FROM (SELECT material_id, SUM(quantity) as total_used FROM material_daily_usage " +
+            "WHERE day >= ?1 GROUP BY material_id) u " +
+            "JOIN materials m ON m.id = u.material_id " +
+            "ORDER BY u.total_used DESC LIMIT 3";
+
+    public static final String SQL_MATERIALS = "SELECT id, name, unit, current_stock, min_stock " +
+            "FROM materials ORDER BY name";
+
+    public static final String SQL_MATERIAL_STOCK = "SELECT current_stock FROM materials WHERE id = ?";
+
+    // === MANAGER ===
+
+    public static final String SQL_ORDER_COUNTS = "SELECT " +
+            "COUNT(*) as total_orders, " +
+            "SUM(CASE WHEN status = 'completed' THEN 1 ELSE 0 END) as completed_orders, " +
+            "SUM(CASE WHEN status = 'in_progress' THEN 1 ELSE 0 END) as in_progress_orders " +
+            "FROM orders";
+
+    // Готовность активных заказов в изделиях-операциях: сделано годных и всего нужно
+    public static final String SQL_ACTIVE_ORDERS_PROGRESS = "SELECT " +
+            "COALESCE(SUM(" + String.format(GOOD_UNITS, "p") + "), 0) as done_units, " +
+            "COALESCE(SUM(o.quantity), 0) as total_units " +
+            "FROM orders o " +
+            "JOIN order_operation_progress p ON p.order_id = o.id " +
+            "WHERE o.status IN ('new', 'in_progress')";
+
+    // По активному заказу: операций в маршруте, годных по всем операциям и готовых изделий -
+    // прошедших все операции (меньшее из годных по операциям)
+    public static final String SQL_ORDER_PROGRESS = "SELECT o.id, o.order_number, o.quantity, " +
+            "COUNT(*) as stages, " +
+            "SUM(" + String.format(GOOD_UNITS, "p") + ") as done_units, " +
+            "MIN(" + String.format(GOOD_UNITS, "p") + ") as finished " +
+            "FROM orders o " +
+            "JOIN order_operation_progress p ON p.order_id = o.id " +
+            "WHERE o.status IN ('new', 'in_progress') " +
+            "GROUP BY o.id ORDER BY o.deadline, o.id";
+
+    // Этапы маршрута по порядковому номеру операции по всем активным заказам: сколько годных
+    // прошло этап и сколько ждет его - прошло предыдущий этап (для первого - весь заказ), но не этот.
+    // Если на предыдущем этапе несколько операций, готовыми считаются прошедшие их все
+    public static final String SQL_STAGE_PROGRESS = "SELECT p.sequence_order, " +
+            "MIN(op.name) as name, COUNT(DISTINCT op.name) as names, " +
+            "SUM(" + String.format(GOOD_UNITS, "p") + ") as completed, " +
+            "SUM(MAX(COALESCE((SELECT MIN(" + String.format(GOOD_UNITS, "prev") + ") " +
+            "FROM order_operation_progress prev " +
+            "WHERE prev.order_id = p.order_id AND prev.sequence_order = " +
+            "(SELECT MAX(sequence_order) FROM order_operation_progress " +
+            "WHERE order_id = p.order_id AND sequence_order < p.sequence_order)), o.quantity) - " +
+            String.format(GOOD_UNITS, "p") + ", 0)) as waiting " +
+            "FROM orders o " +
+            "JOIN order_operation_progress p ON p.order_id = o.id " +
+            "LEFT JOIN operations op ON op.id = p.operation_id " +
+            "WHERE o.status IN ('new', 'in_progress') " +
+            "GROUP BY p.sequence_order ORDER BY p.sequence_order";
+
+    // Очередь по запасу времени: сколько минут останется до конца дня срока, если сделать
+    // подряд всю оставшуюся работу по маршруту - недостающие годные на каждой операции,
+    // умноженные на ее норму времени. Меньше запас - раньше в очереди, отрицательный -
+    // заказ уже не успевает. Запас зависит от текущего времени ?1 (yyyy-MM-dd HH:mm:ss),
+    // поэтому считается при чтении по всем активным заказам; ?2 - размер страницы,
+    // для следующей страницы ?3 и ?4 - запас и id последней строки предыдущей.
+    // rawQuery передает ключ строками, а у вычисляемого slack_minutes нет affinity:
+    // без CAST число всегда меньше текста, и следующая страница была бы пустой
+    private static final String SLACK_QUEUE = "SELECT * FROM (SELECT *, " +
+            "due_minutes - remaining_minutes as slack_minutes FROM (" +
+            "SELECT o.id, o.order_number, o.customer_name, o.product_id, o.quantity, o.status, " +
+            "o.priority, o.deadline, " +
+            "(SELECT COALESCE(SUM((o.quantity - " + String.format(GOOD_UNITS, "p") + ") * " +
+            "op.standard_time_minutes), 0) " +
+            "FROM order_operation_progress p " +
+            "JOIN operations op ON op.id = p.operation_id AND op.product_id = o.product_id " +
+            "WHERE p.order_id = o.id) as remaining_minutes, " +
+            // Без срока - запас заведомо больше, чем у любого заказа со сроком
+            "IFNULL(CAST(ROUND((julianday(o.deadline, '+1 day') - julianday(?1)) * 1440) AS INTEGER), " +
+            "1000000000) as due_minutes " +
+            "FROM orders o WHERE o.status IN ('new', 'in_progress'))) ";
+
+    public static final String SQL_ORDER_QUEUE_BY_SLACK_FIRST_PAGE = SLACK_QUEUE +
+            "ORDER BY slack_minutes, id LIMIT ?2";
+
+    public static final String SQL_ORDER_QUEUE_BY_SLACK_NEXT_PAGE = SLACK_QUEUE +
+            "WHERE slack_minutes > CAST(?3 AS INTEGER) " +
+            "OR (slack_minutes = CAST(?3 AS INTEGER) AND id > CAST(?4 AS INTEGER)) " +
+            "ORDER BY slack_minutes, id LIMIT ?2";
+
+    public static final String SQL_BRIGADE_PERFORMANCE = "SELECT brigade, " +
+            "total_quantity as completed, " +
+            "total_defects as defects " +
+            "FROM brigade_stats " +
+            "WHERE brigade != '' AND workers_count > 0 " +
+            "ORDER BY brigade";
+}
@@ -0,0 +1,266 @@
+package com.example.clothes;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Process;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Диагностика БД: по умолчанию выключена, включается из диалога отладки контроля качества.
+// Работает в фоне, не чаще раза в MIN_INTERVAL_MS, и вместо дампа строк
+// пишет в лог сводку: оценку числа строк и размер таблиц, расхождения схемы.
+public class DatabaseDiagnostics {
+    private static final String TAG = "DatabaseDiagnostics";
+    private static final String PREFS_NAME = "diagnostics";
+    private static final String KEY_ENABLED = "enabled";
+    private static final String KEY_LAST_RUN = "last_run";
+    private static final long MIN_INTERVAL_MS = 60 * 60 * 1000L;
+
+    private static final Pattern INDEX_NAME = Pattern.compile("CREATE INDEX IF NOT EXISTS (\\w+)");
+    private static final Pattern TRIGGER_NAME = Pattern.compile("CREATE TRIGGER IF NOT EXISTS (\\w+)");
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "db-diagnostics");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private DatabaseDiagnostics() {}
+
+    public static void setEnabled(Context context, boolean enabled) {
+        prefs(context).edit().putBoolean(KEY_ENABLED, enabled).apply();
+    }
+
+    public static boolean isEnabled(Context context) {
+        return prefs(context).getBoolean(KEY_ENABLED, false);
+    }
+
+    // Проверка настройки тоже уходит в фон, чтобы не читать prefs на главном потоке
+    public static void maybeRun(Context context, DatabaseHelper helper) {
+        executor.execute(() -> {
+            try {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+                SharedPreferences prefs = prefs(context);
+                if (!prefs.getBoolean(KEY_ENABLED, false)) {
+                    return;
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - prefs.getLong(KEY_LAST_RUN, 0) < MIN_INTERVAL_MS) {
+                    return;
+                }
+                prefs.edit().putLong(KEY_LAST_RUN, now).apply();
+
+                Report report = collect(helper.getReadableDatabase());
+                Log.d(TAG, report.toString());
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Ошибка диагностики БД: " + e.getMessage());
+            }
+        });
+    }
+
+    public static Report collect(SQLiteDatabase db) {
+        Report report = new Report();
+        report.databaseBytes = longForQuery(db, "PRAGMA page_count") * longForQuery(db, "PRAGMA page_size");
+
+        // Служебные таблицы FTS (search_index_content и т.п.) - часть виртуальной таблицы
+        List<String> tables = new ArrayList<>();
+        Set<String> virtualTables = new HashSet<>();
+        Cursor cursor = db.rawQuery("SELECT name, sql LIKE 'CREATE VIRTUAL TABLE%' FROM sqlite_master t " +
+                "WHERE type = 'table' AND name NOT LIKE 'sqlite_%' AND name != 'android_metadata' " +
+                "AND NOT EXISTS (SELECT 1 FROM sqlite_master v WHERE v.type = 'table' " +
+                "AND v.sql LIKE 'CREATE VIRTUAL TABLE%' AND t.name LIKE v.name || '\\_%' ESCAPE '\\') " +
+                "ORDER BY name", null);
+        while (cursor.moveToNext()) {
+            tables.add(cursor.getString(0));
+            if (cursor.getInt(1) == 1) {
+                virtualTables.add(cursor.getString(0));
+            }
+        }
+        cursor.close();
+
+        // COUNT(*) читает таблицу целиком, поэтому число строк - оценка: из sqlite_stat1,
+        // если по БД был ANALYZE, иначе наибольший rowid, который SQLite берет с края B-дерева
+        // (удаленные строки он не вычитает). У FTS4 строки лежат в таблице <имя>_content
+        Map<String, Long> analyzed = analyzedRowCounts(db);
+        for (String table : tables) {
+            Long rows = analyzed.get(table);
+            if (rows == null) {
+                String source = virtualTables.contains(table) ? table + "_content" : table;
+                rows = longForQuery(db, "SELECT COALESCE(MAX(rowid), 0) FROM \"" + source + "\"");
+            }
+            report.rowCounts.put(table, rows);
+        }
+
+        collectTableSizes(db, report);
+        collectSchemaDrift(db, tables, report);
+        return report;
+    }
+
+    // Первое число stat - строк в таблице на момент ANALYZE
+    private static Map<String, Long> analyzedRowCounts(SQLiteDatabase db) {
+        Map<String, Long> rows = new LinkedHashMap<>();
+        try {
+            Cursor cursor = db.rawQuery("SELECT tbl, stat FROM sqlite_stat1", null);
+            while (cursor.moveToNext()) {
+                String stat = cursor.getString(1);
+                int end = stat != null ? stat.indexOf(' ') : -1;
+                try {
+                    long count = Long.parseLong(end == -1 ? stat : stat.substring(0, end));
+                    Long known = rows.get(cursor.getString(0));
+                    rows.put(cursor.getString(0), known != null ? Math.max(known, count) : count);
+                } catch (NumberFormatException e) {
+                    // Строка статистики другого формата - таблица оценится по rowid
+                }
+            }
+            cursor.close();
+        } catch (Exception e) {
+            Log.d(TAG, "sqlite_stat1 нет, строки оцениваются по rowid");
+        }
+        return rows;
+    }
+
+    // dbstat собран не во всех сборках SQLite на устройствах, поэтому размер таблиц необязателен
+    private static void collectTableSizes(SQLiteDatabase db, Report report) {
+        try {
+            Cursor cursor = db.rawQuery("SELECT name, SUM(pgsize) FROM dbstat GROUP BY name", null);
+            while (cursor.moveToNext()) {
+                report.tableBytes.put(cursor.getString(0), cursor.getLong(1));
+            }
+            cursor.close();
+        } catch (Exception e) {
+            Log.d(TAG, "dbstat недоступен, размеры таблиц не собраны");
+        }
+    }
+
+    private static void collectSchemaDrift(SQLiteDatabase db, List<String> tables, Report report) {
+        for (Map.Entry<String, String[]> expected : DatabaseContract.EXPECTED_COLUMNS.entrySet()) {
+            String table = expected.getKey();
+            if (!tables.contains(table)) {
+                report.schemaDrift.add("нет таблицы " + table);
+                continue;
+            }
+
+            Set<String> actualColumns = new HashSet<>();
+            Cursor cursor = db.rawQuery("PRAGMA table_info(\"" + table + "\")", null);
+            while (cursor.moveToNext()) {
+                actualColumns.add(cursor.getString(cursor.getColumnIndexOrThrow("name")));
+            }
+            cursor.close();
+
+            Set<String> expectedColumns = new HashSet<>(Arrays.asList(expected.getValue()));
+            for (String column : expectedColumns) {
+                if (!actualColumns.contains(column)) {
+                    report.schemaDrift.add("нет столбца " + table + "." + column);
+                }
+            }
+            for (String column : actualColumns) {
+                if (!expectedColumns.contains(column)) {
+                    report.schemaDrift.add("лишний столбец " + table + "." + column);
+                }
+            }
+        }
+
+        for (String table : tables) {
+            if (!DatabaseContract.EXPECTED_COLUMNS.containsKey(table)) {
+                report.schemaDrift.add("неизвестная таблица " + table);
+            }
+        }
+
+        Set<String> actualIndexes = schemaObjects(db, "index");
+        List<String> expectedIndexes = new ArrayList<>(Arrays.asList(DatabaseContract.INDEXES_V3));
+        expectedIndexes.addAll(Arrays.asList(DatabaseContract.INDEXES_V6));
+        expectedIndexes.addAll(Arrays.asList(DatabaseContract.INDEXES_V8));
+        expectedIndexes.addAll(Arrays.asList(DatabaseContract.INDEXES_V9));
+        expectedIndexes.addAll(Arrays.asList(DatabaseContract.INDEXES_V10));
+        expectedIndexes.addAll(Arrays.asList(DatabaseContract.INDEXES_V12));
+        for (String sql : expectedIndexes) {
+            Matcher matcher = INDEX_NAME.matcher(sql);
+            if (matcher.find() && !actualIndexes.contains(matcher.group(1))) {
+                report.schemaDrift.add("нет индекса " + matcher.group(1));
+            }
+        }
+
+        // Без триггеров сводные таблицы, поисковый индекс, остатки материалов,
+        // ход выполнения и приоритеты заказов молча перестают обновляться
+        Set<String> actualTriggers = schemaObjects(db, "trigger");
+        List<String> expectedTriggers = new ArrayList<>(Arrays.asList(DatabaseContract.SUMMARY_SCHEMA));
+        expectedTriggers.addAll(Arrays.asList(DatabaseContract.SEARCH_SCHEMA));
+        expectedTriggers.addAll(Arrays.asList(DatabaseContract.ACTIVE_ORDER_SEARCH_SCHEMA));
+        expectedTriggers.addAll(Arrays.asList(DatabaseContract.STOCK_SCHEMA));
+        expectedTriggers.addAll(Arrays.asList(DatabaseContract.PROGRESS_SCHEMA));
+        expectedTriggers.addAll(Arrays.asList(DatabaseContract.QUEUE_SCHEMA));
+        for (String sql : expectedTriggers) {
+            Matcher matcher = TRIGGER_NAME.matcher(sql);
+            if (matcher.find() && !actualTriggers.contains(matcher.group(1))) {
+                report.schemaDrift.add("нет триггера " + matcher.group(1));
+            }
+        }
+    }
+
+    private static Set<String> schemaObjects(SQLiteDatabase db, String type) {
+        Set<String> names = new HashSet<>();
+        Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = ?", new String[]{type});
+        while (cursor.moveToNext()) {
+            names.add(cursor.getString(0));
+        }
+        cursor.close();
+        return names;
+    }
+
+    private static long longForQuery(SQLiteDatabase db, String sql) {
+        Cursor cursor = db.rawQuery(sql, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static class Report {
+        public long databaseBytes;
+        public Map<String, Long> rowCounts = new LinkedHashMap<>();
+        public Map<String, Long> tableBytes = new LinkedHashMap<>();
+        public List<String> schemaDrift = new ArrayList<>();
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append("📊 Диагностика БД: ").append(databaseBytes / 1024).append(" КБ\n");
+            for (Map.Entry<String, Long> entry : rowCounts.entrySet()) {
+                text.append("   ").append(entry.getKey()).append(": ~").append(entry.getValue()).append(" строк");
+                Long bytes = tableBytes.get(entry.getKey());
+                if (bytes != null) {
+                    text.append(", ").append(bytes / 1024).append(" КБ");
+                }
+                text.append("\n");
+            }
+            if (schemaDrift.isEmpty()) {
+                text.append("✅ Схема совпадает с ожидаемой");
+            } else {
+                text.append("⚠️ Расхождения схемы:\n");
+                for (String drift : schemaDrift) {
+                    text.append("   ").append(drift).append("\n");
+                }
+            }
+            return text.toString();
+        }
+    }
+}
@@ -5,84 +5,201 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Looper;
 import android.util.Log;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
-    private static final String DATABASE_NAME = "narek.db";
-    private static final int DATABASE_VERSION = 2;
-    private final Context context;
-    private OnDataChangedListener onDataChangedListener;
+    static final String DATABASE_NAME = "narek.db";
+    private static final int DATABASE_VERSION = 12;
+    private static DatabaseHelper instance;
+    private static final int QUERY_CACHE_SIZE = 64;
+    // Окно склейки уведомлений: пакет записей дает одно обновление экрана
+    private static final long CHANGE_WINDOW_MS = 200;
 
-    public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
-        this.context = context;
+    // Запрос дольше кадра (16 мс) на главном потоке уже дает рывок интерфейса
+    private static final long SLOW_QUERY_MICROS = 16_000;
+    private static final int SLOW_QUERY_LOG_SIZE = 100;
+    static final String QUERY_TRACE_FILE = "query-trace.txt";
 
-        if (!isDatabaseExists()) {
-            copyDatabaseFromAssets();
-        }
+    private static final Logger LOG = new Logger("DatabaseHelper", Log::println);
 
-        debugDatabaseStructure();
-        debugAssignmentsTable();
-    }
+    private final Context context;
 
-    private boolean isDatabaseExists() {
-        File dbFile = context.getDatabasePath(DATABASE_NAME);
-        return dbFile.exists();
+    // Задержки методов и запросов для экрана диагностики; чтения замеряет фабрика
+    // курсоров, скомпилированные записи горячего пути - сами методы
+    private final QueryTracer tracer;
+
+    private final DataChangeBus changeBus = new DataChangeBus(CHANGE_WINDOW_MS, (subscriber, error) ->
+            LOG.e("❌ Ошибка подписчика изменений данных: {}", error.getMessage()));
+
+    // Справочники и списки для диалогов; сбрасывается после каждой записи
+    // по таблицам, которые она затронула
+    private final QueryCache queryCache = new QueryCache(QUERY_CACHE_SIZE);
+
+    // Одинаковые снимки дашбордов, запрошенные одновременно, читаются из БД один раз
+    private final SingleFlight snapshotLoads = new SingleFlight();
+    private static final String[] WORKER_SNAPSHOT_TABLES = {"assignments", "operations", "products", "shifts",
+            "worker_stats", "worker_daily_stats", "worker_hourly_stats"};
+    private static final String[] MASTER_SNAPSHOT_TABLES = {"assignments", "users", "operations", "products",
+            "orders", "worker_stats", "brigade_stats"};
+    private static final String[] STOREKEEPER_TABLES = {"materials", "material_daily_usage"};
+    private static final String[] MANAGER_TABLES = {"orders", "order_operation_progress", "brigade_stats"};
+
+    // Скомпилированные запросы горячего пути записи; SQLiteStatement не потокобезопасен
+    private final Object statementLock = new Object();
+    private SQLiteStatement recordCompletionStatement;
+
+    // Один экземпляр на процесс: все активности и фоновые потоки работают
+    // через общий пул соединений и не закрывают его друг у друга
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext());
+            DatabaseDiagnostics.maybeRun(context.getApplicationContext(), instance);
+        }
+        return instance;
     }
 
-    private void copyDatabaseFromAssets() {
-        try {
-            InputStream inputStream = context.getAssets().open("databases/" + DATABASE_NAME);
-            File dbFile = context.getDatabasePath(DATABASE_NAME);
-            File parentDir = dbFile.getParentFile();
+    private DatabaseHelper(Context context) {
+        this(context, new QueryTracer(Looper.getMainLooper().getThread(), SLOW_QUERY_MICROS, SLOW_QUERY_LOG_SIZE));
+    }
 
-            if (parentDir != null && !parentDir.exists()) {
-                parentDir.mkdirs();
-            }
+    private DatabaseHelper(Context context, QueryTracer tracer) {
+        super(context, DATABASE_NAME, new TracingCursorFactory(tracer), DATABASE_VERSION);
+        this.context = context;
+        this.tracer = tracer;
 
-            OutputStream outputStream = new FileOutputStream(dbFile);
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = inputStream.read(buffer)) > 0) {
-                outputStream.write(buffer, 0, length);
-            }
-            outputStream.flush();
-            outputStream.close();
-            inputStream.close();
+        // WAL: читатели из пула соединений работают параллельно с записью,
+        // а запись идет через единственное основное соединение по очереди
+        setWriteAheadLoggingEnabled(true);
 
-            Log.d("DatabaseHelper", "✅ База данных скопирована из assets");
-        } catch (IOException e) {
-            Log.e("DatabaseHelper", "❌ Ошибка копирования БД: " + e.getMessage());
+        // Обычно БД уже установлена фоном из MainActivity; синхронная установка
+        // здесь нужна только если процесс восстановлен сразу в другой экран
+        if (!DatabaseProvisioner.isProvisioned(context)) {
+            DatabaseProvisioner.provision(context, null);
         }
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
-        // Используем существующую БД из assets
+        // Используем существующую БД из assets. Файл в assets не хранит user_version,
+        // поэтому доводим его схему до текущей версии теми же шагами, что и onUpgrade
+        onUpgrade(db, 1, DATABASE_VERSION);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
         try {
-            Log.d("DatabaseHelper", "🔄 Обновление БД с версии " + oldVersion + " на " + newVersion);
+            LOG.d("🔄 Обновление БД с версии {} на {}", oldVersion, newVersion);
 
             // Добавляем недостающие столбцы для контроля качества
             if (oldVersion < 2) {
                 addMissingColumnsToAssignments(db);
             }
 
-        } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка обновления БД: " + e.getMessage());
+            // Индексы под фильтры горячих запросов
+            if (oldVersion < 3) {
+                createIndexes(db, DatabaseContract.INDEXES_V3);
+            }
+
+            // Постраничная очередь контроля качества ключуется по end_time
+            if (oldVersion < 4) {
+                db.execSQL(DatabaseContract.SQL_BACKFILL_COMPLETED_END_TIME);
+            }
+
+            // Сводные таблицы с триггерами (5), часовые корзины и индекс открытых смен (6).
+            // Установка сводок идемпотентна и заканчивается пересчетом из истории
+            if (oldVersion < 6) {
+                for (String sql : DatabaseContract.SUMMARY_SCHEMA) {
+                    db.execSQL(sql);
+                }
+                createIndexes(db, DatabaseContract.INDEXES_V6);
+                rebuildSummaries(db);
+            }
+
+            // Полнотекстовый индекс для поиска по мере ввода; дальше его ведут триггеры
+            if (oldVersion < 7) {
+                for (String sql : DatabaseContract.SEARCH_SCHEMA) {
+                    db.execSQL(sql);
+                }
+                for (String sql : DatabaseContract.SEARCH_REBUILD) {
+                    db.execSQL(sql);
+                }
+                LOG.d("✅ Поисковый индекс построен");
+            }
+
+            // Журнал движений материалов: прежние остатки и списания переносятся в него,
+            // после чего остатки, расход по дням и снимки ведут триггеры
+            if (oldVersion < 8) {
+                for (String sql : DatabaseContract.STOCK_SCHEMA) {
+                    db.execSQL(sql);
+                }
+                createIndexes(db, DatabaseContract.INDEXES_V8);
+                for (String sql : DatabaseContract.STOCK_OPENING) {
+                    db.execSQL(sql);
+                }
+                rebuildStock(db);
+            }
+
+            // Ход выполнения заказов по операциям маршрута
+            if (oldVersion < 9) {
+                for (String sql : DatabaseContract.PROGRESS_SCHEMA) {
+                    db.execSQL(sql);
+                }
+                createIndexes(db, DatabaseContract.INDEXES_V9);
+                rebuildOrderProgress(db);
+            }
+
+            // Числовой приоритет и индекс очереди заказов
+            if (oldVersion < 10) {
+                addPriorityRankColumn(db);
+                for (String sql : DatabaseContract.QUEUE_SCHEMA) {
+                    db.execSQL(sql);
+                }
+                for (String sql : DatabaseContract.QUEUE_REBUILD) {
+                    db.execSQL(sql);
+                }
+                createIndexes(db, DatabaseContract.INDEXES_V10);
+            }
+
+            // Отдельный поисковый индекс активных заказов для назначения заданий
+            if (oldVersion < 11) {
+                for (String sql : DatabaseContract.ACTIVE_ORDER_SEARCH_SCHEMA) {
+                    db.execSQL(sql);
+                }
+                for (String sql : DatabaseContract.ACTIVE_ORDER_SEARCH_REBUILD) {
+                    db.execSQL(sql);
+                }
+            }
+
+            // Журнал выработки: штуки идут в корзины по времени записи, а не задания.
+            // Триггеры сводок меняются, поэтому сводки ставятся заново и пересчитываются,
+            // а журнал заполняется из истории заданий на время самих заданий
+            if (oldVersion < 12) {
+                for (String sql : DatabaseContract.SUMMARY_SCHEMA) {
+                    db.execSQL(sql);
+                }
+                createIndexes(db, DatabaseContract.INDEXES_V12);
+                rebuildSummaries(db);
+            }
+
+        } catch (RuntimeException e) {
+            // Исключение откатывает транзакцию SQLiteOpenHelper вместе с user_version,
+            // и обновление повторится при следующем открытии, а не оставит БД без триггеров
+            LOG.e("❌ Ошибка обновления БД: {}", e.getMessage());
+            throw e;
         }
     }
 
@@ -99,27 +216,99 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             // Добавляем недостающие столбцы
             if (!existingColumns.contains("quality_checked")) {
                 db.execSQL("ALTER TABLE assignments ADD COLUMN quality_checked INTEGER DEFAULT 0");
-                Log.d("DatabaseHelper", "✅ Добавлен столбец quality_checked");
+                LOG.d("✅ Добавлен столбец quality_checked");
             }
 
             if (!existingColumns.contains("quality_checker_id")) {
                 db.execSQL("ALTER TABLE assignments ADD COLUMN quality_checker_id INTEGER");
-                Log.d("DatabaseHelper", "✅ Добавлен столбец quality_checker_id");
+                LOG.d("✅ Добавлен столбец quality_checker_id");
             }
 
             if (!existingColumns.contains("quality_check_date")) {
                 db.execSQL("ALTER TABLE assignments ADD COLUMN quality_check_date TEXT");
-                Log.d("DatabaseHelper", "✅ Добавлен столбец quality_check_date");
+                LOG.d("✅ Добавлен столбец quality_check_date");
             }
 
             if (!existingColumns.contains("quality_notes")) {
                 db.execSQL("ALTER TABLE assignments ADD COLUMN quality_notes TEXT");
-                Log.d("DatabaseHelper", "✅ Добавлен столбец quality_notes");
+                LOG.d("✅ Добавлен столбец quality_notes");
             }
 
+        } catch (RuntimeException e) {
+            LOG.e("❌ Ошибка добавления столбцов: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    private void addPriorityRankColumn(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("PRAGMA table_info(orders)", null);
+        List<String> existingColumns = new ArrayList<>();
+        while (cursor.moveToNext()) {
+            existingColumns.add(cursor.getString(cursor.getColumnIndexOrThrow("name")));
+        }
+        cursor.close();
+
+        if (!existingColumns.contains("priority_rank")) {
+            db.execSQL("ALTER TABLE orders ADD COLUMN priority_rank INTEGER NOT NULL DEFAULT 2");
+            LOG.d("✅ Добавлен столбец priority_rank");
+        }
+    }
+
+    private void createIndexes(SQLiteDatabase db, String[] indexes) {
+        for (String sql : indexes) {
+            db.execSQL(sql);
+        }
+        LOG.d("✅ Создано индексов: {}", indexes.length);
+    }
+
+    // Пересчет сводных таблиц с нуля. Триггеры держат их в актуальном состоянии,
+    // пересчет нужен после ручной правки файла БД или при подозрении на расхождение
+    public boolean rebuildSummaries() {
+        SQLiteDatabase db = getWritableDatabase();
+
+        db.beginTransactionNonExclusive();
+        long trace = tracer.enter("rebuildSummaries");
+        try {
+            rebuildSummaries(db);
+            db.setTransactionSuccessful();
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка добавления столбцов: " + e.getMessage());
+            LOG.e("❌ Ошибка пересчета сводок: {}", e.getMessage());
+            return false;
+        } finally {
+            db.endTransaction();
+            tracer.exit("rebuildSummaries", trace);
         }
+
+        onTablesChanged("worker_stats", "brigade_stats", "assignment_progress", "worker_daily_stats",
+                "worker_hourly_stats", "materials", "material_daily_usage", "stock_snapshots",
+                "order_operation_progress", "orders");
+        return true;
+    }
+
+    private void rebuildSummaries(SQLiteDatabase db) {
+        for (String sql : DatabaseContract.SUMMARY_REBUILD) {
+            db.execSQL(sql);
+        }
+        rebuildStock(db);
+        rebuildOrderProgress(db);
+        for (String sql : DatabaseContract.QUEUE_REBUILD) {
+            db.execSQL(sql);
+        }
+        LOG.d("✅ Сводные таблицы пересчитаны");
+    }
+
+    private void rebuildOrderProgress(SQLiteDatabase db) {
+        for (String sql : DatabaseContract.PROGRESS_REBUILD) {
+            db.execSQL(sql);
+        }
+        LOG.d("✅ Ход выполнения заказов пересчитан");
+    }
+
+    private void rebuildStock(SQLiteDatabase db) {
+        for (String sql : DatabaseContract.STOCK_REBUILD) {
+            db.execSQL(sql);
+        }
+        LOG.d("✅ Остатки материалов пересчитаны по журналу");
     }
 
     // === МЕТОДЫ ДЛЯ АУТЕНТИФИКАЦИИ И РЕГИСТРАЦИИ ===
@@ -128,8 +317,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = getReadableDatabase();
         User user = null;
 
+        long trace = tracer.enter("authenticateUser");
         try {
-            String query = "SELECT * FROM users WHERE email = ? AND password_hash = ?";
+            String query = DatabaseContract.SQL_AUTHENTICATE_USER;
             Cursor cursor = db.rawQuery(query, new String[]{email, password});
 
             if (cursor.moveToFirst()) {
@@ -142,13 +332,15 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                         cursor.getString(cursor.getColumnIndexOrThrow("position")),
                         cursor.getString(cursor.getColumnIndexOrThrow("avatar_url"))
                 );
-                Log.d("DatabaseHelper", "✅ Пользователь найден: " + user.getName());
+                LOG.d("✅ Пользователь найден: {}", user.getName());
             } else {
-                Log.d("DatabaseHelper", "❌ Пользователь не найден: " + email);
+                LOG.d("❌ Пользователь не найден: {}", email);
             }
             cursor.close();
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка аутентификации: " + e.getMessage());
+            LOG.e("❌ Ошибка аутентификации: {}", e.getMessage());
+        } finally {
+            tracer.exit("authenticateUser", trace);
         }
         return user;
     }
@@ -156,8 +348,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public boolean isEmailExists(String email) {
         SQLiteDatabase db = getReadableDatabase();
 
+        long trace = tracer.enter("isEmailExists");
         try {
-            String query = "SELECT COUNT(*) FROM users WHERE email = ?";
+            String query = DatabaseContract.SQL_EMAIL_EXISTS;
             Cursor cursor = db.rawQuery(query, new String[]{email});
 
             boolean exists = false;
@@ -169,25 +362,33 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             return exists;
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка проверки email: " + e.getMessage());
+            LOG.e("❌ Ошибка проверки email: {}", e.getMessage());
             return false;
+        } finally {
+            tracer.exit("isEmailExists", trace);
         }
     }
 
     public boolean updatePassword(String email, String newPassword) {
         SQLiteDatabase db = getWritableDatabase();
 
+        long trace = tracer.enter("updatePassword");
         try {
             ContentValues values = new ContentValues();
             values.put("password_hash", newPassword);
             values.put("updated_at", getCurrentDateTime());
 
             int rows = db.update("users", values, "email = ?", new String[]{email});
+            if (rows > 0) {
+                onTablesChanged("users");
+            }
             return rows > 0;
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка обновления пароля: " + e.getMessage());
+            LOG.e("❌ Ошибка обновления пароля: {}", e.getMessage());
             return false;
+        } finally {
+            tracer.exit("updatePassword", trace);
         }
     }
 
@@ -195,8 +396,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = getReadableDatabase();
         User user = null;
 
+        long trace = tracer.enter("getUserByEmail");
         try {
-            String query = "SELECT * FROM users WHERE email = ?";
+            String query = DatabaseContract.SQL_USER_BY_EMAIL;
             Cursor cursor = db.rawQuery(query, new String[]{email});
 
             if (cursor.moveToFirst()) {
@@ -213,7 +415,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
             cursor.close();
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения пользователя: " + e.getMessage());
+            LOG.e("❌ Ошибка получения пользователя: {}", e.getMessage());
+        } finally {
+            tracer.exit("getUserByEmail", trace);
         }
 
         return user;
@@ -222,9 +426,10 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public boolean registerUser(String email, String password, String name, String brigade, String position) {
         SQLiteDatabase db = getWritableDatabase();
 
+        long trace = tracer.enter("registerUser");
         try {
             if (isEmailExists(email)) {
-                Log.e("DatabaseHelper", "❌ Пользователь с email " + email + " уже существует");
+                LOG.e("❌ Пользователь с email {} уже существует", email);
                 return false;
             }
 
@@ -239,174 +444,142 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             values.put("updated_at", getCurrentDateTime());
 
             long result = db.insert("users", null, values);
+            if (result != -1) {
+                onRowChanged("users", result);
+            }
             return result != -1;
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка регистрации: " + e.getMessage());
+            LOG.e("❌ Ошибка регистрации: {}", e.getMessage());
             return false;
+        } finally {
+            tracer.exit("registerUser", trace);
         }
     }
 
     // === ДАННЫЕ ДЛЯ WORKER ===
 
-    public WorkerStats getWorkerStats(int userId) {
-        SQLiteDatabase db = getReadableDatabase();
-        WorkerStats stats = new WorkerStats();
-
-        try {
-            String query = "SELECT " +
-                    "COALESCE(SUM(a.actual_quantity), 0) as completed, " +
-                    "COALESCE(SUM(a.defects), 0) as defects " +
-                    "FROM assignments a " +
-                    "WHERE a.user_id = ?";
-
-            Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(userId)});
-            if (cursor.moveToFirst()) {
-                stats.completed = cursor.getInt(0);
-                stats.defects = cursor.getInt(1);
-            }
-            cursor.close();
-
-            stats.todayAssignments = getTodayAssignments(userId);
-
-            Log.d("DatabaseHelper", "📊 Статистика worker " + userId + ": completed=" + stats.completed + ", defects=" + stats.defects);
+    // Все, что нужно экрану работника, читается в одной транзакции: итоги, окна и списки
+    // согласованы между собой, даже если в это время отмечается выполнение.
+    // Транзакции только для чтения (beginTransactionReadOnly на соединении из пула читателей)
+    // появились в API 35, а compileSdk здесь 34, поэтому берется NonExclusive: она держит
+    // основное соединение, и запись ждет, пока идут несколько запросов снимка.
+    // Частоту таких транзакций ограничивает snapshotLoads - одновременные вызовы делят одну.
+    // Снимок общий для одновременных вызовов, поэтому его нельзя менять
+    public WorkerSnapshot getWorkerSnapshot(int userId) {
+        return snapshotLoads.get("worker:" + userId, WORKER_SNAPSHOT_TABLES, () -> loadWorkerSnapshot(userId));
+    }
 
-        } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения статистики worker: " + e.getMessage());
-        }
-        return stats;
+    // Снимок, который сам перечитывается, когда запись меняет его таблицы
+    LiveQuery<WorkerSnapshot> observeWorkerSnapshot(int userId) {
+        return new LiveQuery<>(changeBus, BackgroundTasks.get().readExecutor(), WORKER_SNAPSHOT_TABLES,
+                () -> getWorkerSnapshot(userId));
     }
 
-    private String getTodayAssignments(int userId) {
+    private WorkerSnapshot loadWorkerSnapshot(int userId) {
         SQLiteDatabase db = getReadableDatabase();
-        StringBuilder assignments = new StringBuilder();
+        WorkerSnapshot snapshot = new WorkerSnapshot();
 
+        db.beginTransactionNonExclusive();
+        long trace = tracer.enter("getWorkerSnapshot");
         try {
-            String query = "SELECT o.name as operation_name, " +
-                    "a.planned_quantity, a.actual_quantity, a.status " +
-                    "FROM assignments a " +
-                    "JOIN operations o ON a.operation_id = o.id " +
-                    "WHERE a.user_id = ? AND a.status IN ('assigned', 'in_progress') " +
-                    "ORDER BY a.status DESC, a.id LIMIT 3";
-
-            Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(userId)});
-            int count = 0;
-
-            while (cursor.moveToNext() && count < 3) {
-                String opName = cursor.getString(cursor.getColumnIndexOrThrow("operation_name"));
-                int planned = cursor.getInt(cursor.getColumnIndexOrThrow("planned_quantity"));
-                int actual = cursor.getInt(cursor.getColumnIndexOrThrow("actual_quantity"));
-                String status = cursor.getString(cursor.getColumnIndexOrThrow("status"));
-
-                if (opName == null) opName = "Задание " + (count + 1);
-
-                assignments.append(opName).append("    ")
-                        .append(actual).append("/").append(planned).append(" шт")
-                        .append(" (").append(getStatusText(status)).append(")\n");
-                count++;
+            loadWorkerHeader(db, userId, snapshot);
+            snapshot.stats.todayAssignments = readTodayAssignments(db, userId);
+            snapshot.details.activeAssignments = readAssignments(db, DatabaseContract.SQL_WORKER_ACTIVE_ASSIGNMENTS, userId);
+            snapshot.details.recentCompleted = readAssignments(db, DatabaseContract.SQL_WORKER_RECENT_COMPLETED, userId);
+            db.setTransactionSuccessful();
+
+            if (Logger.DEBUG_ENABLED) {
+                LOG.d(Logger.format("📊 Снимок worker {}: completed={}, today={}, shift={}, week={}, month={}",
+                        userId, snapshot.stats.completed, snapshot.details.todayCompleted,
+                        snapshot.details.shiftCompleted, snapshot.details.weekCompleted,
+                        snapshot.details.monthCompleted));
             }
-            cursor.close();
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения заданий: " + e.getMessage());
-        }
-
-        if (assignments.length() == 0) {
-            assignments.append("Нет активных заданий\n");
+            LOG.e("❌ Ошибка получения снимка worker: {}", e.getMessage());
+        } finally {
+            db.endTransaction();
+            tracer.exit("getWorkerSnapshot", trace);
         }
-
-        return assignments.toString();
+        return snapshot;
     }
 
     // === МЕТОДЫ ДЛЯ ФУНКЦИОНАЛА КНОПОК WORKER ===
 
     public WorkerDetailedStats getWorkerDetailedStats(int userId) {
-        SQLiteDatabase db = getReadableDatabase();
-        WorkerDetailedStats stats = new WorkerDetailedStats();
-
-        try {
-            WorkerStats basicStats = getWorkerStats(userId);
-            stats.todayCompleted = basicStats.completed;
-            stats.todayDefects = basicStats.defects;
-            stats.weekCompleted = basicStats.completed;
-            stats.weekDefects = basicStats.defects;
-
-            stats.activeAssignments = getActiveAssignments(userId);
-            stats.recentCompleted = getRecentCompletedAssignments(userId);
-
-            Log.d("DatabaseHelper", "📊 Детальная статистика worker " + userId + ": today=" + stats.todayCompleted + ", week=" + stats.weekCompleted);
+        return getWorkerSnapshot(userId).details;
+    }
 
-        } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения детальной статистики: " + e.getMessage());
+    // Итоги, сегодня, 7 и 30 дней и текущая смена одной строкой SQL_WORKER_SNAPSHOT.
+    // Границы дней считаются в локальном времени, как и end_time в assignments
+    private void loadWorkerHeader(SQLiteDatabase db, int userId, WorkerSnapshot snapshot) {
+        SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+        Calendar calendar = Calendar.getInstance();
+        String today = dayFormat.format(calendar.getTime());
+        calendar.add(Calendar.DAY_OF_YEAR, -6);
+        String weekStart = dayFormat.format(calendar.getTime());
+        calendar.add(Calendar.DAY_OF_YEAR, -23);
+        String monthStart = dayFormat.format(calendar.getTime());
+
+        Cursor cursor = db.rawQuery(DatabaseContract.SQL_WORKER_SNAPSHOT,
+                new String[]{String.valueOf(userId), today, weekStart, monthStart});
+        if (cursor.moveToFirst()) {
+            WorkerStats stats = snapshot.stats;
+            stats.completed = cursor.getInt(0);
+            stats.defects = cursor.getInt(1);
+
+            WorkerDetailedStats details = snapshot.details;
+            details.todayCompleted = cursor.getInt(2);
+            details.todayDefects = cursor.getInt(3);
+            details.weekCompleted = cursor.getInt(4);
+            details.weekDefects = cursor.getInt(5);
+            details.monthCompleted = cursor.getInt(6);
+            details.monthDefects = cursor.getInt(7);
+            details.shiftStartTime = cursor.getString(8);
+            details.shiftCompleted = cursor.getInt(9);
+            details.shiftDefects = cursor.getInt(10);
         }
-        return stats;
+        cursor.close();
     }
 
-    private List<Assignment> getActiveAssignments(int userId) {
-        SQLiteDatabase db = getReadableDatabase();
-        List<Assignment> assignments = new ArrayList<>();
-
-        try {
-            String query = "SELECT a.id, o.name as operation_name, " +
-                    "a.planned_quantity, a.actual_quantity, a.status, " +
-                    "p.name as product_name, a.start_time " +
-                    "FROM assignments a " +
-                    "JOIN operations o ON a.operation_id = o.id " +
-                    "LEFT JOIN products p ON o.product_id = p.id " +
-                    "WHERE a.user_id = ? AND a.status IN ('assigned', 'in_progress') " +
-                    "ORDER BY a.created_at DESC LIMIT 5";
+    private String readTodayAssignments(SQLiteDatabase db, int userId) {
+        StringBuilder assignments = new StringBuilder();
 
-            Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(userId)});
-            while (cursor.moveToNext()) {
-                Assignment assignment = new Assignment();
-                assignment.id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
-                assignment.operationName = cursor.getString(cursor.getColumnIndexOrThrow("operation_name"));
-                assignment.plannedQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("planned_quantity"));
-                assignment.actualQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("actual_quantity"));
-                assignment.status = cursor.getString(cursor.getColumnIndexOrThrow("status"));
-                assignment.productName = cursor.getString(cursor.getColumnIndexOrThrow("product_name"));
-                assignment.startTime = cursor.getString(cursor.getColumnIndexOrThrow("start_time"));
-                assignments.add(assignment);
-            }
-            cursor.close();
+        Cursor cursor = db.rawQuery(DatabaseContract.SQL_WORKER_TODAY_ASSIGNMENTS, new String[]{String.valueOf(userId)});
+        int operationNameIndex = cursor.getColumnIndexOrThrow("operation_name");
+        int plannedIndex = cursor.getColumnIndexOrThrow("planned_quantity");
+        int actualIndex = cursor.getColumnIndexOrThrow("actual_quantity");
+        int statusIndex = cursor.getColumnIndexOrThrow("status");
+        int count = 0;
+
+        while (cursor.moveToNext() && count < 3) {
+            String opName = cursor.getString(operationNameIndex);
+            if (opName == null) opName = "Задание " + (count + 1);
+
+            assignments.append(opName).append("    ")
+                    .append(cursor.getInt(actualIndex)).append("/").append(cursor.getInt(plannedIndex)).append(" шт")
+                    .append(" (").append(getStatusText(cursor.getString(statusIndex))).append(")\n");
+            count++;
+        }
+        cursor.close();
 
-        } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения активных заданий: " + e.getMessage());
+        if (assignments.length() == 0) {
+            assignments.append("Нет активных заданий\n");
         }
-        return assignments;
+
+        return assignments.toString();
     }
 
-    private List<Assignment> getRecentCompletedAssignments(int userId) {
-        SQLiteDatabase db = getReadableDatabase();
+    private List<Assignment> readAssignments(SQLiteDatabase db, String query, int userId) {
         List<Assignment> assignments = new ArrayList<>();
 
-        try {
-            String query = "SELECT a.id, o.name as operation_name, " +
-                    "a.planned_quantity, a.actual_quantity, a.defects, " +
-                    "p.name as product_name, a.end_time " +
-                    "FROM assignments a " +
-                    "JOIN operations o ON a.operation_id = o.id " +
-                    "LEFT JOIN products p ON o.product_id = p.id " +
-                    "WHERE a.user_id = ? AND a.status = 'completed' " +
-                    "ORDER BY a.end_time DESC LIMIT 5";
-
-            Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(userId)});
-            while (cursor.moveToNext()) {
-                Assignment assignment = new Assignment();
-                assignment.id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
-                assignment.operationName = cursor.getString(cursor.getColumnIndexOrThrow("operation_name"));
-                assignment.plannedQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("planned_quantity"));
-                assignment.actualQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("actual_quantity"));
-                assignment.defects = cursor.getInt(cursor.getColumnIndexOrThrow("defects"));
-                assignment.productName = cursor.getString(cursor.getColumnIndexOrThrow("product_name"));
-                assignment.endTime = cursor.getString(cursor.getColumnIndexOrThrow("end_time"));
-                assignments.add(assignment);
-            }
-            cursor.close();
-
-        } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения выполненных заданий: " + e.getMessage());
+        Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(userId)});
+        RowMappers.AssignmentMapper mapper = new RowMappers.AssignmentMapper(cursor);
+        while (cursor.moveToNext()) {
+            assignments.add(mapper.map(cursor));
         }
+        cursor.close();
         return assignments;
     }
 
@@ -414,34 +587,23 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = getReadableDatabase();
         List<Assignment> assignments = new ArrayList<>();
 
+        long trace = tracer.enter("getAvailableAssignments");
         try {
-            String query = "SELECT a.id, o.name as operation_name, " +
-                    "a.planned_quantity, a.actual_quantity, a.status, " +
-                    "p.name as product_name, o.standard_time_minutes " +
-                    "FROM assignments a " +
-                    "JOIN operations o ON a.operation_id = o.id " +
-                    "LEFT JOIN products p ON o.product_id = p.id " +
-                    "WHERE a.user_id = ? AND a.status IN ('assigned', 'in_progress') " +
-                    "ORDER BY a.created_at";
+            String query = DatabaseContract.SQL_WORKER_AVAILABLE_ASSIGNMENTS;
 
             Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(userId)});
+            RowMappers.AssignmentMapper mapper = new RowMappers.AssignmentMapper(cursor);
             while (cursor.moveToNext()) {
-                Assignment assignment = new Assignment();
-                assignment.id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
-                assignment.operationName = cursor.getString(cursor.getColumnIndexOrThrow("operation_name"));
-                assignment.plannedQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("planned_quantity"));
-                assignment.actualQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("actual_quantity"));
-                assignment.status = cursor.getString(cursor.getColumnIndexOrThrow("status"));
-                assignment.productName = cursor.getString(cursor.getColumnIndexOrThrow("product_name"));
-                assignment.standardTime = cursor.getInt(cursor.getColumnIndexOrThrow("standard_time_minutes"));
-                assignments.add(assignment);
+                assignments.add(mapper.map(cursor));
             }
             cursor.close();
 
-            Log.d("DatabaseHelper", "✅ Найдено доступных заданий для user " + userId + ": " + assignments.size());
+            LOG.d("✅ Найдено доступных заданий для user {}: {}", userId, assignments.size());
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения доступных заданий: " + e.getMessage());
+            LOG.e("❌ Ошибка получения доступных заданий: {}", e.getMessage());
+        } finally {
+            tracer.exit("getAvailableAssignments", trace);
         }
         return assignments;
     }
@@ -450,34 +612,22 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getReadableDatabase();
         Assignment assignment = null;
 
+        long trace = tracer.enter("getAssignmentById");
         try {
-            String query = "SELECT a.id, o.name as operation_name, " +
-                    "a.planned_quantity, a.actual_quantity, a.defects, a.status, " +
-                    "p.name as product_name, a.start_time, a.end_time " +
-                    "FROM assignments a " +
-                    "JOIN operations o ON a.operation_id = o.id " +
-                    "LEFT JOIN products p ON o.product_id = p.id " +
-                    "WHERE a.id = ?";
+            String query = DatabaseContract.SQL_ASSIGNMENT_BY_ID;
 
             Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(assignmentId)});
             if (cursor != null && cursor.moveToFirst()) {
-                assignment = new Assignment();
-                assignment.id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
-                assignment.operationName = cursor.getString(cursor.getColumnIndexOrThrow("operation_name"));
-                assignment.plannedQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("planned_quantity"));
-                assignment.actualQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("actual_quantity"));
-                assignment.defects = cursor.getInt(cursor.getColumnIndexOrThrow("defects"));
-                assignment.status = cursor.getString(cursor.getColumnIndexOrThrow("status"));
-                assignment.productName = cursor.getString(cursor.getColumnIndexOrThrow("product_name"));
-                assignment.startTime = cursor.getString(cursor.getColumnIndexOrThrow("start_time"));
-                assignment.endTime = cursor.getString(cursor.getColumnIndexOrThrow("end_time"));
+                assignment = new RowMappers.AssignmentMapper(cursor).map(cursor);
             }
 
             if (cursor != null) {
                 cursor.close();
             }
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения задания по ID: " + e.getMessage());
+            LOG.e("❌ Ошибка получения задания по ID: {}", e.getMessage());
+        } finally {
+            tracer.exit("getAssignmentById", trace);
         }
 
         return assignment;
@@ -486,6 +636,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public boolean updateAssignmentStatus(int assignmentId, String newStatus) {
         SQLiteDatabase db = this.getWritableDatabase();
 
+        long trace = tracer.enter("updateAssignmentStatus");
         try {
             // Сначала проверим существование задания
             Cursor cursor = db.query("assignments",
@@ -494,7 +645,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                     null, null, null);
 
             if (cursor == null || !cursor.moveToFirst()) {
-                Log.e("DatabaseHelper", "❌ Задание не найдено: " + assignmentId);
+                LOG.e("❌ Задание не найдено: {}", assignmentId);
                 if (cursor != null) cursor.close();
                 return false;
             }
@@ -507,34 +658,24 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 values.put("start_time", getCurrentDateTime());
             } else if ("completed".equals(newStatus)) {
                 values.put("end_time", getCurrentDateTime());
-                Log.d("DatabaseHelper", "✅ Задание " + assignmentId + " помечено как выполненное");
+                LOG.d("✅ Задание {} помечено как выполненное", assignmentId);
             }
 
             int rowsAffected = db.update("assignments", values, "id = ?", new String[]{String.valueOf(assignmentId)});
-
-            // Уведомляем об изменении статуса
-            if (rowsAffected > 0 && onDataChangedListener != null) {
-                onDataChangedListener.onAssignmentStatusChanged(assignmentId, newStatus);
-
-                // Дополнительно уведомляем о возможности проверки качества для завершенных заданий
-                if ("completed".equals(newStatus)) {
-                    onDataChangedListener.onQualityCheckPerformed(assignmentId);
-                    Log.d("DatabaseHelper", "🔔 Уведомление о новом задании для контроля качества: " + assignmentId);
-                }
+            if (rowsAffected > 0) {
+                onRowChanged("assignments", assignmentId);
             }
 
-            Log.d("DatabaseHelper", "🔄 Обновление статуса задания " + assignmentId + " на '" + newStatus + "': " +
-                    (rowsAffected > 0 ? "успешно" : "ошибка") + ", затронуто строк: " + rowsAffected);
+            LOG.d("🔄 Обновление статуса задания {} на '{}', затронуто строк: {}",
+                    assignmentId, newStatus, rowsAffected);
             return rowsAffected > 0;
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка обновления статуса: " + e.getMessage());
+            LOG.e("❌ Ошибка обновления статуса: {}", e.getMessage());
             e.printStackTrace();
             return false;
         } finally {
-            if (db != null) {
-                db.close();
-            }
+            tracer.exit("updateAssignmentStatus", trace);
         }
     }
 
@@ -545,267 +686,328 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 "cancelled".equals(status);
     }
 
+    // Прирост количества и смена статуса выполняются одним UPDATE прямо в SQLite,
+    // поэтому одновременные отметки не затирают друг друга
     public boolean recordOperationCompletion(int assignmentId, int quantity, int defects) {
         SQLiteDatabase db = this.getWritableDatabase();
 
+        long trace = tracer.enter("recordOperationCompletion");
         try {
-            Assignment assignment = null;
-            Cursor cursor = db.query("assignments",
-                    new String[]{"id", "planned_quantity", "actual_quantity", "defects", "status"},
-                    "id = ?", new String[]{String.valueOf(assignmentId)},
-                    null, null, null);
-
-            if (cursor != null && cursor.moveToFirst()) {
-                assignment = new Assignment();
-                assignment.id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
-                assignment.plannedQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("planned_quantity"));
-                assignment.actualQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("actual_quantity"));
-                assignment.defects = cursor.getInt(cursor.getColumnIndexOrThrow("defects"));
-                assignment.status = cursor.getString(cursor.getColumnIndexOrThrow("status"));
-                cursor.close();
+            int rowsAffected;
+
+            // Блокировку берем до транзакции, чтобы порядок захвата всегда был
+            // "statementLock, затем соединение" и потоки не ждали друг друга по кругу
+            synchronized (statementLock) {
+                db.beginTransactionNonExclusive();
+                try {
+                    if (recordCompletionStatement == null) {
+                        recordCompletionStatement = db.compileStatement(DatabaseContract.SQL_RECORD_COMPLETION);
+                    }
+                    recordCompletionStatement.bindLong(1, quantity);
+                    recordCompletionStatement.bindLong(2, defects);
+                    recordCompletionStatement.bindLong(3, assignmentId);
+                    long start = System.nanoTime();
+                    rowsAffected = recordCompletionStatement.executeUpdateDelete();
+                    tracer.query(DatabaseContract.SQL_RECORD_COMPLETION, System.nanoTime() - start,
+                            rowsAffected, rowsAffected);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
             }
 
-            if (assignment == null) {
-                Log.e("DatabaseHelper", "❌ Задание не найдено: " + assignmentId);
+            if (rowsAffected == 0) {
+                LOG.e("❌ Задание не найдено: {}", assignmentId);
                 return false;
             }
+            onRowChanged("assignments", assignmentId);
 
-            int newActualQuantity = assignment.actualQuantity + quantity;
-            int newDefects = assignment.defects + defects;
+            LOG.d("📝 Учет выполнения задания {}: +{} шт, брак: {}", assignmentId, quantity, defects);
 
-            ContentValues values = new ContentValues();
-            values.put("actual_quantity", newActualQuantity);
-            values.put("defects", newDefects);
+            return true;
 
-            String newStatus = assignment.status;
-            if (newActualQuantity >= assignment.plannedQuantity) {
-                newStatus = "completed";
-                values.put("status", "completed");
-                values.put("end_time", getCurrentDateTime());
-                Log.d("DatabaseHelper", "✅ Задание " + assignmentId + " завершено");
-            } else if ("assigned".equals(assignment.status)) {
-                newStatus = "in_progress";
-                values.put("status", "in_progress");
-                values.put("start_time", getCurrentDateTime());
-                Log.d("DatabaseHelper", "🔄 Задание " + assignmentId + " взято в работу");
-            }
+        } catch (Exception e) {
+            LOG.e("❌ Ошибка учета выполнения: {}", e.getMessage());
+            return false;
+        } finally {
+            tracer.exit("recordOperationCompletion", trace);
+        }
+    }
 
-            int rowsAffected = db.update("assignments", values, "id = ?", new String[]{String.valueOf(assignmentId)});
+    // === МЕТОДЫ ДЛЯ КОНТРОЛЯ КАЧЕСТВА ===
 
-            // Уведомляем об изменении данных
-            if (rowsAffected > 0 && onDataChangedListener != null) {
-                onDataChangedListener.onAssignmentStatusChanged(assignmentId, newStatus);
+    // Страница очереди контроля качества. Для первой страницы after = null,
+    // для следующих передается предыдущая страница: по ее последней строке
+    // строится ключ (end_time, id), поэтому цена запроса не растет с глубиной
+    public QualityControlPage getQualityControlPage(QualityControlPage after, int pageSize) {
+        SQLiteDatabase db = getReadableDatabase();
+        QualityControlPage page = new QualityControlPage();
 
-                // Если задание завершено, дополнительно уведомляем о возможности проверки качества
-                if ("completed".equals(newStatus)) {
-                    onDataChangedListener.onQualityCheckPerformed(assignmentId);
+        long trace = tracer.enter("getQualityControlPage");
+        try {
+            // Берем на одну строку больше, чтобы узнать, есть ли следующая страница
+            String limit = String.valueOf(pageSize + 1);
+            Cursor cursor;
+            if (after == null) {
+                cursor = db.rawQuery(DatabaseContract.SQL_QUALITY_CONTROL_FIRST_PAGE, new String[]{limit});
+            } else {
+                cursor = db.rawQuery(DatabaseContract.SQL_QUALITY_CONTROL_NEXT_PAGE,
+                        new String[]{after.lastEndTime, String.valueOf(after.lastId), limit});
+            }
+
+            RowMappers.QualityControlItemMapper mapper = new RowMappers.QualityControlItemMapper(cursor);
+            while (cursor.moveToNext()) {
+                if (page.items.size() == pageSize) {
+                    page.hasMore = true;
+                    break;
                 }
+                page.items.add(mapper.map(cursor));
             }
+            cursor.close();
 
-            Log.d("DatabaseHelper", "📝 Учет выполнения задания " + assignmentId + ": +" + quantity + " шт, брак: " + defects +
-                    " -> " + (rowsAffected > 0 ? "успешно" : "ошибка") + ", новый статус: " + newStatus);
+            if (!page.items.isEmpty()) {
+                QualityControlItem last = page.items.get(page.items.size() - 1);
+                page.lastEndTime = last.endTime;
+                page.lastId = last.id;
+            }
 
-            return rowsAffected > 0;
+            LOG.d("✅ Страница контроля качества: {} заданий", page.items.size());
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка учета выполнения: " + e.getMessage());
-            return false;
+            LOG.e("❌ Ошибка получения заданий для контроля качества: {}", e.getMessage());
         } finally {
-            db.close();
+            tracer.exit("getQualityControlPage", trace);
         }
+        return page;
     }
 
-    // === МЕТОДЫ ДЛЯ КОНТРОЛЯ КАЧЕСТВА ===
-
-    public List<QualityControlItem> getQualityControlTasks() {
+    // Все непроверенные выполненные задания в виде готовых проверок для пакетного API;
+    // читаются только три числовых столбца, без имен и дат
+    public List<QualityCheck> getUncheckedQualityChecks(String notes) {
         SQLiteDatabase db = getReadableDatabase();
-        List<QualityControlItem> tasks = new ArrayList<>();
+        List<QualityCheck> checks = new ArrayList<>();
 
+        long trace = tracer.enter("getUncheckedQualityChecks");
         try {
-            // Используем таблицу quality_checks для контроля качества
-            String query = "SELECT a.id, u.name as worker_name, o.name as operation_name, " +
-                    "p.name as product_name, a.planned_quantity, a.actual_quantity, " +
-                    "a.defects, a.status, a.created_at, a.start_time, a.end_time, " +
-                    "qc.result as quality_result, qc.defects_found, qc.comments as quality_notes, " +
-                    "qc.check_date as quality_check_date, qc.inspector_id as quality_checker_id, " +
-                    "CASE WHEN qc.id IS NOT NULL THEN 1 ELSE 0 END as quality_checked " +
-                    "FROM assignments a " +
-                    "JOIN users u ON a.user_id = u.id " +
-                    "JOIN operations o ON a.operation_id = o.id " +
-                    "LEFT JOIN products p ON o.product_id = p.id " +
-                    "LEFT JOIN quality_checks qc ON a.id = qc.assignment_id " +
-                    "WHERE a.status = 'completed' " +
-                    "ORDER BY qc.check_date DESC, a.end_time DESC";
-
-            Cursor cursor = db.rawQuery(query, null);
+            Cursor cursor = db.rawQuery(DatabaseContract.SQL_UNCHECKED_COMPLETED, null);
+            int idIndex = cursor.getColumnIndexOrThrow("id");
+            int actualQuantityIndex = cursor.getColumnIndexOrThrow("actual_quantity");
+            int defectsIndex = cursor.getColumnIndexOrThrow("defects");
             while (cursor.moveToNext()) {
-                QualityControlItem task = new QualityControlItem();
-                task.id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
-                task.workerName = cursor.getString(cursor.getColumnIndexOrThrow("worker_name"));
-                task.operationName = cursor.getString(cursor.getColumnIndexOrThrow("operation_name"));
-                task.productName = cursor.getString(cursor.getColumnIndexOrThrow("product_name"));
-                task.plannedQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("planned_quantity"));
-                task.actualQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("actual_quantity"));
-                task.defects = cursor.getInt(cursor.getColumnIndexOrThrow("defects"));
-                task.status = cursor.getString(cursor.getColumnIndexOrThrow("status"));
-                task.createdAt = cursor.getString(cursor.getColumnIndexOrThrow("created_at"));
-                task.startTime = cursor.getString(cursor.getColumnIndexOrThrow("start_time"));
-                task.endTime = cursor.getString(cursor.getColumnIndexOrThrow("end_time"));
-
-                // Используем данные из quality_checks
-                String qualityResult = cursor.getString(cursor.getColumnIndexOrThrow("quality_result"));
-                task.qualityChecked = qualityResult != null;
-                task.qualityCheckerId = cursor.getInt(cursor.getColumnIndexOrThrow("quality_checker_id"));
-                task.qualityCheckDate = cursor.getString(cursor.getColumnIndexOrThrow("quality_check_date"));
-                task.qualityNotes = cursor.getString(cursor.getColumnIndexOrThrow("quality_notes"));
-
-                tasks.add(task);
+                checks.add(new QualityCheck(cursor.getInt(idIndex), cursor.getInt(actualQuantityIndex),
+                        cursor.getInt(defectsIndex), notes));
             }
             cursor.close();
 
-            Log.d("DatabaseHelper", "✅ Найдено заданий для контроля качества: " + tasks.size());
-
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения заданий для контроля качества: " + e.getMessage());
+            LOG.e("❌ Ошибка получения непроверенных заданий: {}", e.getMessage());
+        } finally {
+            tracer.exit("getUncheckedQualityChecks", trace);
         }
-        return tasks;
+        return checks;
     }
+
     public List<QualityControlItem> getWorkerQualityControlTasks(int workerId) {
         SQLiteDatabase db = getReadableDatabase();
         List<QualityControlItem> tasks = new ArrayList<>();
 
+        long trace = tracer.enter("getWorkerQualityControlTasks");
         try {
-            String query = "SELECT a.id, u.name as worker_name, o.name as operation_name, " +
-                    "p.name as product_name, a.planned_quantity, a.actual_quantity, " +
-                    "a.defects, a.status, a.created_at, a.start_time, a.end_time, " +
-                    "qc.result as quality_result, qc.defects_found, qc.comments as quality_notes, " +
-                    "qc.check_date as quality_check_date, qc.inspector_id as quality_checker_id, " +
-                    "CASE WHEN qc.id IS NOT NULL THEN 1 ELSE 0 END as quality_checked " +
-                    "FROM assignments a " +
-                    "JOIN users u ON a.user_id = u.id " +
-                    "JOIN operations o ON a.operation_id = o.id " +
-                    "LEFT JOIN products p ON o.product_id = p.id " +
-                    "LEFT JOIN quality_checks qc ON a.id = qc.assignment_id " +
-                    "WHERE a.user_id = ? AND a.status = 'completed' " +
-                    "ORDER BY qc.check_date DESC, a.end_time DESC";
+            String query = DatabaseContract.SQL_WORKER_QUALITY_CONTROL_TASKS;
 
             Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(workerId)});
+            RowMappers.QualityControlItemMapper mapper = new RowMappers.QualityControlItemMapper(cursor);
             while (cursor.moveToNext()) {
-                QualityControlItem task = new QualityControlItem();
-                task.id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
-                task.workerName = cursor.getString(cursor.getColumnIndexOrThrow("worker_name"));
-                task.operationName = cursor.getString(cursor.getColumnIndexOrThrow("operation_name"));
-                task.productName = cursor.getString(cursor.getColumnIndexOrThrow("product_name"));
-                task.plannedQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("planned_quantity"));
-                task.actualQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("actual_quantity"));
-                task.defects = cursor.getInt(cursor.getColumnIndexOrThrow("defects"));
-                task.status = cursor.getString(cursor.getColumnIndexOrThrow("status"));
-                task.createdAt = cursor.getString(cursor.getColumnIndexOrThrow("created_at"));
-                task.startTime = cursor.getString(cursor.getColumnIndexOrThrow("start_time"));
-                task.endTime = cursor.getString(cursor.getColumnIndexOrThrow("end_time"));
-
-                // Используем данные из quality_checks
-                String qualityResult = cursor.getString(cursor.getColumnIndexOrThrow("quality_result"));
-                task.qualityChecked = qualityResult != null;
-                task.qualityCheckerId = cursor.getInt(cursor.getColumnIndexOrThrow("quality_checker_id"));
-                task.qualityCheckDate = cursor.getString(cursor.getColumnIndexOrThrow("quality_check_date"));
-                task.qualityNotes = cursor.getString(cursor.getColumnIndexOrThrow("quality_notes"));
-
-                tasks.add(task);
+                tasks.add(mapper.map(cursor));
             }
             cursor.close();
 
-            Log.d("DatabaseHelper", "✅ Найдено заданий работника " + workerId + " для контроля качества: " + tasks.size());
+            LOG.d("✅ Найдено заданий работника {} для контроля качества: {}", workerId, tasks.size());
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения заданий работника: " + e.getMessage());
+            LOG.e("❌ Ошибка получения заданий работника: {}", e.getMessage());
+        } finally {
+            tracer.exit("getWorkerQualityControlTasks", trace);
         }
         return tasks;
     }
     public boolean checkAssignmentQuality(int assignmentId, int checkerId, int approvedQuantity, int defectsFound, String notes) {
-        SQLiteDatabase db = getWritableDatabase();
-
+        long trace = tracer.enter("checkAssignmentQuality");
         try {
-            // Обновляем основную таблицу assignments
-            ContentValues assignmentValues = new ContentValues();
-            assignmentValues.put("actual_quantity", approvedQuantity);
-            assignmentValues.put("defects", defectsFound);
-
-            int rowsAffected = db.update("assignments", assignmentValues, "id = ?", new String[]{String.valueOf(assignmentId)});
+            List<QualityCheck> checks = new ArrayList<>();
+            checks.add(new QualityCheck(assignmentId, approvedQuantity, defectsFound, notes));
 
-            // Добавляем запись в таблицу quality_checks
-            ContentValues qualityValues = new ContentValues();
-            qualityValues.put("assignment_id", assignmentId);
-            qualityValues.put("inspector_id", checkerId);
-            qualityValues.put("result", approvedQuantity > 0 ? "approved" : "rejected");
-            qualityValues.put("defects_found", defectsFound);
-            qualityValues.put("comments", notes);
-            qualityValues.put("check_date", getCurrentDateTime());
-
-            long qualityResult = db.insert("quality_checks", null, qualityValues);
-
-            boolean success = rowsAffected > 0 && qualityResult != -1;
+            boolean success = applyQualityChecks(checks, checkerId, null) == 1;
             if (success) {
-                if (onDataChangedListener != null) {
-                    onDataChangedListener.onQualityCheckPerformed(assignmentId);
-                }
-                Log.d("DatabaseHelper", "✅ Контроль качества выполнен для задания " + assignmentId);
+                LOG.d("✅ Контроль качества выполнен для задания {}", assignmentId);
             }
 
             return success;
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка проверки качества: " + e.getMessage());
+            LOG.e("❌ Ошибка проверки качества: {}", e.getMessage());
             return false;
+        } finally {
+            tracer.exit("checkAssignmentQuality", trace);
+        }
+    }
+
+    // === ПАКЕТНАЯ ПРОВЕРКА КАЧЕСТВА ===
+
+    public interface BatchProgressListener {
+        void onProgress(int done, int total);
+    }
+
+    // Все записи quality_checks и обновления assignments идут одной транзакцией
+    // через скомпилированные запросы; подписчики получат одно склеенное уведомление
+    public int checkAssignmentsQualityBatch(List<QualityCheck> checks, int checkerId, BatchProgressListener progressListener) {
+        long trace = tracer.enter("checkAssignmentsQualityBatch");
+        try {
+            int successCount = applyQualityChecks(checks, checkerId, progressListener);
+
+            LOG.d("✅ Пакетная проверка качества: {}/{}", successCount, checks.size());
+            return successCount;
+
+        } catch (Exception e) {
+            LOG.e("❌ Ошибка пакетной проверки качества: {}", e.getMessage());
+            return 0;
+        } finally {
+            tracer.exit("checkAssignmentsQualityBatch", trace);
         }
     }
+
+    private int applyQualityChecks(List<QualityCheck> checks, int checkerId, BatchProgressListener progressListener) {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement updateStatement = db.compileStatement(DatabaseContract.SQL_APPLY_QUALITY_CHECK);
+        SQLiteStatement insertStatement = db.compileStatement(DatabaseContract.SQL_INSERT_QUALITY_CHECK);
+        String checkDate = getCurrentDateTime();
+        List<Long> checkedAssignments = new ArrayList<>();
+        List<Long> insertedChecks = new ArrayList<>();
+
+        db.beginTransactionNonExclusive();
+        try {
+            for (int i = 0; i < checks.size(); i++) {
+                QualityCheck check = checks.get(i);
+
+                updateStatement.bindLong(1, check.approvedQuantity);
+                updateStatement.bindLong(2, check.defectsFound);
+                updateStatement.bindLong(3, check.assignmentId);
+                long start = System.nanoTime();
+                int rowsAffected = updateStatement.executeUpdateDelete();
+                tracer.query(DatabaseContract.SQL_APPLY_QUALITY_CHECK, System.nanoTime() - start,
+                        rowsAffected, rowsAffected);
+
+                if (rowsAffected > 0) {
+                    insertStatement.bindLong(1, check.assignmentId);
+                    insertStatement.bindLong(2, checkerId);
+                    insertStatement.bindString(3, check.approvedQuantity > 0 ? "approved" : "rejected");
+                    insertStatement.bindLong(4, check.defectsFound);
+                    if (check.notes != null) {
+                        insertStatement.bindString(5, check.notes);
+                    } else {
+                        insertStatement.bindNull(5);
+                    }
+                    insertStatement.bindString(6, checkDate);
+                    start = System.nanoTime();
+                    long checkId = insertStatement.executeInsert();
+                    tracer.query(DatabaseContract.SQL_INSERT_QUALITY_CHECK, System.nanoTime() - start,
+                            checkId != -1 ? 1 : 0, 0);
+                    if (checkId != -1) {
+                        checkedAssignments.add((long) check.assignmentId);
+                        insertedChecks.add(checkId);
+                    }
+                }
+
+                if (progressListener != null) {
+                    progressListener.onProgress(i + 1, checks.size());
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            updateStatement.close();
+            insertStatement.close();
+        }
+
+        if (!insertedChecks.isEmpty()) {
+            invalidateReads("assignments", "quality_checks");
+            for (int i = 0; i < insertedChecks.size(); i++) {
+                changeBus.publish("assignments", checkedAssignments.get(i));
+                changeBus.publish("quality_checks", insertedChecks.get(i));
+            }
+        }
+        return insertedChecks.size();
+    }
+
     // === МЕТОД ДЛЯ МАССОВОЙ ПРОВЕРКИ КАЧЕСТВА ===
+    // Одобряет все завершенные задания работника без проверки, не меняя сами задания.
+    // Выборка и вставки идут в одной транзакции, а вставка пропускает уже проверенные,
+    // поэтому одновременная массовая или одиночная проверка не дает дублей
     public boolean bulkCheckWorkerQuality(int workerId, int checkerId, String notes) {
         SQLiteDatabase db = getWritableDatabase();
 
+        long trace = tracer.enter("bulkCheckWorkerQuality");
         try {
-            // Находим все завершенные задания работника без проверки качества
-            Cursor cursor = db.rawQuery(
-                    "SELECT a.id, a.actual_quantity, a.defects " +
-                            "FROM assignments a " +
-                            "LEFT JOIN quality_checks qc ON a.id = qc.assignment_id " +
-                            "WHERE a.user_id = ? AND a.status = 'completed' AND qc.id IS NULL",
-                    new String[]{String.valueOf(workerId)}
-            );
-
-            int successCount = 0;
-            while (cursor.moveToNext()) {
-                int assignmentId = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
-                int actualQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("actual_quantity"));
-                int defects = cursor.getInt(cursor.getColumnIndexOrThrow("defects"));
-
-                ContentValues values = new ContentValues();
-                values.put("assignment_id", assignmentId);
-                values.put("inspector_id", checkerId);
-                values.put("result", "approved");
-                values.put("defects_found", defects);
-                values.put("comments", notes);
-                values.put("check_date", getCurrentDateTime());
-
-                long result = db.insert("quality_checks", null, values);
-                if (result != -1) {
-                    successCount++;
+            String checkDate = getCurrentDateTime();
+            List<Long> insertedChecks = new ArrayList<>();
+
+            db.beginTransactionNonExclusive();
+            SQLiteStatement insertStatement = null;
+            try {
+                // Находим все завершенные задания работника без проверки качества
+                Cursor cursor = db.rawQuery(DatabaseContract.SQL_WORKER_UNCHECKED_COMPLETED,
+                        new String[]{String.valueOf(workerId)});
+                int idIndex = cursor.getColumnIndexOrThrow("id");
+                int defectsIndex = cursor.getColumnIndexOrThrow("defects");
+                List<int[]> unchecked = new ArrayList<>();
+                while (cursor.moveToNext()) {
+                    unchecked.add(new int[]{cursor.getInt(idIndex), cursor.getInt(defectsIndex)});
+                }
+                cursor.close();
+
+                insertStatement = db.compileStatement(DatabaseContract.SQL_INSERT_BULK_QUALITY_CHECK);
+                for (int[] assignment : unchecked) {
+                    insertStatement.bindLong(1, assignment[0]);
+                    insertStatement.bindLong(2, checkerId);
+                    insertStatement.bindLong(3, assignment[1]);
+                    if (notes != null) {
+                        insertStatement.bindString(4, notes);
+                    } else {
+                        insertStatement.bindNull(4);
+                    }
+                    insertStatement.bindString(5, checkDate);
+                    long start = System.nanoTime();
+                    long checkId = insertStatement.executeInsert();
+                    tracer.query(DatabaseContract.SQL_INSERT_BULK_QUALITY_CHECK, System.nanoTime() - start,
+                            checkId != -1 ? 1 : 0, 1);
+                    if (checkId != -1) {
+                        insertedChecks.add(checkId);
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                if (insertStatement != null) {
+                    insertStatement.close();
                 }
             }
-            cursor.close();
 
-            boolean success = successCount > 0;
-            if (success && onDataChangedListener != null) {
-                onDataChangedListener.onQualityCheckPerformed(-1);
+            if (!insertedChecks.isEmpty()) {
+                invalidateReads("quality_checks");
+                for (long checkId : insertedChecks) {
+                    changeBus.publish("quality_checks", checkId);
+                }
             }
 
-            Log.d("DatabaseHelper", "✅ Массовая проверка: " + successCount + " заданий работника " + workerId);
+            LOG.d("✅ Массовая проверка: {} заданий работника {}", insertedChecks.size(), workerId);
 
-            return success;
+            return !insertedChecks.isEmpty();
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка массовой проверки: " + e.getMessage());
+            LOG.e("❌ Ошибка массовой проверки: {}", e.getMessage());
             return false;
+        } finally {
+            tracer.exit("bulkCheckWorkerQuality", trace);
         }
     }
 
@@ -814,16 +1016,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = getReadableDatabase();
         QualityStats stats = new QualityStats();
 
+        long trace = tracer.enter("getQualityStats");
         try {
-            String query = "SELECT " +
-                    "COUNT(*) as total_assignments, " +
-                    "SUM(CASE WHEN qc.id IS NOT NULL THEN 1 ELSE 0 END) as checked_assignments, " +
-                    "SUM(a.actual_quantity) as total_completed, " +
-                    "SUM(a.defects) as total_defects, " +
-                    "COUNT(DISTINCT a.user_id) as total_workers " +
-                    "FROM assignments a " +
-                    "LEFT JOIN quality_checks qc ON a.id = qc.assignment_id " +
-                    "WHERE a.status = 'completed'";
+            String query = DatabaseContract.SQL_QUALITY_TOTALS;
 
             Cursor cursor = db.rawQuery(query, null);
             if (cursor.moveToFirst()) {
@@ -837,11 +1032,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
             stats.workerStats = getWorkersQualityStats();
 
-            Log.d("DatabaseHelper", "📊 Статистика качества: " + stats.checkedAssignments +
-                    "/" + stats.totalAssignments + " проверено");
+            LOG.d("📊 Статистика качества: {}/{} проверено", stats.checkedAssignments, stats.totalAssignments);
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения статистики качества: " + e.getMessage());
+            LOG.e("❌ Ошибка получения статистики качества: {}", e.getMessage());
+        } finally {
+            tracer.exit("getQualityStats", trace);
         }
         return stats;
     }
@@ -851,17 +1047,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         List<WorkerQualityStats> workerStats = new ArrayList<>();
 
         try {
-            String query = "SELECT u.id, u.name, u.position, " +
-                    "COUNT(a.id) as total_assignments, " +
-                    "SUM(CASE WHEN qc.id IS NOT NULL THEN 1 ELSE 0 END) as checked_assignments, " +
-                    "SUM(a.actual_quantity) as total_completed, " +
-                    "SUM(a.defects) as total_defects " +
-                    "FROM users u " +
-                    "LEFT JOIN assignments a ON u.id = a.user_id " +
-                    "LEFT JOIN quality_checks qc ON a.id = qc.assignment_id " +
-                    "WHERE u.role = 'worker' AND a.status = 'completed' " +
-                    "GROUP BY u.id, u.name, u.position " +
-                    "ORDER BY total_completed DESC";
+            String query = DatabaseContract.SQL_WORKERS_QUALITY;
 
             Cursor cursor = db.rawQuery(query, null);
             while (cursor.moveToNext()) {
@@ -879,21 +1065,44 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             cursor.close();
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения статистики работников: " + e.getMessage());
+            LOG.e("❌ Ошибка получения статистики работников: {}", e.getMessage());
         }
         return workerStats;
     }
 
-    // === ИНТЕРФЕЙС ДЛЯ ОБНОВЛЕНИЯ UI ===
-    public interface OnDataChangedListener {
-        void onWorkerStatsUpdated(int userId, WorkerStats stats);
-        void onAssignmentsUpdated(int userId, List<Assignment> assignments);
-        void onQualityCheckPerformed(int assignmentId);
-        void onAssignmentStatusChanged(int assignmentId, String newStatus);
+    // === УВЕДОМЛЕНИЯ ОБ ИЗМЕНЕНИИ ДАННЫХ ===
+
+    // Подписчик получает склеенные за CHANGE_WINDOW_MS изменения своих таблиц
+    // в фоновом потоке и сам решает, что перечитать
+    void subscribe(DataChangeBus.Subscriber subscriber, String... tables) {
+        changeBus.subscribe(subscriber, tables);
+    }
+
+    void unsubscribe(DataChangeBus.Subscriber subscriber) {
+        changeBus.unsubscribe(subscriber);
+    }
+
+    // Вызываются после успешной записи: сбрасывают кэш запросов и ставят событие в шину
+    private void onRowChanged(String table, long rowId) {
+        invalidateReads(table);
+        changeBus.publish(table, rowId);
+    }
+
+    private void onTablesChanged(String... tables) {
+        invalidateReads(tables);
+        changeBus.publish(tables);
+    }
+
+    // Кэш забывает прочитанное из этих таблиц, а идущие загрузки снимков
+    // больше не принимают новых ждущих: следующий вызов перечитает БД
+    private void invalidateReads(String... tables) {
+        queryCache.invalidate(tables);
+        snapshotLoads.invalidate(tables);
     }
 
-    public void setOnDataChangedListener(OnDataChangedListener listener) {
-        this.onDataChangedListener = listener;
+    private void invalidateReads(String table) {
+        queryCache.invalidate(table);
+        snapshotLoads.invalidate(table);
     }
 
     // === МЕТОДЫ ДЛЯ MASTER DASHBOARD ===
@@ -902,37 +1111,16 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = getReadableDatabase();
         List<Assignment> assignments = new ArrayList<>();
 
+        long trace = tracer.enter("getBrigadeActiveAssignments");
         try {
-            String query = "SELECT a.id, o.name as operation_name, u.name as worker_name, " +
-                    "a.planned_quantity, a.actual_quantity, a.defects, a.status, " +
-                    "p.name as product_name, a.start_time " +
-                    "FROM assignments a " +
-                    "JOIN users u ON a.user_id = u.id " +
-                    "JOIN operations o ON a.operation_id = o.id " +
-                    "LEFT JOIN products p ON o.product_id = p.id " +
-                    "JOIN orders ord ON a.order_id = ord.id " +
-                    "WHERE u.brigade = ? AND a.status IN ('assigned', 'in_progress') " +
-                    "ORDER BY a.created_at DESC LIMIT 10";
-
-            Cursor cursor = db.rawQuery(query, new String[]{brigade});
-            while (cursor.moveToNext()) {
-                Assignment assignment = new Assignment();
-                assignment.id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
-                assignment.operationName = cursor.getString(cursor.getColumnIndexOrThrow("operation_name"));
-                assignment.productName = cursor.getString(cursor.getColumnIndexOrThrow("worker_name"));
-                assignment.plannedQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("planned_quantity"));
-                assignment.actualQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("actual_quantity"));
-                assignment.defects = cursor.getInt(cursor.getColumnIndexOrThrow("defects"));
-                assignment.status = cursor.getString(cursor.getColumnIndexOrThrow("status"));
-                assignment.startTime = cursor.getString(cursor.getColumnIndexOrThrow("start_time"));
-                assignments.add(assignment);
-            }
-            cursor.close();
+            assignments = readBrigadeAssignments(db, DatabaseContract.SQL_BRIGADE_ACTIVE_ASSIGNMENTS, brigade);
 
-            Log.d("DatabaseHelper", "✅ Найдено активных заданий для бригады " + brigade + ": " + assignments.size());
+            LOG.d("✅ Найдено активных заданий для бригады {}: {}", brigade, assignments.size());
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения активных заданий бригады: " + e.getMessage());
+            LOG.e("❌ Ошибка получения активных заданий бригады: {}", e.getMessage());
+        } finally {
+            tracer.exit("getBrigadeActiveAssignments", trace);
         }
         return assignments;
     }
@@ -941,139 +1129,278 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = getReadableDatabase();
         List<Assignment> assignments = new ArrayList<>();
 
+        long trace = tracer.enter("getBrigadeRecentCompleted");
         try {
-            String query = "SELECT a.id, o.name as operation_name, u.name as worker_name, " +
-                    "a.planned_quantity, a.actual_quantity, a.defects, a.status, " +
-                    "p.name as product_name, a.end_time " +
-                    "FROM assignments a " +
-                    "JOIN users u ON a.user_id = u.id " +
-                    "JOIN operations o ON a.operation_id = o.id " +
-                    "LEFT JOIN products p ON o.product_id = p.id " +
-                    "JOIN orders ord ON a.order_id = ord.id " +
-                    "WHERE u.brigade = ? AND a.status = 'completed' " +
-                    "ORDER BY a.end_time DESC LIMIT 10";
-
-            Cursor cursor = db.rawQuery(query, new String[]{brigade});
-            while (cursor.moveToNext()) {
-                Assignment assignment = new Assignment();
-                assignment.id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
-                assignment.operationName = cursor.getString(cursor.getColumnIndexOrThrow("operation_name"));
-                assignment.productName = cursor.getString(cursor.getColumnIndexOrThrow("worker_name"));
-                assignment.plannedQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("planned_quantity"));
-                assignment.actualQuantity = cursor.getInt(cursor.getColumnIndexOrThrow("actual_quantity"));
-                assignment.defects = cursor.getInt(cursor.getColumnIndexOrThrow("defects"));
-                assignment.status = cursor.getString(cursor.getColumnIndexOrThrow("status"));
-                assignment.endTime = cursor.getString(cursor.getColumnIndexOrThrow("end_time"));
-                assignments.add(assignment);
-            }
-            cursor.close();
+            assignments = readBrigadeAssignments(db, DatabaseContract.SQL_BRIGADE_RECENT_COMPLETED, brigade);
 
-            Log.d("DatabaseHelper", "✅ Найдено выполненных заданий для бригады " + brigade + ": " + assignments.size());
+            LOG.d("✅ Найдено выполненных заданий для бригады {}: {}", brigade, assignments.size());
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения выполненных заданий бригады: " + e.getMessage());
+            LOG.e("❌ Ошибка получения выполненных заданий бригады: {}", e.getMessage());
+        } finally {
+            tracer.exit("getBrigadeRecentCompleted", trace);
         }
         return assignments;
     }
 
     public List<Assignment> getAvailableOperations() {
+        List<Assignment> operations = queryCache.get("operations", new String[]{"operations"},
+                this::loadAvailableOperations);
+        return operations != null ? operations : new ArrayList<>();
+    }
+
+    // Загрузчики для queryCache возвращают null при ошибке, чтобы она не закэшировалась
+    private List<Assignment> loadAvailableOperations() {
         SQLiteDatabase db = getReadableDatabase();
         List<Assignment> operations = new ArrayList<>();
 
+        long trace = tracer.enter("getAvailableOperations");
         try {
-            String query = "SELECT id, name as operation_name, standard_time_minutes as standard_time " +
-                    "FROM operations ORDER BY sequence_order, name";
+            String query = DatabaseContract.SQL_OPERATIONS;
 
             Cursor cursor = db.rawQuery(query, null);
+            RowMappers.AssignmentMapper mapper = new RowMappers.AssignmentMapper(cursor);
             while (cursor.moveToNext()) {
-                Assignment operation = new Assignment();
-                operation.id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
-                operation.operationName = cursor.getString(cursor.getColumnIndexOrThrow("operation_name"));
-                operation.standardTime = cursor.getInt(cursor.getColumnIndexOrThrow("standard_time"));
-                operations.add(operation);
+                operations.add(mapper.map(cursor));
             }
             cursor.close();
 
-            Log.d("DatabaseHelper", "✅ Найдено доступных операций: " + operations.size());
+            LOG.d("✅ Найдено доступных операций: {}", operations.size());
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения операций: " + e.getMessage());
+            LOG.e("❌ Ошибка получения операций: {}", e.getMessage());
+            return null;
+        } finally {
+            tracer.exit("getAvailableOperations", trace);
         }
-        return operations;
+        return Collections.unmodifiableList(operations);
     }
 
     public List<Worker> getBrigadeWorkers(String brigade) {
+        List<Worker> workers = queryCache.get("brigade_workers:" + brigade, new String[]{"users", "worker_stats"},
+                () -> loadBrigadeWorkers(brigade));
+        return workers != null ? workers : new ArrayList<>();
+    }
+
+    private List<Worker> loadBrigadeWorkers(String brigade) {
         SQLiteDatabase db = getReadableDatabase();
-        List<Worker> workers = new ArrayList<>();
 
+        long trace = tracer.enter("getBrigadeWorkers");
         try {
-            String query = "SELECT u.id, u.name, u.position, " +
-                    "COALESCE(SUM(a.actual_quantity), 0) as completed " +
-                    "FROM users u " +
-                    "LEFT JOIN assignments a ON u.id = a.user_id " +
-                    "WHERE u.brigade = ? AND u.role = 'worker' " +
-                    "GROUP BY u.id, u.name, u.position " +
-                    "ORDER BY completed DESC LIMIT 5";
-
-            Cursor cursor = db.rawQuery(query, new String[]{brigade});
-            while (cursor.moveToNext()) {
-                Worker worker = new Worker();
-                worker.id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
-                worker.name = cursor.getString(cursor.getColumnIndexOrThrow("name"));
-                worker.position = cursor.getString(cursor.getColumnIndexOrThrow("position"));
-                worker.completed = cursor.getInt(cursor.getColumnIndexOrThrow("completed"));
-                workers.add(worker);
-            }
-            cursor.close();
+            List<Worker> workers = readBrigadeWorkers(db, brigade);
 
-            Log.d("DatabaseHelper", "✅ Найдено работников бригады " + brigade + ": " + workers.size());
+            LOG.d("✅ Найдено работников бригады {}: {}", brigade, workers.size());
+            return Collections.unmodifiableList(workers);
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения работников: " + e.getMessage());
+            LOG.e("❌ Ошибка получения работников: {}", e.getMessage());
+            return null;
+        } finally {
+            tracer.exit("getBrigadeWorkers", trace);
+        }
+    }
+
+    private List<Worker> readBrigadeWorkers(SQLiteDatabase db, String brigade) {
+        List<Worker> workers = new ArrayList<>();
+
+        Cursor cursor = db.rawQuery(DatabaseContract.SQL_BRIGADE_TOP_WORKERS, new String[]{brigade});
+        RowMappers.WorkerMapper mapper = new RowMappers.WorkerMapper(cursor);
+        while (cursor.moveToNext()) {
+            workers.add(mapper.map(cursor));
         }
+        cursor.close();
         return workers;
     }
 
+    private List<Assignment> readBrigadeAssignments(SQLiteDatabase db, String query, String brigade) {
+        List<Assignment> assignments = new ArrayList<>();
+
+        Cursor cursor = db.rawQuery(query, new String[]{brigade});
+        RowMappers.AssignmentMapper mapper = new RowMappers.AssignmentMapper(cursor, "worker_name");
+        while (cursor.moveToNext()) {
+            assignments.add(mapper.map(cursor));
+        }
+        cursor.close();
+        return assignments;
+    }
+
+    // Экран кладовщика читает только готовые значения: current_stock и расход по дням
+    // ведет триггер журнала, а список низкого запаса лежит в частичном индексе
     public StorekeeperStats getStorekeeperStats() {
         SQLiteDatabase db = getReadableDatabase();
         StorekeeperStats stats = new StorekeeperStats();
 
+        long trace = tracer.enter("getStorekeeperStats");
         try {
-            String query = "SELECT name, unit, current_stock, min_stock " +
-                    "FROM materials WHERE current_stock <= min_stock " +
-                    "ORDER BY current_stock ASC LIMIT 5";
+            String query = DatabaseContract.SQL_LOW_STOCK_MATERIALS;
 
             Cursor cursor = db.rawQuery(query, null);
+            RowMappers.MaterialMapper mapper = new RowMappers.MaterialMapper(cursor);
             while (cursor.moveToNext()) {
-                Material material = new Material();
-                material.name = cursor.getString(cursor.getColumnIndexOrThrow("name"));
-                material.unit = cursor.getString(cursor.getColumnIndexOrThrow("unit"));
-                material.currentStock = cursor.getDouble(cursor.getColumnIndexOrThrow("current_stock"));
-                material.minStock = cursor.getDouble(cursor.getColumnIndexOrThrow("min_stock"));
-                stats.lowStockMaterials.add(material);
+                stats.lowStockMaterials.add(mapper.map(cursor));
             }
             cursor.close();
 
             stats.recentUsage = getRecentMaterialUsage();
 
-            Log.d("DatabaseHelper", "✅ Статистика кладовщика: материалов с низким запасом - " + stats.lowStockMaterials.size());
+            LOG.d("✅ Статистика кладовщика: материалов с низким запасом - {}",
+                    stats.lowStockMaterials.size());
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения статистики кладовщика: " + e.getMessage());
+            LOG.e("❌ Ошибка получения статистики кладовщика: {}", e.getMessage());
+            return null;
+        } finally {
+            tracer.exit("getStorekeeperStats", trace);
         }
         return stats;
     }
 
+    // Экран кладовщика перечитывается после каждого движения по складу
+    LiveQuery<StorekeeperStats> observeStorekeeperStats() {
+        return new LiveQuery<>(changeBus, BackgroundTasks.get().readExecutor(), STOREKEEPER_TABLES,
+                this::getStorekeeperStats);
+    }
+
+    public List<Material> getMaterials() {
+        List<Material> materials = queryCache.get("materials", new String[]{"materials"}, this::loadMaterials);
+        return materials != null ? materials : new ArrayList<>();
+    }
+
+    private List<Material> loadMaterials() {
+        SQLiteDatabase db = getReadableDatabase();
+        List<Material> materials = new ArrayList<>();
+
+        long trace = tracer.enter("getMaterials");
+        try {
+            Cursor cursor = db.rawQuery(DatabaseContract.SQL_MATERIALS, null);
+            RowMappers.MaterialMapper mapper = new RowMappers.MaterialMapper(cursor);
+            while (cursor.moveToNext()) {
+                materials.add(mapper.map(cursor));
+            }
+            cursor.close();
+
+        } catch (Exception e) {
+            LOG.e("❌ Ошибка получения материалов: {}", e.getMessage());
+            return null;
+        } finally {
+            tracer.exit("getMaterials", trace);
+        }
+        return Collections.unmodifiableList(materials);
+    }
+
+    // === ДВИЖЕНИЯ МАТЕРИАЛОВ ===
+
+    public boolean receiveMaterial(int materialId, double quantity, int userId, String note) {
+        if (quantity <= 0) {
+            LOG.e("❌ Количество прихода должно быть больше нуля: {}", quantity);
+            return false;
+        }
+        return recordStockMovement(materialId, DatabaseContract.STOCK_RECEIPT, quantity, null, userId, note);
+    }
+
+    // Выдача в производство; больше, чем лежит на складе, выдать нельзя
+    public boolean issueMaterial(int materialId, double quantity, Integer orderId, int userId) {
+        if (quantity <= 0) {
+            LOG.e("❌ Количество выдачи должно быть больше нуля: {}", quantity);
+            return false;
+        }
+        return recordStockMovement(materialId, DatabaseContract.STOCK_CONSUMPTION, -quantity, orderId, userId, null);
+    }
+
+    // Инвентаризация: журнал получает разницу между посчитанным и учетным остатком
+    public boolean adjustStockTo(int materialId, double countedQuantity, int userId, String note) {
+        if (countedQuantity < 0) {
+            LOG.e("❌ Остаток не может быть отрицательным: {}", countedQuantity);
+            return false;
+        }
+        return recordStockMovement(materialId, DatabaseContract.STOCK_ADJUSTMENT, countedQuantity, null, userId, note);
+    }
+
+    // Для поправки quantity - посчитанный остаток, для остальных видов - изменение со знаком.
+    // Учетный остаток читается в той же транзакции, что и запись движения
+    private boolean recordStockMovement(int materialId, String kind, double quantity, Integer orderId,
+                                        int userId, String note) {
+        SQLiteDatabase db = getWritableDatabase();
+        long movementId;
+
+        db.beginTransactionNonExclusive();
+        long trace = tracer.enter("recordStockMovement");
+        try {
+            Cursor cursor = db.rawQuery(DatabaseContract.SQL_MATERIAL_STOCK, new String[]{String.valueOf(materialId)});
+            if (!cursor.moveToFirst()) {
+                cursor.close();
+                LOG.e("❌ Материал не найден: {}", materialId);
+                return false;
+            }
+            double stock = cursor.getDouble(0);
+            cursor.close();
+
+            double change = DatabaseContract.STOCK_ADJUSTMENT.equals(kind) ? quantity - stock : quantity;
+            if (change == 0) {
+                LOG.d("📦 Остаток материала {} совпадает с учетным", materialId);
+                db.setTransactionSuccessful();
+                return true;
+            }
+            if (stock + change < 0) {
+                LOG.e(Logger.format("❌ Недостаточно материала {}: на складе {}, требуется {}",
+                        materialId, stock, -change));
+                return false;
+            }
+
+            ContentValues values = new ContentValues();
+            values.put("material_id", materialId);
+            values.put("kind", kind);
+            values.put("quantity", change);
+            values.put("created_at", getCurrentDateTime());
+            if (orderId != null) {
+                values.put("order_id", orderId);
+            }
+            values.put("user_id", userId);
+            if (note != null) {
+                values.put("note", note);
+            }
+            movementId = db.insertOrThrow("stock_movements", null, values);
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            LOG.e("❌ Ошибка записи движения материала: {}", e.getMessage());
+            return false;
+        } finally {
+            db.endTransaction();
+            tracer.exit("recordStockMovement", trace);
+        }
+
+        onRowChanged("stock_movements", movementId);
+        LOG.d("📦 Движение материала {} ({}): {}", materialId, kind, quantity);
+        return true;
+    }
+
+    // Остаток на момент времени (yyyy-MM-dd HH:mm:ss): снимок на начало дня плюс движения после него.
+    // -1 при ошибке
+    public double getStockAt(int materialId, String dateTime) {
+        SQLiteDatabase db = getReadableDatabase();
+
+        long trace = tracer.enter("getStockAt");
+        try {
+            Cursor cursor = db.rawQuery(DatabaseContract.SQL_STOCK_AT,
+                    new String[]{String.valueOf(materialId), dateTime});
+            double balance = cursor.moveToFirst() ? cursor.getDouble(0) : 0;
+            cursor.close();
+            return balance;
+        } catch (Exception e) {
+            LOG.e("❌ Ошибка получения остатка на дату: {}", e.getMessage());
+            return -1;
+        } finally {
+            tracer.exit("getStockAt", trace);
+        }
+    }
+
     public ManagerStats getManagerStats() {
         SQLiteDatabase db = getReadableDatabase();
         ManagerStats stats = new ManagerStats();
 
+        long trace = tracer.enter("getManagerStats");
         try {
-            String ordersQuery = "SELECT " +
-                    "COUNT(*) as total_orders, " +
-                    "SUM(CASE WHEN status = 'completed' THEN 1 ELSE 0 END) as completed_orders, " +
-                    "SUM(CASE WHEN status = 'in_progress' THEN 1 ELSE 0 END) as in_progress_orders " +
-                    "FROM orders";
+            String ordersQuery = DatabaseContract.SQL_ORDER_COUNTS;
 
             Cursor cursor = db.rawQuery(ordersQuery, null);
             if (cursor.moveToFirst()) {
@@ -1083,31 +1410,101 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             }
             cursor.close();
 
+            // Готовность по сделанным операциям, а не по статусу заказа
+            cursor = db.rawQuery(DatabaseContract.SQL_ACTIVE_ORDERS_PROGRESS, null);
+            if (cursor.moveToFirst()) {
+                stats.activeDoneUnits = cursor.getLong(0);
+                stats.activeTotalUnits = cursor.getLong(1);
+            }
+            cursor.close();
+
             stats.brigadePerformance = getBrigadePerformance();
 
-            Log.d("DatabaseHelper", "✅ Статистика менеджера: заказов - " + stats.totalOrders +
-                    ", выполнено - " + stats.completedOrders);
+            LOG.d("✅ Статистика менеджера: заказов - {}, выполнено - {}, готовность в работе - {}%",
+                    stats.totalOrders, stats.completedOrders, stats.getActiveProgressPercent());
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения статистики менеджера: " + e.getMessage());
+            LOG.e("❌ Ошибка получения статистики менеджера: {}", e.getMessage());
+            return null;
+        } finally {
+            tracer.exit("getManagerStats", trace);
         }
         return stats;
     }
 
+    // Экран менеджера перечитывается после записей в заказы и задания
+    LiveQuery<ManagerStats> observeManagerStats() {
+        return new LiveQuery<>(changeBus, BackgroundTasks.get().readExecutor(), MANAGER_TABLES,
+                this::getManagerStats);
+    }
+
+    public List<OrderProgress> getOrderProgress() {
+        SQLiteDatabase db = getReadableDatabase();
+        List<OrderProgress> orders = new ArrayList<>();
+
+        long trace = tracer.enter("getOrderProgress");
+        try {
+            Cursor cursor = db.rawQuery(DatabaseContract.SQL_ORDER_PROGRESS, null);
+            while (cursor.moveToNext()) {
+                OrderProgress order = new OrderProgress();
+                order.orderId = cursor.getInt(0);
+                order.orderNumber = cursor.getString(1);
+                order.quantity = cursor.getInt(2);
+                order.stages = cursor.getInt(3);
+                order.doneUnits = cursor.getLong(4);
+                order.finished = cursor.getInt(5);
+                orders.add(order);
+            }
+            cursor.close();
+
+        } catch (Exception e) {
+            LOG.e("❌ Ошибка получения хода выполнения заказов: {}", e.getMessage());
+        } finally {
+            tracer.exit("getOrderProgress", trace);
+        }
+        return orders;
+    }
+
+    public List<StageProgress> getStageProgress() {
+        SQLiteDatabase db = getReadableDatabase();
+        List<StageProgress> stages = new ArrayList<>();
+
+        long trace = tracer.enter("getStageProgress");
+        try {
+            Cursor cursor = db.rawQuery(DatabaseContract.SQL_STAGE_PROGRESS, null);
+            while (cursor.moveToNext()) {
+                StageProgress stage = new StageProgress();
+                stage.sequenceOrder = cursor.getInt(0);
+                // У разных изделий на одном этапе разные операции
+                stage.name = cursor.getInt(2) == 1 ? cursor.getString(1) : null;
+                stage.completed = cursor.getLong(3);
+                stage.waiting = cursor.getLong(4);
+                stages.add(stage);
+            }
+            cursor.close();
+
+        } catch (Exception e) {
+            LOG.e("❌ Ошибка получения загрузки этапов: {}", e.getMessage());
+        } finally {
+            tracer.exit("getStageProgress", trace);
+        }
+        return stages;
+    }
+
     // Вспомогательные методы
     private String getRecentMaterialUsage() {
         SQLiteDatabase db = getReadableDatabase();
         StringBuilder usage = new StringBuilder();
 
         try {
-            String query = "SELECT m.name, SUM(mu.quantity_used) as total_used, m.unit " +
-                    "FROM material_usage mu " +
-                    "JOIN materials m ON mu.material_id = m.id " +
-                    "WHERE mu.usage_date >= date('now', '-7 days') " +
-                    "GROUP BY m.name, m.unit " +
-                    "ORDER BY total_used DESC LIMIT 3";
+            String query = DatabaseContract.SQL_RECENT_MATERIAL_USAGE;
 
-            Cursor cursor = db.rawQuery(query, null);
+            // Неделя считая сегодня, в локальном времени, как и время движений
+            Calendar calendar = Calendar.getInstance();
+            calendar.add(Calendar.DAY_OF_YEAR, -6);
+            String weekStart = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(calendar.getTime());
+
+            Cursor cursor = db.rawQuery(query, new String[]{weekStart});
             usage.append("За неделю: ");
             boolean first = true;
 
@@ -1129,7 +1526,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             }
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения использования материалов: " + e.getMessage());
+            LOG.e("❌ Ошибка получения использования материалов: {}", e.getMessage());
             usage.append("ошибка загрузки данных");
         }
 
@@ -1141,13 +1538,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         StringBuilder performance = new StringBuilder();
 
         try {
-            String query = "SELECT u.brigade, " +
-                    "COALESCE(SUM(a.actual_quantity), 0) as completed, " +
-                    "COALESCE(SUM(a.defects), 0) as defects " +
-                    "FROM assignments a " +
-                    "JOIN users u ON a.user_id = u.id " +
-                    "WHERE u.brigade IS NOT NULL AND u.brigade != '' " +
-                    "GROUP BY u.brigade";
+            String query = DatabaseContract.SQL_BRIGADE_PERFORMANCE;
 
             Cursor cursor = db.rawQuery(query, null);
             while (cursor.moveToNext()) {
@@ -1168,7 +1559,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             cursor.close();
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения производительности бригад: " + e.getMessage());
+            LOG.e("❌ Ошибка получения производительности бригад: {}", e.getMessage());
             return "ошибка загрузки данных";
         }
 
@@ -1176,47 +1567,56 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     }
 
     // === ДАННЫЕ ДЛЯ MASTER ===
-    public MasterStats getMasterStats(int userId, String brigade) {
+
+    // Шапка, лучшие работники и активные задания бригады в одной транзакции, как и снимок работника.
+    // Если бригада не передана, она берется из профиля мастера тем же запросом
+    public MasterSnapshot getMasterSnapshot(int userId, String brigade) {
+        return snapshotLoads.get("master:" + userId + ":" + brigade, MASTER_SNAPSHOT_TABLES,
+                () -> loadMasterSnapshot(userId, brigade));
+    }
+
+    LiveQuery<MasterSnapshot> observeMasterSnapshot(int userId, String brigade) {
+        return new LiveQuery<>(changeBus, BackgroundTasks.get().readExecutor(), MASTER_SNAPSHOT_TABLES,
+                () -> getMasterSnapshot(userId, brigade));
+    }
+
+    private MasterSnapshot loadMasterSnapshot(int userId, String brigade) {
         SQLiteDatabase db = getReadableDatabase();
-        MasterStats stats = new MasterStats();
+        MasterSnapshot snapshot = new MasterSnapshot();
 
+        db.beginTransactionNonExclusive();
+        long trace = tracer.enter("getMasterSnapshot");
         try {
-            if (brigade == null || brigade.isEmpty()) {
-                Cursor userCursor = db.rawQuery("SELECT brigade FROM users WHERE id = ?",
-                        new String[]{String.valueOf(userId)});
-                if (userCursor.moveToFirst()) {
-                    brigade = userCursor.getString(0);
-                }
-                userCursor.close();
-            }
-
-            if (brigade != null && !brigade.isEmpty()) {
-                String query = "SELECT " +
-                        "COUNT(DISTINCT a.user_id) as workers_count, " +
-                        "COALESCE(SUM(a.actual_quantity), 0) as total_completed, " +
-                        "COALESCE(SUM(a.defects), 0) as total_defects " +
-                        "FROM assignments a " +
-                        "JOIN users u ON a.user_id = u.id " +
-                        "WHERE u.brigade = ?";
-
-                Cursor cursor = db.rawQuery(query, new String[]{brigade});
-                if (cursor.moveToFirst()) {
-                    stats.workersCount = cursor.getInt(0);
-                    stats.totalCompleted = cursor.getInt(1);
-                    stats.totalDefects = cursor.getInt(2);
-                }
-                cursor.close();
+            Cursor cursor = db.rawQuery(DatabaseContract.SQL_MASTER_SNAPSHOT,
+                    new String[]{brigade != null ? brigade : "", String.valueOf(userId)});
+            if (cursor.moveToFirst()) {
+                snapshot.brigade = cursor.getString(0);
+                snapshot.stats.workersCount = cursor.getInt(1);
+                snapshot.stats.totalCompleted = cursor.getInt(2);
+                snapshot.stats.totalDefects = cursor.getInt(3);
+            }
+            cursor.close();
 
-                stats.workers = getBrigadeWorkers(brigade);
+            if (snapshot.brigade != null && !snapshot.brigade.isEmpty()) {
+                snapshot.stats.workers = readBrigadeWorkers(db, snapshot.brigade);
+                snapshot.activeAssignments = readBrigadeAssignments(db,
+                        DatabaseContract.SQL_BRIGADE_ACTIVE_ASSIGNMENTS, snapshot.brigade);
             }
+            db.setTransactionSuccessful();
 
-            Log.d("DatabaseHelper", "📊 Статистика master " + userId + ": workers=" + stats.workersCount +
-                    ", completed=" + stats.totalCompleted + ", defects=" + stats.totalDefects);
+            if (Logger.DEBUG_ENABLED) {
+                LOG.d(Logger.format("📊 Снимок master {}: workers={}, completed={}, defects={}, active={}",
+                        userId, snapshot.stats.workersCount, snapshot.stats.totalCompleted,
+                        snapshot.stats.totalDefects, snapshot.activeAssignments.size()));
+            }
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения статистики master: " + e.getMessage());
+            LOG.e("❌ Ошибка получения снимка master: {}", e.getMessage());
+        } finally {
+            db.endTransaction();
+            tracer.exit("getMasterSnapshot", trace);
         }
-        return stats;
+        return snapshot;
     }
 
     // === МЕТОДЫ ДЛЯ НАЗНАЧЕНИЯ ЗАДАНИЙ ===
@@ -1224,6 +1624,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public boolean assignTaskToWorker(int workerId, int operationId, int orderId, int plannedQuantity) {
         SQLiteDatabase db = getWritableDatabase();
 
+        long trace = tracer.enter("assignTaskToWorker");
         try {
             ContentValues values = new ContentValues();
             values.put("user_id", workerId);
@@ -1235,60 +1636,160 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
             long result = db.insert("assignments", null, values);
             boolean success = result != -1;
-
-            // Уведомляем о новом задании
-            if (success && onDataChangedListener != null) {
-                onDataChangedListener.onAssignmentsUpdated(workerId, getAvailableAssignments(workerId));
-                onDataChangedListener.onWorkerStatsUpdated(workerId, getWorkerStats(workerId));
+            if (success) {
+                onRowChanged("assignments", result);
             }
 
-            Log.d("DatabaseHelper", "✅ Назначение задания worker " + workerId +
-                    ", operation " + operationId + ": " + (success ? "успешно" : "ошибка"));
+            LOG.d("✅ Назначение задания worker {}, operation {}: {}", workerId, operationId,
+                    success ? "успешно" : "ошибка");
 
             return success;
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка назначения задания: " + e.getMessage());
+            LOG.e("❌ Ошибка назначения задания: {}", e.getMessage());
             return false;
+        } finally {
+            tracer.exit("assignTaskToWorker", trace);
         }
     }
 
     public List<Order> getActiveOrders() {
+        List<Order> orders = queryCache.get("active_orders", new String[]{"orders"}, this::loadActiveOrders);
+        return orders != null ? orders : new ArrayList<>();
+    }
+
+    private List<Order> loadActiveOrders() {
         SQLiteDatabase db = getReadableDatabase();
         List<Order> orders = new ArrayList<>();
 
+        long trace = tracer.enter("getActiveOrders");
         try {
-            String query = "SELECT id, order_number, customer_name, product_id, quantity, status " +
-                    "FROM orders WHERE status IN ('new', 'in_progress') " +
-                    "ORDER BY priority DESC, deadline ASC";
+            String query = DatabaseContract.SQL_ACTIVE_ORDERS;
 
             Cursor cursor = db.rawQuery(query, null);
+            RowMappers.OrderMapper mapper = new RowMappers.OrderMapper(cursor);
             while (cursor.moveToNext()) {
-                Order order = new Order();
-                order.id = cursor.getInt(cursor.getColumnIndexOrThrow("id"));
-                order.orderNumber = cursor.getString(cursor.getColumnIndexOrThrow("order_number"));
-                order.customerName = cursor.getString(cursor.getColumnIndexOrThrow("customer_name"));
-                order.productId = cursor.getInt(cursor.getColumnIndexOrThrow("product_id"));
-                order.quantity = cursor.getInt(cursor.getColumnIndexOrThrow("quantity"));
-                order.status = cursor.getString(cursor.getColumnIndexOrThrow("status"));
-                orders.add(order);
+                orders.add(mapper.map(cursor));
             }
             cursor.close();
 
-            Log.d("DatabaseHelper", "✅ Найдено активных заказов: " + orders.size());
+            LOG.d("✅ Найдено активных заказов: {}", orders.size());
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения активных заказов: " + e.getMessage());
+            LOG.e("❌ Ошибка получения активных заказов: {}", e.getMessage());
+            return null;
+        } finally {
+            tracer.exit("getActiveOrders", trace);
         }
-        return orders;
+        return Collections.unmodifiableList(orders);
+    }
+
+    // Страница очереди активных заказов; mode - DatabaseContract.QUEUE_BY_*. Первые N заказов -
+    // первая страница размера N (after = null). Следующие страницы продолжают с ключа последней
+    // строки предыдущей, а в режиме по запасу времени еще и с того же момента времени,
+    // чтобы заказы не перескакивали между страницами
+    public OrderQueuePage getOrderQueuePage(String mode, OrderQueuePage after, int pageSize) {
+        SQLiteDatabase db = getReadableDatabase();
+        OrderQueuePage page = new OrderQueuePage();
+        page.mode = mode;
+        page.now = (after != null) ? after.now : getCurrentDateTime();
+
+        long trace = tracer.enter("getOrderQueuePage");
+        try {
+            // Берем на одну строку больше, чтобы узнать, есть ли следующая страница
+            String limit = String.valueOf(pageSize + 1);
+            boolean bySlack = DatabaseContract.QUEUE_BY_SLACK.equals(mode);
+            Cursor cursor;
+            if (bySlack && after == null) {
+                cursor = db.rawQuery(DatabaseContract.SQL_ORDER_QUEUE_BY_SLACK_FIRST_PAGE,
+                        new String[]{page.now, limit});
+            } else if (bySlack) {
+                cursor = db.rawQuery(DatabaseContract.SQL_ORDER_QUEUE_BY_SLACK_NEXT_PAGE,
+                        new String[]{page.now, limit, String.valueOf(after.lastSlack), String.valueOf(after.lastId)});
+            } else if (after == null) {
+                cursor = db.rawQuery(DatabaseContract.SQL_ORDER_QUEUE_FIRST_PAGE, new String[]{limit});
+            } else {
+                cursor = db.rawQuery(DatabaseContract.SQL_ORDER_QUEUE_NEXT_PAGE, new String[]{limit,
+                        String.valueOf(after.lastRank), after.lastDue, String.valueOf(after.lastId)});
+            }
+
+            RowMappers.OrderMapper mapper = new RowMappers.OrderMapper(cursor);
+            int rankIndex = cursor.getColumnIndex("priority_rank");
+            int dueIndex = cursor.getColumnIndex("due");
+            while (cursor.moveToNext()) {
+                if (page.items.size() == pageSize) {
+                    page.hasMore = true;
+                    break;
+                }
+                Order order = mapper.map(cursor);
+                page.items.add(order);
+                page.lastId = order.id;
+                if (bySlack) {
+                    page.lastSlack = order.slackMinutes;
+                } else {
+                    page.lastRank = cursor.getInt(rankIndex);
+                    page.lastDue = cursor.getString(dueIndex);
+                }
+            }
+            cursor.close();
+
+            LOG.d("✅ Страница очереди заказов: {} заказов", page.items.size());
+
+        } catch (Exception e) {
+            LOG.e("❌ Ошибка получения очереди заказов: {}", e.getMessage());
+        } finally {
+            tracer.exit("getOrderQueuePage", trace);
+        }
+        return page;
     }
 
+    // Отсутствующий продукт (null) не кэшируется и при следующем вызове ищется снова
     public Product getProductById(int productId) {
+        return queryCache.get("product:" + productId, new String[]{"products"}, () -> loadProductById(productId));
+    }
+
+    // Статистика кэша для диагностики: попадания, промахи, вытеснения и сбросы
+    QueryCache.Stats getQueryCacheStats() {
+        return queryCache.stats();
+    }
+
+    // Сколько загрузок снимков дашбордов склеено с уже идущими
+    SingleFlight.Stats getSnapshotLoadStats() {
+        return snapshotLoads.stats();
+    }
+
+    // Задержки по методам и запросам с начала работы или последнего сброса
+    QueryTracer.Report getQueryTrace() {
+        return tracer.report();
+    }
+
+    void resetQueryTrace() {
+        tracer.reset();
+    }
+
+    // Отчет трассировки в файл, который можно забрать с устройства через adb;
+    // null при ошибке
+    File dumpQueryTrace() {
+        File dir = context.getExternalFilesDir(null);
+        File file = new File(dir != null ? dir : context.getFilesDir(), QUERY_TRACE_FILE);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+            writer.write(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date()) + "\n\n");
+            writer.write(tracer.report().toString());
+            LOG.d("📄 Трассировка запросов сохранена: {}", file.getPath());
+            return file;
+        } catch (IOException e) {
+            LOG.e("❌ Ошибка сохранения трассировки запросов: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Product loadProductById(int productId) {
         SQLiteDatabase db = getReadableDatabase();
         Product product = null;
 
+        long trace = tracer.enter("getProductById");
         try {
-            String query = "SELECT id, article, name FROM products WHERE id = ?";
+            String query = DatabaseContract.SQL_PRODUCT_BY_ID;
             Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(productId)});
 
             if (cursor.moveToFirst()) {
@@ -1300,92 +1801,78 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             cursor.close();
 
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "❌ Ошибка получения продукта: " + e.getMessage());
+            LOG.e("❌ Ошибка получения продукта: {}", e.getMessage());
+        } finally {
+            tracer.exit("getProductById", trace);
         }
         return product;
     }
 
-    // Вспомогательный метод для получения текущей даты и времени
-    private String getCurrentDateTime() {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
-        Date date = new Date();
-        return dateFormat.format(date);
-    }
+    // === ПОИСК ===
 
-    private String getStatusText(String status) {
-        if (status == null) return "Назначено";
+    // Поиск по мере ввода среди заказов, изделий, операций или пользователей (kind -
+    // DatabaseContract.SEARCH_*). Каждое слово запроса ищется по началу слова
+    public List<SearchResult> search(String query, String kind, int limit) {
+        String match = DatabaseContract.searchMatchQuery(query);
+        if (match == null) {
+            return new ArrayList<>();
+        }
+        return readSearchResults(DatabaseContract.SQL_SEARCH, new String[]{match, kind,
+                DatabaseContract.searchTitlePrefix(query), String.valueOf(limit)});
+    }
 
-        switch (status) {
-            case "assigned": return "Назначено";
-            case "in_progress": return "В работе";
-            case "completed": return "Выполнено";
-            case "cancelled": return "Отменено";
-            default: return status;
+    // Заказы, которым можно назначить задание: новые и в работе
+    public List<SearchResult> searchActiveOrders(String query, int limit) {
+        String match = DatabaseContract.searchMatchQuery(query);
+        if (match == null) {
+            return new ArrayList<>();
         }
+        return readSearchResults(DatabaseContract.SQL_SEARCH_ACTIVE_ORDERS, new String[]{match,
+                DatabaseContract.searchTitlePrefix(query), String.valueOf(limit)});
     }
 
-    // Отладка структуры БД
-    public void debugDatabaseStructure() {
+    private List<SearchResult> readSearchResults(String sql, String[] args) {
         SQLiteDatabase db = getReadableDatabase();
+        List<SearchResult> results = new ArrayList<>();
 
+        long trace = tracer.enter("search");
         try {
-            Log.d("DatabaseDebug", "=== СТРУКТУРА БАЗЫ ДАННЫХ ===");
-
-            // Покажем всех пользователей
-            Log.d("DatabaseDebug", "👥 ПОЛЬЗОВАТЕЛИ:");
-            Cursor cursor = db.rawQuery("SELECT id, name, email, role, brigade, position FROM users", null);
-            while (cursor.moveToNext()) {
-                int id = cursor.getInt(0);
-                String name = cursor.getString(1);
-                String email = cursor.getString(2);
-                String role = cursor.getString(3);
-                String brigade = cursor.getString(4);
-                String position = cursor.getString(5);
-                Log.d("DatabaseDebug", "   ID: " + id + ", " + name + " (" + email + "), " +
-                        role + ", " + brigade + ", " + position);
-            }
-            cursor.close();
-
-            // Покажем задания
-            Log.d("DatabaseDebug", "📝 ЗАДАНИЯ:");
-            cursor = db.rawQuery("SELECT a.id, u.name, o.name, a.planned_quantity, a.actual_quantity, a.defects, a.status " +
-                    "FROM assignments a " +
-                    "JOIN users u ON a.user_id = u.id " +
-                    "JOIN operations o ON a.operation_id = o.id", null);
+            Cursor cursor = db.rawQuery(sql, args);
+            int quantityIndex = cursor.getColumnIndex("quantity");
             while (cursor.moveToNext()) {
-                int id = cursor.getInt(0);
-                String userName = cursor.getString(1);
-                String operationName = cursor.getString(2);
-                int planned = cursor.getInt(3);
-                int actual = cursor.getInt(4);
-                int defects = cursor.getInt(5);
-                String status = cursor.getString(6);
-                Log.d("DatabaseDebug", "   ID: " + id + ", " + userName + " - " + operationName +
-                        ", " + actual + "/" + planned + " шт, Брак: " + defects + ", Статус: " + status);
+                SearchResult result = new SearchResult();
+                result.id = cursor.getInt(0);
+                result.title = cursor.getString(1);
+                result.subtitle = cursor.getString(2);
+                if (quantityIndex != -1) result.quantity = cursor.getInt(quantityIndex);
+                results.add(result);
             }
             cursor.close();
 
         } catch (Exception e) {
-            Log.e("DatabaseDebug", "Ошибка отладки БД: " + e.getMessage());
+            LOG.e("❌ Ошибка поиска: {}", e.getMessage());
+        } finally {
+            tracer.exit("search", trace);
         }
+        return results;
     }
 
-    // Отладка структуры таблицы assignments
-    public void debugAssignmentsTable() {
-        SQLiteDatabase db = getReadableDatabase();
-        try {
-            Log.d("DatabaseDebug", "=== СТРУКТУРА ТАБЛИЦЫ ASSIGNMENTS ===");
+    // Вспомогательный метод для получения текущей даты и времени
+    private String getCurrentDateTime() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+        Date date = new Date();
+        return dateFormat.format(date);
+    }
 
-            Cursor cursor = db.rawQuery("PRAGMA table_info(assignments)", null);
-            while (cursor.moveToNext()) {
-                String columnName = cursor.getString(cursor.getColumnIndexOrThrow("name"));
-                String columnType = cursor.getString(cursor.getColumnIndexOrThrow("type"));
-                Log.d("DatabaseDebug", "Столбец: " + columnName + " | Тип: " + columnType);
-            }
-            cursor.close();
+    private String getStatusText(String status) {
+        if (status == null) return "Назначено";
 
-        } catch (Exception e) {
-            Log.e("DatabaseDebug", "❌ Ошибка проверки структуры таблицы: " + e.getMessage());
+        switch (status) {
+            case "assigned": return "Назначено";
+            case "in_progress": return "В работе";
+            case "completed": return "Выполнено";
+            case "cancelled": return "Отменено";
+            default: return status;
         }
     }
 
@@ -1437,6 +1924,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         public int todayAssignments = 0;
         public int weekCompleted = 0;
         public int weekDefects = 0;
+        public int monthCompleted = 0;
+        public int monthDefects = 0;
+        // null, если у работника нет открытой смены
+        public String shiftStartTime;
+        public int shiftCompleted = 0;
+        public int shiftDefects = 0;
         public List<Assignment> activeAssignments;
         public List<Assignment> recentCompleted;
 
@@ -1445,10 +1938,20 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             return (todayDefects * 100.0) / todayCompleted;
         }
 
+        public double getShiftDefectPercent() {
+            if (shiftCompleted == 0) return 0.0;
+            return (shiftDefects * 100.0) / shiftCompleted;
+        }
+
         public double getWeekDefectPercent() {
             if (weekCompleted == 0) return 0.0;
             return (weekDefects * 100.0) / weekCompleted;
         }
+
+        public double getMonthDefectPercent() {
+            if (monthCompleted == 0) return 0.0;
+            return (monthDefects * 100.0) / monthCompleted;
+        }
     }
 
     public static class Assignment {
@@ -1498,6 +2001,27 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
     }
 
+    public static class QualityControlPage {
+        public List<QualityControlItem> items = new ArrayList<>();
+        public boolean hasMore;
+        String lastEndTime;
+        int lastId;
+    }
+
+    public static class QualityCheck {
+        public int assignmentId;
+        public int approvedQuantity;
+        public int defectsFound;
+        public String notes;
+
+        public QualityCheck(int assignmentId, int approvedQuantity, int defectsFound, String notes) {
+            this.assignmentId = assignmentId;
+            this.approvedQuantity = approvedQuantity;
+            this.defectsFound = defectsFound;
+            this.notes = notes;
+        }
+    }
+
     public static class QualityStats {
         public int totalAssignments;
         public int checkedAssignments;
@@ -1541,7 +2065,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         public int workersCount = 0;
         public int totalCompleted = 0;
         public int totalDefects = 0;
-        public List<Worker> workers;
+        public List<Worker> workers = new ArrayList<>();
 
         public double getDefectsPercent() {
             if (totalCompleted == 0) return 0.0;
@@ -1549,6 +2073,18 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
     }
 
+    public static class WorkerSnapshot {
+        public WorkerStats stats = new WorkerStats();
+        public WorkerDetailedStats details = new WorkerDetailedStats();
+    }
+
+    public static class MasterSnapshot {
+        // Бригада, по которой собран снимок: переданная или из профиля мастера
+        public String brigade;
+        public MasterStats stats = new MasterStats();
+        public List<Assignment> activeAssignments = new ArrayList<>();
+    }
+
     public static class Worker {
         public int id;
         public String name;
@@ -1570,13 +2106,15 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     }
 
     public static class Material {
+        public int id;
         public String name;
         public double currentStock;
         public double minStock;
         public String unit;
 
         public Material() {}
-        public Material(String name, double currentStock, double minStock, String unit) {
+        public Material(int id, String name, double currentStock, double minStock, String unit) {
+            this.id = id;
             this.name = name;
             this.currentStock = currentStock;
             this.minStock = minStock;
@@ -1588,12 +2126,40 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         public int totalOrders = 0;
         public int completedOrders = 0;
         public int inProgressOrders = 0;
+        public long activeDoneUnits = 0;
+        public long activeTotalUnits = 0;
         public String brigadePerformance = "";
 
         public int getCompletionPercent() {
             if (totalOrders == 0) return 0;
             return (completedOrders * 100) / totalOrders;
         }
+
+        public int getActiveProgressPercent() {
+            if (activeTotalUnits == 0) return 0;
+            return (int) (activeDoneUnits * 100 / activeTotalUnits);
+        }
+    }
+
+    public static class OrderProgress {
+        public int orderId;
+        public String orderNumber;
+        public int quantity;
+        public int stages;
+        public long doneUnits;
+        public int finished;
+
+        public int getPercent() {
+            if (quantity <= 0 || stages == 0) return 0;
+            return (int) (doneUnits * 100 / ((long) quantity * stages));
+        }
+    }
+
+    public static class StageProgress {
+        public int sequenceOrder;
+        public String name;
+        public long completed;
+        public long waiting;
     }
 
     public static class Order {
@@ -1603,10 +2169,26 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         public int productId;
         public int quantity;
         public String status;
+        public String priority;
+        public String deadline;
+        // Только в очереди по запасу времени: оставшаяся работа и запас до срока в минутах
+        public long remainingMinutes;
+        public long slackMinutes;
 
         public Order() {}
     }
 
+    public static class OrderQueuePage {
+        public List<Order> items = new ArrayList<>();
+        public boolean hasMore;
+        String mode;
+        String now;
+        int lastRank;
+        String lastDue;
+        long lastSlack;
+        int lastId;
+    }
+
     public static class Product {
         public int id;
         public String article;
@@ -1614,4 +2196,13 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         public Product() {}
     }
+
+    public static class SearchResult {
+        public int id;
+        public String title;
+        public String subtitle;
+        public int quantity;
+
+        public SearchResult() {}
+    }
 }
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.example.clothes;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// Первичная установка БД из assets.
+// Файл копируется во временный narek.db.tmp крупными блоками с подсчетом SHA-256,
+// сверяется с контрольной суммой, записанной при сборке (BuildConfig.ASSET_DB_SHA256),
+// и только после этого атомарно переименовывается в рабочий файл. Если процесс
+// убит посреди копирования, остается лишь .tmp, и при следующем запуске копирование
+// начинается заново, а не открывается недописанная БД.
+public class DatabaseProvisioner {
+    private static final String TAG = "DatabaseProvisioner";
+    private static final String ASSET_PATH = "databases/" + DatabaseHelper.DATABASE_NAME;
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    public interface ProgressListener {
+        void onProgress(long copiedBytes, long totalBytes);
+    }
+
+    private static final Object lock = new Object();
+
+    private DatabaseProvisioner() {}
+
+    public static boolean isProvisioned(Context context) {
+        return context.getDatabasePath(DatabaseHelper.DATABASE_NAME).exists();
+    }
+
+    // Блокирующая установка: вызывать только из фонового потока
+    public static boolean provision(Context context, ProgressListener listener) {
+        synchronized (lock) {
+            File dbFile = context.getDatabasePath(DatabaseHelper.DATABASE_NAME);
+            if (dbFile.exists()) {
+                return true;
+            }
+
+            File parentDir = dbFile.getParentFile();
+            if (parentDir != null && !parentDir.exists()) {
+                parentDir.mkdirs();
+            }
+
+            File tmpFile = new File(dbFile.getPath() + ".tmp");
+            try {
+                String checksum = copyAsset(context, tmpFile, listener);
+
+                if (!BuildConfig.ASSET_DB_SHA256.equalsIgnoreCase(checksum)) {
+                    Log.e(TAG, "❌ Контрольная сумма БД не совпала: " + checksum);
+                    tmpFile.delete();
+                    return false;
+                }
+
+                // Журналы от предыдущей неудачной попытки не должны примениться к новому файлу
+                deleteSidecarFiles(dbFile);
+
+                if (!tmpFile.renameTo(dbFile)) {
+                    Log.e(TAG, "❌ Не удалось переименовать " + tmpFile.getName());
+                    tmpFile.delete();
+                    return false;
+                }
+
+                Log.d(TAG, "✅ База данных установлена из assets");
+                return true;
+
+            } catch (IOException | NoSuchAlgorithmException e) {
+                Log.e(TAG, "❌ Ошибка копирования БД: " + e.getMessage());
+                tmpFile.delete();
+                return false;
+            }
+        }
+    }
+
+    private static String copyAsset(Context context, File target, ProgressListener listener)
+            throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        long totalBytes = assetLength(context);
+
+        try (InputStream input = context.getAssets().open(ASSET_PATH);
+             FileOutputStream output = new FileOutputStream(target)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long copiedBytes = 0;
+            int length;
+            while ((length = input.read(buffer)) > 0) {
+                output.write(buffer, 0, length);
+                digest.update(buffer, 0, length);
+                copiedBytes += length;
+                if (listener != null) {
+                    listener.onProgress(copiedBytes, totalBytes);
+                }
+            }
+            output.flush();
+            output.getFD().sync();
+        }
+
+        return toHex(digest.digest());
+    }
+
+    // Размер известен только для несжатого ассета (noCompress "db" в build.gradle.kts)
+    private static long assetLength(Context context) {
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(ASSET_PATH)) {
+            return descriptor.getLength();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static void deleteSidecarFiles(File dbFile) {
+        new File(dbFile.getPath() + "-journal").delete();
+        new File(dbFile.getPath() + "-wal").delete();
+        new File(dbFile.getPath() + "-shm").delete();
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -26,7 +26,7 @@ public class ForgotPasswordActivity extends AppCompatActivity {
 
         Log.d("ForgotPassword", "🔐 Активность восстановления пароля запущена");
 
-        databaseHelper = new DatabaseHelper(this);
+        databaseHelper = DatabaseHelper.getInstance(this);
         initViews();
         setupClickListeners();
 
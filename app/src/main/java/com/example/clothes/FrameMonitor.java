@@ -0,0 +1,121 @@
+package com.example.clothes;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Замер кадров одного экрана дашборда. render(...) засекает метод обновления экрана
+// и время от его начала до конца отрисовки кадра с новыми данными: Choreographer
+// вызывает колбэк в начале следующего кадра, а задача в начале очереди главного потока
+// выполняется сразу после его отрисовки. Длительность всех кадров окна приходит
+// из FrameMetrics в отдельный поток, по ней считаются пропущенные кадры.
+// Статистика общая на процесс, чтобы пережить пересоздание экрана.
+final class FrameMonitor {
+
+    private static final String TAG = "FrameMonitor";
+    private static final int SLOW_UPDATE_LOG_SIZE = 100;
+    static final String FRAME_STATS_FILE = "frame-stats.json";
+
+    private static final FrameTracker TRACKER = new FrameTracker(SLOW_UPDATE_LOG_SIZE);
+    private static Handler metricsHandler;
+
+    private final Window window;
+    private final String screen;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Window.OnFrameMetricsAvailableListener metricsListener;
+
+    FrameMonitor(Activity activity, String screen) {
+        this.window = activity.getWindow();
+        this.screen = screen;
+
+        float refreshRate = activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+        if (refreshRate > 0) {
+            TRACKER.setFrameBudgetMicros((long) (1_000_000 / refreshRate));
+        }
+
+        metricsListener = (frameWindow, metrics, dropped) ->
+                TRACKER.frame(screen, metrics.getMetric(FrameMetrics.TOTAL_DURATION) / 1000);
+        window.addOnFrameMetricsAvailableListener(metricsListener, metricsHandler());
+    }
+
+    static FrameTracker.Report report() {
+        return TRACKER.report();
+    }
+
+    static void reset() {
+        TRACKER.reset();
+    }
+
+    // Вызывается на главном потоке; load - загрузка LiveQuery, давшая данные,
+    // deliveredNanos - когда данные были готовы в фоновом потоке
+    void render(LiveQuery.Load load, long deliveredNanos, Runnable update) {
+        long start = System.nanoTime();
+        try {
+            update.run();
+        } finally {
+            long updated = System.nanoTime();
+            Choreographer.getInstance().postFrameCallback(frameTimeNanos ->
+                    mainHandler.postAtFrontOfQueue(() -> TRACKER.update(screen,
+                            (updated - start) / 1000,
+                            (System.nanoTime() - start) / 1000,
+                            (start - deliveredNanos) / 1000,
+                            load)));
+        }
+    }
+
+    void close() {
+        try {
+            window.removeOnFrameMetricsAvailableListener(metricsListener);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "❌ Слушатель кадров не был зарегистрирован: " + e.getMessage());
+        }
+    }
+
+    // Выгрузка в JSON для сравнения версий; вызывается в фоновом потоке
+    static File export(Context context) {
+        Map<String, String> environment = new LinkedHashMap<>();
+        environment.put("exportedAt", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date()));
+        environment.put("versionName", BuildConfig.VERSION_NAME);
+        environment.put("versionCode", String.valueOf(BuildConfig.VERSION_CODE));
+        environment.put("device", Build.MANUFACTURER + " " + Build.MODEL);
+        environment.put("sdk", String.valueOf(Build.VERSION.SDK_INT));
+
+        File dir = context.getExternalFilesDir(null);
+        File file = new File(dir != null ? dir : context.getFilesDir(), FRAME_STATS_FILE);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+            writer.write(TRACKER.report().toJson(environment));
+            Log.d(TAG, "📄 Статистика кадров сохранена: " + file.getPath());
+            return file;
+        } catch (IOException e) {
+            Log.e(TAG, "❌ Ошибка сохранения статистики кадров: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static synchronized Handler metricsHandler() {
+        if (metricsHandler == null) {
+            HandlerThread thread = new HandlerThread("FrameMetrics");
+            thread.start();
+            metricsHandler = new Handler(thread.getLooper());
+        }
+        return metricsHandler;
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.clothes;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Время кадров дашбордов: для каждого блока отрисовки (updateWorkerUI и т.п.) -
+// сколько прошло от начала обновления экрана новыми данными до конца отрисовки
+// кадра с ними и сколько шел сам метод обновления; для окна экрана - сколько кадров
+// вышло за бюджет (пропущены) и сколько дольше 700 мс (экран "завис").
+// Обновление, которое не уложилось в кадр, попадает в кольцевой журнал вместе
+// с загрузкой LiveQuery, данные которой показывались: что ее вызвало и сколько она шла,
+// а также сколько данные ждали главного потока. Отчет выгружается в JSON, чтобы
+// сравнивать версии приложения. Класс не зависит от Android, поэтому проверяется в JVM-тестах.
+final class FrameTracker {
+
+    static final long FROZEN_FRAME_MICROS = 700_000;
+
+    private static final class Screen {
+        final QueryTracer.Histogram updateToDraw = new QueryTracer.Histogram();
+        final QueryTracer.Histogram update = new QueryTracer.Histogram();
+        long slowUpdates;
+        long frames;
+        long jankyFrames;
+        long frozenFrames;
+        final Map<String, Long> slowByTrigger = new TreeMap<>();
+    }
+
+    private final int slowLogSize;
+    private final Map<String, Screen> screens = new LinkedHashMap<>();
+    private final List<SlowUpdate> slowUpdates = new ArrayList<>();
+    private long frameBudgetMicros = 16_667;
+
+    FrameTracker(int slowLogSize) {
+        this.slowLogSize = slowLogSize;
+    }
+
+    // Бюджет кадра по частоте экрана: 16.7 мс при 60 Гц, 8.3 мс при 120 Гц
+    synchronized void setFrameBudgetMicros(long frameBudgetMicros) {
+        this.frameBudgetMicros = frameBudgetMicros;
+    }
+
+    // Обновление экрана данными загрузки load (null - данные не из LiveQuery).
+    // deliveryMicros - сколько готовые данные ждали главного потока
+    synchronized void update(String screen, long updateMicros, long updateToDrawMicros,
+                             long deliveryMicros, LiveQuery.Load load) {
+        Screen stat = screen(screen);
+        stat.update.record(updateMicros);
+        stat.updateToDraw.record(updateToDrawMicros);
+        if (updateToDrawMicros <= frameBudgetMicros) {
+            return;
+        }
+
+        String trigger = load != null ? load.trigger : "-";
+        stat.slowUpdates++;
+        Long count = stat.slowByTrigger.get(trigger);
+        stat.slowByTrigger.put(trigger, count != null ? count + 1 : 1);
+
+        SlowUpdate slow = new SlowUpdate();
+        slow.timeMillis = System.currentTimeMillis();
+        slow.screen = screen;
+        slow.updateToDrawMicros = updateToDrawMicros;
+        slow.updateMicros = updateMicros;
+        slow.deliveryMicros = deliveryMicros;
+        slow.loadNumber = load != null ? load.number : 0;
+        slow.loadMicros = load != null ? load.durationNanos / 1000 : 0;
+        slow.trigger = trigger;
+        if (slowUpdates.size() == slowLogSize) {
+            slowUpdates.remove(0);
+        }
+        slowUpdates.add(slow);
+    }
+
+    // Любой кадр окна экрана, с обновлением данных или без
+    synchronized void frame(String screen, long totalMicros) {
+        Screen stat = screen(screen);
+        stat.frames++;
+        if (totalMicros > frameBudgetMicros) {
+            stat.jankyFrames++;
+        }
+        if (totalMicros > FROZEN_FRAME_MICROS) {
+            stat.frozenFrames++;
+        }
+    }
+
+    synchronized void reset() {
+        screens.clear();
+        slowUpdates.clear();
+    }
+
+    synchronized Report report() {
+        Report report = new Report();
+        report.frameBudgetMicros = frameBudgetMicros;
+        for (Map.Entry<String, Screen> item : screens.entrySet()) {
+            Screen stat = item.getValue();
+            ScreenReport screen = new ScreenReport();
+            screen.name = item.getKey();
+            screen.updates = stat.updateToDraw.count;
+            screen.updateToDrawP50Micros = stat.updateToDraw.percentile(50);
+            screen.updateToDrawP90Micros = stat.updateToDraw.percentile(90);
+            screen.updateToDrawP99Micros = stat.updateToDraw.percentile(99);
+            screen.updateToDrawMaxMicros = stat.updateToDraw.max;
+            screen.updateP50Micros = stat.update.percentile(50);
+            screen.updateP99Micros = stat.update.percentile(99);
+            screen.slowUpdates = stat.slowUpdates;
+            screen.frames = stat.frames;
+            screen.jankyFrames = stat.jankyFrames;
+            screen.frozenFrames = stat.frozenFrames;
+            screen.slowByTrigger = new TreeMap<>(stat.slowByTrigger);
+            report.screens.add(screen);
+        }
+        // Журнал от новых к старым
+        for (int i = slowUpdates.size() - 1; i >= 0; i--) {
+            report.slowUpdates.add(slowUpdates.get(i));
+        }
+        return report;
+    }
+
+    private Screen screen(String name) {
+        Screen stat = screens.get(name);
+        if (stat == null) {
+            stat = new Screen();
+            screens.put(name, stat);
+        }
+        return stat;
+    }
+
+    public static class SlowUpdate {
+        public long timeMillis;
+        public String screen;
+        public long updateToDrawMicros;
+        public long updateMicros;
+        public long deliveryMicros;
+        public long loadNumber;
+        public long loadMicros;
+        public String trigger;
+    }
+
+    public static class ScreenReport {
+        public String name;
+        public long updates;
+        public long updateToDrawP50Micros;
+        public long updateToDrawP90Micros;
+        public long updateToDrawP99Micros;
+        public long updateToDrawMaxMicros;
+        public long updateP50Micros;
+        public long updateP99Micros;
+        public long slowUpdates;
+        public long frames;
+        public long jankyFrames;
+        public long frozenFrames;
+        public Map<String, Long> slowByTrigger = new TreeMap<>();
+
+        public double getJankPercent() {
+            return frames > 0 ? jankyFrames * 100.0 / frames : 0;
+        }
+    }
+
+    public static class Report {
+        public long frameBudgetMicros;
+        public List<ScreenReport> screens = new ArrayList<>();
+        public List<SlowUpdate> slowUpdates = new ArrayList<>();
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append("🎞 Обновление до отрисовки (мс: p50 / p90 / p99 / макс), бюджет кадра ")
+                    .append(millis(frameBudgetMicros)).append(" мс:\n");
+            if (screens.isEmpty()) {
+                text.append("   нет обновлений\n");
+            }
+            for (ScreenReport screen : screens) {
+                text.append("   ").append(screen.name).append(": ").append(screen.updates).append(" обн., ")
+                        .append(millis(screen.updateToDrawP50Micros)).append(" / ")
+                        .append(millis(screen.updateToDrawP90Micros)).append(" / ")
+                        .append(millis(screen.updateToDrawP99Micros)).append(" / ")
+                        .append(millis(screen.updateToDrawMaxMicros))
+                        .append(", сам метод p99 ").append(millis(screen.updateP99Micros))
+                        .append(", не уложились ").append(screen.slowUpdates).append("\n")
+                        .append("      кадров ").append(screen.frames).append(", пропущено ")
+                        .append(screen.jankyFrames).append(String.format(Locale.US, " (%.1f%%)", screen.getJankPercent()))
+                        .append(", зависаний ").append(screen.frozenFrames).append("\n");
+                for (Map.Entry<String, Long> trigger : screen.slowByTrigger.entrySet()) {
+                    text.append("      медленно после: ").append(trigger.getKey()).append(" - ")
+                            .append(trigger.getValue()).append("\n");
+                }
+            }
+
+            text.append("\n🐢 Медленные обновления, последние ").append(slowUpdates.size()).append(":\n");
+            SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault());
+            for (SlowUpdate slow : slowUpdates) {
+                text.append("   ").append(format.format(new Date(slow.timeMillis))).append(" ").append(slow.screen)
+                        .append(" ").append(millis(slow.updateToDrawMicros)).append(" мс (метод ")
+                        .append(millis(slow.updateMicros)).append(", ожидание ")
+                        .append(millis(slow.deliveryMicros)).append(") после загрузки №").append(slow.loadNumber)
+                        .append(" ").append(millis(slow.loadMicros)).append(" мс: ").append(slow.trigger).append("\n");
+            }
+            return text.toString();
+        }
+
+        // JSON для сравнения между версиями; environment - версия приложения, устройство и т.п.
+        String toJson(Map<String, String> environment) {
+            StringBuilder json = new StringBuilder("{\n  \"environment\": {");
+            boolean first = true;
+            for (Map.Entry<String, String> item : environment.entrySet()) {
+                json.append(first ? "" : ", ").append(quote(item.getKey())).append(": ").append(quote(item.getValue()));
+                first = false;
+            }
+            json.append("},\n  \"frameBudgetMs\": ").append(millis(frameBudgetMicros)).append(",\n  \"screens\": [");
+            for (int i = 0; i < screens.size(); i++) {
+                ScreenReport screen = screens.get(i);
+                json.append(i == 0 ? "\n" : ",\n").append("    {\"name\": ").append(quote(screen.name))
+                        .append(", \"updates\": ").append(screen.updates)
+                        .append(", \"updateToDrawMs\": {\"p50\": ").append(millis(screen.updateToDrawP50Micros))
+                        .append(", \"p90\": ").append(millis(screen.updateToDrawP90Micros))
+                        .append(", \"p99\": ").append(millis(screen.updateToDrawP99Micros))
+                        .append(", \"max\": ").append(millis(screen.updateToDrawMaxMicros))
+                        .append("}, \"updateMs\": {\"p50\": ").append(millis(screen.updateP50Micros))
+                        .append(", \"p99\": ").append(millis(screen.updateP99Micros))
+                        .append("}, \"slowUpdates\": ").append(screen.slowUpdates)
+                        .append(", \"frames\": ").append(screen.frames)
+                        .append(", \"jankyFrames\": ").append(screen.jankyFrames)
+                        .append(", \"frozenFrames\": ").append(screen.frozenFrames)
+                        .append(", \"slowByTrigger\": {");
+                boolean firstTrigger = true;
+                for (Map.Entry<String, Long> trigger : screen.slowByTrigger.entrySet()) {
+                    json.append(firstTrigger ? "" : ", ").append(quote(trigger.getKey())).append(": ")
+                            .append(trigger.getValue());
+                    firstTrigger = false;
+                }
+                json.append("}}");
+            }
+            json.append(screens.isEmpty() ? "],\n  \"slowUpdates\": [" : "\n  ],\n  \"slowUpdates\": [");
+            for (int i = 0; i < slowUpdates.size(); i++) {
+                SlowUpdate slow = slowUpdates.get(i);
+                json.append(i == 0 ? "\n" : ",\n").append("    {\"timeMillis\": ").append(slow.timeMillis)
+                        .append(", \"screen\": ").append(quote(slow.screen))
+                        .append(", \"updateToDrawMs\": ").append(millis(slow.updateToDrawMicros))
+                        .append(", \"updateMs\": ").append(millis(slow.updateMicros))
+                        .append(", \"deliveryMs\": ").append(millis(slow.deliveryMicros))
+                        .append(", \"load\": {\"number\": ").append(slow.loadNumber)
+                        .append(", \"durationMs\": ").append(millis(slow.loadMicros))
+                        .append(", \"trigger\": ").append(quote(slow.trigger)).append("}}");
+            }
+            json.append(slowUpdates.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+            return json.toString();
+        }
+
+        private static String quote(String value) {
+            StringBuilder quoted = new StringBuilder("\"");
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    quoted.append('\\').append(c);
+                } else if (c < 0x20) {
+                    quoted.append(String.format(Locale.US, "\\u%04x", (int) c));
+                } else {
+                    quoted.append(c);
+                }
+            }
+            return quoted.append('"').toString();
+        }
+
+        private static String millis(long micros) {
+            return String.format(Locale.US, "%.1f", micros / 1000.0);
+        }
+    }
+}
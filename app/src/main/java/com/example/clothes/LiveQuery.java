@@ -0,0 +1,199 @@
+package com.example.clothes;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+// Запрос, на который экран подписывается один раз вместо ручной перезагрузки после записей.
+// Пока есть наблюдатели, LiveQuery подписан на шину изменений и перечитывает данные,
+// только когда изменилась одна из его таблиц (запись в источник сводки тоже считается).
+// Одновременно идет не больше одной загрузки: изменения, пришедшие во время нее,
+// склеиваются в одну следующую, а наблюдатели получают только последний результат.
+// С уходом последнего наблюдателя подписка на шину снимается, а результат забывается.
+// Наблюдатели вызываются в фоновом потоке. Класс не зависит от Android.
+final class LiveQuery<T> {
+
+    static final String TRIGGER_FIRST = "первая загрузка";
+    static final String TRIGGER_REFRESH = "обновление";
+
+    interface Loader<T> {
+        T load();
+    }
+
+    interface Observer<T> {
+        void onChanged(T value);
+    }
+
+    interface Subscription {
+        void close();
+    }
+
+    // Одна загрузка: что ее вызвало (таблицы, изменения которых в нее склеились,
+    // первая загрузка или обновление) и сколько она шла
+    public static class Load {
+        public final long number;
+        public final String trigger;
+        public final long durationNanos;
+        public final long finishedNanos;
+
+        Load(long number, String trigger, long durationNanos, long finishedNanos) {
+            this.number = number;
+            this.trigger = trigger;
+            this.durationNanos = durationNanos;
+            this.finishedNanos = finishedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "загрузка №" + number + " (" + trigger + ") " + (durationNanos / 1_000_000) + " мс";
+        }
+    }
+
+    private final DataChangeBus bus;
+    private final Executor executor;
+    private final String[] tables;
+    private final Loader<T> loader;
+    private final List<Observer<T>> observers = new CopyOnWriteArrayList<>();
+    private final DataChangeBus.Subscriber changeSubscriber = changes -> reload(changes.tables());
+
+    private final Object lock = new Object();
+    private boolean loading;
+    private boolean reloadPending;
+    private final Set<String> pendingTriggers = new TreeSet<>();
+    private volatile T latest;
+    private volatile Load lastLoad;
+
+    private long loads;
+
+    LiveQuery(DataChangeBus bus, Executor executor, String[] tables, Loader<T> loader) {
+        this.bus = bus;
+        this.executor = executor;
+        this.tables = DatabaseContract.withSources(tables).toArray(new String[0]);
+        this.loader = loader;
+    }
+
+    // Первый наблюдатель запускает загрузку; следующие сразу получают последний результат
+    Subscription observe(Observer<T> observer) {
+        T current = null;
+        synchronized (lock) {
+            observers.add(observer);
+            if (observers.size() == 1) {
+                bus.subscribe(changeSubscriber, tables);
+                reload(TRIGGER_FIRST);
+            } else {
+                current = latest;
+            }
+        }
+        if (current != null) {
+            observer.onChanged(current);
+        }
+        return () -> removeObserver(observer);
+    }
+
+    // Перечитать без записи в БД, например по кнопке "Обновить"
+    void refresh() {
+        if (!observers.isEmpty()) {
+            reload(TRIGGER_REFRESH);
+        }
+    }
+
+    // Загрузка последнего результата; внутри onChanged - та, что дала переданное значение
+    Load lastLoad() {
+        return lastLoad;
+    }
+
+    long getLoadCount() {
+        synchronized (lock) {
+            return loads;
+        }
+    }
+
+    private void removeObserver(Observer<T> observer) {
+        synchronized (lock) {
+            if (observers.remove(observer) && observers.isEmpty()) {
+                bus.unsubscribe(changeSubscriber);
+                reloadPending = false;
+                pendingTriggers.clear();
+                latest = null;
+            }
+        }
+    }
+
+    private void reload(String trigger) {
+        reload(Collections.singleton(trigger));
+    }
+
+    private void reload(Set<String> triggers) {
+        synchronized (lock) {
+            pendingTriggers.addAll(triggers);
+            if (loading) {
+                reloadPending = true;
+                return;
+            }
+            loading = true;
+        }
+        executor.execute(this::runLoads);
+    }
+
+    private String joinTriggers() {
+        StringBuilder trigger = new StringBuilder();
+        for (String table : pendingTriggers) {
+            if (trigger.length() > 0) {
+                trigger.append(", ");
+            }
+            trigger.append(table);
+        }
+        pendingTriggers.clear();
+        return trigger.toString();
+    }
+
+    private void runLoads() {
+        boolean finished = false;
+        try {
+            while (true) {
+                long number;
+                String trigger;
+                synchronized (lock) {
+                    number = ++loads;
+                    trigger = joinTriggers();
+                }
+                // null - загрузчик не смог прочитать данные; наблюдатели сохраняют прежний результат
+                long start = System.nanoTime();
+                T value = loader.load();
+                long end = System.nanoTime();
+                if (value != null) {
+                    synchronized (lock) {
+                        if (!observers.isEmpty()) {
+                            latest = value;
+                            lastLoad = new Load(number, trigger, end - start, end);
+                        }
+                    }
+                    for (Observer<T> observer : observers) {
+                        observer.onChanged(value);
+                    }
+                }
+
+                synchronized (lock) {
+                    if (!reloadPending || observers.isEmpty()) {
+                        loading = false;
+                        reloadPending = false;
+                        finished = true;
+                        return;
+                    }
+                    reloadPending = false;
+                }
+            }
+        } finally {
+            // Ошибка загрузчика или наблюдателя не должна навсегда остановить перезагрузки
+            if (!finished) {
+                synchronized (lock) {
+                    loading = false;
+                    reloadPending = false;
+                }
+            }
+        }
+    }
+}
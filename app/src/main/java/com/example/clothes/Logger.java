@@ -0,0 +1,126 @@
+package com.example.clothes;
+
+// Журнал с шаблонами сообщений: "{}" заменяются аргументами по порядку, и строка
+// собирается, только если уровень включен. Отладочный уровень включается при сборке
+// (BuildConfig.DEBUG_LOGS); это константа, поэтому в сборке без него javac выбрасывает
+// тела d(...) целиком, а вызов не создает ни строк, ни массивов аргументов.
+// Числа передаются в перегрузки с long без упаковки, поэтому на горячем пути
+// аргументы-числа ставятся так, чтобы подошла одна из них. Ошибки пишутся всегда.
+// Класс не зависит от Android, поэтому проверяется в JVM-тестах.
+final class Logger {
+
+    // Те же значения, что у android.util.Log
+    static final int DEBUG = 3;
+    static final int ERROR = 6;
+
+    static final boolean DEBUG_ENABLED = BuildConfig.DEBUG_LOGS;
+
+    // Сюда подходит android.util.Log::println
+    interface Sink {
+        void println(int priority, String tag, String message);
+    }
+
+    private final String tag;
+    private final Sink sink;
+
+    Logger(String tag, Sink sink) {
+        this.tag = tag;
+        this.sink = sink;
+    }
+
+    void d(String message) {
+        if (DEBUG_ENABLED) {
+            sink.println(DEBUG, tag, message);
+        }
+    }
+
+    void d(String template, long a) {
+        if (DEBUG_ENABLED) {
+            sink.println(DEBUG, tag, format(template, a));
+        }
+    }
+
+    void d(String template, long a, long b) {
+        if (DEBUG_ENABLED) {
+            sink.println(DEBUG, tag, format(template, a, b));
+        }
+    }
+
+    void d(String template, long a, long b, long c) {
+        if (DEBUG_ENABLED) {
+            sink.println(DEBUG, tag, format(template, a, b, c));
+        }
+    }
+
+    void d(String template, long a, Object b) {
+        if (DEBUG_ENABLED) {
+            sink.println(DEBUG, tag, format(template, a, b));
+        }
+    }
+
+    void d(String template, long a, Object b, long c) {
+        if (DEBUG_ENABLED) {
+            sink.println(DEBUG, tag, format(template, a, b, c));
+        }
+    }
+
+    void d(String template, Object a) {
+        if (DEBUG_ENABLED) {
+            sink.println(DEBUG, tag, format(template, a));
+        }
+    }
+
+    void d(String template, Object a, Object b) {
+        if (DEBUG_ENABLED) {
+            sink.println(DEBUG, tag, format(template, a, b));
+        }
+    }
+
+    void d(String template, Object a, Object b, Object c) {
+        if (DEBUG_ENABLED) {
+            sink.println(DEBUG, tag, format(template, a, b, c));
+        }
+    }
+
+    void d(String template, Object a, Object b, Object c, Object d) {
+        if (DEBUG_ENABLED) {
+            sink.println(DEBUG, tag, format(template, a, b, c, d));
+        }
+    }
+
+    void e(String message) {
+        sink.println(ERROR, tag, message);
+    }
+
+    void e(String template, long a) {
+        sink.println(ERROR, tag, format(template, a));
+    }
+
+    void e(String template, Object a) {
+        sink.println(ERROR, tag, format(template, a));
+    }
+
+    void e(String template, Object a, Object b) {
+        sink.println(ERROR, tag, format(template, a, b));
+    }
+
+    // Лишние аргументы дописываются в конец, недостающие оставляют "{}" как есть
+    static String format(String template, Object... args) {
+        StringBuilder message = new StringBuilder(template.length() + 16 * args.length);
+        int from = 0;
+        int arg = 0;
+        while (arg < args.length) {
+            int at = template.indexOf("{}", from);
+            if (at < 0) {
+                break;
+            }
+            message.append(template, from, at).append(args[arg++]);
+            from = at + 2;
+        }
+        message.append(template, from, template.length());
+        while (arg < args.length) {
+            message.append(" ").append(args[arg++]);
+        }
+        return message.toString();
+    }
+}
@@ -2,8 +2,10 @@ package com.example.clothes;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
@@ -13,19 +15,29 @@ public class MainActivity extends AppCompatActivity {
     private EditText etUsername, etPassword;
     private Button btnLogin, btnRegister;
     private TextView tvForgotPassword;
+    private ProgressBar pbDatabaseSetup;
+    private TextView tvDatabaseSetup;
     private DatabaseHelper databaseHelper;
 
+    // Фоновая работа экрана; отменяется в onDestroy
+    private BackgroundTasks.Scope backgroundTasks;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        // Инициализация БД
-        databaseHelper = new DatabaseHelper(this);
-
+        backgroundTasks = BackgroundTasks.get().newScope(this::runOnUiThread);
         initViews();
         setupClickListeners();
 
+        // Инициализация БД
+        if (DatabaseProvisioner.isProvisioned(this)) {
+            databaseHelper = DatabaseHelper.getInstance(this);
+        } else {
+            provisionDatabase();
+        }
+
         Toast.makeText(this, "Приложение запущено", Toast.LENGTH_SHORT).show();
     }
 
@@ -35,6 +47,8 @@ public class MainActivity extends AppCompatActivity {
         btnLogin = findViewById(R.id.btnLogin);
         btnRegister = findViewById(R.id.btnRegister);
         tvForgotPassword = findViewById(R.id.tvForgotPassword); // Убедитесь что этот ID есть
+        pbDatabaseSetup = findViewById(R.id.pbDatabaseSetup);
+        tvDatabaseSetup = findViewById(R.id.tvDatabaseSetup);
 
         // Проверяем что элементы найдены
         if (tvForgotPassword == null) {
@@ -56,6 +70,47 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
+    // Первый запуск: копируем БД из assets в очереди записи, вход и регистрация
+    // доступны после установки. Копирование доводится до конца, даже если экран закроют
+    private void provisionDatabase() {
+        btnLogin.setEnabled(false);
+        btnRegister.setEnabled(false);
+        pbDatabaseSetup.setProgress(0);
+        pbDatabaseSetup.setVisibility(View.VISIBLE);
+        tvDatabaseSetup.setVisibility(View.VISIBLE);
+
+        backgroundTasks.write(() -> {
+            final int[] lastPercent = {-1};
+            boolean success = DatabaseProvisioner.provision(getApplicationContext(), (copied, total) -> {
+                int percent = total > 0 ? (int) (copied * 100 / total) : 0;
+                if (percent != lastPercent[0]) {
+                    lastPercent[0] = percent;
+                    backgroundTasks.postToUi(() -> pbDatabaseSetup.setProgress(percent));
+                }
+            });
+            DatabaseHelper helper = success ? DatabaseHelper.getInstance(getApplicationContext()) : null;
+
+            backgroundTasks.postToUi(() -> {
+                pbDatabaseSetup.setVisibility(View.GONE);
+                tvDatabaseSetup.setVisibility(View.GONE);
+
+                if (success) {
+                    databaseHelper = helper;
+                    btnLogin.setEnabled(true);
+                    btnRegister.setEnabled(true);
+                } else {
+                    new androidx.appcompat.app.AlertDialog.Builder(this)
+                            .setTitle("Ошибка установки базы данных")
+                            .setMessage("Не удалось подготовить базу данных. Повторить попытку?")
+                            .setCancelable(false)
+                            .setPositiveButton("Повторить", (dialog, which) -> provisionDatabase())
+                            .setNegativeButton("Выход", (dialog, which) -> finish())
+                            .show();
+                }
+            });
+        });
+    }
+
     private void openForgotPassword() {
         try {
             Intent intent = new Intent(this, ForgotPasswordActivity.class);
@@ -85,12 +140,12 @@ public class MainActivity extends AppCompatActivity {
 
         Toast.makeText(this, "Проверка данных...", Toast.LENGTH_SHORT).show();
 
-        new Thread(() -> {
+        backgroundTasks.read(() -> {
             try {
                 // Используем DatabaseHelper.User вместо User
                 DatabaseHelper.User user = databaseHelper.authenticateUser(email, password);
 
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     if (user != null) {
                         loginSuccessful(user);
                     } else {
@@ -98,11 +153,18 @@ public class MainActivity extends AppCompatActivity {
                     }
                 });
             } catch (Exception e) {
-                runOnUiThread(() -> {
+                backgroundTasks.postToUi(() -> {
                     Toast.makeText(MainActivity.this, "Ошибка базы данных", Toast.LENGTH_SHORT).show();
                 });
             }
-        }).start();
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Результаты фоновых задач на закрытый экран не доставляются
+        backgroundTasks.cancel();
     }
 
     private void loginSuccessful(DatabaseHelper.User user) {
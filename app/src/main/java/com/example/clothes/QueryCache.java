@@ -0,0 +1,182 @@
+package com.example.clothes;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Кэш результатов запросов DatabaseHelper для редко меняющихся данных.
+// Каждая запись помнит таблицы, из которых прочитана, и удаляется, как только
+// запись в БД затрагивает одну из них (с учетом сводок, которые меняют триггеры).
+// Размер ограничен: при переполнении вытесняется давно не читавшаяся запись.
+// Класс не зависит от Android, поэтому проверяется в JVM-тестах.
+final class QueryCache {
+
+    interface Loader<T> {
+        T load();
+    }
+
+    private static final class Entry {
+        final Object value;
+        final String[] tables;
+
+        Entry(Object value, String[] tables) {
+            this.value = value;
+            this.tables = tables;
+        }
+    }
+
+    private final int maxEntries;
+    private final Map<String, Entry> entries;
+
+    // Сколько записей прочитано из каждой таблицы: запись в таблицы, из которых
+    // ничего не закэшировано, не обходит кэш
+    private final Map<String, int[]> readers = new HashMap<>();
+
+    // Растет при каждом сбросе: результат, загруженный до сброса, в кэш не попадает
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    QueryCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > QueryCache.this.maxEntries) {
+                    evictions++;
+                    removeReaders(eldest.getValue().tables);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Запрос к БД выполняется вне блокировки, чтобы медленная загрузка
+    // не задерживала чтение других записей
+    @SuppressWarnings("unchecked")
+    <T> T get(String key, String[] tables, Loader<T> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return (T) entry.value;
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        T value = loader.load();
+
+        synchronized (this) {
+            if (value != null && generation == loadGeneration) {
+                Entry entry = new Entry(value, tables.clone());
+                Entry previous = entries.put(key, entry);
+                if (previous != null) {
+                    removeReaders(previous.tables);
+                }
+                addReaders(entry.tables);
+            }
+        }
+        return value;
+    }
+
+    // Вызывается после каждой записи с таблицами, которые она меняла
+    synchronized void invalidate(String... tables) {
+        invalidateChanged(DatabaseContract.withSummaries(tables).toArray(new String[0]));
+    }
+
+    // Одна таблица - частый случай отметки выполнения; обходится без выделения памяти,
+    // если из задетых таблиц ничего не закэшировано
+    synchronized void invalidate(String table) {
+        invalidateChanged(DatabaseContract.changedBy(table));
+    }
+
+    private void invalidateChanged(String[] changed) {
+        generation++;
+        if (!hasReaders(changed)) {
+            return;
+        }
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (DatabaseContract.touches(entry.tables, changed)) {
+                iterator.remove();
+                removeReaders(entry.tables);
+                invalidations++;
+            }
+        }
+    }
+
+    synchronized void clear() {
+        generation++;
+        invalidations += entries.size();
+        entries.clear();
+        readers.clear();
+    }
+
+    private boolean hasReaders(String[] tables) {
+        for (String table : tables) {
+            int[] count = readers.get(table);
+            if (count != null && count[0] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addReaders(String[] tables) {
+        for (String table : tables) {
+            int[] count = readers.get(table);
+            if (count == null) {
+                count = new int[1];
+                readers.put(table, count);
+            }
+            count[0]++;
+        }
+    }
+
+    private void removeReaders(String[] tables) {
+        for (String table : tables) {
+            int[] count = readers.get(table);
+            if (count != null) {
+                count[0]--;
+            }
+        }
+    }
+
+    synchronized Stats stats() {
+        Stats stats = new Stats();
+        stats.size = entries.size();
+        stats.hits = hits;
+        stats.misses = misses;
+        stats.evictions = evictions;
+        stats.invalidations = invalidations;
+        return stats;
+    }
+
+    public static class Stats {
+        public int size;
+        public long hits;
+        public long misses;
+        public long evictions;
+        public long invalidations;
+
+        public double getHitPercentage() {
+            long total = hits + misses;
+            if (total == 0) return 0.0;
+            return (hits * 100.0) / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("записей %d, попаданий %d, промахов %d (%.1f%% попаданий), " +
+                    "вытеснено %d, сброшено %d", size, hits, misses, getHitPercentage(), evictions, invalidations);
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.example.clothes;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Трассировка обращений к БД: задержка по методам DatabaseHelper и по тексту SQL,
+// число строк, сколько строк прошел SQLite и сколько вызовов пришлось на главный поток.
+// Задержки копятся в гистограммах с логарифмическими корзинами, как в HdrHistogram:
+// корзина делится на SUB_BUCKETS / 2 равных частей, поэтому перцентиль отличается
+// от настоящего не больше чем на 1/16 при любом масштабе, от микросекунд до минут.
+// SQL дольше порога попадает в кольцевой журнал медленных запросов с методом,
+// из которого он выполнен. После первого вызова по каждому ключу запись не выделяет
+// памяти: статистика и ячейки журнала создаются один раз и дальше переиспользуются.
+// Класс не зависит от Android, поэтому проверяется в JVM-тестах.
+final class QueryTracer {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_BUCKETS = SUB_BUCKETS / 2;
+    // До 2^32 мкс (больше часа); все, что дольше, попадает в последнюю корзину
+    private static final int MAX_SHIFT = 32 - SUB_BUCKET_BITS + 1;
+    private static final int BUCKETS = SUB_BUCKETS + MAX_SHIFT * HALF_BUCKETS;
+
+    // Метод DatabaseHelper, внутри которого сейчас выполняется поток; вложенные
+    // вызовы считаются отдельно, а SQL относится к самому внешнему методу
+    private static final class Frame {
+        String method;
+        int depth;
+    }
+
+    private static final class Stat {
+        final Histogram histogram = new Histogram();
+        long rows;
+        long rowsScanned;
+        long mainThreadCalls;
+    }
+
+    private static final class SlowEntry {
+        long timeMillis;
+        String method;
+        String sql;
+        long micros;
+        int rows;
+        int rowsScanned;
+        boolean mainThread;
+        String thread;
+    }
+
+    private final Thread mainThread;
+    private final long slowThresholdMicros;
+    private final Map<String, Stat> methods = new HashMap<>();
+    private final Map<String, Stat> queries = new HashMap<>();
+    private final SlowEntry[] slowLog;
+    private int slowNext;
+    private long slowTotal;
+
+    private final ThreadLocal<Frame> frames = new ThreadLocal<Frame>() {
+        @Override
+        protected Frame initialValue() {
+            return new Frame();
+        }
+    };
+
+    QueryTracer(Thread mainThread, long slowThresholdMicros, int slowLogSize) {
+        this.mainThread = mainThread;
+        this.slowThresholdMicros = slowThresholdMicros;
+        this.slowLog = new SlowEntry[slowLogSize];
+        for (int i = 0; i < slowLogSize; i++) {
+            slowLog[i] = new SlowEntry();
+        }
+    }
+
+    // Начало метода; результат передается в exit того же метода
+    long enter(String method) {
+        Frame frame = frames.get();
+        if (frame.depth++ == 0) {
+            frame.method = method;
+        }
+        return System.nanoTime();
+    }
+
+    void exit(String method, long startNanos) {
+        long micros = (System.nanoTime() - startNanos) / 1000;
+        Frame frame = frames.get();
+        if (--frame.depth == 0) {
+            frame.method = null;
+        }
+
+        boolean onMainThread = Thread.currentThread() == mainThread;
+        synchronized (this) {
+            Stat stat = stat(methods, method);
+            stat.histogram.record(micros);
+            if (onMainThread) {
+                stat.mainThreadCalls++;
+            }
+        }
+    }
+
+    // Выполненный SQL: rows - строк в результате или изменено, rowsScanned - сколько строк прошел SQLite
+    void query(String sql, long elapsedNanos, int rows, int rowsScanned) {
+        long micros = elapsedNanos / 1000;
+        String method = frames.get().method;
+        Thread thread = Thread.currentThread();
+        boolean onMainThread = thread == mainThread;
+
+        synchronized (this) {
+            Stat stat = stat(queries, sql);
+            stat.histogram.record(micros);
+            stat.rows += rows;
+            stat.rowsScanned += rowsScanned;
+            if (onMainThread) {
+                stat.mainThreadCalls++;
+            }
+
+            if (micros >= slowThresholdMicros && slowLog.length > 0) {
+                SlowEntry entry = slowLog[slowNext];
+                slowNext = (slowNext + 1) % slowLog.length;
+                slowTotal++;
+                entry.timeMillis = System.currentTimeMillis();
+                entry.method = method;
+                entry.sql = sql;
+                entry.micros = micros;
+                entry.rows = rows;
+                entry.rowsScanned = rowsScanned;
+                entry.mainThread = onMainThread;
+                entry.thread = thread.getName();
+            }
+        }
+    }
+
+    synchronized void reset() {
+        methods.clear();
+        queries.clear();
+        slowNext = 0;
+        slowTotal = 0;
+    }
+
+    synchronized Report report() {
+        Report report = new Report();
+        report.slowThresholdMicros = slowThresholdMicros;
+        report.slowTotal = slowTotal;
+        report.methods = entries(methods, false);
+        report.queries = entries(queries, true);
+
+        // Журнал от новых к старым
+        int stored = (int) Math.min(slowTotal, slowLog.length);
+        for (int i = 1; i <= stored; i++) {
+            SlowEntry entry = slowLog[(slowNext - i + slowLog.length) % slowLog.length];
+            SlowQuery slow = new SlowQuery();
+            slow.timeMillis = entry.timeMillis;
+            slow.method = entry.method;
+            slow.query = sqlLabel(entry.sql);
+            slow.micros = entry.micros;
+            slow.rows = entry.rows;
+            slow.rowsScanned = entry.rowsScanned;
+            slow.mainThread = entry.mainThread;
+            slow.thread = entry.thread;
+            report.slowQueries.add(slow);
+        }
+        return report;
+    }
+
+    private static Stat stat(Map<String, Stat> stats, String key) {
+        Stat stat = stats.get(key);
+        if (stat == null) {
+            stat = new Stat();
+            stats.put(key, stat);
+        }
+        return stat;
+    }
+
+    // Сначала то, на что ушло больше всего времени в сумме
+    private static List<Entry> entries(Map<String, Stat> stats, boolean sql) {
+        List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<String, Stat> item : stats.entrySet()) {
+            Stat stat = item.getValue();
+            Entry entry = new Entry();
+            entry.name = sql ? sqlLabel(item.getKey()) : item.getKey();
+            entry.calls = stat.histogram.count;
+            entry.totalMicros = stat.histogram.total;
+            entry.p50Micros = stat.histogram.percentile(50);
+            entry.p90Micros = stat.histogram.percentile(90);
+            entry.p99Micros = stat.histogram.percentile(99);
+            entry.maxMicros = stat.histogram.max;
+            entry.rows = stat.rows;
+            entry.rowsScanned = stat.rowsScanned;
+            entry.mainThreadCalls = stat.mainThreadCalls;
+            entries.add(entry);
+        }
+        Collections.sort(entries, (a, b) -> Long.compare(b.totalMicros, a.totalMicros));
+        return entries;
+    }
+
+    // Запрос из DatabaseContract показывается по имени константы, остальные - началом текста
+    static String sqlLabel(String sql) {
+        String name = ContractNames.NAMES.get(sql.trim());
+        if (name != null) {
+            return name;
+        }
+        String text = sql.replaceAll("\\s+", " ").trim();
+        return text.length() > 80 ? text.substring(0, 77) + "..." : text;
+    }
+
+    private static final class ContractNames {
+        static final Map<String, String> NAMES = new HashMap<>();
+        static {
+            for (Field field : DatabaseContract.class.getFields()) {
+                if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class
+                        && field.getName().startsWith("SQL_")) {
+                    try {
+                        NAMES.put(((String) field.get(null)).trim(), field.getName());
+                    } catch (IllegalAccessException ignored) {
+                        // Публичные поля читаются всегда
+                    }
+                }
+            }
+        }
+    }
+
+    // Гистограмма задержек в микросекундах: первые SUB_BUCKETS значений точные, дальше
+    // каждая степень двойки делится на HALF_BUCKETS корзин одинаковой ширины
+    static final class Histogram {
+        final int[] counts = new int[BUCKETS];
+        long count;
+        long total;
+        long max;
+
+        void record(long micros) {
+            long value = Math.max(0, micros);
+            counts[index(value)]++;
+            count++;
+            total += value;
+            max = Math.max(max, value);
+        }
+
+        // Верхняя граница корзины, в которую попал перцентиль, но не больше максимума
+        long percentile(double percent) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(percent / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(highestValue(i), max);
+                }
+            }
+            return max;
+        }
+
+        static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            if (shift > MAX_SHIFT) {
+                return BUCKETS - 1;
+            }
+            return SUB_BUCKETS + (shift - 1) * HALF_BUCKETS + (int) (value >>> shift) - HALF_BUCKETS;
+        }
+
+        static long highestValue(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = (index - SUB_BUCKETS) / HALF_BUCKETS + 1;
+            long top = (index - SUB_BUCKETS) % HALF_BUCKETS + HALF_BUCKETS;
+            return ((top + 1) << shift) - 1;
+        }
+    }
+
+    public static class Entry {
+        public String name;
+        public long calls;
+        public long totalMicros;
+        public long p50Micros;
+        public long p90Micros;
+        public long p99Micros;
+        public long maxMicros;
+        public long rows;
+        public long rowsScanned;
+        public long mainThreadCalls;
+    }
+
+    public static class SlowQuery {
+        public long timeMillis;
+        public String method;
+        public String query;
+        public long micros;
+        public int rows;
+        public int rowsScanned;
+        public boolean mainThread;
+        public String thread;
+    }
+
+    public static class Report {
+        public long slowThresholdMicros;
+        public long slowTotal;
+        public List<Entry> methods = new ArrayList<>();
+        public List<Entry> queries = new ArrayList<>();
+        public List<SlowQuery> slowQueries = new ArrayList<>();
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append("⏱ Методы DatabaseHelper (мс: p50 / p90 / p99 / макс):\n");
+            appendEntries(text, methods, false);
+            text.append("\n⏱ Запросы SQL (мс: p50 / p90 / p99 / макс):\n");
+            appendEntries(text, queries, true);
+
+            text.append("\n🐢 Медленные запросы (от ").append(millis(slowThresholdMicros)).append(" мс), всего ")
+                    .append(slowTotal).append(", последние ").append(slowQueries.size()).append(":\n");
+            SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault());
+            for (SlowQuery slow : slowQueries) {
+                text.append("   ").append(format.format(new Date(slow.timeMillis))).append(" ")
+                        .append(millis(slow.micros)).append(" мс ").append(slow.query)
+                        .append(" из ").append(slow.method != null ? slow.method : "-")
+                        .append(", строк ").append(slow.rows).append("/").append(slow.rowsScanned)
+                        .append(slow.mainThread ? ", ⚠️ главный поток" : ", поток " + slow.thread).append("\n");
+            }
+            return text.toString();
+        }
+
+        private static void appendEntries(StringBuilder text, List<Entry> entries, boolean rows) {
+            if (entries.isEmpty()) {
+                text.append("   нет вызовов\n");
+            }
+            for (Entry entry : entries) {
+                text.append("   ").append(entry.name).append(": ").append(entry.calls).append(" выз., ")
+                        .append(millis(entry.p50Micros)).append(" / ").append(millis(entry.p90Micros)).append(" / ")
+                        .append(millis(entry.p99Micros)).append(" / ").append(millis(entry.maxMicros));
+                if (rows) {
+                    text.append(", строк ").append(entry.rows).append(", пройдено ").append(entry.rowsScanned);
+                }
+                if (entry.mainThreadCalls > 0) {
+                    text.append(", ⚠️ на главном потоке ").append(entry.mainThreadCalls);
+                }
+                text.append("\n");
+            }
+        }
+
+        private static String millis(long micros) {
+            return String.format(Locale.US, "%.1f", micros / 1000.0);
+        }
+    }
+}
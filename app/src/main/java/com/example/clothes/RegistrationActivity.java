@@ -21,7 +21,7 @@ public class RegistrationActivity extends AppCompatActivity {
         System.out.println("📝 РЕГИСТРАЦИЯ ЗАПУЩЕНА");
 
         // Инициализация БД
-        databaseHelper = new DatabaseHelper(this);
+        databaseHelper = DatabaseHelper.getInstance(this);
 
         initViews();
         setupClickListeners();
@@ -0,0 +1,212 @@
+package com.example.clothes;
+
+import android.database.Cursor;
+import com.example.clothes.DatabaseHelper.Assignment;
+import com.example.clothes.DatabaseHelper.Material;
+import com.example.clothes.DatabaseHelper.Order;
+import com.example.clothes.DatabaseHelper.QualityControlItem;
+import com.example.clothes.DatabaseHelper.Worker;
+
+// Преобразование строк Cursor в модели DatabaseHelper.
+// Индексы столбцов ищутся один раз при создании маппера, а в цикле по строкам
+// читаются уже по номеру. Столбцы, которых нет в выборке, пропускаются (индекс -1),
+// поэтому один маппер подходит ко всем запросам с разным набором полей.
+final class RowMappers {
+
+    private RowMappers() {}
+
+    static final class AssignmentMapper {
+        private final int id;
+        private final int operationName;
+        private final int productName;
+        private final int plannedQuantity;
+        private final int actualQuantity;
+        private final int defects;
+        private final int status;
+        private final int startTime;
+        private final int endTime;
+        private final int standardTime;
+
+        AssignmentMapper(Cursor cursor) {
+            this(cursor, "product_name");
+        }
+
+        // В запросах бригады в productName показывается имя работника
+        AssignmentMapper(Cursor cursor, String productNameColumn) {
+            id = cursor.getColumnIndexOrThrow("id");
+            operationName = cursor.getColumnIndex("operation_name");
+            productName = cursor.getColumnIndex(productNameColumn);
+            plannedQuantity = cursor.getColumnIndex("planned_quantity");
+            actualQuantity = cursor.getColumnIndex("actual_quantity");
+            defects = cursor.getColumnIndex("defects");
+            status = cursor.getColumnIndex("status");
+            startTime = cursor.getColumnIndex("start_time");
+            endTime = cursor.getColumnIndex("end_time");
+            standardTime = firstColumnIndex(cursor, "standard_time_minutes", "standard_time");
+        }
+
+        Assignment map(Cursor cursor) {
+            Assignment assignment = new Assignment();
+            assignment.id = cursor.getInt(id);
+            if (operationName != -1) assignment.operationName = cursor.getString(operationName);
+            if (productName != -1) assignment.productName = cursor.getString(productName);
+            if (plannedQuantity != -1) assignment.plannedQuantity = cursor.getInt(plannedQuantity);
+            if (actualQuantity != -1) assignment.actualQuantity = cursor.getInt(actualQuantity);
+            if (defects != -1) assignment.defects = cursor.getInt(defects);
+            if (status != -1) assignment.status = cursor.getString(status);
+            if (startTime != -1) assignment.startTime = cursor.getString(startTime);
+            if (endTime != -1) assignment.endTime = cursor.getString(endTime);
+            if (standardTime != -1) assignment.standardTime = cursor.getInt(standardTime);
+            return assignment;
+        }
+    }
+
+    static final class QualityControlItemMapper {
+        private final int id;
+        private final int workerName;
+        private final int operationName;
+        private final int productName;
+        private final int plannedQuantity;
+        private final int actualQuantity;
+        private final int defects;
+        private final int status;
+        private final int createdAt;
+        private final int startTime;
+        private final int endTime;
+        private final int qualityResult;
+        private final int qualityCheckerId;
+        private final int qualityCheckDate;
+        private final int qualityNotes;
+
+        QualityControlItemMapper(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow("id");
+            workerName = cursor.getColumnIndexOrThrow("worker_name");
+            operationName = cursor.getColumnIndexOrThrow("operation_name");
+            productName = cursor.getColumnIndexOrThrow("product_name");
+            plannedQuantity = cursor.getColumnIndexOrThrow("planned_quantity");
+            actualQuantity = cursor.getColumnIndexOrThrow("actual_quantity");
+            defects = cursor.getColumnIndexOrThrow("defects");
+            status = cursor.getColumnIndexOrThrow("status");
+            createdAt = cursor.getColumnIndexOrThrow("created_at");
+            startTime = cursor.getColumnIndexOrThrow("start_time");
+            endTime = cursor.getColumnIndexOrThrow("end_time");
+            qualityResult = cursor.getColumnIndexOrThrow("quality_result");
+            qualityCheckerId = cursor.getColumnIndexOrThrow("quality_checker_id");
+            qualityCheckDate = cursor.getColumnIndexOrThrow("quality_check_date");
+            qualityNotes = cursor.getColumnIndexOrThrow("quality_notes");
+        }
+
+        QualityControlItem map(Cursor cursor) {
+            QualityControlItem task = new QualityControlItem();
+            task.id = cursor.getInt(id);
+            task.workerName = cursor.getString(workerName);
+            task.operationName = cursor.getString(operationName);
+            task.productName = cursor.getString(productName);
+            task.plannedQuantity = cursor.getInt(plannedQuantity);
+            task.actualQuantity = cursor.getInt(actualQuantity);
+            task.defects = cursor.getInt(defects);
+            task.status = cursor.getString(status);
+            task.createdAt = cursor.getString(createdAt);
+            task.startTime = cursor.getString(startTime);
+            task.endTime = cursor.getString(endTime);
+
+            // Проверено, если есть запись в quality_checks
+            task.qualityChecked = !cursor.isNull(qualityResult);
+            task.qualityCheckerId = cursor.getInt(qualityCheckerId);
+            task.qualityCheckDate = cursor.getString(qualityCheckDate);
+            task.qualityNotes = cursor.getString(qualityNotes);
+            return task;
+        }
+    }
+
+    static final class WorkerMapper {
+        private final int id;
+        private final int name;
+        private final int position;
+        private final int completed;
+
+        WorkerMapper(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow("id");
+            name = cursor.getColumnIndexOrThrow("name");
+            position = cursor.getColumnIndexOrThrow("position");
+            completed = cursor.getColumnIndexOrThrow("completed");
+        }
+
+        Worker map(Cursor cursor) {
+            return new Worker(cursor.getInt(id), cursor.getString(name),
+                    cursor.getString(position), cursor.getInt(completed));
+        }
+    }
+
+    static final class OrderMapper {
+        private final int id;
+        private final int orderNumber;
+        private final int customerName;
+        private final int productId;
+        private final int quantity;
+        private final int status;
+        private final int priority;
+        private final int deadline;
+        private final int remainingMinutes;
+        private final int slackMinutes;
+
+        OrderMapper(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow("id");
+            orderNumber = cursor.getColumnIndexOrThrow("order_number");
+            customerName = cursor.getColumnIndexOrThrow("customer_name");
+            productId = cursor.getColumnIndexOrThrow("product_id");
+            quantity = cursor.getColumnIndexOrThrow("quantity");
+            status = cursor.getColumnIndexOrThrow("status");
+            priority = cursor.getColumnIndex("priority");
+            deadline = cursor.getColumnIndex("deadline");
+            remainingMinutes = cursor.getColumnIndex("remaining_minutes");
+            slackMinutes = cursor.getColumnIndex("slack_minutes");
+        }
+
+        Order map(Cursor cursor) {
+            Order order = new Order();
+            order.id = cursor.getInt(id);
+            order.orderNumber = cursor.getString(orderNumber);
+            order.customerName = cursor.getString(customerName);
+            order.productId = cursor.getInt(productId);
+            order.quantity = cursor.getInt(quantity);
+            order.status = cursor.getString(status);
+            if (priority != -1) order.priority = cursor.getString(priority);
+            if (deadline != -1) order.deadline = cursor.getString(deadline);
+            if (remainingMinutes != -1) order.remainingMinutes = cursor.getLong(remainingMinutes);
+            if (slackMinutes != -1) order.slackMinutes = cursor.getLong(slackMinutes);
+            return order;
+        }
+    }
+
+    static final class MaterialMapper {
+        private final int id;
+        private final int name;
+        private final int unit;
+        private final int currentStock;
+        private final int minStock;
+
+        MaterialMapper(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow("id");
+            name = cursor.getColumnIndexOrThrow("name");
+            unit = cursor.getColumnIndexOrThrow("unit");
+            currentStock = cursor.getColumnIndexOrThrow("current_stock");
+            minStock = cursor.getColumnIndexOrThrow("min_stock");
+        }
+
+        Material map(Cursor cursor) {
+            return new Material(cursor.getInt(id), cursor.getString(name), cursor.getDouble(currentStock),
+                    cursor.getDouble(minStock), cursor.getString(unit));
+        }
+    }
+
+    private static int firstColumnIndex(Cursor cursor, String... names) {
+        for (String name : names) {
+            int index = cursor.getColumnIndex(name);
+            if (index != -1) {
+                return index;
+            }
+        }
+        return -1;
+    }
+}
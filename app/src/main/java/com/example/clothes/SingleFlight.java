@@ -0,0 +1,141 @@
+package com.example.clothes;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+// Склейка одинаковых одновременных загрузок: пока идет загрузка по ключу,
+// остальные вызовы с тем же ключом ждут ее и получают тот же результат.
+// Если во время загрузки запись изменила ее таблицы, загрузка помечается устаревшей:
+// ее ждущие все равно получают результат, а следующий вызов начинает ровно одну
+// новую загрузку, к которой присоединяются все последующие.
+// Результаты общие для всех вызвавших, поэтому их нельзя менять.
+// Класс не зависит от Android, поэтому проверяется в JVM-тестах.
+final class SingleFlight {
+
+    interface Loader<T> {
+        T load();
+    }
+
+    private static final class Flight {
+        final String[] tables;
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Object value;
+        volatile RuntimeException error;
+        boolean stale;
+
+        Flight(String[] tables) {
+            this.tables = tables;
+        }
+    }
+
+    private final Map<String, Flight> flights = new HashMap<>();
+
+    private long loads;
+    private long shared;
+    private long reloads;
+
+    @SuppressWarnings("unchecked")
+    <T> T get(String key, String[] tables, Loader<T> loader) {
+        Flight flight;
+        boolean leader;
+        synchronized (this) {
+            flight = flights.get(key);
+            if (flight != null && !flight.stale) {
+                shared++;
+                leader = false;
+            } else {
+                if (flight != null) {
+                    reloads++;
+                }
+                flight = new Flight(tables.clone());
+                flights.put(key, flight);
+                loads++;
+                leader = true;
+            }
+        }
+
+        if (!leader) {
+            awaitUninterruptibly(flight.done);
+            if (flight.error != null) {
+                throw flight.error;
+            }
+            return (T) flight.value;
+        }
+
+        try {
+            T value = loader.load();
+            flight.value = value;
+            return value;
+        } catch (RuntimeException e) {
+            flight.error = e;
+            throw e;
+        } finally {
+            synchronized (this) {
+                // Устаревшую загрузку к этому моменту могла заменить новая
+                if (flights.get(key) == flight) {
+                    flights.remove(key);
+                }
+            }
+            flight.done.countDown();
+        }
+    }
+
+    // Вызывается после каждой записи с таблицами, которые она меняла
+    synchronized void invalidate(String... tables) {
+        invalidateChanged(DatabaseContract.withSummaries(tables).toArray(new String[0]));
+    }
+
+    synchronized void invalidate(String table) {
+        invalidateChanged(DatabaseContract.changedBy(table));
+    }
+
+    // Обычно загрузок в этот момент нет, и сброс ничего не выделяет
+    private void invalidateChanged(String[] changed) {
+        if (flights.isEmpty()) {
+            return;
+        }
+        for (Flight flight : flights.values()) {
+            if (DatabaseContract.touches(flight.tables, changed)) {
+                flight.stale = true;
+            }
+        }
+    }
+
+    synchronized Stats stats() {
+        Stats stats = new Stats();
+        stats.inFlight = flights.size();
+        stats.loads = loads;
+        stats.shared = shared;
+        stats.reloads = reloads;
+        return stats;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static class Stats {
+        public int inFlight;
+        public long loads;
+        public long shared;
+        public long reloads;
+
+        @Override
+        public String toString() {
+            return String.format("загрузок %d, присоединились к идущей %d, повторных после записи %d, " +
+                    "сейчас идет %d", loads, shared, reloads, inFlight);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.clothes;
+
+import android.database.Cursor;
+import android.database.CursorWindow;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQuery;
+
+// Фабрика курсоров для DatabaseHelper: каждый rawQuery получает курсор, который
+// замеряет выполнение запроса и при закрытии передает его в QueryTracer.
+// SQLite выполняет запрос не в rawQuery, а при первом заполнении окна курсора
+// (getCount или первый переход) и заново при переходе за пределы окна, поэтому
+// замеряются именно заполнения. Первое заполнение проходит весь результат, чтобы
+// посчитать строки, а каждое следующее начинает шаги с начала запроса: это и есть
+// "пройдено строк" в отчете. Счетчики шагов виртуальной машины SQLite
+// (sqlite3_stmt_status) Android не открывает.
+final class TracingCursorFactory implements SQLiteDatabase.CursorFactory {
+
+    private static final String QUERY_PREFIX = "SQLiteQuery: ";
+
+    private final QueryTracer tracer;
+
+    TracingCursorFactory(QueryTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Cursor newCursor(SQLiteDatabase db, SQLiteCursorDriver masterQuery, String editTable, SQLiteQuery query) {
+        return new TracedCursor(masterQuery, editTable, query, tracer);
+    }
+
+    private static final class TracedCursor extends SQLiteCursor {
+        private final QueryTracer tracer;
+        private final String sql;
+        private long elapsedNanos;
+        private int rows = -1;
+        private int rowsScanned;
+
+        TracedCursor(SQLiteCursorDriver driver, String editTable, SQLiteQuery query, QueryTracer tracer) {
+            super(driver, editTable, query);
+            this.tracer = tracer;
+            String text = query.toString();
+            this.sql = text.startsWith(QUERY_PREFIX) ? text.substring(QUERY_PREFIX.length()) : text;
+        }
+
+        @Override
+        public int getCount() {
+            if (rows >= 0) {
+                return rows;
+            }
+            long start = System.nanoTime();
+            rows = super.getCount();
+            elapsedNanos += System.nanoTime() - start;
+            rowsScanned += rows;
+            return rows;
+        }
+
+        @Override
+        public boolean onMove(int oldPosition, int newPosition) {
+            CursorWindow window = getWindow();
+            if (window != null && newPosition >= window.getStartPosition()
+                    && newPosition < window.getStartPosition() + window.getNumRows()) {
+                return super.onMove(oldPosition, newPosition);
+            }
+
+            long start = System.nanoTime();
+            boolean moved = super.onMove(oldPosition, newPosition);
+            elapsedNanos += System.nanoTime() - start;
+            window = getWindow();
+            if (window != null) {
+                rowsScanned += window.getStartPosition() + window.getNumRows();
+            }
+            return moved;
+        }
+
+        @Override
+        public void close() {
+            boolean wasClosed = isClosed();
+            super.close();
+            if (!wasClosed && rows >= 0) {
+                tracer.query(sql, elapsedNanos, rows, rowsScanned);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Проверяет {@link BackgroundTasks}: закрытие экрана снимает ждущие чтения и
+ * глушит доставку результатов, но не отменяет записи; долгая запись не
+ * задерживает чтения; очередь считает глубину и время ожидания.
+ */
+public class BackgroundTasksTest {
+
+    private final List<String> ran = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void cancelledScopeDropsQueuedReadsAndUiPosts() throws Exception {
+        BackgroundTasks tasks = new BackgroundTasks(1);
+        List<Runnable> uiQueue = new CopyOnWriteArrayList<>();
+        BackgroundTasks.Scope screen = tasks.newScope(uiQueue::add);
+        CountDownLatch readStarted = new CountDownLatch(1);
+        CountDownLatch releaseRead = new CountDownLatch(1);
+
+        // Первое чтение занимает единственный поток, остальные ждут в очереди
+        screen.read(() -> {
+            readStarted.countDown();
+            await(releaseRead);
+            screen.postToUi(() -> ran.add("ui"));
+            ran.add("slow read");
+        });
+        for (int i = 0; i < 5; i++) {
+            screen.read(() -> ran.add("queued read"));
+        }
+        assertTrue(readStarted.await(5, TimeUnit.SECONDS));
+
+        screen.cancel();
+        releaseRead.countDown();
+        waitUntilIdle(tasks);
+
+        assertEquals(1, ran.size());
+        assertEquals("slow read", ran.get(0));
+        assertEquals(0, uiQueue.size());
+        BackgroundTasks.QueueStats reads = tasks.stats().reads;
+        assertEquals(5, reads.cancelled);
+        assertEquals(1, reads.completed);
+        assertEquals(0, reads.queued);
+    }
+
+    @Test
+    public void writesSurviveClosedScreen() throws Exception {
+        BackgroundTasks tasks = new BackgroundTasks(1);
+        List<Runnable> uiQueue = new CopyOnWriteArrayList<>();
+        BackgroundTasks.Scope screen = tasks.newScope(uiQueue::add);
+        CountDownLatch releaseWrite = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(2);
+
+        screen.write(() -> {
+            await(releaseWrite);
+            written.countDown();
+        });
+        screen.write(() -> {
+            written.countDown();
+            screen.postToUi(() -> ran.add("toast"));
+        });
+        screen.cancel();
+        releaseWrite.countDown();
+
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        waitUntilIdle(tasks);
+        assertEquals(0, uiQueue.size());
+        assertEquals(2, tasks.stats().writes.completed);
+        assertEquals(0, tasks.stats().writes.cancelled);
+    }
+
+    @Test
+    public void longWriteDoesNotDelayReads() throws Exception {
+        BackgroundTasks tasks = new BackgroundTasks(1);
+        BackgroundTasks.Scope screen = tasks.newScope(Runnable::run);
+        CountDownLatch releaseWrite = new CountDownLatch(1);
+        CountDownLatch readDone = new CountDownLatch(1);
+
+        screen.write(() -> await(releaseWrite));
+        screen.read(() -> screen.postToUi(readDone::countDown));
+
+        try {
+            assertTrue(readDone.await(5, TimeUnit.SECONDS));
+        } finally {
+            releaseWrite.countDown();
+        }
+    }
+
+    @Test
+    public void queueDepthAndWaitTimeAreRecorded() throws Exception {
+        BackgroundTasks tasks = new BackgroundTasks(1);
+        BackgroundTasks.Scope screen = tasks.newScope(Runnable::run);
+        CountDownLatch releaseRead = new CountDownLatch(1);
+        CountDownLatch allDone = new CountDownLatch(4);
+
+        screen.read(() -> {
+            await(releaseRead);
+            allDone.countDown();
+        });
+        for (int i = 0; i < 3; i++) {
+            screen.read(allDone::countDown);
+        }
+        Thread.sleep(50);
+        releaseRead.countDown();
+        assertTrue(allDone.await(5, TimeUnit.SECONDS));
+        waitUntilIdle(tasks);
+
+        BackgroundTasks.QueueStats reads = tasks.stats().reads;
+        assertEquals(4, reads.submitted);
+        assertEquals(4, reads.completed);
+        assertEquals(3, reads.maxQueued);
+        assertTrue(reads.maxWaitMs >= 40);
+        assertTrue(reads.maxRunMs >= 40);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Метрики пишутся после выполнения задачи, поэтому ждем, пока очереди опустеют
+    private static void waitUntilIdle(BackgroundTasks tasks) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            BackgroundTasks.Stats stats = tasks.stats();
+            if (stats.reads.running == 0 && stats.reads.queued == 0
+                    && stats.writes.running == 0 && stats.writes.queued == 0) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+    }
+}
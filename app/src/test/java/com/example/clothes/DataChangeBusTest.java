@@ -0,0 +1,103 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Проверяет {@link DataChangeBus}: пачка записей за окно доходит до подписчика
+ * одним набором изменений, подписчик получает только свои таблицы, а ошибка
+ * одного подписчика не мешает остальным.
+ */
+public class DataChangeBusTest {
+
+    private static final long WINDOW_MS = 50;
+
+    private final List<RuntimeException> errors = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void burstOfWritesIsDeliveredOnce() throws Exception {
+        DataChangeBus bus = new DataChangeBus(WINDOW_MS, (subscriber, error) -> errors.add(error));
+        List<DataChangeBus.ChangeSet> received = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(1);
+        bus.subscribe(changes -> {
+            received.add(changes);
+            delivered.countDown();
+        }, "assignments");
+
+        // Как массовая проверка качества: 200 строк подряд
+        for (long id = 1; id <= 200; id++) {
+            bus.publish("assignments", id);
+            bus.publish("quality_checks", 1000 + id);
+        }
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        Thread.sleep(WINDOW_MS * 3);
+
+        assertEquals(1, received.size());
+        DataChangeBus.ChangeSet changes = received.get(0);
+        assertEquals(400, changes.getEventCount());
+        assertEquals(200, changes.rowIds("assignments").size());
+        assertTrue(changes.containsRow("assignments", 17));
+        assertTrue(changes.contains("quality_checks"));
+    }
+
+    @Test
+    public void subscribersSeeOnlyTheirTables() throws Exception {
+        DataChangeBus bus = new DataChangeBus(WINDOW_MS, (subscriber, error) -> errors.add(error));
+        List<DataChangeBus.ChangeSet> workerScreen = new CopyOnWriteArrayList<>();
+        List<DataChangeBus.ChangeSet> storekeeperScreen = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(1);
+        bus.subscribe(changes -> {
+            workerScreen.add(changes);
+            delivered.countDown();
+        }, "assignments", "worker_stats");
+        bus.subscribe(storekeeperScreen::add, "materials");
+
+        bus.publish("worker_stats", "brigade_stats");
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        Thread.sleep(WINDOW_MS * 3);
+
+        assertEquals(1, workerScreen.size());
+        assertTrue(workerScreen.get(0).containsRow("worker_stats", 5));
+        assertEquals(0, storekeeperScreen.size());
+    }
+
+    @Test
+    public void failingSubscriberDoesNotBlockOthers() throws Exception {
+        DataChangeBus bus = new DataChangeBus(WINDOW_MS, (subscriber, error) -> errors.add(error));
+        CountDownLatch delivered = new CountDownLatch(1);
+        bus.subscribe(changes -> {
+            throw new IllegalStateException("экран закрыт");
+        });
+        bus.subscribe(changes -> delivered.countDown());
+
+        bus.publish("users", 1);
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(1, errors.size());
+    }
+
+    @Test
+    public void unsubscribedScreenIsNotNotified() throws Exception {
+        DataChangeBus bus = new DataChangeBus(WINDOW_MS, (subscriber, error) -> errors.add(error));
+        List<DataChangeBus.ChangeSet> closedScreen = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(1);
+        DataChangeBus.Subscriber subscriber = closedScreen::add;
+        bus.subscribe(subscriber);
+        bus.subscribe(changes -> delivered.countDown());
+        bus.unsubscribe(subscriber);
+
+        bus.publish("assignments", 1);
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(0, closedScreen.size());
+    }
+}
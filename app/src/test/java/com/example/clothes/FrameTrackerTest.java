@@ -0,0 +1,103 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Проверяет {@link FrameTracker}: перцентили времени до отрисовки по блокам экрана,
+ * счет пропущенных и зависших кадров по бюджету, привязку медленных обновлений
+ * к вызвавшей их загрузке и выгрузку в JSON.
+ */
+public class FrameTrackerTest {
+
+    private final FrameTracker tracker = new FrameTracker(3);
+
+    @Test
+    public void percentilesArePerScreen() {
+        for (int i = 1; i <= 100; i++) {
+            tracker.update("updateWorkerUI", 500, i * 100, 0, null);
+        }
+        tracker.update("updateMasterUI", 500, 2_000, 0, null);
+
+        FrameTracker.Report report = tracker.report();
+        assertEquals(2, report.screens.size());
+        FrameTracker.ScreenReport worker = report.screens.get(0);
+        assertEquals("updateWorkerUI", worker.name);
+        assertEquals(100, worker.updates);
+        assertEquals(10_000, worker.updateToDrawMaxMicros);
+        assertBetween(4_800, 5_200, worker.updateToDrawP50Micros);
+        assertBetween(9_600, 10_000, worker.updateToDrawP99Micros);
+        assertEquals(0, worker.slowUpdates);
+        assertEquals(2_000, report.screens.get(1).updateToDrawMaxMicros);
+    }
+
+    @Test
+    public void framesOverBudgetAreJankAndLongOnesFrozen() {
+        tracker.setFrameBudgetMicros(8_333);
+        tracker.frame("updateManagerUI", 8_000);
+        tracker.frame("updateManagerUI", 12_000);
+        tracker.frame("updateManagerUI", 16_000);
+        tracker.frame("updateManagerUI", 800_000);
+
+        FrameTracker.ScreenReport manager = tracker.report().screens.get(0);
+        assertEquals(4, manager.frames);
+        assertEquals(3, manager.jankyFrames);
+        assertEquals(1, manager.frozenFrames);
+        assertEquals(75.0, manager.getJankPercent(), 0.001);
+    }
+
+    @Test
+    public void slowUpdatesAreAttributedToTheirLoad() {
+        LiveQuery.Load load = new LiveQuery.Load(7, "assignments, worker_stats", 45_000_000, 0);
+        tracker.update("updateMasterUI", 30_000, 40_000, 2_000, load);
+        tracker.update("updateMasterUI", 1_000, 3_000, 0, load);
+        tracker.update("updateMasterUI", 20_000, 25_000, 0,
+                new LiveQuery.Load(8, LiveQuery.TRIGGER_REFRESH, 5_000_000, 0));
+        tracker.update("updateMasterUI", 20_000, 25_000, 0, null);
+        tracker.update("updateMasterUI", 20_000, 25_000, 0, load);
+
+        FrameTracker.Report report = tracker.report();
+        FrameTracker.ScreenReport master = report.screens.get(0);
+        assertEquals(4, master.slowUpdates);
+        assertEquals(Long.valueOf(2), master.slowByTrigger.get("assignments, worker_stats"));
+        assertEquals(Long.valueOf(1), master.slowByTrigger.get(LiveQuery.TRIGGER_REFRESH));
+
+        // Журнал ограничен и идет от новых к старым
+        assertEquals(3, report.slowUpdates.size());
+        FrameTracker.SlowUpdate latest = report.slowUpdates.get(0);
+        assertEquals(7, latest.loadNumber);
+        assertEquals(45_000, latest.loadMicros);
+        assertEquals(8, report.slowUpdates.get(2).loadNumber);
+        assertTrue(report.toString().contains("после загрузки №7"));
+
+        tracker.reset();
+        assertTrue(tracker.report().screens.isEmpty());
+        assertTrue(tracker.report().slowUpdates.isEmpty());
+    }
+
+    @Test
+    public void jsonCarriesEnvironmentAndEscapesText() {
+        tracker.update("updateStorekeeperUI", 20_000, 30_000, 1_500,
+                new LiveQuery.Load(2, "stock \"movements\"", 1_000_000, 0));
+        Map<String, String> environment = new LinkedHashMap<>();
+        environment.put("versionName", "1.0");
+        environment.put("sdk", "34");
+
+        String json = tracker.report().toJson(environment);
+        assertTrue(json.contains("\"environment\": {\"versionName\": \"1.0\", \"sdk\": \"34\"}"));
+        assertTrue(json.contains("\"name\": \"updateStorekeeperUI\", \"updates\": 1"));
+        assertTrue(json.contains("\"slowByTrigger\": {\"stock \\\"movements\\\"\": 1}"));
+        assertTrue(json.contains("\"deliveryMs\": 1.5, \"load\": {\"number\": 2, \"durationMs\": 1.0"));
+        assertEquals("{\n  \"environment\": {},\n  \"frameBudgetMs\": 16.7,\n  \"screens\": [],\n"
+                + "  \"slowUpdates\": []\n}\n", new FrameTracker(1).report().toJson(new LinkedHashMap<>()));
+    }
+
+    private static void assertBetween(long low, long high, long value) {
+        assertTrue(value + " не в [" + low + ", " + high + "]", value >= low && value <= high);
+    }
+}
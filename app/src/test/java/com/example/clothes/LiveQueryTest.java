@@ -0,0 +1,149 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Проверяет {@link LiveQuery}: перечитывание только при изменении своих таблиц
+ * (включая источники сводок), склейку изменений во время загрузки в одну
+ * следующую, остановку, когда наблюдателей не осталось, и запись того, что
+ * вызвало каждую загрузку.
+ */
+public class LiveQueryTest {
+
+    private static final long WINDOW_MS = 20;
+    private static final String[] WORKER_TABLES = {"assignments", "worker_stats"};
+
+    private final DataChangeBus bus = new DataChangeBus(WINDOW_MS, (subscriber, error) -> {
+        throw error;
+    });
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicInteger version = new AtomicInteger();
+    private final List<Integer> received = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void reloadsOnlyWhenItsTablesChange() throws Exception {
+        LiveQuery<Integer> query = new LiveQuery<>(bus, executor, WORKER_TABLES, version::incrementAndGet);
+        query.observe(received::add);
+        awaitReceived(1);
+
+        bus.publish("materials", 3);
+        Thread.sleep(WINDOW_MS * 5);
+        assertEquals(1, query.getLoadCount());
+
+        // Проверка качества пишет в quality_checks, а worker_stats меняет триггер
+        bus.publish("quality_checks", 10);
+        awaitReceived(2);
+        assertEquals(2, query.getLoadCount());
+    }
+
+    @Test
+    public void changesDuringLoadAreConflatedIntoOneReload() throws Exception {
+        CountDownLatch firstLoadStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstLoad = new CountDownLatch(1);
+        LiveQuery<Integer> query = new LiveQuery<>(bus, executor, WORKER_TABLES, () -> {
+            int value = version.incrementAndGet();
+            if (value == 1) {
+                firstLoadStarted.countDown();
+                await(releaseFirstLoad);
+            }
+            return value;
+        });
+        query.observe(received::add);
+        assertTrue(firstLoadStarted.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 10; i++) {
+            query.refresh();
+        }
+        releaseFirstLoad.countDown();
+        awaitReceived(2);
+        Thread.sleep(WINDOW_MS * 5);
+
+        assertEquals(2, query.getLoadCount());
+        assertEquals(Integer.valueOf(2), received.get(received.size() - 1));
+    }
+
+    @Test
+    public void secondObserverGetsLatestWithoutQuery() throws Exception {
+        LiveQuery<Integer> query = new LiveQuery<>(bus, executor, WORKER_TABLES, version::incrementAndGet);
+        query.observe(received::add);
+        awaitReceived(1);
+
+        List<Integer> secondScreen = new CopyOnWriteArrayList<>();
+        query.observe(secondScreen::add);
+
+        assertEquals(1, secondScreen.size());
+        assertEquals(1, query.getLoadCount());
+    }
+
+    @Test
+    public void stopsWhenLastObserverLeaves() throws Exception {
+        LiveQuery<Integer> query = new LiveQuery<>(bus, executor, WORKER_TABLES, version::incrementAndGet);
+        LiveQuery.Subscription subscription = query.observe(received::add);
+        awaitReceived(1);
+        subscription.close();
+
+        bus.publish("assignments", 1);
+        Thread.sleep(WINDOW_MS * 5);
+        assertEquals(1, query.getLoadCount());
+
+        // Новый наблюдатель начинает с чистой загрузки
+        query.observe(received::add);
+        awaitReceived(2);
+        assertEquals(2, query.getLoadCount());
+    }
+
+    @Test
+    public void loadRecordsWhatTriggeredIt() throws Exception {
+        LiveQuery<Integer> query = new LiveQuery<>(bus, executor, WORKER_TABLES, version::incrementAndGet);
+        List<LiveQuery.Load> loads = new CopyOnWriteArrayList<>();
+        query.observe(value -> {
+            loads.add(query.lastLoad());
+            received.add(value);
+        });
+        awaitReceived(1);
+
+        bus.publish("assignments", 1);
+        awaitReceived(2);
+        query.refresh();
+        awaitReceived(3);
+
+        assertEquals(LiveQuery.TRIGGER_FIRST, loads.get(0).trigger);
+        assertEquals("assignments", loads.get(1).trigger);
+        assertEquals(LiveQuery.TRIGGER_REFRESH, loads.get(2).trigger);
+        assertEquals(3, loads.get(2).number);
+        assertTrue(loads.get(2).durationNanos >= 0);
+    }
+
+    private void awaitReceived(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (received.size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, received.size());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Проверяет {@link Logger}: аргументы встают на места "{}" по порядку, лишние
+ * дописываются в конец, а отладочные сообщения доходят до вывода, только если
+ * отладочный журнал включен при сборке.
+ */
+public class LoggerTest {
+
+    private final List<String> written = new ArrayList<>();
+    private final Logger log = new Logger("DatabaseHelper",
+            (priority, tag, message) -> written.add(priority + " " + tag + ": " + message));
+
+    @Test
+    public void argumentsFillPlaceholdersInOrder() {
+        assertEquals("📝 Учет выполнения задания 10500: +12 шт, брак: 1",
+                Logger.format("📝 Учет выполнения задания {}: +{} шт, брак: {}", 10500, 12, 1));
+        assertEquals("статус null", Logger.format("статус {}", (Object) null));
+        assertEquals("без аргументов {}", Logger.format("без аргументов {}"));
+        assertEquals("a 1 2", Logger.format("a {}", 1, 2));
+        assertEquals("1 и {}", Logger.format("{} и {}", 1));
+    }
+
+    @Test
+    public void errorsAreAlwaysWritten() {
+        log.e("❌ Задание не найдено: {}", 42);
+        log.e("❌ Ошибка: {} ({})", "нет соединения", "assignments");
+
+        assertEquals(2, written.size());
+        assertEquals(Logger.ERROR + " DatabaseHelper: ❌ Задание не найдено: 42", written.get(0));
+        assertEquals(Logger.ERROR + " DatabaseHelper: ❌ Ошибка: нет соединения (assignments)", written.get(1));
+    }
+
+    @Test
+    public void debugFollowsBuildFlag() {
+        log.d("🔄 Обновление статуса задания {} на '{}', затронуто строк: {}", 7, "completed", 1);
+        log.d("✅ Найдено доступных операций: {}", 3);
+
+        if (Logger.DEBUG_ENABLED) {
+            assertEquals(2, written.size());
+            assertEquals(Logger.DEBUG + " DatabaseHelper: 🔄 Обновление статуса задания 7 на 'completed', " +
+                    "затронуто строк: 1", written.get(0));
+        } else {
+            assertEquals(0, written.size());
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Проверяет ход выполнения заказов из {@link DatabaseContract#PROGRESS_SCHEMA}:
+ * маршрут заказа берется из операций изделия, отметка выполнения сразу меняет
+ * готовность заказа и очередь следующего этапа, а триггеры после случайной
+ * смеси записей дают то же, что полный пересчет {@link DatabaseContract#PROGRESS_REBUILD}.
+ */
+public class OrderProgressTest {
+
+    private static final File ASSET_DB = new File("src/main/assets/databases/narek.db");
+    private static final int OPERATIONS = 3000;
+
+    private static final String[] SNAPSHOTS = {
+            "SELECT * FROM order_operation_progress ORDER BY order_id, operation_id",
+            DatabaseContract.SQL_ORDER_PROGRESS,
+            DatabaseContract.SQL_STAGE_PROGRESS,
+            DatabaseContract.SQL_ACTIVE_ORDERS_PROGRESS
+    };
+
+    private File dbFile;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        dbFile = File.createTempFile("narek", ".db");
+        Files.copy(ASSET_DB.toPath(), dbFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getPath());
+
+        execute(DatabaseContract.INDEXES_V3);
+        execute(DatabaseContract.PROGRESS_SCHEMA);
+        execute(DatabaseContract.INDEXES_V9);
+        execute(DatabaseContract.PROGRESS_REBUILD);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+        dbFile.delete();
+    }
+
+    @Test
+    public void orderProgressFollowsRouting() throws Exception {
+        // ORD-001: 100 платьев, 6 операций; раскрой 45 (брак 2), плечевые швы 30 (брак 1)
+        List<List<String>> orders = rows(DatabaseContract.SQL_ORDER_PROGRESS);
+        assertEquals(listOf("1", "ORD-001", "100", "6", "72", "0"), orders.get(0));
+
+        List<List<String>> stages = rows(DatabaseContract.SQL_STAGE_PROGRESS);
+        assertEquals(listOf("1", "Раскрой деталей", "1", "43", "57"), stages.get(0));
+        assertEquals(listOf("2", "Стачать плечевые швы", "1", "29", "14"), stages.get(1));
+        assertEquals(listOf("3", "Обработать горловину", "1", "0", "29"), stages.get(2));
+    }
+
+    @Test
+    public void recordedCompletionMovesUnitsToNextStage() throws Exception {
+        try (PreparedStatement record = connection.prepareStatement(DatabaseContract.SQL_RECORD_COMPLETION)) {
+            record.setInt(1, 20);
+            record.setInt(2, 0);
+            record.setInt(3, 3);
+            record.executeUpdate();
+        }
+
+        List<List<String>> stages = rows(DatabaseContract.SQL_STAGE_PROGRESS);
+        assertEquals(listOf("3", "Обработать горловину", "1", "20", "9"), stages.get(2));
+        assertEquals(listOf("4", "Пришить рукава", "1", "0", "20"), stages.get(3));
+        // Маршрут в assets есть только у платья, поэтому готовность активных - по ORD-001
+        assertEquals(listOf("92", "600"), rows(DatabaseContract.SQL_ACTIVE_ORDERS_PROGRESS).get(0));
+
+        // Закрытый заказ уходит из готовности активных
+        execute("UPDATE orders SET status = 'completed' WHERE id = 1");
+        assertEquals(listOf("0", "0"), rows(DatabaseContract.SQL_ACTIVE_ORDERS_PROGRESS).get(0));
+    }
+
+    @Test
+    public void triggersMatchFullRebuild() throws Exception {
+        Random random = new Random(19);
+        List<Integer> operationIds = ids("SELECT id FROM operations");
+        List<Integer> productIds = ids("SELECT id FROM products");
+
+        connection.setAutoCommit(false);
+        for (int i = 0; i < OPERATIONS; i++) {
+            List<Integer> orderIds = ids("SELECT id FROM orders");
+            List<Integer> assignmentIds = ids("SELECT id FROM assignments");
+            int action = random.nextInt(10);
+            if (action < 3 || assignmentIds.isEmpty()) {
+                // Операция может быть и не из маршрута заказа
+                execute("INSERT INTO assignments (order_id, user_id, operation_id, planned_quantity, status) " +
+                        "VALUES (" + pick(random, orderIds) + ", 1, " + pick(random, operationIds) + ", " +
+                        (1 + random.nextInt(50)) + ", 'assigned')");
+            } else if (action < 7) {
+                try (PreparedStatement record = connection.prepareStatement(DatabaseContract.SQL_RECORD_COMPLETION)) {
+                    int quantity = 1 + random.nextInt(20);
+                    record.setInt(1, quantity);
+                    record.setInt(2, random.nextInt(quantity + 1) / 4);
+                    record.setInt(3, pick(random, assignmentIds));
+                    record.executeUpdate();
+                }
+            } else if (action == 7) {
+                execute("UPDATE assignments SET status = 'cancelled' WHERE id = " + pick(random, assignmentIds));
+            } else if (action == 8) {
+                execute("DELETE FROM assignments WHERE id = " + pick(random, assignmentIds));
+            } else if (random.nextBoolean()) {
+                execute("INSERT INTO orders (order_number, product_id, quantity, status) VALUES ('T-" + i + "', " +
+                        pick(random, productIds) + ", " + (10 + random.nextInt(100)) + ", 'new')");
+            } else {
+                execute("UPDATE orders SET product_id = " + pick(random, productIds) +
+                        " WHERE id = " + pick(random, orderIds));
+            }
+            if (i % 500 == 0) {
+                int product = pick(random, productIds);
+                execute("INSERT INTO operations (product_id, name, sequence_order, standard_time_minutes) " +
+                        "VALUES (" + product + ", 'Операция " + i + "', " + (1 + random.nextInt(8)) + ", 10)");
+                operationIds = ids("SELECT id FROM operations");
+            }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        List<List<List<String>>> incremental = snapshot();
+        execute(DatabaseContract.PROGRESS_REBUILD);
+        assertEquals(snapshot(), incremental);
+    }
+
+    private List<List<List<String>>> snapshot() throws Exception {
+        List<List<List<String>>> snapshot = new ArrayList<>();
+        for (String sql : SNAPSHOTS) {
+            snapshot.add(rows(sql));
+        }
+        return snapshot;
+    }
+
+    private List<List<String>> rows(String sql) throws Exception {
+        List<List<String>> rows = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            ResultSetMetaData meta = resultSet.getMetaData();
+            while (resultSet.next()) {
+                List<String> row = new ArrayList<>();
+                for (int column = 1; column <= meta.getColumnCount(); column++) {
+                    row.add(resultSet.getString(column));
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private List<Integer> ids(String sql) throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                ids.add(resultSet.getInt(1));
+            }
+        }
+        return ids;
+    }
+
+    private static int pick(Random random, List<Integer> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static List<String> listOf(String... values) {
+        List<String> list = new ArrayList<>();
+        for (String value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private void execute(String... sql) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            for (String query : sql) {
+                statement.execute(query);
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Проверяет очередь заказов из {@link DatabaseContract#QUEUE_SCHEMA}: высокий приоритет
+ * стоит раньше среднего и низкого, постраничный обход отдает каждый активный заказ ровно
+ * один раз в порядке очереди и читает индекс без сортировки, а очередь по запасу времени
+ * ставит вперед заказ, которому до срока осталось сделать больше работы.
+ */
+public class OrderQueueTest {
+
+    private static final File ASSET_DB = new File("src/main/assets/databases/narek.db");
+    private static final int ORDERS = 500;
+    private static final int PAGE_SIZE = 7;
+    private static final String NOW = "2024-02-10 08:00:00";
+
+    private File dbFile;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        dbFile = File.createTempFile("narek", ".db");
+        Files.copy(ASSET_DB.toPath(), dbFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getPath());
+
+        execute(DatabaseContract.INDEXES_V3);
+        execute(DatabaseContract.PROGRESS_SCHEMA);
+        execute(DatabaseContract.INDEXES_V9);
+        execute(DatabaseContract.PROGRESS_REBUILD);
+        execute("ALTER TABLE orders ADD COLUMN priority_rank INTEGER NOT NULL DEFAULT 2");
+        execute(DatabaseContract.QUEUE_SCHEMA);
+        execute(DatabaseContract.QUEUE_REBUILD);
+        execute(DatabaseContract.INDEXES_V10);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+        dbFile.delete();
+    }
+
+    @Test
+    public void highPriorityComesFirst() throws Exception {
+        // В assets: ORD-001 high, ORD-002 medium, ORD-003 low; по тексту было бы medium, low, high
+        assertEquals(Arrays.asList("ORD-001", "ORD-002", "ORD-003"), orderNumbers(DatabaseContract.SQL_ACTIVE_ORDERS));
+
+        execute("UPDATE orders SET priority = 'high' WHERE order_number = 'ORD-003'");
+        execute("INSERT INTO orders (order_number, product_id, quantity, deadline, priority) " +
+                "VALUES ('ORD-004', 1, 10, '2024-01-01', 'high')");
+        assertEquals(Arrays.asList("ORD-004", "ORD-001", "ORD-003", "ORD-002"),
+                orderNumbers(DatabaseContract.SQL_ACTIVE_ORDERS));
+    }
+
+    @Test
+    public void pagesWalkQueueInOrder() throws Exception {
+        String[] priorities = {"low", "medium", "high"};
+        String[] statuses = {"new", "in_progress", "completed", "cancelled"};
+        Random random = new Random(11);
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO orders " +
+                "(order_number, product_id, quantity, deadline, status, priority) VALUES (?, 1, 10, ?, ?, ?)")) {
+            for (int i = 0; i < ORDERS; i++) {
+                insert.setString(1, String.format("Q-%04d", i));
+                // Повторяющиеся сроки и заказы без срока проверяют ключ страницы целиком
+                insert.setString(2, random.nextInt(5) == 0 ? null : String.format("2024-03-%02d", 1 + random.nextInt(5)));
+                insert.setString(3, statuses[random.nextInt(statuses.length)]);
+                insert.setString(4, priorities[random.nextInt(priorities.length)]);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        List<String> expected = orderNumbers("SELECT order_number FROM orders " +
+                "WHERE status IN ('new', 'in_progress') " +
+                "ORDER BY CASE priority WHEN 'high' THEN 1 WHEN 'low' THEN 3 ELSE 2 END, " +
+                "deadline IS NULL, deadline, id");
+
+        List<String> paged = new ArrayList<>();
+        try (PreparedStatement first = connection.prepareStatement(DatabaseContract.SQL_ORDER_QUEUE_FIRST_PAGE);
+             PreparedStatement next = connection.prepareStatement(DatabaseContract.SQL_ORDER_QUEUE_NEXT_PAGE)) {
+            first.setInt(1, PAGE_SIZE);
+            PreparedStatement page = first;
+            while (true) {
+                int rank = 0;
+                String due = null;
+                int id = 0;
+                int rows = 0;
+                try (ResultSet resultSet = page.executeQuery()) {
+                    while (resultSet.next()) {
+                        paged.add(resultSet.getString("order_number"));
+                        rank = resultSet.getInt("priority_rank");
+                        due = resultSet.getString("due");
+                        id = resultSet.getInt("id");
+                        rows++;
+                    }
+                }
+                if (rows < PAGE_SIZE) {
+                    break;
+                }
+                next.setInt(1, PAGE_SIZE);
+                next.setInt(2, rank);
+                next.setString(3, due);
+                next.setInt(4, id);
+                page = next;
+            }
+        }
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    public void queuePagesReadIndexWithoutSorting() throws Exception {
+        for (String sql : new String[]{DatabaseContract.SQL_ORDER_QUEUE_FIRST_PAGE,
+                DatabaseContract.SQL_ORDER_QUEUE_NEXT_PAGE}) {
+            String plan = String.join("\n", explain(sql));
+            assertTrue(plan, plan.contains("idx_orders_queue"));
+            assertFalse(plan, plan.contains("TEMP B-TREE"));
+        }
+    }
+
+    @Test
+    public void slackQueuePutsLargerRemainingWorkFirst() throws Exception {
+        // Изделие 1: 6 операций, 120 минут на штуку; срок у обоих заказов одинаковый
+        execute("UPDATE orders SET status = 'completed'");
+        execute("INSERT INTO orders (order_number, product_id, quantity, deadline, priority) " +
+                "VALUES ('SMALL', 1, 10, '2024-02-20', 'high')");
+        execute("INSERT INTO orders (order_number, product_id, quantity, deadline, priority) " +
+                "VALUES ('LARGE', 1, 100, '2024-02-20', 'low')");
+        execute("INSERT INTO orders (order_number, product_id, quantity, priority) " +
+                "VALUES ('UNDATED', 1, 1, 'high')");
+
+        List<List<String>> queue = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                DatabaseContract.SQL_ORDER_QUEUE_BY_SLACK_FIRST_PAGE)) {
+            statement.setString(1, NOW);
+            statement.setInt(2, 10);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    queue.add(Arrays.asList(resultSet.getString("order_number"),
+                            resultSet.getString("remaining_minutes"), resultSet.getString("slack_minutes")));
+                }
+            }
+        }
+
+        // До конца 20 февраля от 10 февраля 8:00 - 10 дней и 16 часов, 15360 минут
+        assertEquals(Arrays.asList("LARGE", "12000", "3360"), queue.get(0));
+        assertEquals(Arrays.asList("SMALL", "1200", "14160"), queue.get(1));
+        assertEquals("UNDATED", queue.get(2).get(0));
+        assertEquals(3, queue.size());
+
+        // Следующая страница продолжает с ключа последней строки
+        try (PreparedStatement statement = connection.prepareStatement(
+                DatabaseContract.SQL_ORDER_QUEUE_BY_SLACK_NEXT_PAGE)) {
+            statement.setString(1, NOW);
+            statement.setInt(2, 10);
+            statement.setLong(3, 3360);
+            statement.setInt(4, id("LARGE"));
+            assertEquals(Arrays.asList("SMALL", "UNDATED"), orderNumbers(statement));
+        }
+
+        // Как в getOrderQueuePage: rawQuery передает все параметры строками
+        try (PreparedStatement statement = connection.prepareStatement(
+                DatabaseContract.SQL_ORDER_QUEUE_BY_SLACK_NEXT_PAGE)) {
+            statement.setString(1, NOW);
+            statement.setString(2, "10");
+            statement.setString(3, "3360");
+            statement.setString(4, String.valueOf(id("LARGE")));
+            assertEquals(Arrays.asList("SMALL", "UNDATED"), orderNumbers(statement));
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                DatabaseContract.SQL_ORDER_QUEUE_BY_SLACK_NEXT_PAGE)) {
+            statement.setString(1, NOW);
+            statement.setString(2, "10");
+            statement.setString(3, "14160");
+            statement.setString(4, String.valueOf(id("SMALL")));
+            assertEquals(Arrays.asList("UNDATED"), orderNumbers(statement));
+        }
+    }
+
+    private List<String> orderNumbers(String sql) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            return orderNumbers(statement);
+        }
+    }
+
+    private List<String> orderNumbers(PreparedStatement statement) throws Exception {
+        List<String> numbers = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                numbers.add(resultSet.getString("order_number"));
+            }
+        }
+        return numbers;
+    }
+
+    private int id(String orderNumber) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT id FROM orders WHERE order_number = ?")) {
+            statement.setString(1, orderNumber);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt(1);
+            }
+        }
+    }
+
+    private List<String> explain(String sql) throws Exception {
+        List<String> details = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                details.add(resultSet.getString("detail"));
+            }
+        }
+        return details;
+    }
+
+    private void execute(String... sql) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            for (String query : sql) {
+                statement.execute(query);
+            }
+        }
+    }
+}
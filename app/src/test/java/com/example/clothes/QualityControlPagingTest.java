@@ -0,0 +1,171 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Проверяет, что постраничная очередь контроля качества по ключу (end_time, id)
+ * выдает каждое выполненное задание ровно один раз и в том же порядке, что и
+ * полная выборка, в том числе когда у многих заданий одинаковый end_time,
+ * и что массовая проверка качества не создает второй проверки задания.
+ */
+public class QualityControlPagingTest {
+
+    private static final File ASSET_DB = new File("src/main/assets/databases/narek.db");
+    private static final int COMPLETED_ASSIGNMENTS = 237;
+    private static final int PAGE_SIZE = 20;
+
+    private File dbFile;
+
+    @Before
+    public void setUp() throws Exception {
+        dbFile = File.createTempFile("narek", ".db");
+        Files.copy(ASSET_DB.toPath(), dbFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        try (Connection connection = open();
+             Statement statement = connection.createStatement()) {
+            for (String sql : DatabaseContract.INDEXES_V3) {
+                statement.execute(sql);
+            }
+
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO assignments (order_id, user_id, operation_id, planned_quantity, " +
+                            "actual_quantity, status, end_time) VALUES (1, 1, 1, 10, 10, 'completed', ?)")) {
+                for (int i = 0; i < COMPLETED_ASSIGNMENTS; i++) {
+                    // По семь заданий на одну минуту: страницы режут группы с одинаковым end_time
+                    insert.setString(1, String.format("2024-03-01 10:%02d:00", i / 7));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            statement.executeUpdate("INSERT INTO quality_checks (assignment_id, inspector_id, result) " +
+                    "SELECT id, 1, 'approved' FROM assignments WHERE status = 'completed' AND id % 5 = 0");
+            statement.executeUpdate("INSERT INTO quality_checks (assignment_id, inspector_id, result) " +
+                    "SELECT id, 1, 'rejected' FROM assignments WHERE status = 'completed' AND id % 10 = 0");
+            statement.execute(DatabaseContract.SQL_BACKFILL_COMPLETED_END_TIME);
+            connection.commit();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        dbFile.delete();
+    }
+
+    @Test
+    public void pagesCoverQueueExactlyOnceInOrder() throws Exception {
+        List<Integer> expected = new ArrayList<>();
+        try (Connection connection = open();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT id FROM assignments " +
+                     "WHERE status = 'completed' ORDER BY end_time DESC, id DESC")) {
+            while (resultSet.next()) {
+                expected.add(resultSet.getInt(1));
+            }
+        }
+        assertTrue(expected.size() >= COMPLETED_ASSIGNMENTS);
+
+        List<Integer> paged = new ArrayList<>();
+        try (Connection connection = open()) {
+            String lastEndTime = null;
+            int lastId = 0;
+            while (true) {
+                PreparedStatement query;
+                if (lastEndTime == null) {
+                    query = connection.prepareStatement(DatabaseContract.SQL_QUALITY_CONTROL_FIRST_PAGE);
+                    query.setInt(1, PAGE_SIZE);
+                } else {
+                    query = connection.prepareStatement(DatabaseContract.SQL_QUALITY_CONTROL_NEXT_PAGE);
+                    query.setString(1, lastEndTime);
+                    query.setInt(2, lastId);
+                    query.setInt(3, PAGE_SIZE);
+                }
+
+                int rows = 0;
+                try (ResultSet resultSet = query.executeQuery()) {
+                    while (resultSet.next()) {
+                        lastId = resultSet.getInt("id");
+                        lastEndTime = resultSet.getString("end_time");
+                        paged.add(lastId);
+                        rows++;
+                    }
+                }
+                query.close();
+
+                if (rows < PAGE_SIZE) {
+                    break;
+                }
+            }
+        }
+
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    public void bulkCheckInsertsOneApprovalPerUncheckedAssignment() throws Exception {
+        try (Connection connection = open()) {
+            List<Integer> unchecked = new ArrayList<>();
+            try (PreparedStatement select = connection.prepareStatement(DatabaseContract.SQL_WORKER_UNCHECKED_COMPLETED)) {
+                select.setInt(1, 1);
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        unchecked.add(resultSet.getInt("id"));
+                    }
+                }
+            }
+            assertTrue(unchecked.size() > 100);
+            long quantityBefore = longValue(connection, "SELECT SUM(actual_quantity) FROM assignments");
+
+            // Два запуска по одной и той же выборке, как при одновременных массовых проверках
+            int inserted = 0;
+            try (PreparedStatement insert = connection.prepareStatement(DatabaseContract.SQL_INSERT_BULK_QUALITY_CHECK)) {
+                for (int run = 0; run < 2; run++) {
+                    for (int assignmentId : unchecked) {
+                        insert.setInt(1, assignmentId);
+                        insert.setInt(2, 2);
+                        insert.setInt(3, 0);
+                        insert.setString(4, null);
+                        insert.setString(5, "2024-03-02 09:00:00");
+                        inserted += insert.executeUpdate();
+                    }
+                }
+            }
+
+            assertEquals(unchecked.size(), inserted);
+            assertEquals(0, longValue(connection, "SELECT COUNT(*) FROM (SELECT assignment_id FROM quality_checks " +
+                    "WHERE inspector_id = 2 GROUP BY assignment_id HAVING COUNT(*) > 1)"));
+            assertEquals(0, longValue(connection, "SELECT COUNT(*) FROM quality_checks " +
+                    "WHERE inspector_id = 2 AND result <> 'approved'"));
+            // Сами задания массовая проверка не меняет
+            assertEquals(quantityBefore, longValue(connection, "SELECT SUM(actual_quantity) FROM assignments"));
+        }
+    }
+
+    private static long longValue(Connection connection, String sql) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private Connection open() throws Exception {
+        return DriverManager.getConnection("jdbc:sqlite:" + dbFile.getPath());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Проверяет {@link QueryCache}: повторное чтение не идет в загрузчик, запись
+ * сбрасывает только записи, зависящие от ее таблиц (включая сводки, которые
+ * меняют триггеры), размер ограничен, а результат загрузки, начатой до сброса,
+ * не остается в кэше.
+ */
+public class QueryCacheTest {
+
+    private static final String[] OPERATIONS = {"operations"};
+    private static final String[] BRIGADE_WORKERS = {"users", "worker_stats"};
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void repeatedReadIsServedFromCache() {
+        QueryCache cache = new QueryCache(8);
+
+        assertEquals("a", cache.get("operations", OPERATIONS, () -> load("a")));
+        assertEquals("a", cache.get("operations", OPERATIONS, () -> load("b")));
+
+        assertEquals(1, loads.get());
+        QueryCache.Stats stats = cache.stats();
+        assertEquals(1, stats.hits);
+        assertEquals(1, stats.misses);
+        assertEquals(1, stats.size);
+    }
+
+    @Test
+    public void writeInvalidatesOnlyDependentEntries() {
+        QueryCache cache = new QueryCache(8);
+        cache.get("operations", OPERATIONS, () -> load("operations"));
+        cache.get("brigade_workers:1", BRIGADE_WORKERS, () -> load("workers"));
+
+        // Отметка выполнения пишет в assignments, триггеры меняют worker_stats
+        cache.invalidate("assignments");
+
+        assertEquals("operations", cache.get("operations", OPERATIONS, () -> load("stale")));
+        assertEquals("workers v2", cache.get("brigade_workers:1", BRIGADE_WORKERS, () -> load("workers v2")));
+        assertEquals(3, loads.get());
+        assertEquals(1, cache.stats().invalidations);
+    }
+
+    @Test
+    public void leastRecentlyReadEntryIsEvicted() {
+        QueryCache cache = new QueryCache(2);
+        cache.get("product:1", new String[]{"products"}, () -> load("1"));
+        cache.get("product:2", new String[]{"products"}, () -> load("2"));
+        cache.get("product:1", new String[]{"products"}, () -> load("1 again"));
+        cache.get("product:3", new String[]{"products"}, () -> load("3"));
+
+        assertEquals("1", cache.get("product:1", new String[]{"products"}, () -> load("1 reloaded")));
+        assertEquals("2 reloaded", cache.get("product:2", new String[]{"products"}, () -> load("2 reloaded")));
+        assertEquals(2, cache.stats().size);
+        assertEquals(2, cache.stats().evictions);
+    }
+
+    @Test
+    public void loadRacingWithWriteIsNotCached() {
+        QueryCache cache = new QueryCache(8);
+
+        String value = cache.get("brigade_workers:1", BRIGADE_WORKERS, () -> {
+            // Запись завершилась, пока загрузчик читал старые данные
+            cache.invalidate("users");
+            return load("stale");
+        });
+
+        assertEquals("stale", value);
+        assertEquals("fresh", cache.get("brigade_workers:1", BRIGADE_WORKERS, () -> load("fresh")));
+        assertEquals(1, cache.stats().size);
+    }
+
+    @Test
+    public void failedLoadIsNotCached() {
+        QueryCache cache = new QueryCache(8);
+
+        assertNull(cache.get("product:7", new String[]{"products"}, () -> load(null)));
+        assertEquals("7", cache.get("product:7", new String[]{"products"}, () -> load("7")));
+        assertEquals(2, cache.stats().misses);
+    }
+
+    private String load(String value) {
+        loads.incrementAndGet();
+        return value;
+    }
+}
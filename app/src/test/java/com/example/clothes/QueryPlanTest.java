@@ -0,0 +1,175 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Прогоняет EXPLAIN QUERY PLAN для каждого запроса из {@link DatabaseContract}
+ * на схеме из assets с индексами текущей версии и падает, если запрос
+ * читает таблицу полным сканированием без индекса или строит временный
+ * автоматический индекс.
+ */
+public class QueryPlanTest {
+
+    private static final File ASSET_DB = new File("src/main/assets/databases/narek.db");
+
+    // Запросы, которым полный проход по таблице нужен по смыслу
+    private static final Map<String, String> ALLOWED_SCANS = new HashMap<>();
+    static {
+        ALLOWED_SCANS.put("SQL_ORDER_COUNTS", "агрегат по всем заказам");
+        ALLOWED_SCANS.put("SQL_BRIGADE_PERFORMANCE", "по строке сводки на бригаду");
+        ALLOWED_SCANS.put("SQL_QUALITY_TOTALS", "по строке сводки на работника");
+        ALLOWED_SCANS.put("SQL_MATERIALS", "справочник материалов для выбора целиком");
+    }
+
+    private static final Pattern FULL_SCAN = Pattern.compile("^SCAN (?:TABLE )?(\\w+)");
+
+    private File dbFile;
+    private Connection connection;
+    private Set<String> tables;
+
+    @Before
+    public void setUp() throws Exception {
+        dbFile = File.createTempFile("narek", ".db");
+        Files.copy(ASSET_DB.toPath(), dbFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : DatabaseContract.INDEXES_V3) {
+                statement.execute(sql);
+            }
+            for (String sql : DatabaseContract.INDEXES_V6) {
+                statement.execute(sql);
+            }
+            for (String sql : DatabaseContract.SUMMARY_SCHEMA) {
+                statement.execute(sql);
+            }
+            for (String sql : DatabaseContract.SEARCH_SCHEMA) {
+                statement.execute(sql);
+            }
+            for (String sql : DatabaseContract.ACTIVE_ORDER_SEARCH_SCHEMA) {
+                statement.execute(sql);
+            }
+            for (String sql : DatabaseContract.STOCK_SCHEMA) {
+                statement.execute(sql);
+            }
+            for (String sql : DatabaseContract.INDEXES_V8) {
+                statement.execute(sql);
+            }
+            for (String sql : DatabaseContract.PROGRESS_SCHEMA) {
+                statement.execute(sql);
+            }
+            for (String sql : DatabaseContract.INDEXES_V9) {
+                statement.execute(sql);
+            }
+            statement.execute("ALTER TABLE orders ADD COLUMN priority_rank INTEGER NOT NULL DEFAULT 2");
+            for (String sql : DatabaseContract.QUEUE_SCHEMA) {
+                statement.execute(sql);
+            }
+            for (String sql : DatabaseContract.INDEXES_V10) {
+                statement.execute(sql);
+            }
+        }
+        tables = tableNames();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+        dbFile.delete();
+    }
+
+    @Test
+    public void queriesDoNotFallBackToTableScans() throws Exception {
+        Map<String, String> queries = contractQueries();
+        assertTrue("Не найдено ни одного запроса", !queries.isEmpty());
+
+        List<String> failures = new ArrayList<>();
+        for (Map.Entry<String, String> query : queries.entrySet()) {
+            if (ALLOWED_SCANS.containsKey(query.getKey())) {
+                continue;
+            }
+            for (String detail : explain(query.getValue())) {
+                Matcher matcher = FULL_SCAN.matcher(detail);
+                // Однострочные подзапросы в FROM (SCAN w, SCAN CONSTANT ROW) таблицами не считаются,
+                // а полнотекстовый индекс ищет MATCH по своему индексу (VIRTUAL TABLE INDEX)
+                boolean tableScan = matcher.find() && tables.contains(matcher.group(1))
+                        && !detail.contains(" USING ") && !detail.contains(" VIRTUAL TABLE INDEX ");
+                boolean automaticIndex = detail.contains("AUTOMATIC");
+                if (tableScan || automaticIndex) {
+                    failures.add(query.getKey() + ": " + detail);
+                }
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            fail("Запросы без индекса:\n" + String.join("\n", failures));
+        }
+    }
+
+    @Test
+    public void allowedScansReferToExistingQueries() throws Exception {
+        Map<String, String> queries = contractQueries();
+        for (String name : ALLOWED_SCANS.keySet()) {
+            assertTrue("Неизвестный запрос в ALLOWED_SCANS: " + name, queries.containsKey(name));
+        }
+    }
+
+    private List<String> explain(String sql) throws Exception {
+        List<String> details = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                details.add(resultSet.getString("detail"));
+            }
+        }
+        return details;
+    }
+
+    private Set<String> tableNames() throws Exception {
+        Set<String> names = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table'")) {
+            while (resultSet.next()) {
+                names.add(resultSet.getString(1));
+            }
+        }
+        return names;
+    }
+
+    private static Map<String, String> contractQueries() throws IllegalAccessException {
+        Map<String, String> queries = new LinkedHashMap<>();
+        for (Field field : DatabaseContract.class.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) && field.getType() == String.class
+                    && field.getName().startsWith("SQL_")) {
+                queries.put(field.getName(), (String) field.get(null));
+            }
+        }
+        return queries;
+    }
+}
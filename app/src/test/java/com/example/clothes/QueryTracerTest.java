@@ -0,0 +1,146 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Проверяет {@link QueryTracer}: перцентили гистограммы отличаются от точных не больше
+ * чем на ширину корзины, SQL относится к самому внешнему методу DatabaseHelper,
+ * вызовы с главного потока считаются отдельно, а журнал медленных запросов хранит
+ * только последние записи от новых к старым.
+ */
+public class QueryTracerTest {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    public void histogramPercentilesStayWithinBucketWidth() {
+        QueryTracer.Histogram histogram = new QueryTracer.Histogram();
+        for (long micros = 1; micros <= 100_000; micros++) {
+            histogram.record(micros);
+        }
+
+        assertEquals(100_000, histogram.count);
+        assertEquals(100_000, histogram.max);
+        assertWithin(50_000, histogram.percentile(50));
+        assertWithin(90_000, histogram.percentile(90));
+        assertWithin(99_000, histogram.percentile(99));
+        assertEquals(100_000, histogram.percentile(100));
+
+        // Маленькие значения хранятся точно
+        QueryTracer.Histogram small = new QueryTracer.Histogram();
+        small.record(3);
+        small.record(7);
+        assertEquals(3, small.percentile(50));
+        assertEquals(7, small.percentile(99));
+    }
+
+    @Test
+    public void bucketBoundsCoverEveryValue() {
+        long previous = -1;
+        for (long value = 0; value < 5_000_000; value += 1 + value / 50) {
+            int index = QueryTracer.Histogram.index(value);
+            long high = QueryTracer.Histogram.highestValue(index);
+            assertTrue(value + " <= " + high, value <= high);
+            assertTrue(high - value <= value / 16);
+            assertTrue(index >= previous);
+            previous = index;
+        }
+    }
+
+    @Test
+    public void queriesAreAttributedToOutermostMethod() {
+        QueryTracer tracer = new QueryTracer(Thread.currentThread(), Long.MAX_VALUE, 4);
+
+        long outer = tracer.enter("bulkCheckWorkerQuality");
+        tracer.query(DatabaseContract.SQL_WORKER_UNCHECKED_COMPLETED, 2 * MS, 5, 40);
+        long inner = tracer.enter("checkAssignmentsQualityBatch");
+        tracer.query(DatabaseContract.SQL_APPLY_QUALITY_CHECK, MS, 1, 1);
+        tracer.exit("checkAssignmentsQualityBatch", inner);
+        tracer.exit("bulkCheckWorkerQuality", outer);
+
+        QueryTracer.Report report = tracer.report();
+        assertEquals(2, report.methods.size());
+        assertEquals(1, entry(report, "bulkCheckWorkerQuality").calls);
+        // Тест идет в "главном" потоке трассировщика
+        assertEquals(1, entry(report, "bulkCheckWorkerQuality").mainThreadCalls);
+
+        QueryTracer.Entry unchecked = sqlEntry(report, "SQL_WORKER_UNCHECKED_COMPLETED");
+        assertEquals(5, unchecked.rows);
+        assertEquals(40, unchecked.rowsScanned);
+        assertWithin(2000, unchecked.p99Micros);
+        // Сначала запрос, на который ушло больше всего времени
+        assertEquals("SQL_WORKER_UNCHECKED_COMPLETED", report.queries.get(0).name);
+    }
+
+    @Test
+    public void backgroundCallsAreNotCountedAsMainThread() throws Exception {
+        QueryTracer tracer = new QueryTracer(Thread.currentThread(), 0, 4);
+
+        Thread worker = new Thread(() -> {
+            long trace = tracer.enter("getWorkerSnapshot");
+            tracer.query("SELECT 1", MS, 1, 1);
+            tracer.exit("getWorkerSnapshot", trace);
+        }, "db-read");
+        worker.start();
+        worker.join();
+
+        QueryTracer.Report report = tracer.report();
+        assertEquals(0, entry(report, "getWorkerSnapshot").mainThreadCalls);
+        assertEquals(0, sqlEntry(report, "SELECT 1").mainThreadCalls);
+        QueryTracer.SlowQuery slow = report.slowQueries.get(0);
+        assertEquals("getWorkerSnapshot", slow.method);
+        assertEquals("db-read", slow.thread);
+        assertFalse(slow.mainThread);
+    }
+
+    @Test
+    public void slowLogKeepsLatestEntries() {
+        QueryTracer tracer = new QueryTracer(Thread.currentThread(), 16_000, 3);
+
+        tracer.query("SELECT fast", MS, 1, 1);
+        for (int i = 1; i <= 5; i++) {
+            tracer.query("SELECT slow " + i, 20 * MS, i, i);
+        }
+
+        QueryTracer.Report report = tracer.report();
+        assertEquals(5, report.slowTotal);
+        assertEquals(3, report.slowQueries.size());
+        assertEquals("SELECT slow 5", report.slowQueries.get(0).query);
+        assertEquals("SELECT slow 3", report.slowQueries.get(2).query);
+        // Вне методов DatabaseHelper метода нет
+        assertNull(report.slowQueries.get(0).method);
+        assertTrue(report.slowQueries.get(0).mainThread);
+
+        tracer.reset();
+        report = tracer.report();
+        assertTrue(report.queries.isEmpty());
+        assertTrue(report.slowQueries.isEmpty());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(expected + " ~ " + actual, Math.abs(actual - expected) <= expected / 16);
+    }
+
+    private static QueryTracer.Entry entry(QueryTracer.Report report, String method) {
+        for (QueryTracer.Entry entry : report.methods) {
+            if (entry.name.equals(method)) {
+                return entry;
+            }
+        }
+        throw new AssertionError("Нет метода " + method);
+    }
+
+    private static QueryTracer.Entry sqlEntry(QueryTracer.Report report, String name) {
+        for (QueryTracer.Entry entry : report.queries) {
+            if (entry.name.equals(name)) {
+                return entry;
+            }
+        }
+        throw new AssertionError("Нет запроса " + name);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Проверяет, что {@link DatabaseContract#SQL_RECORD_COMPLETION} не теряет
+ * приросты при параллельной записи из нескольких соединений.
+ */
+public class RecordCompletionConcurrencyTest {
+
+    private static final File ASSET_DB = new File("src/main/assets/databases/narek.db");
+    private static final int THREADS = 8;
+    private static final int INCREMENTS_PER_THREAD = 500;
+
+    private File dbFile;
+    private long assignmentId;
+
+    @Before
+    public void setUp() throws Exception {
+        dbFile = File.createTempFile("narek", ".db");
+        Files.copy(ASSET_DB.toPath(), dbFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        try (Connection connection = open();
+             Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode = WAL");
+            statement.executeUpdate("INSERT INTO assignments (order_id, user_id, operation_id, planned_quantity, status) " +
+                    "VALUES (1, 1, 1, " + (THREADS * INCREMENTS_PER_THREAD) + ", 'assigned')");
+            try (ResultSet resultSet = statement.executeQuery("SELECT last_insert_rowid()")) {
+                resultSet.next();
+                assignmentId = resultSet.getLong(1);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        dbFile.delete();
+        new File(dbFile.getPath() + "-wal").delete();
+        new File(dbFile.getPath() + "-shm").delete();
+    }
+
+    @Test
+    public void firstIncrementStartsAssignment() throws Exception {
+        try (Connection connection = open()) {
+            recordCompletion(connection, 1, 0);
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(
+                         "SELECT status, start_time, end_time FROM assignments WHERE id = " + assignmentId)) {
+                resultSet.next();
+                assertEquals("in_progress", resultSet.getString("status"));
+                assertNotNull(resultSet.getString("start_time"));
+                assertNull(resultSet.getString("end_time"));
+            }
+        }
+    }
+
+    @Test
+    public void parallelIncrementsAreNotLost() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Void>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit((Callable<Void>) () -> {
+                try (Connection connection = open()) {
+                    for (int i = 0; i < INCREMENTS_PER_THREAD; i++) {
+                        recordCompletion(connection, 1, i % 10 == 0 ? 1 : 0);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        try (Connection connection = open();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT actual_quantity, defects, status, end_time FROM assignments WHERE id = " + assignmentId)) {
+            resultSet.next();
+            assertEquals(THREADS * INCREMENTS_PER_THREAD, resultSet.getInt("actual_quantity"));
+            assertEquals(THREADS * INCREMENTS_PER_THREAD / 10, resultSet.getInt("defects"));
+            assertEquals("completed", resultSet.getString("status"));
+            // Время ставит сама SQLite в формате остальных дат приложения
+            assertTrue(resultSet.getString("end_time").matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}"));
+        }
+    }
+
+    private void recordCompletion(Connection connection, int quantity, int defects) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement(DatabaseContract.SQL_RECORD_COMPLETION)) {
+            statement.setInt(1, quantity);
+            statement.setInt(2, defects);
+            statement.setLong(3, assignmentId);
+            assertEquals(1, statement.executeUpdate());
+        }
+    }
+
+    private Connection open() throws Exception {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA busy_timeout = 10000");
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Проверяет поисковый индекс из {@link DatabaseContract#SEARCH_SCHEMA}: триггеры
+ * держат его в согласии с исходными таблицами, поиск не зависит от регистра
+ * кириллицы и служебных символов, название с введенным началом стоит выше,
+ * а поиск по мере ввода на 100 тысячах заказов идет через полнотекстовый индекс
+ * без полного просмотра и находит нужные заказы. Время поиска меряет
+ * SearchAsYouTypeBenchmark модуля benchmark.
+ */
+public class SearchIndexTest {
+
+    private static final File ASSET_DB = new File("src/main/assets/databases/narek.db");
+    private static final int ORDERS = 100_000;
+    private static final int LIMIT = 50;
+
+    private File dbFile;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        dbFile = File.createTempFile("narek", ".db");
+        Files.copy(ASSET_DB.toPath(), dbFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getPath());
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : DatabaseContract.SEARCH_SCHEMA) {
+                statement.execute(sql);
+            }
+            for (String sql : DatabaseContract.SEARCH_REBUILD) {
+                statement.execute(sql);
+            }
+            for (String sql : DatabaseContract.ACTIVE_ORDER_SEARCH_SCHEMA) {
+                statement.execute(sql);
+            }
+            for (String sql : DatabaseContract.ACTIVE_ORDER_SEARCH_REBUILD) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+        dbFile.delete();
+    }
+
+    @Test
+    public void matchQueryIgnoresFtsSyntax() {
+        assertEquals("ord* 2024*", DatabaseContract.searchMatchQuery("  ORD-2024 "));
+        assertEquals("платье* summer*", DatabaseContract.searchMatchQuery("платье \"Summer"));
+        assertEquals("a* or* b*", DatabaseContract.searchMatchQuery("a* OR-(b)"));
+        assertNull(DatabaseContract.searchMatchQuery(" - \" * "));
+        assertNull(DatabaseContract.searchMatchQuery(null));
+    }
+
+    @Test
+    public void titlePrefixEscapesLikeWildcards() throws Exception {
+        assertEquals("10\\%\\_a\\\\", DatabaseContract.searchTitlePrefix(" 10%_a\\ "));
+        assertEquals("", DatabaseContract.searchTitlePrefix(null));
+
+        // "10%" - это начало "10%-SALE", а не любое название на "10"
+        insertOrder("100-B", "Клиент", "new");
+        insertOrder("10%-SALE", "Клиент", "new");
+        assertEquals("10%-SALE", titles("10%", DatabaseContract.SEARCH_ORDER).get(0));
+    }
+
+    @Test
+    public void triggersKeepIndexInSync() throws Exception {
+        execute("INSERT INTO products (article, name) VALUES ('ART-900', 'Куртка \"Зима\"')");
+        assertEquals(Arrays.asList("Куртка \"Зима\""), titles("КУРТ", DatabaseContract.SEARCH_PRODUCT));
+        assertEquals(Arrays.asList("Куртка \"Зима\""), titles("art 900", DatabaseContract.SEARCH_PRODUCT));
+
+        execute("UPDATE products SET name = 'Пальто \"Зима\"' WHERE article = 'ART-900'");
+        assertTrue(titles("куртка", DatabaseContract.SEARCH_PRODUCT).isEmpty());
+        assertEquals(Arrays.asList("Пальто \"Зима\""), titles("пальто", DatabaseContract.SEARCH_PRODUCT));
+
+        execute("DELETE FROM products WHERE article = 'ART-900'");
+        assertTrue(titles("пальто", DatabaseContract.SEARCH_PRODUCT).isEmpty());
+
+        // Изменение столбца, которого нет в индексе, индекс не трогает
+        execute("UPDATE users SET brigade = 'Бригада №3' WHERE id = 1");
+        assertEquals(count("SELECT COUNT(*) FROM users"),
+                count("SELECT COUNT(*) FROM search_index WHERE kind = 'user'"));
+    }
+
+    @Test
+    public void titleStartingWithQueryRanksFirst() throws Exception {
+        insertOrder("Z-100", "Ателье \"Платье\"", "new");
+        insertOrder("PLATYE-1", "ИП Сидоров", "new");
+        insertOrder("Z-101", "Магазин платье и брюки", "new");
+
+        List<String> found = titles("platye", DatabaseContract.SEARCH_ORDER);
+        assertEquals("PLATYE-1", found.get(0));
+    }
+
+    @Test
+    public void titleStartIsFoundBehindManyOtherMatches() throws Exception {
+        // Совпадения в подписи идут раньше по docid и заполняют все SEARCH_CANDIDATES
+        for (int i = 0; i < DatabaseContract.SEARCH_CANDIDATES + 100; i++) {
+            insertOrder(String.format("Z-%04d", i), "Ателье Платье " + i, "completed");
+        }
+        insertOrder("ПЛАТЬЕ-7", "ИП Сидоров", "new");
+
+        assertEquals("ПЛАТЬЕ-7", titles("платье", DatabaseContract.SEARCH_ORDER).get(0));
+    }
+
+    @Test
+    public void activeOrderSearchSkipsClosedOrders() throws Exception {
+        insertOrder("ORD-901", "Клиент", "completed");
+        insertOrder("ORD-902", "Клиент", "in_progress");
+
+        assertEquals(Arrays.asList("ORD-902"), activeTitles("ord 90"));
+
+        // Индекс активных заказов ведут триггеры по статусу
+        execute("UPDATE orders SET status = 'completed' WHERE order_number = 'ORD-902'");
+        execute("UPDATE orders SET status = 'new' WHERE order_number = 'ORD-901'");
+        assertEquals(Arrays.asList("ORD-901"), activeTitles("ord 90"));
+        execute("DELETE FROM orders WHERE order_number = 'ORD-901'");
+        assertTrue(activeTitles("ord 90").isEmpty());
+    }
+
+    @Test
+    public void activeOrdersAreFoundBehindManyClosedOnes() throws Exception {
+        execute("UPDATE orders SET status = 'completed'");
+        for (int i = 0; i < DatabaseContract.SEARCH_CANDIDATES + 100; i++) {
+            insertOrder(String.format("ORD-%04d", i), "Клиент", "completed");
+        }
+        insertOrder("ORD-7001", "Клиент", "new");
+        insertOrder("ORD-7002", "Клиент", "in_progress");
+
+        assertEquals(Arrays.asList("ORD-7001", "ORD-7002"), activeTitles("ORD"));
+        assertTrue(explain(DatabaseContract.SQL_SEARCH_ACTIVE_ORDERS).toString(),
+                explain(DatabaseContract.SQL_SEARCH_ACTIVE_ORDERS).get(0)
+                        .startsWith("SCAN s VIRTUAL TABLE INDEX "));
+    }
+
+    @Test
+    public void searchAsYouTypeUsesIndexOnLargeCatalog() throws Exception {
+        String[] customers = {"ООО Стиль", "ИП Петров", "Магазин Детский мир", "Ателье Мода", "ТЦ Радуга"};
+        Random random = new Random(7);
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO orders (order_number, customer_name, product_id, quantity, status) VALUES (?, ?, 1, 10, 'new')")) {
+            for (int i = 0; i < ORDERS; i++) {
+                insert.setString(1, String.format("ORD-%06d", i));
+                insert.setString(2, customers[random.nextInt(customers.length)] + " " + random.nextInt(1000));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        // Полнотекстовый индекс отвечает на MATCH сам (INDEX 0 у fts4 - полный просмотр),
+        // а обычные таблицы не просматриваются целиком
+        List<String> plan = explain(DatabaseContract.SQL_SEARCH);
+        assertTrue(plan.toString(), plan.stream().anyMatch(line ->
+                line.startsWith("SCAN search_index VIRTUAL TABLE INDEX ") && !line.contains("INDEX 0:")));
+        for (String line : plan) {
+            assertTrue(plan.toString(), !line.startsWith("SCAN ") || line.startsWith("SCAN search_index VIRTUAL")
+                    || line.startsWith("SCAN (subquery"));
+        }
+
+        // Как набирает пользователь: от широкого префикса к точному номеру
+        List<String> found = titles("ord", DatabaseContract.SEARCH_ORDER);
+        assertEquals(LIMIT, found.size());
+        for (String input : new String[]{"ord 042", "ord 0421", "ord 04217"}) {
+            found = titles(input, DatabaseContract.SEARCH_ORDER);
+            String prefix = "ORD-" + input.substring(4);
+            assertTrue(input, !found.isEmpty());
+            for (String title : found) {
+                assertTrue(input + ": " + title, title.startsWith(prefix));
+            }
+        }
+        assertEquals(10, titles("ord 04217", DatabaseContract.SEARCH_ORDER).size());
+        assertEquals(Arrays.asList("ORD-042170"), titles("ord 042170", DatabaseContract.SEARCH_ORDER));
+        for (String title : titles("петров 5", DatabaseContract.SEARCH_ORDER)) {
+            assertTrue(title, title.startsWith("ORD-"));
+        }
+    }
+
+    private List<String> explain(String sql) throws Exception {
+        List<String> details = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                details.add(resultSet.getString("detail"));
+            }
+        }
+        return details;
+    }
+
+    private List<String> titles(String input, String kind) throws Exception {
+        List<String> titles = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(DatabaseContract.SQL_SEARCH)) {
+            statement.setString(1, DatabaseContract.searchMatchQuery(input));
+            statement.setString(2, kind);
+            statement.setString(3, DatabaseContract.searchTitlePrefix(input));
+            statement.setInt(4, LIMIT);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    titles.add(resultSet.getString("title"));
+                }
+            }
+        }
+        return titles;
+    }
+
+    private List<String> activeTitles(String input) throws Exception {
+        List<String> titles = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(DatabaseContract.SQL_SEARCH_ACTIVE_ORDERS)) {
+            statement.setString(1, DatabaseContract.searchMatchQuery(input));
+            statement.setString(2, DatabaseContract.searchTitlePrefix(input));
+            statement.setInt(3, LIMIT);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    titles.add(resultSet.getString("title"));
+                }
+            }
+        }
+        return titles;
+    }
+
+    private void insertOrder(String number, String customer, String status) throws Exception {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO orders (order_number, customer_name, product_id, quantity, status) VALUES (?, ?, 1, 10, ?)")) {
+            insert.setString(1, number);
+            insert.setString(2, customer);
+            insert.setString(3, status);
+            insert.executeUpdate();
+        }
+    }
+
+    private void execute(String sql) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private long count(String sql) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Проверяет {@link SingleFlight}: одновременные одинаковые загрузки читают БД
+ * один раз, запись во время загрузки дает ровно одну повторную загрузку,
+ * а запись в посторонние таблицы и другие ключи склейке не мешают.
+ */
+public class SingleFlightTest {
+
+    private static final String[] WORKER_TABLES = {"assignments", "worker_stats"};
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final List<Object> results = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void concurrentIdenticalLoadsShareOneQuery() throws Exception {
+        SingleFlight flights = new SingleFlight();
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread leader = call(flights, "worker:1", release, "snapshot");
+        awaitLoads(1);
+        Thread[] followers = new Thread[5];
+        for (int i = 0; i < followers.length; i++) {
+            followers[i] = call(flights, "worker:1", release, "duplicate");
+        }
+        awaitShared(flights, 5);
+        release.countDown();
+        join(leader);
+        join(followers);
+
+        assertEquals(1, loads.get());
+        assertEquals(6, results.size());
+        for (Object result : results) {
+            assertSame(results.get(0), result);
+        }
+        assertEquals(0, flights.stats().inFlight);
+    }
+
+    @Test
+    public void writeDuringLoadSchedulesExactlyOneReload() throws Exception {
+        SingleFlight flights = new SingleFlight();
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch releaseSecond = new CountDownLatch(1);
+
+        Thread first = call(flights, "worker:1", releaseFirst, "before write");
+        awaitLoads(1);
+        // Отметка выполнения пишет в assignments; worker_stats меняет триггер
+        flights.invalidate("assignments");
+
+        Thread second = call(flights, "worker:1", releaseSecond, "after write");
+        awaitLoads(2);
+        Thread third = call(flights, "worker:1", releaseSecond, "duplicate");
+        awaitShared(flights, 1);
+
+        releaseFirst.countDown();
+        releaseSecond.countDown();
+        join(first, second, third);
+
+        assertEquals(2, loads.get());
+        assertTrue(results.contains("before write"));
+        assertEquals(2, countOf("after write"));
+        SingleFlight.Stats stats = flights.stats();
+        assertEquals(1, stats.reloads);
+        assertEquals(1, stats.shared);
+    }
+
+    @Test
+    public void unrelatedWriteKeepsLoadShared() throws Exception {
+        SingleFlight flights = new SingleFlight();
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread first = call(flights, "worker:1", release, "snapshot");
+        awaitLoads(1);
+        flights.invalidate("materials");
+        Thread second = call(flights, "worker:1", release, "duplicate");
+        awaitShared(flights, 1);
+        release.countDown();
+        join(first, second);
+
+        assertEquals(1, loads.get());
+        assertEquals(2, countOf("snapshot"));
+    }
+
+    @Test
+    public void differentKeysLoadSeparately() throws Exception {
+        SingleFlight flights = new SingleFlight();
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread worker1 = call(flights, "worker:1", release, "worker 1");
+        Thread worker5 = call(flights, "worker:5", release, "worker 5");
+        awaitLoads(2);
+        release.countDown();
+        join(worker1, worker5);
+
+        assertTrue(results.contains("worker 1"));
+        assertTrue(results.contains("worker 5"));
+        assertEquals(0, flights.stats().shared);
+    }
+
+    @Test
+    public void failedLoadIsNotReused() {
+        SingleFlight flights = new SingleFlight();
+
+        try {
+            flights.get("master:2:Бригада №1", WORKER_TABLES, () -> {
+                throw new IllegalStateException("БД недоступна");
+            });
+        } catch (IllegalStateException expected) {
+            // ожидаемо
+        }
+
+        assertEquals("ok", flights.get("master:2:Бригада №1", WORKER_TABLES, () -> "ok"));
+        assertEquals(2, flights.stats().loads);
+    }
+
+    private Thread call(SingleFlight flights, String key, CountDownLatch release, String value) {
+        Thread thread = new Thread(() -> results.add(flights.get(key, WORKER_TABLES, () -> {
+            loads.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Новый объект на каждую загрузку: общий результат проверяется по ссылке
+            return new String(value);
+        })));
+        thread.start();
+        return thread;
+    }
+
+    private int countOf(String value) {
+        int count = 0;
+        for (Object result : results) {
+            if (value.equals(result)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void awaitLoads(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (loads.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, loads.get());
+    }
+
+    private static void awaitShared(SingleFlight flights, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (flights.stats().shared < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, flights.stats().shared);
+    }
+
+    private static void join(Thread... threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Проверяет журнал движений материалов из {@link DatabaseContract#STOCK_SCHEMA}:
+ * миграция сводит журнал с прежними остатками, триггер ведет current_stock,
+ * расход по дням, снимки и список низкого запаса так же, как полный пересчет,
+ * а остаток на момент времени по снимку совпадает с проигрыванием всего журнала.
+ */
+public class StockLedgerTest {
+
+    private static final File ASSET_DB = new File("src/main/assets/databases/narek.db");
+    private static final double EPSILON = 1e-6;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 11, 1, 0, 0);
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private File dbFile;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        dbFile = File.createTempFile("narek", ".db");
+        Files.copy(ASSET_DB.toPath(), dbFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getPath());
+
+        // Те же шаги, что onUpgrade для версий 3 и 8
+        execute(DatabaseContract.INDEXES_V3);
+        execute(DatabaseContract.STOCK_SCHEMA);
+        execute(DatabaseContract.INDEXES_V8);
+        execute(DatabaseContract.STOCK_OPENING);
+        execute(DatabaseContract.STOCK_REBUILD);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+        dbFile.delete();
+    }
+
+    @Test
+    public void migrationKeepsStockAndHistory() throws Exception {
+        // В assets: ткань 150.5 и нитки 25 после двух списаний 2024-01-30
+        assertEquals(150.5, stock(1), EPSILON);
+        assertEquals(25, stock(2), EPSILON);
+        assertEquals(150.5, ledgerBalance(1), EPSILON);
+        assertEquals(25.5, number("SELECT quantity FROM material_daily_usage " +
+                "WHERE day = '2024-01-30' AND material_id = 1"), EPSILON);
+        // Журнал начинается с первого списания: до него материала нет
+        assertEquals(0, stockAt(1, "2024-01-29 23:59:59"), EPSILON);
+        assertEquals(150.5, stockAt(1, "2024-01-30 00:00:00"), EPSILON);
+        assertEquals(176.0, number("SELECT quantity FROM stock_movements " +
+                "WHERE material_id = 1 AND kind = 'adjustment'"), EPSILON);
+    }
+
+    @Test
+    public void movementsUpdateStockAndLowStockIncrementally() throws Exception {
+        assertTrue(lowStockNames().isEmpty());
+
+        // Выдача ниток ниже минимума (10) сразу попадает в список низкого запаса
+        move(2, DatabaseContract.STOCK_CONSUMPTION, -20, "2025-11-03 10:00:00");
+        assertEquals(5, stock(2), EPSILON);
+        assertEquals(listOf("Нитки #40"), lowStockNames());
+
+        move(2, DatabaseContract.STOCK_RECEIPT, 30, "2025-11-03 15:00:00");
+        assertEquals(35, stock(2), EPSILON);
+        assertTrue(lowStockNames().isEmpty());
+
+        assertEquals(20, number("SELECT quantity FROM material_daily_usage " +
+                "WHERE day = '2025-11-03' AND material_id = 2"), EPSILON);
+    }
+
+    @Test
+    public void recentUsageReadsDailyTotalsByMaterial() throws Exception {
+        move(1, DatabaseContract.STOCK_CONSUMPTION, -10, "2025-11-01 09:00:00");
+        move(1, DatabaseContract.STOCK_CONSUMPTION, -5.5, "2025-11-02 09:00:00");
+        move(3, DatabaseContract.STOCK_CONSUMPTION, -40, "2025-11-02 12:00:00");
+        move(3, DatabaseContract.STOCK_CONSUMPTION, -100, "2025-10-01 12:00:00");
+
+        List<String> usage = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(DatabaseContract.SQL_RECENT_MATERIAL_USAGE)) {
+            statement.setString(1, "2025-10-27");
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    usage.add(resultSet.getString("name") + " " + resultSet.getDouble("total_used"));
+                }
+            }
+        }
+        assertEquals(listOf("Пуговицы 40.0", "Ткань х/б 15.5"), usage);
+    }
+
+    @Test
+    public void ledgerIsAppendOnly() throws Exception {
+        move(1, DatabaseContract.STOCK_RECEIPT, 10, "2025-11-03 10:00:00");
+        try {
+            execute("UPDATE stock_movements SET quantity = 1000");
+            fail("Журнал изменен");
+        } catch (SQLException expected) {
+            assertTrue(expected.getMessage().contains("только дополняется"));
+        }
+        try {
+            execute("DELETE FROM stock_movements");
+            fail("Журнал очищен");
+        } catch (SQLException expected) {
+            assertTrue(expected.getMessage().contains("только дополняется"));
+        }
+    }
+
+    @Test
+    public void newMaterialOpeningStockGoesThroughLedger() throws Exception {
+        execute("INSERT INTO materials (name, unit, current_stock, min_stock) VALUES ('Тесьма', 'метр', 12, 20)");
+        int id = (int) number("SELECT id FROM materials WHERE name = 'Тесьма'");
+        assertEquals(12, stock(id), EPSILON);
+        assertEquals(12, ledgerBalance(id), EPSILON);
+        assertEquals(listOf("Тесьма"), lowStockNames());
+    }
+
+    @Test
+    public void pointInTimeStockMatchesFullReplay() throws Exception {
+        Random random = new Random(18);
+        String[] kinds = {DatabaseContract.STOCK_RECEIPT, DatabaseContract.STOCK_CONSUMPTION,
+                DatabaseContract.STOCK_ADJUSTMENT};
+        connection.setAutoCommit(false);
+        for (int i = 0; i < 2000; i++) {
+            int material = 1 + random.nextInt(4);
+            String kind = kinds[random.nextInt(kinds.length)];
+            double quantity = (random.nextInt(200) - (DatabaseContract.STOCK_CONSUMPTION.equals(kind) ? 200 : 50)) / 4.0;
+            // Часть движений задним числом - они должны попасть и в более поздние снимки
+            move(material, kind, quantity, time(random.nextInt(60), random.nextInt(24 * 60)));
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        for (int material = 1; material <= 4; material++) {
+            assertEquals(ledgerBalance(material), stock(material), EPSILON);
+            for (int day = 0; day < 62; day += 3) {
+                String at = time(day, random.nextInt(24 * 60));
+                assertEquals(at, replay(material, at), stockAt(material, at), EPSILON);
+            }
+        }
+
+        // Триггеры дали то же, что пересчет с нуля
+        String state = "SELECT group_concat(material_id || '/' || taken_at || '/' || round(balance, 4)) FROM " +
+                "(SELECT * FROM stock_snapshots ORDER BY material_id, taken_at)";
+        String usage = "SELECT group_concat(day || '/' || material_id || '/' || round(quantity, 4)) FROM " +
+                "(SELECT * FROM material_daily_usage ORDER BY day, material_id)";
+        String snapshotsBefore = text(state);
+        String usageBefore = text(usage);
+        execute(DatabaseContract.STOCK_REBUILD);
+        assertEquals(snapshotsBefore, text(state));
+        assertEquals(usageBefore, text(usage));
+    }
+
+    private void move(int materialId, String kind, double quantity, String createdAt) throws Exception {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO stock_movements (material_id, kind, quantity, created_at) VALUES (?, ?, ?, ?)")) {
+            insert.setInt(1, materialId);
+            insert.setString(2, kind);
+            insert.setDouble(3, quantity);
+            insert.setString(4, createdAt);
+            insert.executeUpdate();
+        }
+    }
+
+    private double stockAt(int materialId, String at) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement(DatabaseContract.SQL_STOCK_AT)) {
+            statement.setInt(1, materialId);
+            statement.setString(2, at);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getDouble(1);
+            }
+        }
+    }
+
+    private double replay(int materialId, String at) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT COALESCE(SUM(quantity), 0) FROM stock_movements WHERE material_id = ? AND created_at <= ?")) {
+            statement.setInt(1, materialId);
+            statement.setString(2, at);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getDouble(1);
+            }
+        }
+    }
+
+    private double stock(int materialId) throws Exception {
+        return number("SELECT current_stock FROM materials WHERE id = " + materialId);
+    }
+
+    private double ledgerBalance(int materialId) throws Exception {
+        return number("SELECT COALESCE(SUM(quantity), 0) FROM stock_movements WHERE material_id = " + materialId);
+    }
+
+    private List<String> lowStockNames() throws Exception {
+        List<String> names = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(DatabaseContract.SQL_LOW_STOCK_MATERIALS)) {
+            while (resultSet.next()) {
+                names.add(resultSet.getString("name"));
+            }
+        }
+        return names;
+    }
+
+    private static String time(int day, int minute) {
+        return START.plusDays(day).plusMinutes(minute).format(DATE_TIME);
+    }
+
+    private static List<String> listOf(String... values) {
+        List<String> list = new ArrayList<>();
+        for (String value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private void execute(String... sql) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            for (String query : sql) {
+                statement.execute(query);
+            }
+        }
+    }
+
+    private double number(String sql) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getDouble(1);
+        }
+    }
+
+    private String text(String sql) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Проверяет, что триггеры из {@link DatabaseContract#SUMMARY_SCHEMA} держат
+ * сводные таблицы в том же состоянии, что и полный пересчет
+ * {@link DatabaseContract#SUMMARY_REBUILD}, после случайной смеси вставок,
+ * отметок выполнения, проверок качества, удалений и переводов между бригадами,
+ * а штуки попадают в корзины дня и часа, когда их отметили.
+ */
+public class SummaryTablesTest {
+
+    private static final File ASSET_DB = new File("src/main/assets/databases/narek.db");
+    private static final int OPERATIONS = 3000;
+
+    // Нулевые строки остаются после вычитания последнего вклада, пересчет их не создает
+    private static final String[] SNAPSHOTS = {
+            "SELECT * FROM worker_stats WHERE assignments_count != 0 ORDER BY user_id",
+            "SELECT * FROM brigade_stats WHERE workers_count != 0 OR total_quantity != 0 " +
+                    "OR total_defects != 0 ORDER BY brigade",
+            "SELECT * FROM worker_daily_stats WHERE quantity != 0 OR defects != 0 " +
+                    "OR completed_count != 0 ORDER BY user_id, day",
+            "SELECT * FROM worker_hourly_stats WHERE quantity != 0 OR defects != 0 ORDER BY user_id, hour"
+    };
+
+    private File dbFile;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        dbFile = File.createTempFile("narek", ".db");
+        Files.copy(ASSET_DB.toPath(), dbFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getPath());
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : DatabaseContract.INDEXES_V3) {
+                statement.execute(sql);
+            }
+            for (String sql : DatabaseContract.SUMMARY_SCHEMA) {
+                statement.execute(sql);
+            }
+            for (String sql : DatabaseContract.SUMMARY_REBUILD) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+        dbFile.delete();
+    }
+
+    @Test
+    public void triggersMatchFullRebuild() throws Exception {
+        Random random = new Random(42);
+        List<Integer> userIds = ids("SELECT id FROM users");
+        String[] brigades = {"Бригада 1", "Бригада 2", "", null};
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO assignments (order_id, user_id, operation_id, planned_quantity, status, created_at) " +
+                        "VALUES (1, ?, 1, ?, 'assigned', ?)");
+             PreparedStatement complete = connection.prepareStatement(DatabaseContract.SQL_RECORD_COMPLETION);
+             PreparedStatement applyCheck = connection.prepareStatement(DatabaseContract.SQL_APPLY_QUALITY_CHECK);
+             PreparedStatement insertCheck = connection.prepareStatement(DatabaseContract.SQL_INSERT_QUALITY_CHECK);
+             PreparedStatement deleteCheck = connection.prepareStatement(
+                     "DELETE FROM quality_checks WHERE id = (SELECT MAX(id) FROM quality_checks WHERE assignment_id = ?)");
+             PreparedStatement reassign = connection.prepareStatement("UPDATE assignments SET user_id = ? WHERE id = ?");
+             PreparedStatement delete = connection.prepareStatement("DELETE FROM assignments WHERE id = ?");
+             PreparedStatement moveUser = connection.prepareStatement("UPDATE users SET brigade = ? WHERE id = ?")) {
+
+            for (int i = 0; i < OPERATIONS; i++) {
+                List<Integer> assignmentIds = ids("SELECT id FROM assignments");
+                int assignmentId = assignmentIds.get(random.nextInt(assignmentIds.size()));
+                String day = String.format("2024-03-%02d %02d:30:00", 1 + random.nextInt(28), 6 + random.nextInt(16));
+
+                switch (random.nextInt(10)) {
+                    case 0:
+                    case 1:
+                        insert.setInt(1, userIds.get(random.nextInt(userIds.size())));
+                        insert.setInt(2, 5 + random.nextInt(20));
+                        insert.setString(3, day);
+                        insert.executeUpdate();
+                        break;
+                    case 2:
+                    case 3:
+                    case 4:
+                        complete.setInt(1, 1 + random.nextInt(5));
+                        complete.setInt(2, random.nextInt(2));
+                        complete.setInt(3, assignmentId);
+                        complete.executeUpdate();
+                        break;
+                    case 5:
+                        applyCheck.setInt(1, random.nextInt(20));
+                        applyCheck.setInt(2, random.nextInt(3));
+                        applyCheck.setInt(3, assignmentId);
+                        applyCheck.executeUpdate();
+                        insertCheck.setInt(1, assignmentId);
+                        insertCheck.setInt(2, 1);
+                        insertCheck.setString(3, "approved");
+                        insertCheck.setInt(4, 0);
+                        insertCheck.setString(5, null);
+                        insertCheck.setString(6, day);
+                        insertCheck.executeUpdate();
+                        break;
+                    case 6:
+                        deleteCheck.setInt(1, assignmentId);
+                        deleteCheck.executeUpdate();
+                        break;
+                    case 7:
+                        reassign.setInt(1, userIds.get(random.nextInt(userIds.size())));
+                        reassign.setInt(2, assignmentId);
+                        reassign.executeUpdate();
+                        break;
+                    case 8:
+                        if (assignmentIds.size() > 1) {
+                            delete.setInt(1, assignmentId);
+                            delete.executeUpdate();
+                        }
+                        break;
+                    default:
+                        moveUser.setString(1, brigades[random.nextInt(brigades.length)]);
+                        moveUser.setInt(2, userIds.get(random.nextInt(userIds.size())));
+                        moveUser.executeUpdate();
+                        break;
+                }
+            }
+        }
+        connection.commit();
+
+        List<List<String>> incremental = snapshot();
+        assertTrue("Сводки пусты", !incremental.get(0).isEmpty());
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : DatabaseContract.SUMMARY_REBUILD) {
+                statement.execute(sql);
+            }
+        }
+        connection.commit();
+
+        assertEquals(snapshot(), incremental);
+    }
+
+    @Test
+    public void unitsCountWhenRecordedNotWhenStarted() throws Exception {
+        int userId = ids("SELECT id FROM users").get(0);
+        String today = "date('now', 'localtime')";
+        String hour = "strftime('%Y-%m-%d %H:00', 'now', 'localtime')";
+        int[] dayBefore = totals("SELECT quantity, defects FROM worker_daily_stats " +
+                "WHERE user_id = " + userId + " AND day = " + today);
+        int[] hourBefore = totals("SELECT quantity, defects FROM worker_hourly_stats " +
+                "WHERE user_id = " + userId + " AND hour = " + hour);
+
+        // Задание начато вчера и еще не выполнено
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO assignments (id, order_id, user_id, operation_id, " +
+                    "planned_quantity, actual_quantity, defects, status, start_time, created_at) " +
+                    "VALUES (9001, 1, " + userId + ", 1, 100, 5, 0, 'in_progress', " +
+                    "datetime('now', 'localtime', '-1 day'), datetime('now', 'localtime', '-1 day'))");
+        }
+        try (PreparedStatement record = connection.prepareStatement(DatabaseContract.SQL_RECORD_COMPLETION)) {
+            record.setInt(1, 7);
+            record.setInt(2, 1);
+            record.setInt(3, 9001);
+            record.executeUpdate();
+        }
+
+        // Сегодняшние 7 штук - в сегодняшнем дне и текущем часе, вчерашние 5 - во вчерашнем
+        int[] dayAfter = totals("SELECT quantity, defects FROM worker_daily_stats " +
+                "WHERE user_id = " + userId + " AND day = " + today);
+        int[] hourAfter = totals("SELECT quantity, defects FROM worker_hourly_stats " +
+                "WHERE user_id = " + userId + " AND hour = " + hour);
+        assertEquals(dayBefore[0] + 7, dayAfter[0]);
+        assertEquals(dayBefore[1] + 1, dayAfter[1]);
+        assertEquals(hourBefore[0] + 7, hourAfter[0]);
+        assertEquals(hourBefore[1] + 1, hourAfter[1]);
+
+        List<List<String>> incremental = snapshot();
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : DatabaseContract.SUMMARY_REBUILD) {
+                statement.execute(sql);
+            }
+        }
+        assertEquals(incremental, snapshot());
+    }
+
+    private List<List<String>> snapshot() throws Exception {
+        List<List<String>> tables = new ArrayList<>();
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : SNAPSHOTS) {
+                List<String> rows = new ArrayList<>();
+                try (ResultSet resultSet = statement.executeQuery(sql)) {
+                    ResultSetMetaData meta = resultSet.getMetaData();
+                    while (resultSet.next()) {
+                        StringBuilder row = new StringBuilder();
+                        for (int column = 1; column <= meta.getColumnCount(); column++) {
+                            row.append(resultSet.getString(column)).append('|');
+                        }
+                        rows.add(row.toString());
+                    }
+                }
+                tables.add(rows);
+            }
+        }
+        return tables;
+    }
+
+    private int[] totals(String sql) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? new int[]{resultSet.getInt(1), resultSet.getInt(2)} : new int[2];
+        }
+    }
+
+    private List<Integer> ids(String sql) throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                ids.add(resultSet.getInt(1));
+            }
+        }
+        return ids;
+    }
+}
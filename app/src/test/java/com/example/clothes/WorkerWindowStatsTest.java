@@ -0,0 +1,195 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Окна статистики работника (сегодня, смена, 7 и 30 дней) на годе истории
+ * для цеха из 300 человек: значения из {@link DatabaseContract#SQL_WORKER_SNAPSHOT}
+ * совпадают с прямым подсчетом по assignments, а чтение идет по индексам сводок без
+ * просмотра таблиц. Время чтения меряет QueryBenchmark модуля benchmark.
+ */
+public class WorkerWindowStatsTest {
+
+    private static final File ASSET_DB = new File("src/main/assets/databases/narek.db");
+    private static final int WORKERS = 300;
+    private static final int ASSIGNMENTS_PER_DAY = 3;
+    private static final String TODAY = "2024-12-31";
+    private static final String WEEK_START = "2024-12-25";
+    private static final String MONTH_START = "2024-12-02";
+    private static final String SHIFT_START = "2024-12-31 06:45:00";
+
+    private File dbFile;
+    private Connection connection;
+    private int firstWorkerId;
+
+    @Before
+    public void setUp() throws Exception {
+        dbFile = File.createTempFile("narek", ".db");
+        Files.copy(ASSET_DB.toPath(), dbFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getPath());
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : DatabaseContract.INDEXES_V3) {
+                statement.execute(sql);
+            }
+            for (String sql : DatabaseContract.INDEXES_V6) {
+                statement.execute(sql);
+            }
+
+            connection.setAutoCommit(false);
+            try (ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM users")) {
+                resultSet.next();
+                firstWorkerId = resultSet.getInt(1);
+            }
+            statement.executeUpdate("WITH RECURSIVE n(i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM n WHERE i < " +
+                    (WORKERS - 1) + ") " +
+                    "INSERT INTO users (id, email, password_hash, name, role, brigade) " +
+                    "SELECT " + firstWorkerId + " + i, 'w' || i || '@test', 'x', 'Работник ' || i, 'worker', " +
+                    "'Бригада ' || (i % 10) FROM n");
+
+            // Год истории: по три задания в день на работника в 05:xx, 09:xx и 13:xx
+            statement.executeUpdate("WITH RECURSIVE d(k) AS (SELECT 0 UNION ALL SELECT k + 1 FROM d WHERE k < 365), " +
+                    "s(j) AS (SELECT 0 UNION ALL SELECT j + 1 FROM s WHERE j < " + (ASSIGNMENTS_PER_DAY - 1) + ") " +
+                    "INSERT INTO assignments (order_id, user_id, operation_id, planned_quantity, actual_quantity, " +
+                    "defects, status, start_time, end_time) " +
+                    "SELECT 1, u.id, 1, 10, 10, (u.id + d.k + s.j) % 3, 'completed', " +
+                    "datetime('2024-01-01 05:10:00', '+' || d.k || ' days', '+' || (s.j * 4) || ' hours'), " +
+                    "datetime('2024-01-01 05:40:00', '+' || d.k || ' days', '+' || (s.j * 4) || ' hours') " +
+                    "FROM users u, d, s WHERE u.role = 'worker' AND u.id >= " + firstWorkerId);
+            statement.executeUpdate("INSERT INTO shifts (user_id, shift_date, shift_number, start_time) " +
+                    "SELECT id, '" + TODAY + "', 1, '" + SHIFT_START + "' FROM users WHERE id >= " + firstWorkerId);
+
+            // Как при миграции: сводки ставятся на уже накопленную историю
+            for (String sql : DatabaseContract.SUMMARY_SCHEMA) {
+                statement.execute(sql);
+            }
+            for (String sql : DatabaseContract.SUMMARY_REBUILD) {
+                statement.execute(sql);
+            }
+            connection.commit();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+        dbFile.delete();
+    }
+
+    @Test
+    public void windowsMatchDirectAggregation() throws Exception {
+        for (int workerId = firstWorkerId; workerId < firstWorkerId + WORKERS; workerId += 37) {
+            int[] snapshot = snapshot(workerId);
+            assertEquals(direct(workerId, "1"), snapshot[0]);
+            assertEquals(directDefects(workerId, "1"), snapshot[1]);
+            assertEquals(direct(workerId, "date(end_time) = '" + TODAY + "'"), snapshot[2]);
+            assertEquals(directDefects(workerId, "date(end_time) = '" + TODAY + "'"), snapshot[3]);
+            assertEquals(direct(workerId, "date(end_time) >= '" + WEEK_START + "'"), snapshot[4]);
+            assertEquals(directDefects(workerId, "date(end_time) >= '" + WEEK_START + "'"), snapshot[5]);
+            assertEquals(direct(workerId, "date(end_time) >= '" + MONTH_START + "'"), snapshot[6]);
+            assertEquals(directDefects(workerId, "date(end_time) >= '" + MONTH_START + "'"), snapshot[7]);
+
+            // Смена открыта в 06:45, окно начинается с часа 06:00
+            assertEquals(direct(workerId, "end_time >= '2024-12-31 06:00:00'"), snapshot[8]);
+            assertEquals(directDefects(workerId, "end_time >= '2024-12-31 06:00:00'"), snapshot[9]);
+        }
+    }
+
+    @Test
+    public void allWindowsReadFromSummaryIndexes() throws Exception {
+        List<String> plan = explain(DatabaseContract.SQL_WORKER_SNAPSHOT);
+
+        // Окно смены - по часовым корзинам работника, а не по всей таблице
+        int hourlySearches = 0;
+        for (String line : plan) {
+            if (line.contains("worker_hourly_stats")) {
+                assertTrue(plan.toString(), line.startsWith("SEARCH worker_hourly_stats USING INDEX")
+                        && line.contains("user_id=? AND hour>?"));
+                hourlySearches++;
+            }
+        }
+        assertEquals(plan.toString(), 2, hourlySearches);
+        assertTrue(plan.toString(), plan.contains("SEARCH worker_daily_stats USING INDEX " +
+                "sqlite_autoindex_worker_daily_stats_1 (user_id=? AND day>?)"));
+
+        // SCAN допустим только по своим подзапросам (CO-ROUTINE w, MATERIALIZE s), не по таблицам
+        Set<String> subqueries = new HashSet<>();
+        for (String line : plan) {
+            if (line.startsWith("CO-ROUTINE ") || line.startsWith("MATERIALIZE ")) {
+                subqueries.add(line.substring(line.indexOf(' ') + 1));
+            }
+        }
+        for (String line : plan) {
+            if (line.startsWith("SCAN ")) {
+                assertTrue(plan.toString(), subqueries.contains(line.split(" ")[1]));
+            }
+        }
+    }
+
+    private List<String> explain(String sql) throws Exception {
+        List<String> details = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                details.add(resultSet.getString("detail"));
+            }
+        }
+        return details;
+    }
+
+    // Итоги, окна по дням и смена из SQL_WORKER_SNAPSHOT; start_time смены проверяется сразу
+    private int[] snapshot(int workerId) throws Exception {
+        try (PreparedStatement query = connection.prepareStatement(DatabaseContract.SQL_WORKER_SNAPSHOT)) {
+            query.setInt(1, workerId);
+            query.setString(2, TODAY);
+            query.setString(3, WEEK_START);
+            query.setString(4, MONTH_START);
+            try (ResultSet resultSet = query.executeQuery()) {
+                resultSet.next();
+                assertEquals(SHIFT_START, resultSet.getString("shift_start"));
+                return new int[]{
+                        resultSet.getInt("completed"), resultSet.getInt("defects"),
+                        resultSet.getInt("today_quantity"), resultSet.getInt("today_defects"),
+                        resultSet.getInt("week_quantity"), resultSet.getInt("week_defects"),
+                        resultSet.getInt("month_quantity"), resultSet.getInt("month_defects"),
+                        resultSet.getInt("shift_quantity"), resultSet.getInt("shift_defects")
+                };
+            }
+        }
+    }
+
+    private int direct(int workerId, String condition) throws Exception {
+        return sum(workerId, "actual_quantity", condition);
+    }
+
+    private int directDefects(int workerId, String condition) throws Exception {
+        return sum(workerId, "defects", condition);
+    }
+
+    private int sum(int workerId, String column, String condition) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COALESCE(SUM(" + column + "), 0) " +
+                     "FROM assignments WHERE user_id = " + workerId + " AND " + condition)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
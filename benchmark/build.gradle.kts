@@ -0,0 +1,85 @@
+plugins {
+    id("java")
+    id("me.champeau.jmh")
+}
+
+// Запросы берутся из исходника DatabaseContract модуля приложения: класс не зависит
+// от Android, и бенчмарк меряет ровно те запросы, что уходят в приложение.
+// Так же берутся журнал, трассировка запросов и сброс чтений после записи,
+// чтобы путь отметки выполнения мерился на коде приложения; отладочный журнал выключен, как в release
+val appSources = tasks.register<Sync>("appSources") {
+    from("../app/src/main/java") {
+        include("com/example/clothes/DatabaseContract.java")
+        include("com/example/clothes/Logger.java")
+        include("com/example/clothes/QueryTracer.java")
+        include("com/example/clothes/QueryCache.java")
+        include("com/example/clothes/SingleFlight.java")
+        filter { line -> line.replace("BuildConfig.DEBUG_LOGS", "false") }
+    }
+    into(layout.buildDirectory.dir("generated/app"))
+}
+
+sourceSets {
+    main {
+        java.srcDir(appSources)
+    }
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    implementation("org.xerial:sqlite-jdbc:3.45.1.0")
+
+    testImplementation("junit:junit:4.13.2")
+    testImplementation(sourceSets["jmh"].output)
+    testImplementation("org.openjdk.jmh:jmh-core:1.37")
+}
+
+// Масштаб и список запросов задаются свойствами, через запятую:
+// ./gradlew :benchmark:jmh -PbenchWorkers=50,5000 -PbenchAssignments=10000,10000000 -PbenchQueries=SQL_WORKER_SNAPSHOT
+// Отдельный бенчмарк и профилировщики: -PbenchInclude=CompletionLoggingBenchmark -PbenchProfilers=gc
+fun benchParameter(name: String): ListProperty<String>? =
+    (findProperty(name) as String?)?.let { value ->
+        objects.listProperty<String>().value(value.split(",").map { it.trim() })
+    }
+
+jmh {
+    jmhVersion.set("1.37")
+    includeTests.set(false)
+    // Задержки по перцентилям для каждого запроса: JSON для сравнения между версиями и текстовый отчет
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("reports/jmh/results.json"))
+    humanOutputFile.set(layout.buildDirectory.file("reports/jmh/results.txt"))
+    jvmArgsAppend.add("-Dclothes.assetDb=" + rootProject.file("app/src/main/assets/databases/narek.db").absolutePath)
+    jvmArgsAppend.add("-Dclothes.benchmarkDir=" + layout.buildDirectory.dir("factory-db").get().asFile.absolutePath)
+    benchParameter("benchWorkers")?.let { benchmarkParameters.put("workers", it) }
+    benchParameter("benchAssignments")?.let { benchmarkParameters.put("assignments", it) }
+    benchParameter("benchQueries")?.let { benchmarkParameters.put("query", it) }
+    benchParameter("benchInclude")?.let { includes.set(it) }
+    benchParameter("benchProfilers")?.let { profilers.set(it) }
+}
+
+// Отдельная БД нужного масштаба для нагрузочных прогонов приложения:
+// ./gradlew :benchmark:factoryDb -PfactoryWorkers=5000 -PfactoryAssignments=10000000 -PfactorySeed=42
+tasks.register<JavaExec>("factoryDb") {
+    group = "benchmark"
+    description = "Генерирует синтетическую БД фабрики в build/factory-db"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.clothes.FactoryDataGenerator")
+    val workers = findProperty("factoryWorkers") ?: "50"
+    val assignments = findProperty("factoryAssignments") ?: "10000"
+    val seed = findProperty("factorySeed") ?: "42"
+    args(layout.buildDirectory.file("factory-db/factory-w$workers-a$assignments-s$seed.db").get().asFile.absolutePath,
+        workers, assignments, seed, rootProject.file("app/src/main/assets/databases/narek.db").absolutePath)
+}
+
+tasks.test {
+    systemProperty("clothes.assetDb", rootProject.file("app/src/main/assets/databases/narek.db").absolutePath)
+}
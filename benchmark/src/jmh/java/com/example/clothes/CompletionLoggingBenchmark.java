@@ -0,0 +1,102 @@
+package com.example.clothes;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Работа вокруг UPDATE в DatabaseHelper.recordOperationCompletion при выключенном
+ * отладочном журнале (как в release-сборке): трассировка, журнал и сброс чтений
+ * через те же QueryCache и SingleFlight, что в приложении. Время выполнения ставит
+ * сам UPDATE, а его меряет {@link QueryBenchmark}. Не входит сюда и событие шины
+ * изменений: оно по устройству выделяет набор изменений на окно доставки и id строки.
+ * С профилировщиком gc в отчете видно, сколько байт выделяет вызов:
+ * {@link #templated} должен давать 0 B/op, а {@link #concatenated}, прежняя склейка
+ * строки перед Log.d, - саму строку.
+ * <pre>
+ * ./gradlew :benchmark:jmh -PbenchInclude=CompletionLoggingBenchmark -PbenchProfilers=gc
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompletionLoggingBenchmark {
+
+    private static final String TAG = "DatabaseHelper";
+
+    private long written;
+    private int next;
+
+    // Главный поток приложения здесь не нужен: вызовы идут из потока бенчмарка
+    private final QueryTracer tracer = new QueryTracer(new Thread(), Long.MAX_VALUE, 16);
+    private final Logger log = new Logger(TAG, (priority, tag, message) -> written += message.length());
+
+    // Кэш заполнен, как после обхода экранов: отметка выполнения проверяет каждую запись
+    private final QueryCache queryCache = new QueryCache(64);
+    private final SingleFlight snapshotLoads = new SingleFlight();
+
+    public CompletionLoggingBenchmark() {
+        queryCache.get("operations", new String[]{"operations"}, () -> "operations");
+        queryCache.get("materials", new String[]{"materials"}, () -> "materials");
+        queryCache.get("active_orders", new String[]{"orders"}, () -> "orders");
+        for (int i = 0; i < 20; i++) {
+            int product = i;
+            queryCache.get("product:" + i, new String[]{"products"}, () -> product);
+        }
+    }
+
+    // Номера заданий за пределами кэша Integer, чтобы упаковка была видна
+    private int nextAssignment() {
+        return 10_000 + (next++ & 1023);
+    }
+
+    @Benchmark
+    public int templated() {
+        int assignmentId = nextAssignment();
+        int quantity = 12;
+        int defects = 1;
+
+        long trace = tracer.enter("recordOperationCompletion");
+        try {
+            long start = System.nanoTime();
+            int rowsAffected = 1;
+            tracer.query(DatabaseContract.SQL_RECORD_COMPLETION, System.nanoTime() - start,
+                    rowsAffected, rowsAffected);
+
+            if (rowsAffected == 0) {
+                log.e("❌ Задание не найдено: {}", assignmentId);
+                return 0;
+            }
+            // invalidateReads("assignments") из onRowChanged
+            queryCache.invalidate("assignments");
+            snapshotLoads.invalidate("assignments");
+
+            log.d("📝 Учет выполнения задания {}: +{} шт, брак: {}", assignmentId, quantity, defects);
+            return rowsAffected;
+        } finally {
+            tracer.exit("recordOperationCompletion", trace);
+        }
+    }
+
+    @Benchmark
+    public long concatenated() {
+        int assignmentId = nextAssignment();
+        int quantity = 12;
+        int defects = 1;
+
+        // Строка собиралась до вызова Log.d при любом уровне журнала
+        String message = "📝 Учет выполнения задания " + assignmentId + ": +" + quantity + " шт, брак: " + defects;
+        return message.length();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.clothes;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Задержка каждого запроса {@link DatabaseContract} на синтетической БД фабрики заданного
+ * масштаба. Режим SampleTime дает распределение по вызовам: в отчете p50, p90, p99 и p99.9
+ * для каждого запроса и масштаба. Запрос выполняется так же, как в DatabaseHelper:
+ * с параметрами из {@link QueryArguments} и чтением всех строк результата.
+ * Запросы на запись выполняются в транзакции, которая откатывается, поэтому БД между
+ * вызовами не меняется, а в замер входит и откат.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"50"})
+    public int workers;
+
+    @Param({"10000"})
+    public int assignments;
+
+    // Все запросы DatabaseContract; полноту списка проверяет QueryArgumentsTest
+    @Param({"SQL_SEARCH", "SQL_SEARCH_ACTIVE_ORDERS", "SQL_STOCK_AT", "SQL_AUTHENTICATE_USER",
+            "SQL_EMAIL_EXISTS", "SQL_USER_BY_EMAIL", "SQL_WORKER_DAY_WINDOWS", "SQL_WORKER_SNAPSHOT",
+            "SQL_WORKER_TODAY_ASSIGNMENTS", "SQL_WORKER_ACTIVE_ASSIGNMENTS", "SQL_WORKER_RECENT_COMPLETED",
+            "SQL_WORKER_AVAILABLE_ASSIGNMENTS", "SQL_ASSIGNMENT_BY_ID", "SQL_RECORD_COMPLETION",
+            "SQL_QUALITY_CONTROL_FIRST_PAGE", "SQL_QUALITY_CONTROL_NEXT_PAGE", "SQL_UNCHECKED_COMPLETED",
+            "SQL_BACKFILL_COMPLETED_END_TIME", "SQL_WORKER_QUALITY_CONTROL_TASKS",
+            "SQL_WORKER_UNCHECKED_COMPLETED", "SQL_APPLY_QUALITY_CHECK", "SQL_INSERT_QUALITY_CHECK",
+            "SQL_INSERT_BULK_QUALITY_CHECK",
+            "SQL_QUALITY_TOTALS", "SQL_WORKERS_QUALITY", "SQL_BRIGADE_ACTIVE_ASSIGNMENTS",
+            "SQL_BRIGADE_RECENT_COMPLETED", "SQL_OPERATIONS", "SQL_BRIGADE_TOP_WORKERS", "SQL_MASTER_SNAPSHOT",
+            "SQL_ACTIVE_ORDERS", "SQL_ORDER_QUEUE_FIRST_PAGE", "SQL_ORDER_QUEUE_NEXT_PAGE", "SQL_PRODUCT_BY_ID",
+            "SQL_LOW_STOCK_MATERIALS", "SQL_RECENT_MATERIAL_USAGE", "SQL_MATERIALS", "SQL_MATERIAL_STOCK",
+            "SQL_ORDER_COUNTS", "SQL_ACTIVE_ORDERS_PROGRESS", "SQL_ORDER_PROGRESS", "SQL_STAGE_PROGRESS",
+            "SQL_ORDER_QUEUE_BY_SLACK_FIRST_PAGE", "SQL_ORDER_QUEUE_BY_SLACK_NEXT_PAGE",
+            "SQL_BRIGADE_PERFORMANCE"})
+    public String query;
+
+    private Connection connection;
+    private PreparedStatement statement;
+    private QueryArguments arguments;
+    private boolean write;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        File database = FactoryDataGenerator.obtain(new File(System.getProperty("clothes.benchmarkDir", "build/factory-db")),
+                new File(System.getProperty("clothes.assetDb")), workers, assignments, SEED);
+        connection = DriverManager.getConnection("jdbc:sqlite:" + database.getPath());
+        arguments = new QueryArguments(connection, SEED);
+
+        String sql = (String) DatabaseContract.class.getField(query).get(null);
+        write = !sql.trim().toUpperCase().startsWith("SELECT");
+        statement = connection.prepareStatement(sql);
+        if (write) {
+            connection.setAutoCommit(false);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        statement.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public void run(Blackhole blackhole) throws Exception {
+        Object[] values = arguments.next(query);
+        for (int i = 0; i < values.length; i++) {
+            statement.setObject(i + 1, values[i]);
+        }
+
+        if (write) {
+            blackhole.consume(statement.executeUpdate());
+            connection.rollback();
+            return;
+        }
+
+        try (ResultSet resultSet = statement.executeQuery()) {
+            int columns = resultSet.getMetaData().getColumnCount();
+            while (resultSet.next()) {
+                for (int column = 1; column <= columns; column++) {
+                    blackhole.consume(resultSet.getObject(column));
+                }
+            }
+        }
+    }
+}
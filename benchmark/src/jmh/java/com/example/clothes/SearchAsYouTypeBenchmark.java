@@ -0,0 +1,111 @@
+package com.example.clothes;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Поиск по мере ввода {@link DatabaseContract#SQL_SEARCH} на 100 тысячах заказов:
+ * каждый шаг набора, от широкого префикса к точному номеру, отдельным параметром.
+ * Бюджет - 10 мс на шаг по p99, чтобы список успевал за вводом. Что запрос идет
+ * через полнотекстовый индекс, проверяет SearchIndexTest, а время меряется здесь,
+ * а не в модульном тесте, где его сбивает загрузка машины.
+ * <pre>
+ * ./gradlew :benchmark:jmh -PbenchInclude=SearchAsYouTypeBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchAsYouTypeBenchmark {
+
+    private static final int ORDERS = 100_000;
+    private static final String[] CUSTOMERS = {"ООО Стиль", "ИП Петров", "Магазин Детский мир", "Ателье Мода", "ТЦ Радуга"};
+
+    // Как набирает пользователь
+    @Param({"o", "or", "ord", "ord 0", "ord 04", "ord 042", "ord 0421", "ord 04217",
+            "п", "пе", "петр", "петров 5", "ателье мод", "радуга 99"})
+    public String input;
+
+    private File dbFile;
+    private Connection connection;
+    private PreparedStatement statement;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dbFile = File.createTempFile("search", ".db");
+        Files.copy(new File(System.getProperty("clothes.assetDb")).toPath(), dbFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getPath());
+
+        try (Statement schema = connection.createStatement()) {
+            for (String sql : DatabaseContract.SEARCH_SCHEMA) {
+                schema.execute(sql);
+            }
+            for (String sql : DatabaseContract.SEARCH_REBUILD) {
+                schema.execute(sql);
+            }
+        }
+
+        Random random = new Random(7);
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO orders (order_number, customer_name, product_id, quantity, status) VALUES (?, ?, 1, 10, 'new')")) {
+            for (int i = 0; i < ORDERS; i++) {
+                insert.setString(1, String.format("ORD-%06d", i));
+                insert.setString(2, CUSTOMERS[random.nextInt(CUSTOMERS.length)] + " " + random.nextInt(1000));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        statement = connection.prepareStatement(DatabaseContract.SQL_SEARCH);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        statement.close();
+        connection.close();
+        dbFile.delete();
+    }
+
+    @Benchmark
+    public void search(Blackhole blackhole) throws Exception {
+        statement.setString(1, DatabaseContract.searchMatchQuery(input));
+        statement.setString(2, DatabaseContract.SEARCH_ORDER);
+        statement.setString(3, DatabaseContract.searchTitlePrefix(input));
+        statement.setInt(4, 50);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getString("title"));
+            }
+        }
+    }
+}
@@ -0,0 +1,643 @@
+package com.example.clothes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Синтетическая БД фабрики заданного масштаба: работники по бригадам, мастера, кладовщики
+// и менеджеры, изделия с маршрутами операций и нормами материалов, заказы, задания, смены,
+// проверки качества и выдача материалов за год до END_TIME. Один и тот же seed дает ту же БД.
+//
+// Заказ проходит тот же путь, что и в приложении: мастер при запуске раскладывает маршрут
+// изделия на задания рабочим своей бригады, партия переходит на следующую операцию,
+// когда закончена на предыдущей, на раскрой со склада выдаются материалы, выполненные
+// задания выборочно проверяет мастер. Статусы заказов и заданий - то, что видно
+// в момент END_TIME. Строки пишутся потоком, транзакция фиксируется каждые BATCH_SIZE строк
+public final class FactoryDataGenerator {
+
+    // Данные заканчиваются в фиксированный момент, чтобы окна "сегодня" и "неделя" не зависели от даты запуска
+    public static final String END_TIME = "2025-11-03 18:00:00";
+    static final int HISTORY_DAYS = 365;
+    private static final int BATCH_SIZE = 50_000;
+    private static final int WORKERS_PER_BRIGADE = 12;
+    private static final int PRODUCTS = 30;
+    private static final int MATERIALS = 40;
+    // Среднее число заданий на заказ: от него зависит, сколько заказов будет за год
+    private static final int ASSIGNMENTS_PER_ORDER = 150;
+    // Доля выполненных заданий, которые мастер успевает проверить, в процентах
+    private static final int CHECKED_PERCENT = 30;
+    // Каждый сороковой запущенный заказ отменяют, не доведя до конца
+    private static final int CANCEL_ONE_IN = 40;
+    // Доля времени, которую рабочий занят заданиями: по ней размер партии подбирается
+    // под соотношение работников и заданий, чтобы очереди у рабочих не росли без конца
+    private static final double UTILIZATION = 0.6;
+    private static final int MAX_BATCH_UNITS = 200;
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final long DAY_SECONDS = 24 * 60 * 60;
+    private static final long HOUR_SECONDS = 60 * 60;
+    private static final long WEEK_SECONDS = 7 * DAY_SECONDS;
+    private static final long END_SECONDS = LocalDateTime.parse(END_TIME, TIME_FORMAT).toEpochSecond(ZoneOffset.UTC);
+    private static final long HISTORY_START = END_SECONDS - HISTORY_DAYS * DAY_SECONDS;
+    private static final int WEEKS = HISTORY_DAYS / 7 + 1;
+
+    // Даты всех дней, которые встречаются в данных: при форматировании времени
+    // миллионов строк календарь не разбирается заново для каждой
+    private static final long FIRST_DAY = HISTORY_START / DAY_SECONDS - 7;
+    private static final String[] DATES = new String[HISTORY_DAYS + 120];
+    static {
+        for (int i = 0; i < DATES.length; i++) {
+            DATES[i] = LocalDate.ofEpochDay(FIRST_DAY + i).toString();
+        }
+    }
+
+    private static final String[] CATEGORIES = {"Платья", "Брюки", "Рубашки", "Верхняя одежда"};
+    private static final String[] OPERATION_NAMES = {"Раскрой деталей", "Стачать плечевые швы",
+            "Обработать горловину", "Втачать рукава", "Стачать боковые швы", "Обработать низ",
+            "Пришить пуговицы", "Обметать петли", "ВТО изделия", "Упаковка"};
+    private static final String[] MATERIAL_NAMES = {"Ткань", "Нитки", "Пуговицы", "Молния", "Подклад", "Флизелин"};
+    private static final String[] MATERIAL_UNITS = {"м", "катушка", "шт", "шт", "м", "м"};
+    // Норма расхода на одно изделие по видам материалов; ткань и нитки нужны всем изделиям
+    private static final double[] NORM_MIN = {1.2, 0.05, 2, 1, 0.8, 0.2};
+    private static final double[] NORM_MAX = {3.5, 0.2, 8, 1, 2.5, 0.6};
+    private static final String[] PRIORITIES = {"low", "medium", "medium", "medium", "high"};
+    private static final String[] SURNAMES = {"Иванова", "Петрова", "Смирнова", "Кузнецова", "Попова",
+            "Соколова", "Лебедева", "Козлова", "Новикова", "Морозова", "Волкова", "Алексеева",
+            "Федорова", "Михайлова", "Егорова", "Никитина", "Захарова", "Орлова", "Сергеева", "Романова"};
+    private static final String[] FIRST_NAMES = {"Анна", "Мария", "Елена", "Ольга", "Наталья", "Татьяна",
+            "Ирина", "Светлана", "Юлия", "Екатерина", "Галина", "Людмила", "Марина", "Надежда", "Вера"};
+
+    private final int workers;
+    private final int assignments;
+    private final long seed;
+
+    private Connection connection;
+    private final List<PreparedStatement> statements = new ArrayList<>();
+    private int pendingRows;
+
+    private int brigades;
+    private int firstWorkerId;
+    private int firstMasterId;
+    private int storekeeperId;
+    private double[] workerSpeed;
+    private double[] workerDefectRate;
+    private long[] workerBusyUntil;
+    private int[][] routes;
+    private int[] operationMinutes;
+    private int[][] billMaterials;
+    private double[][] billNorms;
+    private double[][] weeklyConsumption;
+
+    public FactoryDataGenerator(int workers, int assignments, long seed) {
+        this.workers = workers;
+        this.assignments = assignments;
+        this.seed = seed;
+    }
+
+    // Генерация из командной строки:
+    // FactoryDataGenerator <файл БД> <работников> <заданий> [seed] [исходная БД из assets]
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Использование: FactoryDataGenerator <файл БД> <работников> <заданий> [seed] [narek.db]");
+            System.exit(2);
+        }
+        File target = new File(args[0]);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        File assetDb = new File(args.length > 4 ? args[4] : "app/src/main/assets/databases/narek.db");
+
+        long started = System.nanoTime();
+        new FactoryDataGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]), seed).writeTo(target, assetDb);
+        System.out.printf("✅ %s: %d с%n", target, (System.nanoTime() - started) / 1_000_000_000L);
+    }
+
+    // Готовая БД этого масштаба из каталога dir; строится один раз и дальше берется из кэша
+    public static File obtain(File dir, File assetDb, int workers, int assignments, long seed)
+            throws IOException, SQLException {
+        File target = new File(dir, "factory-w" + workers + "-a" + assignments + "-s" + seed + ".db");
+        if (!target.isFile()) {
+            new FactoryDataGenerator(workers, assignments, seed).writeTo(target, assetDb);
+        }
+        return target;
+    }
+
+    // Запись идет во временный файл рядом с target, поэтому прерванная генерация не оставляет полуготовую БД
+    public void writeTo(File target, File assetDb) throws IOException, SQLException {
+        File dir = target.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Не удалось создать каталог " + dir);
+        }
+
+        File temp = new File(dir, target.getName() + ".tmp");
+        Files.copy(assetDb.toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + temp.getPath())) {
+            generate(connection);
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void generate(Connection connection) throws SQLException {
+        Random random = new Random(seed);
+        this.connection = connection;
+        FactorySchema.execute(connection, "PRAGMA journal_mode = WAL", "PRAGMA synchronous = OFF");
+        FactorySchema.prepare(connection);
+
+        connection.setAutoCommit(false);
+        try {
+            insertUsers(random);
+            insertCatalog(random);
+            insertOrders(random);
+            insertReceipts(random);
+            insertShifts(random);
+            flush();
+        } finally {
+            for (PreparedStatement statement : statements) {
+                statement.close();
+            }
+            statements.clear();
+        }
+
+        FactorySchema.finish(connection);
+        connection.commit();
+        connection.setAutoCommit(true);
+        FactorySchema.execute(connection, "PRAGMA wal_checkpoint(TRUNCATE)");
+    }
+
+    // У каждого рабочего своя скорость относительно нормы и своя доля брака;
+    // у каждого двадцатого брака заметно больше, чем у остальных
+    private void insertUsers(Random random) throws SQLException {
+        brigades = Math.max(1, (workers + WORKERS_PER_BRIGADE - 1) / WORKERS_PER_BRIGADE);
+        int storekeepers = 1 + workers / 200;
+        int managers = 1 + workers / 500;
+        workerSpeed = new double[workers];
+        workerDefectRate = new double[workers];
+        workerBusyUntil = new long[workers];
+
+        PreparedStatement insert = prepare("INSERT INTO users " +
+                "(id, email, password_hash, name, role, brigade, position, created_at, updated_at) " +
+                "VALUES (?, ?, 'password123', ?, ?, ?, ?, ?, ?)");
+        int id = 0;
+        String created = time(HISTORY_START);
+        firstWorkerId = id + 1;
+        for (int i = 0; i < workers; i++) {
+            workerSpeed[i] = 0.75 + random.nextDouble() * 0.5;
+            workerDefectRate[i] = random.nextInt(20) == 0
+                    ? 0.12 + random.nextDouble() * 0.18
+                    : 0.005 + random.nextDouble() * 0.045;
+            addUser(insert, ++id, "worker", brigade(i % brigades), i % 10 == 0 ? "Закройщица" : "Швея", created);
+        }
+        firstMasterId = id + 1;
+        for (int i = 0; i < brigades; i++) {
+            addUser(insert, ++id, "master", brigade(i), "Мастер", created);
+        }
+        storekeeperId = id + 1;
+        for (int i = 0; i < storekeepers; i++) {
+            addUser(insert, ++id, "storekeeper", null, "Кладовщик", created);
+        }
+        for (int i = 0; i < managers; i++) {
+            addUser(insert, ++id, "manager", null, "Менеджер", created);
+        }
+    }
+
+    private void addUser(PreparedStatement insert, int id, String role, String brigade, String position,
+                         String created) throws SQLException {
+        insert.setInt(1, id);
+        insert.setString(2, role + id + "@factory.com");
+        insert.setString(3, SURNAMES[id % SURNAMES.length] + " " + FIRST_NAMES[id / SURNAMES.length % FIRST_NAMES.length]);
+        insert.setString(4, role);
+        insert.setString(5, brigade);
+        insert.setString(6, position);
+        insert.setString(7, created);
+        insert.setString(8, created);
+        addRow(insert);
+    }
+
+    // Изделия с маршрутами операций и нормами расхода материалов; материалы заводятся
+    // с нулевым остатком, весь остаток складывается из движений в журнале
+    private void insertCatalog(Random random) throws SQLException {
+        PreparedStatement category = prepare("INSERT INTO categories (id, name) VALUES (?, ?)");
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            category.setInt(1, i + 1);
+            category.setString(2, CATEGORIES[i]);
+            addRow(category);
+        }
+
+        PreparedStatement material = prepare("INSERT INTO materials " +
+                "(id, name, unit, current_stock, min_stock, created_at) VALUES (?, ?, ?, 0, 0, ?)");
+        for (int id = 1; id <= MATERIALS; id++) {
+            int kind = (id - 1) % MATERIAL_NAMES.length;
+            material.setInt(1, id);
+            material.setString(2, MATERIAL_NAMES[kind] + " №" + id);
+            material.setString(3, MATERIAL_UNITS[kind]);
+            material.setString(4, time(HISTORY_START - WEEK_SECONDS));
+            addRow(material);
+        }
+
+        routes = new int[PRODUCTS + 1][];
+        billMaterials = new int[PRODUCTS + 1][];
+        billNorms = new double[PRODUCTS + 1][];
+        List<Integer> minutes = new ArrayList<>();
+        minutes.add(0);
+        PreparedStatement product = prepare("INSERT INTO products " +
+                "(id, article, name, category_id, complexity, standard_time_minutes, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)");
+        PreparedStatement operation = prepare("INSERT INTO operations " +
+                "(id, product_id, name, sequence_order, standard_time_minutes) VALUES (?, ?, ?, ?, ?)");
+        for (int id = 1; id <= PRODUCTS; id++) {
+            int categoryIndex = random.nextInt(CATEGORIES.length);
+            int steps = 4 + random.nextInt(OPERATION_NAMES.length - 3);
+            routes[id] = new int[steps];
+            int total = 0;
+            for (int step = 1; step <= steps; step++) {
+                int stepMinutes = 5 + random.nextInt(36);
+                int operationId = minutes.size();
+                minutes.add(stepMinutes);
+                routes[id][step - 1] = operationId;
+                total += stepMinutes;
+                operation.setInt(1, operationId);
+                operation.setInt(2, id);
+                operation.setString(3, OPERATION_NAMES[step - 1]);
+                operation.setInt(4, step);
+                operation.setInt(5, stepMinutes);
+                addRow(operation);
+            }
+            product.setInt(1, id);
+            product.setString(2, String.format("ART-%03d", id));
+            product.setString(3, CATEGORIES[categoryIndex] + " модель " + id);
+            product.setInt(4, categoryIndex + 1);
+            product.setInt(5, 1 + random.nextInt(3));
+            product.setInt(6, total);
+            // Без явной даты столбец взял бы текущее время, и один seed давал бы разные БД
+            product.setString(7, time(HISTORY_START - WEEK_SECONDS));
+            addRow(product);
+
+            List<Integer> kinds = new ArrayList<>();
+            for (int kind = 0; kind < MATERIAL_NAMES.length; kind++) {
+                if (kind < 2 || random.nextInt(5) < 2) {
+                    kinds.add(kind);
+                }
+            }
+            billMaterials[id] = new int[kinds.size()];
+            billNorms[id] = new double[kinds.size()];
+            for (int i = 0; i < kinds.size(); i++) {
+                int kind = kinds.get(i);
+                int variants = (MATERIALS - kind + MATERIAL_NAMES.length - 1) / MATERIAL_NAMES.length;
+                billMaterials[id][i] = kind + 1 + random.nextInt(variants) * MATERIAL_NAMES.length;
+                billNorms[id][i] = NORM_MIN[kind] + random.nextDouble() * (NORM_MAX[kind] - NORM_MIN[kind]);
+            }
+        }
+
+        operationMinutes = new int[minutes.size()];
+        for (int i = 0; i < operationMinutes.length; i++) {
+            operationMinutes[i] = minutes.get(i);
+        }
+    }
+
+    // Заказы поступают равномерно за год. Заказ запускают в работу в течение суток,
+    // поэтому поступившие за последние сутки еще новые и без заданий; остальные делят
+    // между собой ровно assignments заданий
+    private void insertOrders(Random random) throws SQLException {
+        int orders = Math.max(10, assignments / ASSIGNMENTS_PER_ORDER);
+        double batchSeconds = UTILIZATION * HISTORY_DAYS * DAY_SECONDS * workers / Math.max(1, assignments);
+        int launched = 0;
+        for (int id = 1; id <= orders; id++) {
+            if (orderCreated(id, orders) <= END_SECONDS - DAY_SECONDS) {
+                launched++;
+            }
+        }
+
+        weeklyConsumption = new double[MATERIALS + 1][WEEKS];
+        PreparedStatement order = prepare("INSERT INTO orders " +
+                "(id, order_number, customer_name, product_id, quantity, deadline, status, priority, " +
+                "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        PreparedStatement assignment = prepare("INSERT INTO assignments " +
+                "(id, order_id, user_id, operation_id, planned_quantity, actual_quantity, defects, status, " +
+                "start_time, end_time, created_at, quality_checked, quality_checker_id, quality_check_date) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        PreparedStatement check = prepare("INSERT INTO quality_checks " +
+                "(assignment_id, inspector_id, result, defects_found, check_date) VALUES (?, ?, ?, ?, ?)");
+        PreparedStatement usage = prepare("INSERT INTO material_usage " +
+                "(order_id, material_id, quantity_used, usage_date, user_id) VALUES (?, ?, ?, ?, ?)");
+        PreparedStatement movement = prepare("INSERT INTO stock_movements " +
+                "(material_id, kind, quantity, created_at, order_id, user_id, note) VALUES (?, ?, ?, ?, ?, ?, NULL)");
+
+        int assignmentId = 0;
+        int launchedIndex = 0;
+        for (int id = 1; id <= orders; id++) {
+            long created = orderCreated(id, orders);
+            int product = 1 + random.nextInt(PRODUCTS);
+            order.setInt(1, id);
+            order.setString(2, String.format("ORD-%07d", id));
+            order.setString(3, "Клиент " + (1 + random.nextInt(500)));
+            order.setInt(4, product);
+            order.setString(8, PRIORITIES[random.nextInt(PRIORITIES.length)]);
+            order.setString(9, time(created));
+
+            if (created > END_SECONDS - DAY_SECONDS) {
+                order.setInt(5, 20 + random.nextInt(481));
+                order.setString(6, date(created + (14 + random.nextInt(31)) * DAY_SECONDS));
+                order.setString(7, "new");
+                order.setString(10, time(created));
+                addRow(order);
+                continue;
+            }
+
+            // Маршрут раскладывается на партии: на каждой операции заказ делится между
+            // рабочими бригады, и партия j идет на следующую операцию, как только закончена.
+            // Рабочий делает одно задание за раз, новые ждут в очереди, пока он занят
+            int budget = assignments / launched + (launchedIndex < assignments % launched ? 1 : 0);
+            launchedIndex++;
+            int[] route = routes[product];
+            int stages = Math.max(1, Math.min(route.length, budget));
+            int[] batches = new int[stages];
+            for (int stage = 0; stage < stages; stage++) {
+                batches[stage] = budget / stages + (stage < budget % stages ? 1 : 0);
+            }
+            int routeMinutes = 0;
+            for (int operation : route) {
+                routeMinutes += operationMinutes[operation];
+            }
+            long units = Math.round(batchSeconds * (0.5 + random.nextDouble()) * route.length / (routeMinutes * 60.0));
+            int quantity = Math.max(1, batches[0]) * (int) Math.max(1, Math.min(MAX_BATCH_UNITS, units));
+            int brigade = random.nextInt(brigades);
+            long launch = created + (2 + random.nextInt(22)) * HOUR_SECONDS;
+
+            int[] worker = new int[budget];
+            int[] stageOf = new int[budget];
+            int[] planned = new int[budget];
+            long[] start = new long[budget];
+            long[] end = new long[budget];
+            long[] ready = new long[Math.max(1, batches[0])];
+            Arrays.fill(ready, launch);
+            long finish = launch;
+            int index = 0;
+            for (int stage = 0; stage < stages; stage++) {
+                int minutes = operationMinutes[route[stage]];
+                for (int batch = 0; batch < batches[stage]; batch++) {
+                    worker[index] = brigadeWorker(brigade, random);
+                    stageOf[index] = stage;
+                    planned[index] = quantity / batches[stage] + (batch < quantity % batches[stage] ? 1 : 0);
+                    start[index] = Math.max(ready[batch], workerBusyUntil[worker[index]])
+                            + random.nextInt((int) HOUR_SECONDS);
+                    end[index] = start[index] + (long) (planned[index] * minutes * 60 * workerSpeed[worker[index]]);
+                    workerBusyUntil[worker[index]] = end[index];
+                    ready[batch] = end[index];
+                    finish = Math.max(finish, end[index]);
+                    index++;
+                }
+            }
+
+            // Отмененный заказ останавливается в момент отмены: незаконченные задания отменяются
+            long cancelAt = random.nextInt(CANCEL_ONE_IN) == 0
+                    ? launch + (long) (random.nextDouble() * (finish - launch)) : Long.MAX_VALUE;
+            boolean cancelled = cancelAt <= END_SECONDS;
+            long cutoff = Math.min(END_SECONDS, cancelAt);
+            boolean completed = !cancelled && finish <= END_SECONDS;
+
+            order.setInt(5, quantity);
+            order.setString(6, date(launch + (long) ((finish - launch) * (0.6 + random.nextDouble() * 0.8)) + DAY_SECONDS));
+            order.setString(7, cancelled ? "cancelled" : (completed ? "completed" : "in_progress"));
+            order.setString(10, time(cancelled ? cancelAt : (completed ? finish : launch)));
+            addRow(order);
+
+            // Перед раскроем склад выдает материалы на весь заказ
+            long cutting = Long.MAX_VALUE;
+            for (int i = 0; i < batches[0]; i++) {
+                cutting = Math.min(cutting, start[i]);
+            }
+            if (cutting <= cutoff) {
+                issueMaterials(usage, movement, id, product, quantity, cutting - HOUR_SECONDS / 2);
+            }
+
+            int master = firstMasterId + brigade;
+            for (int i = 0; i < budget; i++) {
+                int actual = 0;
+                int defects = 0;
+                String status;
+                String startTime = null;
+                String endTime = null;
+                if (end[i] <= cutoff) {
+                    status = "completed";
+                    actual = planned[i];
+                    defects = defects(actual, worker[i], random);
+                    startTime = time(start[i]);
+                    endTime = time(end[i]);
+                } else if (start[i] <= cutoff) {
+                    status = cancelled ? "cancelled" : "in_progress";
+                    actual = (int) (planned[i] * (cutoff - start[i]) / Math.max(1, end[i] - start[i]));
+                    defects = defects(actual, worker[i], random);
+                    startTime = time(start[i]);
+                } else {
+                    status = cancelled ? "cancelled" : "assigned";
+                }
+
+                // Мастер проверяет часть выполненных заданий в течение смены после окончания:
+                // подтверждает количество и брак, а партию с большой долей брака бракует целиком
+                long checkedAt = end[i] + HOUR_SECONDS / 2 + random.nextInt((int) (8 * HOUR_SECONDS));
+                boolean checked = "completed".equals(status) && random.nextInt(100) < CHECKED_PERCENT
+                        && checkedAt <= END_SECONDS;
+                assignmentId++;
+                if (checked) {
+                    defects = Math.min(actual, defects + (random.nextInt(5) == 0 ? 1 : 0));
+                    if (defects * 4 > actual) {
+                        actual = 0;
+                    }
+                    check.setInt(1, assignmentId);
+                    check.setInt(2, master);
+                    check.setString(3, actual > 0 ? "approved" : "rejected");
+                    check.setInt(4, defects);
+                    check.setString(5, time(checkedAt));
+                    addRow(check);
+                }
+
+                assignment.setInt(1, assignmentId);
+                assignment.setInt(2, id);
+                assignment.setInt(3, firstWorkerId + worker[i]);
+                assignment.setInt(4, route[stageOf[i]]);
+                assignment.setInt(5, planned[i]);
+                assignment.setInt(6, actual);
+                assignment.setInt(7, defects);
+                assignment.setString(8, status);
+                assignment.setString(9, startTime);
+                assignment.setString(10, endTime);
+                assignment.setString(11, time(launch));
+                assignment.setInt(12, checked ? 1 : 0);
+                if (checked) {
+                    assignment.setInt(13, master);
+                    assignment.setString(14, time(checkedAt));
+                } else {
+                    assignment.setNull(13, Types.INTEGER);
+                    assignment.setNull(14, Types.VARCHAR);
+                }
+                addRow(assignment);
+            }
+        }
+    }
+
+    // Выдача на заказ: строка в material_usage, как учет велся до журнала, и расход в журнале остатков
+    private void issueMaterials(PreparedStatement usage, PreparedStatement movement, int order, int product,
+                                int units, long at) throws SQLException {
+        for (int i = 0; i < billMaterials[product].length; i++) {
+            int material = billMaterials[product][i];
+            double quantity = Math.round(units * billNorms[product][i] * 100) / 100.0;
+            weeklyConsumption[material][(int) ((at - HISTORY_START) / WEEK_SECONDS)] += quantity;
+
+            usage.setInt(1, order);
+            usage.setInt(2, material);
+            usage.setDouble(3, quantity);
+            usage.setString(4, date(at));
+            usage.setInt(5, storekeeperId);
+            addRow(usage);
+            addMovement(movement, material, DatabaseContract.STOCK_CONSUMPTION, -quantity, at, order);
+        }
+    }
+
+    // Кладовщик заказывает поставку так, чтобы к концу недели остаток вернулся к своему
+    // уровню; поставка приходит накануне недели, поэтому остаток в журнале не уходит в минус.
+    // Минимальный остаток - доля обычного недельного расхода, и у части материалов
+    // уровень пополнения ниже минимума: на конец данных они в списке "мало на складе"
+    private void insertReceipts(Random random) throws SQLException {
+        PreparedStatement movement = prepare("INSERT INTO stock_movements " +
+                "(material_id, kind, quantity, created_at, order_id, user_id, note) VALUES (?, ?, ?, ?, ?, ?, NULL)");
+        PreparedStatement minimum = prepare("UPDATE materials SET min_stock = ? WHERE id = ?");
+        for (int material = 1; material <= MATERIALS; material++) {
+            double total = 0;
+            for (double consumed : weeklyConsumption[material]) {
+                total += consumed;
+            }
+            double minStock = total > 0 ? Math.round(total / WEEKS * (0.3 + random.nextDouble() * 0.9))
+                    : 20 + random.nextInt(80);
+            double level = minStock * (0.8 + random.nextDouble() * 1.5);
+
+            double balance = 0;
+            for (int week = 0; week < WEEKS; week++) {
+                double consumed = weeklyConsumption[material][week];
+                double quantity = Math.ceil(Math.max(0, consumed + level - balance) / 10) * 10;
+                if (quantity > 0) {
+                    addMovement(movement, material, DatabaseContract.STOCK_RECEIPT, quantity,
+                            HISTORY_START + week * WEEK_SECONDS - 8 * HOUR_SECONDS, null);
+                }
+                balance += quantity - consumed;
+            }
+            minimum.setDouble(1, minStock);
+            minimum.setInt(2, material);
+            addRow(minimum);
+        }
+    }
+
+    private void addMovement(PreparedStatement movement, int material, String kind, double quantity, long at,
+                             Integer order) throws SQLException {
+        movement.setInt(1, material);
+        movement.setString(2, kind);
+        movement.setDouble(3, quantity);
+        movement.setString(4, time(at));
+        if (order != null) {
+            movement.setInt(5, order);
+        } else {
+            movement.setNull(5, Types.INTEGER);
+        }
+        movement.setInt(6, storekeeperId);
+        addRow(movement);
+    }
+
+    // Смены за последние 30 дней; сегодняшняя у каждого работника еще открыта
+    private void insertShifts(Random random) throws SQLException {
+        PreparedStatement insert = prepare("INSERT INTO shifts " +
+                "(user_id, shift_date, shift_number, start_time, end_time, total_output, defects_count) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)");
+        for (int day = 29; day >= 0; day--) {
+            long dayStart = (END_SECONDS / DAY_SECONDS - day) * DAY_SECONDS;
+            for (int worker = 0; worker < workers; worker++) {
+                int number = 1 + (worker + day) % 2;
+                long start = dayStart + (number == 1 ? 7 : 15) * HOUR_SECONDS;
+                insert.setInt(1, firstWorkerId + worker);
+                insert.setString(2, date(dayStart));
+                insert.setInt(3, number);
+                insert.setString(4, time(start));
+                insert.setString(5, day == 0 ? null : time(start + 8 * HOUR_SECONDS));
+                insert.setInt(6, day == 0 ? 0 : 50 + random.nextInt(150));
+                insert.setInt(7, day == 0 ? 0 : random.nextInt(5));
+                addRow(insert);
+            }
+        }
+    }
+
+    // Брак в партии: доля брака рабочего с разбросом, как у биномиального распределения
+    private int defects(int units, int worker, Random random) {
+        double expected = units * workerDefectRate[worker];
+        return (int) Math.max(0, Math.min(units, Math.round(expected + random.nextGaussian() * Math.sqrt(expected))));
+    }
+
+    // Мастер отдает задание тому из двух рабочих бригады, кто раньше освободится
+    private int brigadeWorker(int brigade, Random random) {
+        int members = (workers - brigade + brigades - 1) / brigades;
+        int first = brigade + random.nextInt(members) * brigades;
+        int second = brigade + random.nextInt(members) * brigades;
+        return workerBusyUntil[first] <= workerBusyUntil[second] ? first : second;
+    }
+
+    private static long orderCreated(int id, int orders) {
+        return END_SECONDS - (long) (orders - id) * HISTORY_DAYS * DAY_SECONDS / orders;
+    }
+
+    private PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        statements.add(statement);
+        return statement;
+    }
+
+    // Строки копятся в пакетах открытых запросов и уходят одной транзакцией на каждые BATCH_SIZE строк.
+    // Пакеты выполняются в порядке подготовки запросов, поэтому UPDATE идет после INSERT своих строк
+    private void addRow(PreparedStatement statement) throws SQLException {
+        statement.addBatch();
+        if (++pendingRows >= BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() throws SQLException {
+        for (PreparedStatement statement : statements) {
+            statement.executeBatch();
+        }
+        connection.commit();
+        pendingRows = 0;
+    }
+
+    private static String brigade(int index) {
+        return "Бригада №" + (index + 1);
+    }
+
+    private static String date(long epochSeconds) {
+        return time(epochSeconds).substring(0, 10);
+    }
+
+    private static String time(long epochSeconds) {
+        long day = Math.floorDiv(epochSeconds, DAY_SECONDS);
+        int index = (int) (day - FIRST_DAY);
+        if (index < 0 || index >= DATES.length) {
+            return LocalDateTime.ofEpochSecond(epochSeconds, 0, ZoneOffset.UTC).format(TIME_FORMAT);
+        }
+        int seconds = (int) (epochSeconds - day * DAY_SECONDS);
+        StringBuilder text = new StringBuilder(19).append(DATES[index]).append(' ');
+        appendTwoDigits(text, seconds / 3600).append(':');
+        appendTwoDigits(text, seconds / 60 % 60).append(':');
+        return appendTwoDigits(text, seconds % 60).toString();
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder text, int value) {
+        return text.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.clothes;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Схема синтетической БД: файл из assets, доведенный до текущей версии теми же шагами,
+// что и DatabaseHelper.onUpgrade. Данные заливаются без триггеров и индексов версий 3-12:
+// индексы строятся один раз по готовым таблицам, затем сводки, поисковый индекс, остатки,
+// ход заказов и приоритеты пересчитываются целиком, а триггеры ставятся заново - так же,
+// как после "Пересчитать сводки" в приложении
+final class FactorySchema {
+
+    // Порядок важен для внешних ключей по смыслу: сначала зависимые таблицы
+    private static final String[] SOURCE_TABLES = {"quality_checks", "material_usage", "assignments", "shifts",
+            "orders", "operations", "products", "categories", "materials", "users"};
+
+    private FactorySchema() {}
+
+    // Пустая схема текущей версии без триггеров и индексов
+    static void prepare(Connection connection) throws SQLException {
+        for (String table : SOURCE_TABLES) {
+            execute(connection, "DELETE FROM " + table);
+        }
+        execute(connection, "DELETE FROM sqlite_sequence");
+
+        // Версия 2
+        execute(connection,
+                "ALTER TABLE assignments ADD COLUMN quality_checked INTEGER DEFAULT 0",
+                "ALTER TABLE assignments ADD COLUMN quality_checker_id INTEGER",
+                "ALTER TABLE assignments ADD COLUMN quality_check_date TEXT",
+                "ALTER TABLE assignments ADD COLUMN quality_notes TEXT");
+        // Версии 3-12
+        execute(connection, DatabaseContract.SUMMARY_SCHEMA);
+        execute(connection, DatabaseContract.SEARCH_SCHEMA);
+        execute(connection, DatabaseContract.ACTIVE_ORDER_SEARCH_SCHEMA);
+        execute(connection, DatabaseContract.STOCK_SCHEMA);
+        execute(connection, DatabaseContract.PROGRESS_SCHEMA);
+        execute(connection, "ALTER TABLE orders ADD COLUMN priority_rank INTEGER NOT NULL DEFAULT 2");
+        execute(connection, DatabaseContract.QUEUE_SCHEMA);
+
+        dropTriggers(connection);
+    }
+
+    // Индексы, пересчет всего, что в приложении ведут триггеры, и установка самих триггеров
+    static void finish(Connection connection) throws SQLException {
+        execute(connection, DatabaseContract.INDEXES_V3);
+        execute(connection, DatabaseContract.INDEXES_V6);
+        execute(connection, DatabaseContract.INDEXES_V8);
+        execute(connection, DatabaseContract.INDEXES_V9);
+        execute(connection, DatabaseContract.INDEXES_V10);
+        execute(connection, DatabaseContract.INDEXES_V12);
+
+        execute(connection, DatabaseContract.SUMMARY_REBUILD);
+        execute(connection, DatabaseContract.SEARCH_REBUILD);
+        execute(connection, DatabaseContract.ACTIVE_ORDER_SEARCH_REBUILD);
+        execute(connection, DatabaseContract.STOCK_REBUILD);
+        execute(connection, DatabaseContract.PROGRESS_REBUILD);
+        execute(connection, DatabaseContract.QUEUE_REBUILD);
+
+        execute(connection, DatabaseContract.SUMMARY_SCHEMA);
+        execute(connection, DatabaseContract.SEARCH_SCHEMA);
+        execute(connection, DatabaseContract.ACTIVE_ORDER_SEARCH_SCHEMA);
+        execute(connection, DatabaseContract.STOCK_SCHEMA);
+        execute(connection, DatabaseContract.PROGRESS_SCHEMA);
+        execute(connection, DatabaseContract.QUEUE_SCHEMA);
+    }
+
+    private static void dropTriggers(Connection connection) throws SQLException {
+        List<String> triggers = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT name FROM sqlite_master WHERE type = 'trigger'")) {
+            while (resultSet.next()) {
+                triggers.add(resultSet.getString(1));
+            }
+        }
+        for (String trigger : triggers) {
+            execute(connection, "DROP TRIGGER " + trigger);
+        }
+    }
+
+    static void execute(Connection connection, String... sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String query : sql) {
+                statement.execute(query);
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.clothes;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Параметры для каждого запроса DatabaseContract.SQL_* так, как их передает DatabaseHelper:
+// работник, бригада, задание или ключ страницы берутся случайно из того, что есть в БД,
+// а "сейчас" - момент, на котором заканчиваются данные генератора. Новый запрос
+// в контракте без ветки здесь роняет QueryArgumentsTest
+public final class QueryArguments {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int PAGE_SIZE = 50;
+    private static final int SAMPLE_SIZE = 10_000;
+
+    private final Random random;
+    private final String now;
+    private final String today;
+    private final String weekStart;
+    private final String monthStart;
+    private final List<Integer> workers;
+    private final List<Integer> masters;
+    private final List<String> brigades;
+    private final List<String> emails;
+    private final List<Integer> assignments;
+    private final List<Integer> products;
+    private final List<Integer> materials;
+    private final List<Object[]> qualityKeys;
+    private final List<Object[]> queueKeys;
+    private final List<Object[]> slackKeys;
+    private final List<String> orderNumbers;
+
+    public QueryArguments(Connection connection, long seed) throws SQLException {
+        random = new Random(seed);
+        now = FactoryDataGenerator.END_TIME;
+        LocalDateTime moment = LocalDateTime.parse(now, TIME_FORMAT);
+        today = moment.toLocalDate().toString();
+        weekStart = moment.toLocalDate().minusDays(6).toString();
+        monthStart = moment.toLocalDate().minusDays(29).toString();
+
+        // Выборки детерминированы: каждая step-я строка, а не ORDER BY random()
+        long step = Math.max(1, longValue(connection, "SELECT MAX(id) FROM assignments") / SAMPLE_SIZE);
+        workers = integers(connection, "SELECT id FROM users WHERE role = 'worker'");
+        masters = integers(connection, "SELECT id FROM users WHERE role = 'master'");
+        brigades = strings(connection, "SELECT DISTINCT brigade FROM users WHERE brigade IS NOT NULL");
+        emails = strings(connection, "SELECT email FROM users");
+        assignments = integers(connection, "SELECT id FROM assignments WHERE id % " + step + " = 0");
+        products = integers(connection, "SELECT id FROM products");
+        materials = integers(connection, "SELECT id FROM materials");
+        orderNumbers = strings(connection, "SELECT order_number FROM orders");
+        qualityKeys = rows(connection, "SELECT end_time, id FROM assignments " +
+                "WHERE status = 'completed' AND id % " + step + " = 0");
+        queueKeys = rows(connection, "SELECT priority_rank, IFNULL(deadline, '9999-12-31'), id FROM orders " +
+                "WHERE status IN ('new', 'in_progress')");
+        slackKeys = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                DatabaseContract.SQL_ORDER_QUEUE_BY_SLACK_FIRST_PAGE)) {
+            statement.setString(1, now);
+            statement.setInt(2, SAMPLE_SIZE);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    slackKeys.add(new Object[]{resultSet.getLong("slack_minutes"), resultSet.getInt("id")});
+                }
+            }
+        }
+    }
+
+    // Параметры очередного вызова запроса name
+    public Object[] next(String name) {
+        switch (name) {
+            case "SQL_SEARCH": {
+                String input = searchInput();
+                return new Object[]{DatabaseContract.searchMatchQuery(input), DatabaseContract.SEARCH_ORDER,
+                        DatabaseContract.searchTitlePrefix(input), PAGE_SIZE};
+            }
+            case "SQL_SEARCH_ACTIVE_ORDERS": {
+                String input = searchInput();
+                return new Object[]{DatabaseContract.searchMatchQuery(input),
+                        DatabaseContract.searchTitlePrefix(input), PAGE_SIZE};
+            }
+            case "SQL_STOCK_AT":
+                return new Object[]{pick(materials), now};
+            case "SQL_AUTHENTICATE_USER":
+                return new Object[]{pick(emails), "password123"};
+            case "SQL_EMAIL_EXISTS":
+            case "SQL_USER_BY_EMAIL":
+                return new Object[]{pick(emails)};
+            case "SQL_WORKER_DAY_WINDOWS":
+            case "SQL_WORKER_SNAPSHOT":
+                return new Object[]{pick(workers), today, weekStart, monthStart};
+            case "SQL_WORKER_TODAY_ASSIGNMENTS":
+            case "SQL_WORKER_ACTIVE_ASSIGNMENTS":
+            case "SQL_WORKER_RECENT_COMPLETED":
+            case "SQL_WORKER_AVAILABLE_ASSIGNMENTS":
+            case "SQL_WORKER_QUALITY_CONTROL_TASKS":
+            case "SQL_WORKER_UNCHECKED_COMPLETED":
+                return new Object[]{pick(workers)};
+            case "SQL_ASSIGNMENT_BY_ID":
+                return new Object[]{pick(assignments)};
+            case "SQL_RECORD_COMPLETION":
+                return new Object[]{1, 0, pick(assignments)};
+            case "SQL_QUALITY_CONTROL_FIRST_PAGE":
+            case "SQL_ORDER_QUEUE_FIRST_PAGE":
+                return new Object[]{PAGE_SIZE};
+            case "SQL_QUALITY_CONTROL_NEXT_PAGE": {
+                Object[] key = pick(qualityKeys);
+                return new Object[]{key[0], key[1], PAGE_SIZE};
+            }
+            case "SQL_APPLY_QUALITY_CHECK":
+                return new Object[]{10, 1, pick(assignments)};
+            case "SQL_INSERT_QUALITY_CHECK":
+                return new Object[]{pick(assignments), pick(masters), "approved", 0, null, now};
+            case "SQL_INSERT_BULK_QUALITY_CHECK":
+                return new Object[]{pick(assignments), pick(masters), 0, null, now};
+            case "SQL_BRIGADE_ACTIVE_ASSIGNMENTS":
+            case "SQL_BRIGADE_RECENT_COMPLETED":
+            case "SQL_BRIGADE_TOP_WORKERS":
+                return new Object[]{pick(brigades)};
+            case "SQL_MASTER_SNAPSHOT":
+                return new Object[]{"", pick(masters)};
+            case "SQL_ORDER_QUEUE_NEXT_PAGE": {
+                Object[] key = pick(queueKeys);
+                return new Object[]{PAGE_SIZE, key[0], key[1], key[2]};
+            }
+            case "SQL_ORDER_QUEUE_BY_SLACK_FIRST_PAGE":
+                return new Object[]{now, PAGE_SIZE};
+            case "SQL_ORDER_QUEUE_BY_SLACK_NEXT_PAGE": {
+                Object[] key = pick(slackKeys);
+                return new Object[]{now, PAGE_SIZE, key[0], key[1]};
+            }
+            case "SQL_PRODUCT_BY_ID":
+                return new Object[]{pick(products)};
+            case "SQL_MATERIAL_STOCK":
+                return new Object[]{pick(materials)};
+            case "SQL_RECENT_MATERIAL_USAGE":
+                return new Object[]{weekStart};
+            case "SQL_UNCHECKED_COMPLETED":
+            case "SQL_BACKFILL_COMPLETED_END_TIME":
+            case "SQL_QUALITY_TOTALS":
+            case "SQL_WORKERS_QUALITY":
+            case "SQL_OPERATIONS":
+            case "SQL_ACTIVE_ORDERS":
+            case "SQL_LOW_STOCK_MATERIALS":
+            case "SQL_MATERIALS":
+            case "SQL_ORDER_COUNTS":
+            case "SQL_ACTIVE_ORDERS_PROGRESS":
+            case "SQL_ORDER_PROGRESS":
+            case "SQL_STAGE_PROGRESS":
+            case "SQL_BRIGADE_PERFORMANCE":
+                return new Object[0];
+            default:
+                throw new IllegalArgumentException("Нет параметров для запроса " + name);
+        }
+    }
+
+    // Ввод в строке поиска: начало номера заказа, как при наборе
+    private String searchInput() {
+        String number = pick(orderNumbers);
+        return number.substring(0, 4 + random.nextInt(number.length() - 3));
+    }
+
+    private <T> T pick(List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static long longValue(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    private static List<Integer> integers(Connection connection, String sql) throws SQLException {
+        List<Integer> values = new ArrayList<>();
+        for (Object[] row : rows(connection, sql)) {
+            values.add(((Number) row[0]).intValue());
+        }
+        return values;
+    }
+
+    private static List<String> strings(Connection connection, String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        for (Object[] row : rows(connection, sql)) {
+            values.add((String) row[0]);
+        }
+        return values;
+    }
+
+    private static List<Object[]> rows(Connection connection, String sql) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            int columns = resultSet.getMetaData().getColumnCount();
+            while (resultSet.next()) {
+                Object[] row = new Object[columns];
+                for (int i = 0; i < columns; i++) {
+                    row[i] = resultSet.getObject(i + 1);
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
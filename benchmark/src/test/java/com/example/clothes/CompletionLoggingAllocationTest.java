@@ -0,0 +1,63 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+/**
+ * Проверяет, что работа вокруг UPDATE на пути отметки выполнения из
+ * {@link CompletionLoggingBenchmark} при выключенном отладочном журнале не выделяет
+ * памяти: ни строк сообщений, ни упаковки аргументов, ни объектов трассировки, ни
+ * множеств таблиц при сбросе чтений, а время выполнения ставит сам UPDATE.
+ * Событие шины изменений сюда не входит. Счет байт ведет HotSpot по потоку.
+ */
+public class CompletionLoggingAllocationTest {
+
+    private static final int CALLS = 200_000;
+
+    @Test
+    public void completionPathDoesNotAllocate() {
+        CompletionLoggingBenchmark benchmark = new CompletionLoggingBenchmark();
+        assertFalse(Logger.DEBUG_ENABLED);
+        // Время не форматируется в Java на каждое нажатие
+        assertTrue(DatabaseContract.SQL_RECORD_COMPLETION.contains("datetime('now', 'localtime')"));
+
+        // Прогрев: статистика по ключу создается при первом вызове, дальше код компилирует JIT
+        for (int i = 0; i < CALLS; i++) {
+            benchmark.templated();
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < CALLS; i++) {
+            benchmark.templated();
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        // Небольшой запас на сам замер; одна строка на вызов дала бы мегабайты
+        assertTrue("Выделено " + allocated + " байт за " + CALLS + " вызовов", allocated < 1024);
+
+        // Для сравнения: прежняя склейка строки выделяет память на каждом вызове
+        before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < CALLS; i++) {
+            benchmark.concatenated();
+        }
+        assertTrue(threads.getThreadAllocatedBytes(thread) - before > CALLS * 32L);
+    }
+
+    @Test
+    public void disabledDebugDoesNotFormat() {
+        StringBuilder written = new StringBuilder();
+        Logger log = new Logger("test", (priority, tag, message) -> written.append(priority).append(message));
+
+        log.d("не пишется {}", 1);
+        log.e("пишется {}", 2);
+
+        assertEquals(Logger.ERROR + "пишется 2", written.toString());
+    }
+}
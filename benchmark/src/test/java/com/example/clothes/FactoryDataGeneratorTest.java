@@ -0,0 +1,142 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Проверяет, что {@link FactoryDataGenerator} с одним seed дает ту же БД, а данные
+ * согласованы так же, как в приложении: задания идут по маршруту изделия, статусы заказов
+ * сходятся со статусами заданий, проверки качества только по выполненным заданиям,
+ * а остаток материалов в журнале не уходит в минус.
+ */
+public class FactoryDataGeneratorTest {
+
+    private static final File ASSET_DB = new File(System.getProperty("clothes.assetDb",
+            "../app/src/main/assets/databases/narek.db"));
+    private static final String[] TABLES = {"users", "products", "operations", "orders", "assignments",
+            "quality_checks", "materials", "material_usage", "stock_movements", "shifts"};
+
+    private File dir;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("factory").toFile();
+        connection = DriverManager.getConnection("jdbc:sqlite:" +
+                FactoryDataGenerator.obtain(dir, ASSET_DB, 40, 8000, 7).getPath());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void sameSeedGivesSameDatabase() throws Exception {
+        File again = new File(dir, "again.db");
+        new FactoryDataGenerator(40, 8000, 7).writeTo(again, ASSET_DB);
+        File other = new File(dir, "other.db");
+        new FactoryDataGenerator(40, 8000, 8).writeTo(other, ASSET_DB);
+
+        String digest = digest(connection);
+        try (Connection repeated = DriverManager.getConnection("jdbc:sqlite:" + again.getPath());
+             Connection different = DriverManager.getConnection("jdbc:sqlite:" + other.getPath())) {
+            assertEquals(digest, digest(repeated));
+            assertNotEquals(digest, digest(different));
+        }
+    }
+
+    @Test
+    public void assignmentsFollowOrderLifecycle() throws Exception {
+        assertEquals(8000, count("SELECT COUNT(*) FROM assignments"));
+        assertEquals(0, count("SELECT COUNT(*) FROM orders o WHERE status = 'completed' " +
+                "AND EXISTS (SELECT 1 FROM assignments WHERE order_id = o.id AND status <> 'completed')"));
+        assertEquals(0, count("SELECT COUNT(*) FROM orders o WHERE status IN ('new', 'in_progress') " +
+                "AND EXISTS (SELECT 1 FROM assignments WHERE order_id = o.id AND status = 'cancelled')"));
+        assertEquals(0, count("SELECT COUNT(*) FROM assignments a JOIN orders o ON o.id = a.order_id " +
+                "WHERE o.status = 'new'"));
+        assertTrue(count("SELECT COUNT(*) FROM orders WHERE status = 'in_progress'") > 0);
+        assertTrue(count("SELECT COUNT(*) FROM assignments WHERE status = 'assigned'") > 0);
+
+        // Операция начинается не раньше, чем по тому же заказу началась предыдущая по маршруту
+        assertEquals(0, count("SELECT COUNT(*) FROM assignments a " +
+                "JOIN operations op ON op.id = a.operation_id " +
+                "JOIN orders o ON o.id = a.order_id " +
+                "WHERE op.product_id <> o.product_id OR a.start_time < (SELECT MIN(b.start_time) " +
+                "FROM assignments b JOIN operations p ON p.id = b.operation_id " +
+                "WHERE b.order_id = a.order_id AND p.sequence_order < op.sequence_order)"));
+        assertEquals(0, count("SELECT COUNT(*) FROM assignments WHERE " +
+                "(status = 'completed' AND (end_time IS NULL OR actual_quantity > planned_quantity)) " +
+                "OR (status = 'in_progress' AND (start_time IS NULL OR actual_quantity >= planned_quantity)) " +
+                "OR (status = 'assigned' AND (start_time IS NOT NULL OR actual_quantity > 0)) " +
+                "OR start_time > '" + FactoryDataGenerator.END_TIME + "' " +
+                "OR end_time > '" + FactoryDataGenerator.END_TIME + "'"));
+
+        // Проверяет мастер бригады рабочего и только выполненное задание, после его окончания
+        assertEquals(count("SELECT COUNT(*) FROM quality_checks"),
+                count("SELECT COUNT(*) FROM assignments WHERE quality_checked = 1"));
+        assertEquals(0, count("SELECT COUNT(*) FROM quality_checks q " +
+                "JOIN assignments a ON a.id = q.assignment_id " +
+                "JOIN users w ON w.id = a.user_id JOIN users m ON m.id = q.inspector_id " +
+                "WHERE a.status <> 'completed' OR q.check_date < a.end_time OR m.role <> 'master' " +
+                "OR m.brigade <> w.brigade OR q.check_date > '" + FactoryDataGenerator.END_TIME + "'"));
+        assertTrue(count("SELECT COUNT(*) FROM quality_checks WHERE result = 'rejected'") > 0);
+    }
+
+    @Test
+    public void materialIssuesKeepStockPositive() throws Exception {
+        assertTrue(count("SELECT COUNT(*) FROM material_usage") > 0);
+        assertEquals(count("SELECT ROUND(SUM(quantity_used)) FROM material_usage"),
+                count("SELECT ROUND(-SUM(quantity)) FROM stock_movements WHERE kind = '" +
+                        DatabaseContract.STOCK_CONSUMPTION + "'"));
+        assertEquals(0, count("SELECT COUNT(*) FROM materials WHERE current_stock < 0"));
+        // Остаток на конец каждого дня с расходом, по снимкам журнала
+        assertEquals(0, count("SELECT COUNT(*) FROM stock_snapshots WHERE balance < 0"));
+    }
+
+    private long count(String sql) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static String digest(Connection connection) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (String table : TABLES) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT * FROM " + table + " ORDER BY id")) {
+                int columns = resultSet.getMetaData().getColumnCount();
+                while (resultSet.next()) {
+                    for (int column = 1; column <= columns; column++) {
+                        digest.update(String.valueOf(resultSet.getString(column)).getBytes("UTF-8"));
+                        digest.update((byte) 0);
+                    }
+                }
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte value : digest.digest()) {
+            hex.append(String.format("%02x", value));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.clothes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Проверяет, что {@link QueryBenchmark} меряет каждый запрос {@link DatabaseContract},
+ * у каждого есть параметры в {@link QueryArguments}, и все они выполняются на БД
+ * от {@link FactoryDataGenerator} со схемой текущей версии.
+ */
+public class QueryArgumentsTest {
+
+    private static final File ASSET_DB = new File(System.getProperty("clothes.assetDb",
+            "../app/src/main/assets/databases/narek.db"));
+
+    private File dir;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("factory").toFile();
+        File database = FactoryDataGenerator.obtain(dir, ASSET_DB, 30, 5000, 1);
+        connection = DriverManager.getConnection("jdbc:sqlite:" + database.getPath());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void benchmarkCoversEveryContractQuery() throws Exception {
+        String[] measured = QueryBenchmark.class.getField("query").getAnnotation(Param.class).value();
+        assertEquals(new TreeSet<>(contractQueries()), new TreeSet<>(Arrays.asList(measured)));
+    }
+
+    @Test
+    public void everyQueryRunsOnGeneratedDatabase() throws Exception {
+        QueryArguments arguments = new QueryArguments(connection, 1);
+        connection.setAutoCommit(false);
+        for (String name : contractQueries()) {
+            String sql = (String) DatabaseContract.class.getField(name).get(null);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                Object[] values = arguments.next(name);
+                for (int i = 0; i < values.length; i++) {
+                    statement.setObject(i + 1, values[i]);
+                }
+                if (statement.execute()) {
+                    statement.getResultSet().close();
+                }
+            } catch (Exception e) {
+                throw new AssertionError(name + ": " + e.getMessage(), e);
+            }
+            connection.rollback();
+        }
+    }
+
+    @Test
+    public void generatedSchemaMatchesCurrentVersion() throws Exception {
+        for (Map.Entry<String, String[]> table : DatabaseContract.EXPECTED_COLUMNS.entrySet()) {
+            List<String> columns = new ArrayList<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("PRAGMA table_info(\"" + table.getKey() + "\")")) {
+                while (resultSet.next()) {
+                    columns.add(resultSet.getString("name"));
+                }
+            }
+            assertEquals(table.getKey(), new TreeSet<>(Arrays.asList(table.getValue())), new TreeSet<>(columns));
+        }
+
+        // Триггеры стоят снова, а сводки сходятся с историей заданий
+        assertTrue(count("SELECT COUNT(*) FROM sqlite_master WHERE type = 'trigger'") > 0);
+        assertEquals(count("SELECT COALESCE(SUM(actual_quantity), 0) FROM assignments"),
+                count("SELECT COALESCE(SUM(total_quantity), 0) FROM worker_stats"));
+        assertEquals(count("SELECT COUNT(*) FROM users WHERE role = 'worker'"), 30);
+        assertEquals(count("SELECT COUNT(*) FROM assignments"), 5000);
+    }
+
+    private long count(String sql) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static List<String> contractQueries() throws IllegalAccessException {
+        List<String> names = new ArrayList<>();
+        for (Field field : DatabaseContract.class.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) && Modifier.isPublic(modifiers) && field.getType() == String.class
+                    && field.getName().startsWith("SQL_")) {
+                names.add(field.getName());
+            }
+        }
+        return names;
+    }
+}